@@ -18,13 +18,18 @@ intellij {
     version.set("2024.1.7")
     type.set("IC") // Target IDE Platform
 
-    plugins.set(listOf("com.intellij.java"))
+    // Gradle 插件提供 Tooling API，用于在常驻守护进程中运行测试
+    plugins.set(listOf("com.intellij.java", "com.intellij.gradle"))
 }
 
 dependencies {
     // JaCoCo dependencies for coverage analysis
     implementation("org.jacoco:org.jacoco.core:0.8.11")
     implementation("org.jacoco:org.jacoco.report:0.8.11")
+    // 常驻测试 JVM 使用的 JaCoCo 代理（AgentJar 负责解压 jacocoagent.jar）
+    implementation("org.jacoco:org.jacoco.agent:0.8.11")
+    // ClassFilter 直接使用 ASM 读取类文件头，与 JaCoCo 0.8.11 依赖的版本一致
+    implementation("org.ow2.asm:asm:9.6")
     
     // JUnit dependencies for testing
     testImplementation("org.junit.jupiter:junit-jupiter:5.9.2")
@@ -1,7 +1,7 @@
 package com.honghu.ut.test.ai.assistant.actions;
 
 import com.honghu.ut.test.ai.assistant.jacoco.JacocoCoverageService;
-import com.honghu.ut.test.ai.assistant.jacoco.CoverageData;
+import com.honghu.ut.test.ai.assistant.jacoco.CoverageSnapshot;
 import com.honghu.ut.test.ai.assistant.jacoco.JacocoUtils;
 import com.honghu.ut.test.ai.assistant.plugin.UtAssistantPlugin;
 import com.intellij.openapi.actionSystem.AnAction;
@@ -9,6 +9,7 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -21,12 +22,9 @@ import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentManager;
 import com.intellij.ui.content.ContentFactory;
 import com.honghu.ut.test.ai.assistant.ui.CoverageToolWindowPanel;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * 分析覆盖率的动作类
  * 允许用户右键点击文件夹来分析单元测试覆盖率
@@ -49,9 +47,9 @@ public class AnalyzeCoverageAction extends AnAction {
         // 获取当前选中的文件或目录
         VirtualFile selectedFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
         
-        if (selectedFile == null || !selectedFile.isDirectory()) {
+        if (!JacocoCoverageService.isAnalysisTarget(selectedFile)) {
             Messages.showMessageDialog(project, 
-                "请右键点击一个目录来分析覆盖率", 
+                "请右键点击一个目录或 JAR 来分析覆盖率", 
                 "错误", 
                 Messages.getErrorIcon());
             return;
@@ -73,11 +71,14 @@ public class AnalyzeCoverageAction extends AnAction {
                     
                     // 确定要分析的目录
                     String targetPath = selectedFile.getPath();
-                    indicator.setText("分析目录: " + targetPath);
+                    indicator.setText("分析: " + targetPath);
                     
                     // 自动执行测试并生成覆盖率数据
                     indicator.setText("正在分析类文件并生成覆盖率数据...");
-                    coverageService.executeTestsAndGenerateCoverage(targetPath);
+                    coverageService.executeTestsAndGenerateCoverage(targetPath, indicator, partial ->
+                        indicator.setText(String.format("正在分析类文件... 已汇总 %d 个类，当前行覆盖率 %.1f%%",
+                            partial.getClassCount(),
+                            partial.getCoveredPercent(CounterEntity.LINE, 0, partial.getClassCount()))));
                     
                     indicator.setText("覆盖率分析完成");
                     
@@ -86,12 +87,12 @@ public class AnalyzeCoverageAction extends AnAction {
                         updateUIWithCoverageData(project, coverageService);
                         
                         // 获取覆盖率数据以确定显示的消息
-                        List<CoverageData> coverageDataList = coverageService.getAllCoverageData();
+                        CoverageSnapshot snapshot = coverageService.getSnapshot();
                         String message;
-                        if (coverageDataList.isEmpty()) {
+                        if (snapshot.isEmpty()) {
                             message = "覆盖率分析完成！未找到可分析的类文件。\n请确保项目已编译且包含.class文件。";
                         } else {
-                            message = "覆盖率分析完成！已分析 " + targetPath + " 目录的 " + coverageDataList.size() + " 个类文件。";
+                            message = "覆盖率分析完成！已分析 " + targetPath + " 的 " + snapshot.getClassCount() + " 个类文件。";
                         }
                         
                         Messages.showMessageDialog(project, 
@@ -99,6 +100,9 @@ public class AnalyzeCoverageAction extends AnAction {
                             "分析完成", 
                             Messages.getInformationIcon());
                     });
+                } catch (ProcessCanceledException ex) {
+                    // 用户取消分析，交由进度框架处理
+                    throw ex;
                 } catch (Exception ex) {
                     LOG.error("覆盖率分析期间出错", ex);
                     ApplicationManager.getApplication().invokeLater(() -> {
@@ -117,9 +121,6 @@ public class AnalyzeCoverageAction extends AnAction {
      */
     private void updateUIWithCoverageData(Project project, JacocoCoverageService coverageService) {
         try {
-            // 获取覆盖率数据
-            List<CoverageData> coverageDataList = coverageService.getAllCoverageData();
-            
             // 获取工具窗口并更新内容
             ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow("UT Coverage");
             if (toolWindow != null) {
@@ -128,19 +129,7 @@ public class AnalyzeCoverageAction extends AnAction {
                 if (content != null && content.getComponent() instanceof CoverageToolWindowPanel) {
                     CoverageToolWindowPanel panel = (CoverageToolWindowPanel) content.getComponent();
                     
-                    // 清除之前的数据
-                    Object[][] tableData = new Object[coverageDataList.size()][5];
-                    for (int i = 0; i < coverageDataList.size(); i++) {
-                        CoverageData data = coverageDataList.get(i);
-                        tableData[i][0] = data.getName(); // 类名
-                        tableData[i][1] = data.getFormattedLineCoverage(); // 行覆盖率
-                        tableData[i][2] = data.getFormattedBranchCoverage(); // 分支覆盖率
-                        tableData[i][3] = data.getFormattedMethodCoverage(); // 方法覆盖率
-                        tableData[i][4] = data.getFormattedClassCoverage(); // 类覆盖率
-                    }
-                    
-                    // 更新UI
-                    panel.updateCoverageData(tableData);
+                    // 更新UI（树形结构直接读取覆盖率快照）
                     panel.updateReportText(coverageService.generateCoverageReport());
                     panel.updateCoverageSummary(); // 更新覆盖率摘要
                 }
@@ -150,45 +139,6 @@ public class AnalyzeCoverageAction extends AnAction {
         }
     }
     
-    /**
-     * 查找目录中的类文件
-     */
-    private List<String> findClassFiles(String basePath, ProgressIndicator indicator) {
-        List<String> classFiles = new ArrayList<>();
-        File baseDir = new File(basePath);
-        
-        // 递归查找类文件
-        findClassFilesRecursive(baseDir, classFiles, indicator);
-        
-        return classFiles;
-    }
-    
-    private void findClassFilesRecursive(File dir, List<String> classFiles, ProgressIndicator indicator) {
-        if (dir == null || !dir.exists() || !dir.isDirectory()) {
-            return;
-        }
-        
-        File[] files = dir.listFiles();
-        if (files == null) return;
-        
-        for (File file : files) {
-            if (indicator.isCanceled()) {
-                return;
-            }
-            
-            if (file.isDirectory()) {
-                // 跳过某些不需要的目录
-                if (!file.getName().equals(".gradle") && 
-                    !file.getName().equals(".git") &&
-                    !file.getName().startsWith(".")) {
-                    findClassFilesRecursive(file, classFiles, indicator);
-                }
-            } else if (file.getName().endsWith(".class")) {
-                classFiles.add(file.getAbsolutePath());
-            }
-        }
-    }
-    
     /**
      * 查找jacoco.exec文件
      */
@@ -200,7 +150,7 @@ public class AnalyzeCoverageAction extends AnAction {
     public void update(@NotNull AnActionEvent e) {
         // 根据选中的文件类型启用/禁用动作
         VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
-        boolean enabled = file != null && file.isDirectory();
+        boolean enabled = JacocoCoverageService.isAnalysisTarget(file);
         e.getPresentation().setEnabledAndVisible(enabled);
     }
 }
\ No newline at end of file
@@ -1,13 +1,14 @@
 package com.honghu.ut.test.ai.assistant.actions;
 
 import com.honghu.ut.test.ai.assistant.jacoco.JacocoCoverageService;
-import com.honghu.ut.test.ai.assistant.jacoco.CoverageData;
+import com.honghu.ut.test.ai.assistant.jacoco.CoverageSnapshot;
 import com.honghu.ut.test.ai.assistant.plugin.UtAssistantPlugin;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -21,8 +22,6 @@ import com.intellij.ui.content.ContentManager;
 import com.honghu.ut.test.ai.assistant.ui.CoverageToolWindowPanel;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 /**
  * 生成测试报告动作
  * 与之前的"生成单元测试覆盖率报告"功能一致
@@ -44,9 +43,9 @@ public class GenerateTestReportAction extends AnAction {
         // 获取当前选中的文件或目录
         VirtualFile selectedFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
         
-        if (selectedFile == null || !selectedFile.isDirectory()) {
+        if (!JacocoCoverageService.isAnalysisTarget(selectedFile)) {
             Messages.showMessageDialog(project, 
-                "请右键点击一个目录来生成测试报告", 
+                "请右键点击一个目录或 JAR 来生成测试报告", 
                 "错误", 
                 Messages.getErrorIcon());
             return;
@@ -68,11 +67,11 @@ public class GenerateTestReportAction extends AnAction {
                     
                     // 确定要分析的目录
                     String targetPath = selectedFile.getPath();
-                    indicator.setText("分析目录: " + targetPath);
+                    indicator.setText("分析: " + targetPath);
                     
                     // 自动执行测试并生成覆盖率数据
                     indicator.setText("正在分析类文件并生成覆盖率数据...");
-                    coverageService.executeTestsAndGenerateCoverage(targetPath);
+                    coverageService.executeTestsAndGenerateCoverage(targetPath, indicator);
                     
                     indicator.setText("覆盖率分析完成");
                     
@@ -81,12 +80,12 @@ public class GenerateTestReportAction extends AnAction {
                         updateUIWithCoverageData(project, coverageService);
                         
                         // 获取覆盖率数据以确定显示的消息
-                        List<CoverageData> coverageDataList = coverageService.getAllCoverageData();
+                        CoverageSnapshot snapshot = coverageService.getSnapshot();
                         String message;
-                        if (coverageDataList.isEmpty()) {
+                        if (snapshot.isEmpty()) {
                             message = "测试报告生成完成！未找到可分析的类文件。\n请确保项目已编译且包含.class文件。";
                         } else {
-                            message = "测试报告生成完成！已分析 " + targetPath + " 目录的 " + coverageDataList.size() + " 个类文件。";
+                            message = "测试报告生成完成！已分析 " + targetPath + " 的 " + snapshot.getClassCount() + " 个类文件。";
                         }
                         
                         Messages.showMessageDialog(project, 
@@ -94,6 +93,9 @@ public class GenerateTestReportAction extends AnAction {
                             "报告生成完成", 
                             Messages.getInformationIcon());
                     });
+                } catch (ProcessCanceledException ex) {
+                    // 用户取消分析，交由进度框架处理
+                    throw ex;
                 } catch (Exception ex) {
                     LOG.error("测试报告生成期间出错", ex);
                     ApplicationManager.getApplication().invokeLater(() -> {
@@ -112,9 +114,6 @@ public class GenerateTestReportAction extends AnAction {
      */
     private void updateUIWithCoverageData(Project project, JacocoCoverageService coverageService) {
         try {
-            // 获取覆盖率数据
-            List<CoverageData> coverageDataList = coverageService.getAllCoverageData();
-            
             // 获取工具窗口并更新内容
             ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow("Tape AI UT assistant");
             if (toolWindow != null) {
@@ -123,19 +122,7 @@ public class GenerateTestReportAction extends AnAction {
                 if (content != null && content.getComponent() instanceof CoverageToolWindowPanel) {
                     CoverageToolWindowPanel panel = (CoverageToolWindowPanel) content.getComponent();
                     
-                    // 清除之前的数据
-                    Object[][] tableData = new Object[coverageDataList.size()][5];
-                    for (int i = 0; i < coverageDataList.size(); i++) {
-                        CoverageData data = coverageDataList.get(i);
-                        tableData[i][0] = data.getName(); // 类名
-                        tableData[i][1] = data.getFormattedLineCoverage(); // 行覆盖率
-                        tableData[i][2] = data.getFormattedBranchCoverage(); // 分支覆盖率
-                        tableData[i][3] = data.getFormattedMethodCoverage(); // 方法覆盖率
-                        tableData[i][4] = data.getFormattedClassCoverage(); // 类覆盖率
-                    }
-                    
-                    // 更新UI
-                    panel.updateCoverageData(tableData);
+                    // 更新UI（树形结构直接读取覆盖率快照）
                     panel.updateReportText(coverageService.generateCoverageReport());
                     panel.updateCoverageSummary(); // 更新覆盖率摘要
                 }
@@ -149,7 +136,7 @@ public class GenerateTestReportAction extends AnAction {
     public void update(@NotNull AnActionEvent e) {
         // 根据选中的文件类型启用/禁用动作
         VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
-        boolean enabled = file != null && file.isDirectory();
+        boolean enabled = JacocoCoverageService.isAnalysisTarget(file);
         e.getPresentation().setEnabledAndVisible(enabled);
     }
 }
\ No newline at end of file
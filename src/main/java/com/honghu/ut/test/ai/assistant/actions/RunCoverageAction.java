@@ -1,12 +1,15 @@
 package com.honghu.ut.test.ai.assistant.actions;
 
+import com.honghu.ut.test.ai.assistant.jacoco.ExecFileMerger;
 import com.honghu.ut.test.ai.assistant.jacoco.JacocoCoverageService;
+import com.honghu.ut.test.ai.assistant.jacoco.MappedExecFileReader;
 import com.honghu.ut.test.ai.assistant.plugin.UtAssistantPlugin;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -15,8 +18,6 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.ui.Messages;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,7 +27,7 @@ import java.util.List;
  * 功能：
  * - 在后台任务中运行 JaCoCo 覆盖率分析
  * - 更新 UI 以显示分析结果
- * - 支持对选中的目录或整个项目进行分析
+ * - 支持对选中的目录、JAR 等归档或整个项目进行分析
  */
 public class RunCoverageAction extends AnAction {
     private static final Logger LOG = Logger.getInstance(RunCoverageAction.class);
@@ -48,21 +49,21 @@ public class RunCoverageAction extends AnAction {
                 try {
                     indicator.setText("初始化 JaCoCo 覆盖率分析...");
                     
-                    // 获取或创建覆盖率服务
-                    JacocoCoverageService coverageService = project.getService(JacocoCoverageService.class);
+                    // 获取项目共享的覆盖率服务
+                    JacocoCoverageService coverageService = UtAssistantPlugin.getInstance(project).getJacocoCoverageService();
                     
                     // 确定要分析的目录
                     String targetPath;
-                    if (selectedFile != null && selectedFile.isDirectory()) {
+                    if (JacocoCoverageService.isAnalysisTarget(selectedFile)) {
                         targetPath = selectedFile.getPath();
-                        indicator.setText("分析目录: " + targetPath);
+                        indicator.setText("分析: " + targetPath);
                     } else {
                         targetPath = project.getBasePath();
                         indicator.setText("分析整个项目: " + project.getName());
                     }
                     
                     // 查找并分析类文件
-                    List<String> classFilePaths = findClassFiles(targetPath, indicator);
+                    List<String> classFilePaths = coverageService.findClassFilesForPath(targetPath, indicator);
                     
                     if (classFilePaths.isEmpty()) {
                         indicator.setText("未找到类文件进行分析");
@@ -77,25 +78,27 @@ public class RunCoverageAction extends AnAction {
                     
                     indicator.setText("分析 " + classFilePaths.size() + " 个类文件...");
                     
-                    // 加载执行数据 (假设存在jacoco.exec文件)
-                    String execFilePath = findExecFile(project.getBasePath());
-                    if (execFilePath != null) {
-                        coverageService.loadExecutionData(execFilePath);
-                        indicator.setText("加载执行数据: " + execFilePath);
-                    }
+                    // 查找并合并所有 exec 文件，只读取本次要分析的类的探针数据
+                    indicator.setText("合并执行数据...");
+                    ExecFileMerger.MergeResult mergeResult = coverageService.loadMergedExecutionData(
+                        project.getBasePath(), MappedExecFileReader.simpleNameFilter(classFilePaths), indicator);
+                    indicator.setText(mergeResult.getSummary());
                     
                     // 分析类文件
-                    coverageService.analyzeClassFiles(classFilePaths);
+                    coverageService.analyzeClassFiles(classFilePaths, indicator);
                     
                     indicator.setText("覆盖率分析完成");
                     
                     ApplicationManager.getApplication().invokeLater(() -> {
                         // 更新UI显示结果
                         Messages.showMessageDialog(project, 
-                            "覆盖率分析完成！共分析了 " + classFilePaths.size() + " 个类文件", 
+                            "覆盖率分析完成！共分析了 " + classFilePaths.size() + " 个类文件\n" + mergeResult.getSummary(), 
                             "分析完成", 
                             Messages.getInformationIcon());
                     });
+                } catch (ProcessCanceledException ex) {
+                    // 用户取消分析，交由进度框架处理
+                    throw ex;
                 } catch (Exception ex) {
                     LOG.error("覆盖率分析期间出错", ex);
                     ApplicationManager.getApplication().invokeLater(() -> {
@@ -108,62 +111,4 @@ public class RunCoverageAction extends AnAction {
             }
         });
     }
-    
-    /**
-     * 查找目录中的类文件
-     */
-    private List<String> findClassFiles(String basePath, ProgressIndicator indicator) {
-        List<String> classFiles = new ArrayList<>();
-        File baseDir = new File(basePath);
-        
-        // 递归查找类文件
-        findClassFilesRecursive(baseDir, classFiles, indicator);
-        
-        return classFiles;
-    }
-    
-    private void findClassFilesRecursive(File dir, List<String> classFiles, ProgressIndicator indicator) {
-        File[] files = dir.listFiles();
-        if (files == null) return;
-        
-        for (File file : files) {
-            if (indicator.isCanceled()) {
-                return;
-            }
-            
-            if (file.isDirectory()) {
-                // 跳过某些不需要的目录
-                if (!file.getName().equals(".gradle") && 
-                    !file.getName().equals("build") && 
-                    !file.getName().equals(".git") &&
-                    !file.getName().startsWith(".")) {
-                    findClassFilesRecursive(file, classFiles, indicator);
-                }
-            } else if (file.getName().endsWith(".class")) {
-                classFiles.add(file.getAbsolutePath());
-            }
-        }
-    }
-    
-    /**
-     * 查找jacoco.exec文件
-     */
-    private String findExecFile(String basePath) {
-        // 在常见位置查找jacoco.exec文件
-        String[] possiblePaths = {
-            basePath + "/build/jacoco.exec",
-            basePath + "/target/jacoco.exec",
-            basePath + "/build/jacoco/test.exec",
-            basePath + "/jacoco.exec"
-        };
-        
-        for (String path : possiblePaths) {
-            File execFile = new File(path);
-            if (execFile.exists()) {
-                return path;
-            }
-        }
-        
-        return null; // 未找到
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.honghu.ut.test.ai.assistant.actions;
+
+import com.honghu.ut.test.ai.assistant.ui.CoverageToolWindowPanel;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.ui.content.Content;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * 运行选中目录测试的动作
+ * 只构建选中目录所属的模块并运行其中的测试，完成后分析覆盖率
+ *
+ * 功能：
+ * - 打开覆盖率工具窗口，在测试视图中逐个显示测试结果
+ * - 选中测试源码中的包目录时只运行该包下的测试
+ */
+public class RunTestsAction extends AnAction {
+
+    public RunTestsAction() {
+        super("运行测试并分析覆盖率");
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        VirtualFile selectedFile = e.getData(CommonDataKeys.VIRTUAL_FILE);
+        if (project == null || selectedFile == null || !selectedFile.isDirectory()) {
+            return;
+        }
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow("Tape AI UT assistant");
+        if (toolWindow == null) {
+            return;
+        }
+        // 工具窗口的内容在第一次打开时才创建，激活后再取面板
+        toolWindow.activate(() -> {
+            Content content = toolWindow.getContentManager().getContent(0);
+            if (content != null && content.getComponent() instanceof CoverageToolWindowPanel) {
+                ((CoverageToolWindowPanel) content.getComponent()).runTestsWithCoverage(selectedFile.getPath(), List.of());
+            }
+        });
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null && file != null && file.isDirectory());
+    }
+}
@@ -31,7 +31,7 @@ public class TapeAssistantActionGroup extends ActionGroup {
     public void update(@NotNull AnActionEvent e) {
         // 根据选中的文件类型启用/禁用动作组
         VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
-        boolean enabled = file != null && file.isDirectory();
+        boolean enabled = JacocoCoverageService.isAnalysisTarget(file);
         e.getPresentation().setEnabledAndVisible(enabled);
     }
 
@@ -50,6 +50,7 @@ public class TapeAssistantActionGroup extends ActionGroup {
         return new AnAction[]{
             new OpenAIUnitTestAction(),
             new GenerateTestReportAction(),
+            new RunTestsAction(),
             new AIFixReportAction()
         };
     }
@@ -31,7 +31,7 @@ public class UtAssistantConfigurable implements Configurable {
     @Nullable
     @Override
     public JComponent createComponent() {
-        configPanel = new UtAssistantConfigurationPanel();
+        configPanel = new UtAssistantConfigurationPanel(UtAssistantSettings.getInstance(project));
         return configPanel.getRootPanel();
     }
 
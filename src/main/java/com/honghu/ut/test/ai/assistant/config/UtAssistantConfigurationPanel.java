@@ -18,6 +18,10 @@ import java.awt.*;
  * - 提供 JaCoCo 路径配置
  * - 设置覆盖率阈值
  * - 配置自动运行和生成选项
+ * - 配置覆盖率分析线程数和 exec 文件匹配模式
+ * - 配置覆盖率会话的堆内存预算
+ * - 配置实时覆盖率的代理地址、模式和转储间隔
+ * - 配置参与分析的类的包含 / 排除模式和排除注解
  */
 public class UtAssistantConfigurationPanel {
     private JBPanel<?> rootPanel;              // 根面板
@@ -28,14 +32,30 @@ public class UtAssistantConfigurationPanel {
     private JBCheckBox enableAutoRunTests;     // 启用自动运行测试
     private JBCheckBox enableAutoGenerateTests; // 启用自动生成测试
     private JBCheckBox showCoverageInEditor;   // 在编辑器中显示覆盖率
+    private JBCheckBox lightweightAnalysis;    // 轻量分析模式
+    private JBTextField analysisParallelism;   // 分析线程数
+    private JBTextField execFileGlob;          // exec 文件匹配模式
+    private JBTextField sessionHeapBudgetMb;   // 覆盖率会话堆内存预算
+    private JBTextField liveAddress;           // 实时覆盖率代理地址
+    private JBTextField liveDumpInterval;      // 实时覆盖率转储间隔
+    private JBCheckBox liveListen;             // 实时覆盖率监听模式
+    private JBCheckBox liveResetOnDump;        // 转储后重置代理探针
+    private JBTextField classIncludes;         // 包含的类
+    private JBTextField classExcludes;         // 排除的类
+    private JBTextField excludeAnnotations;    // 排除注解
+    private JBCheckBox inProcessTests;         // 进程内运行测试
+    private JBCheckBox testWorker;             // 常驻测试 JVM
+    private final UtAssistantSettings settings;
 
     // 文件浏览按钮
     private TextFieldWithBrowseButton execPathBrowse;
     private TextFieldWithBrowseButton classPathBrowse;
 
-    public UtAssistantConfigurationPanel() {
+    public UtAssistantConfigurationPanel(UtAssistantSettings settings) {
+        this.settings = settings;
         createUIComponents();
         setupUI();
+        resetSettings();
     }
 
     private void createUIComponents() {
@@ -49,6 +69,19 @@ public class UtAssistantConfigurationPanel {
         enableAutoRunTests = new JBCheckBox("生成后自动运行测试");
         enableAutoGenerateTests = new JBCheckBox("为未覆盖的方法自动生成测试");
         showCoverageInEditor = new JBCheckBox("在编辑器中显示覆盖率");
+        lightweightAnalysis = new JBCheckBox("轻量分析模式（只保留类级计数器，降低内存占用）");
+        analysisParallelism = new JBTextField("0");
+        execFileGlob = new JBTextField(UtAssistantSettings.DEFAULT_EXEC_FILE_GLOB);
+        sessionHeapBudgetMb = new JBTextField("256");
+        liveAddress = new JBTextField("localhost:6300");
+        liveDumpInterval = new JBTextField("5");
+        liveListen = new JBCheckBox("实时覆盖率监听模式（代理以 output=tcpclient 连接到此地址）");
+        liveResetOnDump = new JBCheckBox("实时覆盖率每次转储后重置代理探针");
+        classIncludes = new JBTextField();
+        classExcludes = new JBTextField();
+        excludeAnnotations = new JBTextField();
+        inProcessTests = new JBCheckBox("在 IDE 进程内运行测试（内存插桩，不经过构建工具，需要先编译）");
+        testWorker = new JBCheckBox("在常驻的测试 JVM 中运行测试（JaCoCo 代理，多次运行复用，需要先编译）");
 
         // 文件路径的浏览按钮
         execPathBrowse = new TextFieldWithBrowseButton(jacocoExecPath);
@@ -100,13 +133,71 @@ public class UtAssistantConfigurationPanel {
         gbc.gridx = 1;
         mainPanel.add(minBranchCoverage, gbc);
 
+        // 分析线程数
+        gbc.gridx = 0; gbc.gridy = 4;
+        mainPanel.add(new JBLabel("分析线程数 (0=自动, 1=串行):"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(analysisParallelism, gbc);
+
+        // exec 文件匹配模式
+        gbc.gridx = 0; gbc.gridy = 5;
+        mainPanel.add(new JBLabel("Exec 文件匹配模式 (glob):"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(execFileGlob, gbc);
+
+        // 覆盖率会话堆内存预算
+        gbc.gridx = 0; gbc.gridy = 6;
+        mainPanel.add(new JBLabel("覆盖率会话内存预算 (MB):"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(sessionHeapBudgetMb, gbc);
+
+        // 实时覆盖率代理地址
+        gbc.gridx = 0; gbc.gridy = 7;
+        mainPanel.add(new JBLabel("实时覆盖率代理地址 (host:port):"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(liveAddress, gbc);
+
+        // 实时覆盖率转储间隔
+        gbc.gridx = 0; gbc.gridy = 8;
+        mainPanel.add(new JBLabel("实时覆盖率转储间隔 (秒):"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(liveDumpInterval, gbc);
+
+        // 包含的类
+        gbc.gridx = 0; gbc.gridy = 9;
+        mainPanel.add(new JBLabel("包含的类 (例如 com.foo.*，为空表示全部):"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(classIncludes, gbc);
+
+        // 排除的类
+        gbc.gridx = 0; gbc.gridy = 10;
+        mainPanel.add(new JBLabel("排除的类 (例如 com.foo.dto.*, *Test):"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(classExcludes, gbc);
+
+        // 排除注解
+        gbc.gridx = 0; gbc.gridy = 11;
+        mainPanel.add(new JBLabel("排除带有以下注解的类:"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(excludeAnnotations, gbc);
+
         // 复选框
-        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2;
+        gbc.gridx = 0; gbc.gridy = 12; gbc.gridwidth = 2;
         mainPanel.add(enableAutoRunTests, gbc);
-        gbc.gridy = 5;
+        gbc.gridy = 13;
         mainPanel.add(enableAutoGenerateTests, gbc);
-        gbc.gridy = 6;
+        gbc.gridy = 14;
         mainPanel.add(showCoverageInEditor, gbc);
+        gbc.gridy = 15;
+        mainPanel.add(lightweightAnalysis, gbc);
+        gbc.gridy = 16;
+        mainPanel.add(liveListen, gbc);
+        gbc.gridy = 17;
+        mainPanel.add(liveResetOnDump, gbc);
+        gbc.gridy = 18;
+        mainPanel.add(inProcessTests, gbc);
+        gbc.gridy = 19;
+        mainPanel.add(testWorker, gbc);
 
         rootPanel.add(mainPanel, BorderLayout.CENTER);
     }
@@ -116,21 +207,92 @@ public class UtAssistantConfigurationPanel {
     }
 
     public boolean isModified() {
-        // 在实际实现中，这将比较当前值与保存的值
-        return true;
+        UtAssistantSettings.SettingsState state = settings.getState();
+        return !jacocoExecPath.getText().equals(state.jacocoExecPath)
+            || !jacocoClassPath.getText().equals(state.jacocoClassPath)
+            || parseDouble(minLineCoverage.getText(), state.minLineCoverage) != state.minLineCoverage
+            || parseDouble(minBranchCoverage.getText(), state.minBranchCoverage) != state.minBranchCoverage
+            || enableAutoRunTests.isSelected() != state.enableAutoRunTests
+            || enableAutoGenerateTests.isSelected() != state.enableAutoGenerateTests
+            || showCoverageInEditor.isSelected() != state.showCoverageInEditor
+            || lightweightAnalysis.isSelected() != state.lightweightAnalysis
+            || parseInt(analysisParallelism.getText(), state.analysisParallelism) != state.analysisParallelism
+            || !execFileGlob.getText().trim().equals(state.execFileGlob)
+            || parseInt(sessionHeapBudgetMb.getText(), state.sessionHeapBudgetMb) != state.sessionHeapBudgetMb
+            || !liveAddress.getText().trim().equals(state.liveAddress)
+            || parseInt(liveDumpInterval.getText(), state.liveDumpIntervalSeconds) != state.liveDumpIntervalSeconds
+            || liveListen.isSelected() != state.liveListen
+            || liveResetOnDump.isSelected() != state.liveResetOnDump
+            || !classIncludes.getText().trim().equals(state.classIncludes)
+            || !classExcludes.getText().trim().equals(state.classExcludes)
+            || !excludeAnnotations.getText().trim().equals(state.excludeAnnotations)
+            || inProcessTests.isSelected() != state.inProcessTests
+            || testWorker.isSelected() != state.testWorker;
     }
 
     public void applySettings() {
-        // 在实际实现中，这将保存设置
-        System.out.println("应用设置...");
-        System.out.println("JaCoCo Exec 路径: " + jacocoExecPath.getText());
-        System.out.println("类路径: " + jacocoClassPath.getText());
-        System.out.println("最小行覆盖率: " + minLineCoverage.getText());
-        System.out.println("最小分支覆盖率: " + minBranchCoverage.getText());
+        UtAssistantSettings.SettingsState state = settings.getState();
+        state.jacocoExecPath = jacocoExecPath.getText().trim();
+        state.jacocoClassPath = jacocoClassPath.getText().trim();
+        state.minLineCoverage = parseDouble(minLineCoverage.getText(), state.minLineCoverage);
+        state.minBranchCoverage = parseDouble(minBranchCoverage.getText(), state.minBranchCoverage);
+        state.enableAutoRunTests = enableAutoRunTests.isSelected();
+        state.enableAutoGenerateTests = enableAutoGenerateTests.isSelected();
+        state.showCoverageInEditor = showCoverageInEditor.isSelected();
+        state.lightweightAnalysis = lightweightAnalysis.isSelected();
+        state.analysisParallelism = Math.max(0, parseInt(analysisParallelism.getText(), state.analysisParallelism));
+        String glob = execFileGlob.getText().trim();
+        state.execFileGlob = glob.isEmpty() ? UtAssistantSettings.DEFAULT_EXEC_FILE_GLOB : glob;
+        state.sessionHeapBudgetMb = Math.max(1, parseInt(sessionHeapBudgetMb.getText(), state.sessionHeapBudgetMb));
+        String address = liveAddress.getText().trim();
+        state.liveAddress = address.isEmpty() ? "localhost:6300" : address;
+        state.liveDumpIntervalSeconds = Math.max(1, parseInt(liveDumpInterval.getText(), state.liveDumpIntervalSeconds));
+        state.liveListen = liveListen.isSelected();
+        state.liveResetOnDump = liveResetOnDump.isSelected();
+        state.classIncludes = classIncludes.getText().trim();
+        state.classExcludes = classExcludes.getText().trim();
+        state.excludeAnnotations = excludeAnnotations.getText().trim();
+        state.inProcessTests = inProcessTests.isSelected();
+        state.testWorker = testWorker.isSelected();
     }
 
     public void resetSettings() {
-        // 在实际实现中，这将重置为保存的值
-        System.out.println("重置设置...");
+        UtAssistantSettings.SettingsState state = settings.getState();
+        jacocoExecPath.setText(state.jacocoExecPath);
+        jacocoClassPath.setText(state.jacocoClassPath);
+        minLineCoverage.setText(String.valueOf(state.minLineCoverage));
+        minBranchCoverage.setText(String.valueOf(state.minBranchCoverage));
+        enableAutoRunTests.setSelected(state.enableAutoRunTests);
+        enableAutoGenerateTests.setSelected(state.enableAutoGenerateTests);
+        showCoverageInEditor.setSelected(state.showCoverageInEditor);
+        lightweightAnalysis.setSelected(state.lightweightAnalysis);
+        analysisParallelism.setText(String.valueOf(state.analysisParallelism));
+        execFileGlob.setText(state.execFileGlob);
+        sessionHeapBudgetMb.setText(String.valueOf(state.sessionHeapBudgetMb));
+        liveAddress.setText(state.liveAddress);
+        liveDumpInterval.setText(String.valueOf(state.liveDumpIntervalSeconds));
+        liveListen.setSelected(state.liveListen);
+        liveResetOnDump.setSelected(state.liveResetOnDump);
+        classIncludes.setText(state.classIncludes);
+        classExcludes.setText(state.classExcludes);
+        excludeAnnotations.setText(state.excludeAnnotations);
+        inProcessTests.setSelected(state.inProcessTests);
+        testWorker.setSelected(state.testWorker);
+    }
+
+    private static double parseDouble(String text, double defaultValue) {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static int parseInt(String text, int defaultValue) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package com.honghu.ut.test.ai.assistant.config;
+
+import com.honghu.ut.test.ai.assistant.jacoco.ClassFilter;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * UT 助手项目级设置
+ * 持久化配置面板中的各项参数
+ *
+ * 功能：
+ * - 保存 JaCoCo 路径与覆盖率阈值
+ * - 保存自动运行、编辑器显示等开关
+ * - 保存覆盖率分析的并行度和轻量分析模式开关
+ * - 保存多 exec 文件合并的匹配模式
+ * - 保存覆盖率会话的堆内存预算
+ * - 保存实时覆盖率的代理地址、模式和转储间隔
+ * - 保存覆盖率分析的类包含 / 排除模式和排除注解
+ */
+@Service(Service.Level.PROJECT)
+@State(name = "UtAssistantSettings", storages = @Storage("utAssistant.xml"))
+public final class UtAssistantSettings implements PersistentStateComponent<UtAssistantSettings.SettingsState> {
+    public static final String DEFAULT_EXEC_FILE_GLOB = "**/{build/jacoco/*.exec,target/jacoco*.exec,jacoco.exec}";
+
+    private SettingsState state = new SettingsState();
+    private List<String> classFilterKey;    // 编译 classFilter 时使用的包含 / 排除模式和排除注解
+    private ClassFilter classFilter;
+
+    public static UtAssistantSettings getInstance(Project project) {
+        return project.getService(UtAssistantSettings.class);
+    }
+
+    @Override
+    public @NotNull SettingsState getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull SettingsState state) {
+        this.state = state;
+    }
+
+    /**
+     * 获取实际使用的分析线程数（0 表示按 CPU 核数自动选择）
+     */
+    public int getEffectiveAnalysisParallelism() {
+        int parallelism = state.analysisParallelism;
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 覆盖率会话常驻内存的预算（字节）
+     */
+    public long getSessionHeapBudgetBytes() {
+        return Math.max(1, state.sessionHeapBudgetMb) * 1024L * 1024L;
+    }
+
+    /**
+     * 按包含 / 排除模式和排除注解编译的类过滤器，设置未变化时复用同一个实例
+     */
+    public synchronized ClassFilter getClassFilter() {
+        List<String> key = List.of(String.valueOf(state.classIncludes), String.valueOf(state.classExcludes),
+            String.valueOf(state.excludeAnnotations));
+        if (!key.equals(classFilterKey)) {
+            classFilter = ClassFilter.compile(state.classIncludes, state.classExcludes, state.excludeAnnotations);
+            classFilterKey = key;
+        }
+        return classFilter;
+    }
+
+    /**
+     * 可序列化的设置数据
+     */
+    public static class SettingsState {
+        public String jacocoExecPath = "";        // JaCoCo 执行文件路径
+        public String jacocoClassPath = "";       // 类目录路径
+        public double minLineCoverage = 80.0;     // 最小行覆盖率
+        public double minBranchCoverage = 70.0;   // 最小分支覆盖率
+        public boolean enableAutoRunTests;        // 生成后自动运行测试
+        public boolean enableAutoGenerateTests;   // 为未覆盖的方法自动生成测试
+        public boolean showCoverageInEditor;      // 在编辑器中显示覆盖率
+        public boolean lightweightAnalysis = true; // 轻量分析模式，只保留类级计数器和指定类的明细
+        public int analysisParallelism = 0;       // 分析线程数，0 表示自动，1 表示串行
+        public String execFileGlob = DEFAULT_EXEC_FILE_GLOB; // 需要合并的 exec 文件匹配模式（只在构建根目录及其 build、build/jacoco、target 下查找）
+        public int sessionHeapBudgetMb = 256;     // 覆盖率会话的堆内存预算（MB），超出后换出最久未用的会话
+        public String liveAddress = "localhost:6300"; // 实时覆盖率的代理地址（连接模式）或监听地址（监听模式）
+        public boolean liveListen;                // 监听模式：等待 output=tcpclient 的代理连接
+        public boolean liveResetOnDump;           // 每次转储后重置代理端探针
+        public int liveDumpIntervalSeconds = 5;   // 实时覆盖率的转储间隔（秒）
+        public String classIncludes = "";         // 参与分析的类（逗号分隔，支持 * 和 ?），为空表示全部
+        public String classExcludes = "";         // 不参与分析的类，例如 com.foo.dto.*,*Test
+        public String excludeAnnotations = "";    // 带有这些注解的类不参与分析（完整名或简单名），设置后需要读取每个类文件头
+        public boolean inProcessTests;            // 在 IDE 进程内运行测试（内存插桩，不经过构建工具）
+        public boolean testWorker;                // 在常驻的测试 JVM 中运行测试（优先于进程内运行）
+    }
+}
@@ -0,0 +1,59 @@
+package com.honghu.ut.test.ai.assistant.editor;
+
+import com.honghu.ut.test.ai.assistant.config.UtAssistantSettings;
+import com.honghu.ut.test.ai.assistant.jacoco.JacocoCoverageService;
+import com.honghu.ut.test.ai.assistant.plugin.UtAssistantPlugin;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.fileEditor.TextEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 编辑器打开/关闭监听
+ * 打开 Java 源文件时挂上覆盖率行标记，关闭时释放该文件的行索引
+ *
+ * 功能：
+ * - 受设置中"在编辑器中显示覆盖率"控制
+ * - 打开的源文件登记为需要行级明细，关闭时取消登记
+ * - 行索引在文件打开时才按需加载
+ */
+public class CoverageEditorListener implements FileEditorManagerListener {
+    private final Project project;
+
+    public CoverageEditorListener(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        if (!"java".equals(file.getExtension())) {
+            return;
+        }
+        JacocoCoverageService coverageService = UtAssistantPlugin.getInstance(project).getJacocoCoverageService();
+        if (coverageService == null) {
+            return;
+        }
+        // 打开的文件在下次分析时保留行级明细，对比视图才能给出行和方法的变化
+        coverageService.requestLineDetail(file);
+        if (!UtAssistantSettings.getInstance(project).getState().showCoverageInEditor) {
+            return;
+        }
+        for (FileEditor fileEditor : source.getEditors(file)) {
+            if (fileEditor instanceof TextEditor) {
+                new CoverageGutterHighlighter(project, file, (TextEditor) fileEditor).install(coverageService);
+            }
+        }
+    }
+
+    @Override
+    public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        JacocoCoverageService coverageService = UtAssistantPlugin.getInstance(project).getJacocoCoverageService();
+        if (coverageService != null) {
+            coverageService.releaseLineIndex(file);
+            coverageService.releaseLineDetail(file);
+        }
+    }
+}
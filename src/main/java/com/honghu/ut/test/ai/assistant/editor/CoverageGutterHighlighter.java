@@ -0,0 +1,156 @@
+package com.honghu.ut.test.ai.assistant.editor;
+
+import com.honghu.ut.test.ai.assistant.config.UtAssistantSettings;
+import com.honghu.ut.test.ai.assistant.jacoco.JacocoCoverageService;
+import com.honghu.ut.test.ai.assistant.jacoco.LineCoverageIndex;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.event.VisibleAreaEvent;
+import com.intellij.openapi.editor.event.VisibleAreaListener;
+import com.intellij.openapi.editor.markup.HighlighterLayer;
+import com.intellij.openapi.editor.markup.LineMarkerRenderer;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.fileEditor.TextEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.JBColor;
+import org.jacoco.core.analysis.ICounter;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 编辑器覆盖率行标记
+ * 在编辑器左侧标记栏用色条显示每行的覆盖状态
+ *
+ * 功能：
+ * - 行索引在后台线程中加载，不阻塞打开文件
+ * - 只为当前可见范围内的行添加标记，滚动时补充新出现的行，超长文件也只创建可见行的标记
+ * - 覆盖率结果更新后重新加载索引并刷新标记
+ * - 编辑器关闭时随编辑器一起释放
+ */
+final class CoverageGutterHighlighter implements VisibleAreaListener {
+    private static final Logger LOG = Logger.getInstance(CoverageGutterHighlighter.class);
+
+    private static final Color COVERED_COLOR = new JBColor(new Color(0x59A869), new Color(0x499C54));
+    private static final Color PARTLY_COVERED_COLOR = new JBColor(new Color(0xE0B83C), new Color(0xC29D33));
+    private static final Color NOT_COVERED_COLOR = new JBColor(new Color(0xE05555), new Color(0xC75450));
+
+    private final Project project;
+    private final VirtualFile file;
+    private final TextEditor textEditor;
+    private final Editor editor;
+    private final BitSet markedLines = new BitSet();           // 已添加标记的行（从 0 开始）
+    private final List<RangeHighlighter> highlighters = new ArrayList<>();
+    private volatile LineCoverageIndex index = LineCoverageIndex.EMPTY;
+
+    CoverageGutterHighlighter(Project project, VirtualFile file, TextEditor textEditor) {
+        this.project = project;
+        this.file = file;
+        this.textEditor = textEditor;
+        this.editor = textEditor.getEditor();
+    }
+
+    /**
+     * 注册滚动和结果监听，并开始加载行索引
+     */
+    void install(JacocoCoverageService coverageService) {
+        editor.getScrollingModel().addVisibleAreaListener(this, textEditor);
+        coverageService.addResultListener(() -> reload(coverageService), textEditor);
+        reload(coverageService);
+    }
+
+    /**
+     * 在后台线程中加载行索引，加载完成后回到 EDT 重新标记
+     */
+    private void reload(JacocoCoverageService coverageService) {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            LineCoverageIndex loaded = LineCoverageIndex.EMPTY;
+            if (UtAssistantSettings.getInstance(project).getState().showCoverageInEditor) {
+                try {
+                    loaded = coverageService.getLineIndex(file);
+                } catch (Exception e) {
+                    LOG.warn("加载行覆盖率失败: " + file.getPath(), e);
+                }
+            }
+            LineCoverageIndex result = loaded;
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (editor.isDisposed()) {
+                    return;
+                }
+                index = result;
+                clear();
+                markVisibleLines();
+            });
+        });
+    }
+
+    @Override
+    public void visibleAreaChanged(VisibleAreaEvent e) {
+        markVisibleLines();
+    }
+
+    /**
+     * 为可见范围内还没有标记的行添加标记
+     */
+    private void markVisibleLines() {
+        LineCoverageIndex current = index;
+        if (current.isEmpty() || editor.isDisposed()) {
+            return;
+        }
+        Rectangle area = editor.getScrollingModel().getVisibleArea();
+        int lineCount = editor.getDocument().getLineCount();
+        int firstLine = editor.xyToLogicalPosition(new Point(0, area.y)).line;
+        int lastLine = Math.min(editor.xyToLogicalPosition(new Point(0, area.y + area.height)).line, lineCount - 1);
+        // 索引行号从 1 开始，编辑器行号从 0 开始
+        current.forEachLine(firstLine + 1, lastLine + 1, (line, status) -> {
+            int editorLine = line - 1;
+            if (markedLines.get(editorLine)) {
+                return;
+            }
+            RangeHighlighter highlighter = editor.getMarkupModel()
+                .addLineHighlighter(editorLine, HighlighterLayer.ADDITIONAL_SYNTAX, null);
+            highlighter.setLineMarkerRenderer(new StatusRenderer(status));
+            highlighters.add(highlighter);
+            markedLines.set(editorLine);
+        });
+    }
+
+    private void clear() {
+        for (RangeHighlighter highlighter : highlighters) {
+            editor.getMarkupModel().removeHighlighter(highlighter);
+        }
+        highlighters.clear();
+        markedLines.clear();
+    }
+
+    /**
+     * 按覆盖状态在标记栏绘制色条
+     */
+    private static final class StatusRenderer implements LineMarkerRenderer {
+        private final Color color;
+
+        StatusRenderer(int status) {
+            switch (status) {
+                case ICounter.FULLY_COVERED:
+                    color = COVERED_COLOR;
+                    break;
+                case ICounter.PARTLY_COVERED:
+                    color = PARTLY_COVERED_COLOR;
+                    break;
+                default:
+                    color = NOT_COVERED_COLOR;
+                    break;
+            }
+        }
+
+        @Override
+        public void paint(Editor editor, Graphics g, Rectangle r) {
+            g.setColor(color);
+            g.fillRect(r.x, r.y, r.width, r.height);
+        }
+    }
+}
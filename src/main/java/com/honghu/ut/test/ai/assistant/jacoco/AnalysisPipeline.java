@@ -0,0 +1,277 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 覆盖率分析流水线
+ * 发现、分析、汇总三个阶段同时进行，阶段之间通过有界队列连接
+ *
+ * 功能：
+ * - 发现线程遍历各个根目录（或展开归档），把分析单元放入有界队列，队列满时发现线程等待
+ * - 多个分析线程从队列取出单元分析，每分析一批就把结果交给汇总阶段
+ * - 汇总阶段在调用线程中合并各批结果，按固定间隔输出部分快照
+ * - 进度按已分析数 / 已发现数计算，发现完成后给出真实进度和预计剩余时间
+ * - 取消时所有阶段在一次队列等待超时（几十毫秒）内停止
+ * - 发现阶段按分析器的类过滤器剪枝，被排除的类不进入队列
+ */
+class AnalysisPipeline {
+    private static final int QUEUE_CAPACITY = 4096;           // 发现与分析之间的队列容量
+    private static final int BATCH_SIZE = 256;                // 分析线程每分析多少个单元交出一次结果
+    private static final long POLL_MILLIS = 20;               // 队列等待超时，决定取消的响应时间
+    private static final long PARTIAL_INTERVAL_MILLIS = 500;  // 部分快照的输出间隔
+    private static final int MAX_DISCOVERY_THREADS = 4;
+
+    private final ParallelClassAnalyzer analyzer;
+    private final ClassFileDiscovery discovery;
+    private final ExecutionDataStore executionDataStore;
+    private final Predicate<String> detailFilter;
+    private final ProgressIndicator indicator;
+    private final Function<String, String> packageResolver;
+
+    private final BlockingQueue<String> units = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<SummarizingCoverageVisitor> batches = new LinkedBlockingQueue<>();
+    private final List<String> discovered = new ArrayList<>();  // 已发现的单元，结束后用于确定类所属的模块
+    private final AtomicInteger analyzedCount = new AtomicInteger();
+    private final AtomicInteger runningDiscoverers = new AtomicInteger();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled;
+
+    /**
+     * @param packageResolver 根目录对应的包路径（见 ClassFileDiscovery.find），无法确定时返回 null
+     */
+    AnalysisPipeline(ParallelClassAnalyzer analyzer, ClassFileDiscovery discovery,
+                     ExecutionDataStore executionDataStore, @Nullable Predicate<String> detailFilter,
+                     @Nullable ProgressIndicator indicator, Function<String, String> packageResolver) {
+        this.analyzer = analyzer;
+        this.discovery = discovery;
+        this.executionDataStore = executionDataStore;
+        this.detailFilter = detailFilter;
+        this.indicator = indicator;
+        this.packageResolver = packageResolver;
+    }
+
+    /**
+     * 运行流水线直到所有单元分析完成，返回合并后的结果
+     *
+     * @param roots     需要发现类文件的目录或归档
+     * @param onPartial 部分快照回调（在调用线程中执行），可为空
+     */
+    SummarizingCoverageVisitor run(List<String> roots, @Nullable Consumer<CoverageSnapshot> onPartial) throws IOException {
+        int discoveryThreads = Math.max(1, Math.min(roots.size(), MAX_DISCOVERY_THREADS));
+        int workerThreads = analyzer.getParallelism();
+        ExecutorService executor = Executors.newFixedThreadPool(discoveryThreads + workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "UT Assistant coverage pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger nextRoot = new AtomicInteger();
+        runningDiscoverers.set(discoveryThreads);
+        runningWorkers.set(workerThreads);
+        try {
+            for (int i = 0; i < discoveryThreads; i++) {
+                executor.execute(() -> discover(roots, nextRoot));
+            }
+            for (int i = 0; i < workerThreads; i++) {
+                executor.execute(this::analyzeUnits);
+            }
+            return summarize(onPartial);
+        } finally {
+            cancelled = true;
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 已发现的分析单元（类文件路径或归档条目）
+     */
+    List<String> getDiscovered() {
+        synchronized (discovered) {
+            return new ArrayList<>(discovered);
+        }
+    }
+
+    /**
+     * 发现阶段：各线程轮流领取根目录，把单元放入队列
+     */
+    private void discover(List<String> roots, AtomicInteger nextRoot) {
+        try {
+            for (int i = nextRoot.getAndIncrement(); i < roots.size() && !cancelled; i = nextRoot.getAndIncrement()) {
+                String root = roots.get(i);
+                ClassFilter classFilter = analyzer.getClassFilter();
+                if (ArchiveEntries.isArchive(root)) {
+                    for (String entry : ArchiveEntries.expand(List.of(root), classFilter)) {
+                        offer(entry);
+                    }
+                } else {
+                    discovery.find(root, packageResolver.apply(root), classFilter, this::offer, null);
+                }
+            }
+        } catch (ProcessCanceledException e) {
+            // 已取消
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            runningDiscoverers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 放入队列，队列满时等待，等待期间检查取消
+     */
+    private void offer(String unit) {
+        try {
+            while (!units.offer(unit, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    throw new ProcessCanceledException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException();
+        }
+        synchronized (discovered) {
+            discovered.add(unit);
+        }
+    }
+
+    /**
+     * 分析阶段：取出单元分析，每 BATCH_SIZE 个单元交出一批结果
+     */
+    private void analyzeUnits() {
+        try (ParallelClassAnalyzer.UnitAnalyzer<SummarizingCoverageVisitor> unitAnalyzer = analyzer.new UnitAnalyzer<>(
+            executionDataStore, new SummarizingCoverageVisitor(detailFilter), detailFilter)) {
+            int inBatch = 0;
+            while (!cancelled) {
+                String unit = units.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (unit == null) {
+                    if (runningDiscoverers.get() == 0 && units.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                unitAnalyzer.analyze(unit);
+                analyzedCount.incrementAndGet();
+                if (++inBatch >= BATCH_SIZE) {
+                    batches.add(unitAnalyzer.swapVisitor(new SummarizingCoverageVisitor(detailFilter)));
+                    inBatch = 0;
+                }
+            }
+            batches.add(unitAnalyzer.getVisitor());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            runningWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 汇总阶段：合并各批结果，更新进度，按间隔输出部分快照
+     */
+    private SummarizingCoverageVisitor summarize(@Nullable Consumer<CoverageSnapshot> onPartial) throws IOException {
+        SummarizingCoverageVisitor merged = new SummarizingCoverageVisitor(detailFilter);
+        long startTime = System.currentTimeMillis();
+        long lastPartial = startTime;
+        boolean changedSincePartial = false;
+        if (indicator != null) {
+            indicator.setIndeterminate(true);
+        }
+        while (true) {
+            if (indicator != null && indicator.isCanceled()) {
+                cancelled = true;
+                throw new ProcessCanceledException();
+            }
+            rethrowFailure();
+            SummarizingCoverageVisitor batch;
+            try {
+                batch = batches.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+                throw new ProcessCanceledException();
+            }
+            if (batch != null) {
+                merged.addAll(batch);
+                changedSincePartial = true;
+            } else if (runningWorkers.get() == 0 && batches.isEmpty()) {
+                break;
+            }
+            updateProgress(startTime);
+            long now = System.currentTimeMillis();
+            if (onPartial != null && changedSincePartial && now - lastPartial >= PARTIAL_INTERVAL_MILLIS) {
+                onPartial.accept(merged.getSnapshot());
+                lastPartial = now;
+                changedSincePartial = false;
+            }
+        }
+        rethrowFailure();
+        return merged;
+    }
+
+    private void updateProgress(long startTime) {
+        if (indicator == null) {
+            return;
+        }
+        int done = analyzedCount.get();
+        int total;
+        synchronized (discovered) {
+            total = discovered.size();
+        }
+        if (runningDiscoverers.get() > 0) {
+            // 发现尚未完成，总数还在增长
+            indicator.setText2(String.format("已分析 %d 个，已发现 %d 个", done, total));
+            return;
+        }
+        indicator.setIndeterminate(false);
+        indicator.setFraction(total == 0 ? 1.0 : (double) done / total);
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (done > 0 && done < total) {
+            long remainingSeconds = elapsed * (total - done) / done / 1000;
+            indicator.setText2(String.format("已分析 %d / %d，预计剩余 %d 秒", done, total, remainingSeconds));
+        } else {
+            indicator.setText2(String.format("已分析 %d / %d", done, total));
+        }
+    }
+
+    private void fail(Throwable e) {
+        failure.compareAndSet(null, e);
+        cancelled = true;
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable e = failure.get();
+        if (e == null) {
+            return;
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IOException(e);
+    }
+}
@@ -0,0 +1,118 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 归档（JAR / WAR / EAR / ZIP）条目展开
+ * 把归档路径展开为逐个条目的分析单元，使同一个归档中的类也能分到多个分片并行分析
+ *
+ * 功能：
+ * - 只读取归档的中央目录列出条目，不解压到磁盘
+ * - 类文件条目单独作为一个单元，分析时直接从 ZipFile 读取字节
+ * - 嵌套归档（例如 Spring Boot 的 BOOT-INF/lib/*.jar）整体作为一个单元，分析时以流的方式逐层读取
+ * - 跳过多版本 JAR 中 META-INF/versions 下的重复类
+ * - 列出条目时按类过滤器跳过被排除的类（Spring Boot / WAR 的类目录前缀不计入类名）
+ * - 条目单元以 "归档路径!/条目名" 表示
+ */
+final class ArchiveEntries {
+    static final String SEPARATOR = "!/";
+
+    private static final String[] ARCHIVE_SUFFIXES = {".jar", ".war", ".ear", ".zip"};
+    private static final String VERSIONED_PREFIX = "META-INF/versions/";
+    private static final String[] CLASS_DIR_PREFIXES = {"BOOT-INF/classes/", "WEB-INF/classes/"};
+
+    private ArchiveEntries() {
+    }
+
+    /**
+     * 按扩展名判断是否为归档
+     */
+    static boolean isArchive(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        for (String suffix : ARCHIVE_SUFFIXES) {
+            if (lower.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否为 "归档路径!/条目名" 形式的条目单元
+     */
+    static boolean isEntry(String path) {
+        return path.contains(SEPARATOR);
+    }
+
+    static String getArchivePath(String entryPath) {
+        return entryPath.substring(0, entryPath.indexOf(SEPARATOR));
+    }
+
+    static String getEntryName(String entryPath) {
+        return entryPath.substring(entryPath.indexOf(SEPARATOR) + SEPARATOR.length());
+    }
+
+    /**
+     * 把路径列表中的归档展开为条目单元，其余路径保持不变
+     */
+    static List<String> expand(List<String> paths) throws IOException {
+        return expand(paths, ClassFilter.ALL);
+    }
+
+    /**
+     * 把路径列表中的归档展开为条目单元，只保留通过类过滤器的类文件条目
+     * 嵌套归档无法在不读取的情况下列出，整体保留，其中的类由分析器按类名过滤
+     */
+    static List<String> expand(List<String> paths, ClassFilter filter) throws IOException {
+        List<String> expanded = null;
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            if (!isArchive(path) || isEntry(path)) {
+                if (expanded != null) {
+                    expanded.add(path);
+                }
+                continue;
+            }
+            if (expanded == null) {
+                expanded = new ArrayList<>(paths.subList(0, i));
+            }
+            listEntries(path, filter, expanded);
+        }
+        return expanded != null ? expanded : paths;
+    }
+
+    private static void listEntries(String archivePath, ClassFilter filter, List<String> units) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archivePath)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || name.startsWith(VERSIONED_PREFIX)) {
+                    continue;
+                }
+                if (name.endsWith(".class") ? filter.accepts(getClassName(name)) : isArchive(name)) {
+                    units.add(archivePath + SEPARATOR + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * 类文件条目对应的 JVM 内部类名
+     */
+    private static String getClassName(String entryName) {
+        String name = entryName.substring(0, entryName.length() - ".class".length());
+        for (String prefix : CLASS_DIR_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return name.substring(prefix.length());
+            }
+        }
+        return name;
+    }
+}
@@ -0,0 +1,485 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import org.jacoco.core.analysis.CoverageNodeImpl;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类分析结果缓存
+ * 以类文件 CRC64 和探针数组哈希为键，持久化每个类的覆盖率计数器
+ *
+ * 功能：
+ * - 类文件和探针均未变化时直接复用上次的计数器，跳过 Analyzer
+ * - 缓存文件保存在项目的系统目录下，IDE 重启后仍然有效
+ * - 支持多个分析线程并发读写
+ * - 只使用 JaCoCo 的公开 API，类标识由 ClassIds 计算，计数器由本类的 Counter 实现
+ */
+public class ClassAnalysisCache {
+    private static final Logger LOG = Logger.getInstance(ClassAnalysisCache.class);
+
+    private static final int MAGIC = 0x55544343;        // "UTCC"
+    private static final int VERSION = 1;
+    private static final int MAX_ENTRIES = 200_000;     // 超出后只保留本次用到的条目
+
+    private static final long NO_DATA = 0L;             // 执行数据中没有该类
+    private static final long NO_MATCH = 1L;            // 执行数据中有同名但不同版本的类
+
+    private final Path cacheFile;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Long> touched = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+
+    public ClassAnalysisCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * 获取项目的默认缓存位置
+     */
+    public static ClassAnalysisCache forProject(Project project) {
+        return new ClassAnalysisCache(getProjectCacheDir(project).resolve("class-analysis.cache"));
+    }
+
+    /**
+     * 插件在项目系统目录下的缓存目录
+     */
+    public static Path getProjectCacheDir(Project project) {
+        return PathManager.getSystemDir().resolve("ut-ai-assistant").resolve(project.getLocationHash());
+    }
+
+    /**
+     * 查找可复用的分析结果，类或探针发生变化时返回 null
+     */
+    public IClassCoverage lookup(long classId, ExecutionDataStore executionDataStore) {
+        ensureLoaded();
+        Entry entry = entries.get(classId);
+        if (entry == null || entry.probeSignature != probeSignature(executionDataStore, classId, entry.name)) {
+            return null;
+        }
+        touched.add(classId);
+        return new CachedClassCoverage(classId, entry);
+    }
+
+    /**
+     * 记录一个类的分析结果
+     */
+    public void put(IClassCoverage coverage, ExecutionDataStore executionDataStore) {
+        ensureLoaded();
+        long classId = coverage.getId();
+        entries.put(classId, new Entry(coverage, probeSignature(executionDataStore, classId, coverage.getName())));
+        touched.add(classId);
+        dirty = true;
+    }
+
+    /**
+     * 将缓存写回磁盘（先写临时文件再替换，避免写坏缓存）
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        if (entries.size() > MAX_ENTRIES) {
+            entries.keySet().retainAll(touched);
+        }
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+                    out.writeLong(e.getKey());
+                    e.getValue().write(out);
+                }
+            }
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            // 已写入磁盘，下一次裁剪只保留之后用到的条目
+            touched.clear();
+        } catch (IOException e) {
+            LOG.warn("保存类分析缓存失败: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * 自上次保存以来用到的条目数量
+     */
+    int getTouchedCount() {
+        return touched.size();
+    }
+
+    /**
+     * 清空缓存（包括磁盘文件）
+     */
+    public synchronized void clear() {
+        entries.clear();
+        touched.clear();
+        dirty = false;
+        try {
+            Files.deleteIfExists(cacheFile);
+        } catch (IOException e) {
+            LOG.warn("删除类分析缓存失败: " + cacheFile, e);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long classId = in.readLong();
+                entries.put(classId, Entry.read(in));
+            }
+        } catch (IOException e) {
+            // 缓存损坏时丢弃，重新分析即可
+            LOG.warn("读取类分析缓存失败，已忽略: " + cacheFile, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * 计算某个类在执行数据中的探针签名（FNV-1a 64 位）
+     */
+    static long probeSignature(ExecutionDataStore executionDataStore, long classId, String className) {
+        ExecutionData data = executionDataStore.get(classId);
+        if (data == null) {
+            return executionDataStore.contains(className) ? NO_MATCH : NO_DATA;
+        }
+        boolean[] probes = data.getProbes();
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ probes.length) * 0x100000001b3L;
+        long bits = 0;
+        for (int i = 0; i < probes.length; i++) {
+            bits = (bits << 1) | (probes[i] ? 1 : 0);
+            if ((i & 63) == 63) {
+                hash = (hash ^ bits) * 0x100000001b3L;
+                bits = 0;
+            }
+        }
+        hash = (hash ^ bits) * 0x100000001b3L;
+        // 避开保留值
+        return hash == NO_DATA || hash == NO_MATCH ? hash + 2 : hash;
+    }
+
+    /**
+     * 缓存条目：类的基本信息和六类计数器
+     */
+    static final class Entry {
+        final long probeSignature;
+        final String name;
+        final String sourceFileName;
+        final boolean noMatch;
+        final int firstLine;
+        final int lastLine;
+        final int[] counters;   // 按 CounterEntity 顺序存放 missed / covered
+
+        private Entry(long probeSignature, String name, String sourceFileName, boolean noMatch,
+                      int firstLine, int lastLine, int[] counters) {
+            this.probeSignature = probeSignature;
+            this.name = name;
+            this.sourceFileName = sourceFileName;
+            this.noMatch = noMatch;
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
+            this.counters = counters;
+        }
+
+        Entry(IClassCoverage coverage, long probeSignature) {
+            this(probeSignature, coverage.getName(), coverage.getSourceFileName(), coverage.isNoMatch(),
+                coverage.getFirstLine(), coverage.getLastLine(), new int[] {
+                    coverage.getInstructionCounter().getMissedCount(), coverage.getInstructionCounter().getCoveredCount(),
+                    coverage.getBranchCounter().getMissedCount(), coverage.getBranchCounter().getCoveredCount(),
+                    coverage.getLineCounter().getMissedCount(), coverage.getLineCounter().getCoveredCount(),
+                    coverage.getComplexityCounter().getMissedCount(), coverage.getComplexityCounter().getCoveredCount(),
+                    coverage.getMethodCounter().getMissedCount(), coverage.getMethodCounter().getCoveredCount(),
+                    coverage.getClassCounter().getMissedCount(), coverage.getClassCounter().getCoveredCount()
+                });
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(probeSignature);
+            out.writeUTF(name);
+            out.writeUTF(sourceFileName == null ? "" : sourceFileName);
+            out.writeBoolean(noMatch);
+            out.writeInt(firstLine);
+            out.writeInt(lastLine);
+            for (int counter : counters) {
+                out.writeInt(counter);
+            }
+        }
+
+        static Entry read(DataInputStream in) throws IOException {
+            long probeSignature = in.readLong();
+            String name = in.readUTF();
+            String sourceFileName = in.readUTF();
+            boolean noMatch = in.readBoolean();
+            int firstLine = in.readInt();
+            int lastLine = in.readInt();
+            int[] counters = new int[12];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = in.readInt();
+            }
+            return new Entry(probeSignature, name, sourceFileName.isEmpty() ? null : sourceFileName,
+                noMatch, firstLine, lastLine, counters);
+        }
+    }
+
+    /**
+     * 由缓存条目还原的类覆盖率，只包含类级计数器，不含方法和行信息
+     */
+    static final class CachedClassCoverage implements IClassCoverage {
+        private final long id;
+        private final Entry entry;
+        private final ICounter[] counters = new ICounter[6];   // 按 CounterEntity 顺序
+
+        CachedClassCoverage(long id, Entry entry) {
+            this.id = id;
+            this.entry = entry;
+            int[] c = entry.counters;
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new Counter(c[i * 2], c[i * 2 + 1]);
+            }
+        }
+
+        @Override
+        public ElementType getElementType() {
+            return ElementType.CLASS;
+        }
+
+        @Override
+        public String getName() {
+            return entry.name;
+        }
+
+        @Override
+        public ICounter getInstructionCounter() {
+            return counters[CounterEntity.INSTRUCTION.ordinal()];
+        }
+
+        @Override
+        public ICounter getBranchCounter() {
+            return counters[CounterEntity.BRANCH.ordinal()];
+        }
+
+        @Override
+        public ICounter getLineCounter() {
+            return counters[CounterEntity.LINE.ordinal()];
+        }
+
+        @Override
+        public ICounter getComplexityCounter() {
+            return counters[CounterEntity.COMPLEXITY.ordinal()];
+        }
+
+        @Override
+        public ICounter getMethodCounter() {
+            return counters[CounterEntity.METHOD.ordinal()];
+        }
+
+        @Override
+        public ICounter getClassCounter() {
+            return counters[CounterEntity.CLASS.ordinal()];
+        }
+
+        @Override
+        public ICounter getCounter(CounterEntity entity) {
+            return counters[entity.ordinal()];
+        }
+
+        @Override
+        public boolean containsCode() {
+            return getInstructionCounter().getTotalCount() != 0;
+        }
+
+        @Override
+        public ICoverageNode getPlainCopy() {
+            CoverageNodeImpl copy = new CoverageNodeImpl(ElementType.CLASS, entry.name);
+            copy.increment(this);
+            return copy;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public boolean isNoMatch() {
+            return entry.noMatch;
+        }
+
+        @Override
+        public String getSignature() {
+            return null;
+        }
+
+        @Override
+        public String getSuperName() {
+            return null;
+        }
+
+        @Override
+        public String[] getInterfaceNames() {
+            return new String[0];
+        }
+
+        @Override
+        public String getPackageName() {
+            int pos = entry.name.lastIndexOf('/');
+            return pos == -1 ? "" : entry.name.substring(0, pos);
+        }
+
+        @Override
+        public String getSourceFileName() {
+            return entry.sourceFileName;
+        }
+
+        @Override
+        public Collection<IMethodCoverage> getMethods() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public int getFirstLine() {
+            return entry.firstLine;
+        }
+
+        @Override
+        public int getLastLine() {
+            return entry.lastLine;
+        }
+
+        @Override
+        public ILine getLine(int nr) {
+            // 缓存中不保存行级数据
+            return LineStatus.EMPTY;
+        }
+    }
+
+    /**
+     * 没有行级数据时返回的空行
+     */
+    private static final class LineStatus implements ILine {
+        static final LineStatus EMPTY = new LineStatus();
+
+        @Override
+        public ICounter getInstructionCounter() {
+            return Counter.ZERO;
+        }
+
+        @Override
+        public ICounter getBranchCounter() {
+            return Counter.ZERO;
+        }
+
+        @Override
+        public int getStatus() {
+            return ICounter.EMPTY;
+        }
+    }
+
+    /**
+     * 不可变的计数器，对应 JaCoCo 的 ICounter
+     */
+    static final class Counter implements ICounter {
+        static final Counter ZERO = new Counter(0, 0);
+
+        private final int missed;
+        private final int covered;
+
+        Counter(int missed, int covered) {
+            this.missed = missed;
+            this.covered = covered;
+        }
+
+        @Override
+        public double getValue(CounterValue value) {
+            switch (value) {
+                case TOTALCOUNT:
+                    return getTotalCount();
+                case MISSEDCOUNT:
+                    return missed;
+                case COVEREDCOUNT:
+                    return covered;
+                case MISSEDRATIO:
+                    return getMissedRatio();
+                case COVEREDRATIO:
+                    return getCoveredRatio();
+                default:
+                    throw new IllegalArgumentException("未知的计数器取值: " + value);
+            }
+        }
+
+        @Override
+        public int getTotalCount() {
+            return missed + covered;
+        }
+
+        @Override
+        public int getCoveredCount() {
+            return covered;
+        }
+
+        @Override
+        public int getMissedCount() {
+            return missed;
+        }
+
+        @Override
+        public double getCoveredRatio() {
+            return (double) covered / (missed + covered);
+        }
+
+        @Override
+        public double getMissedRatio() {
+            return (double) missed / (missed + covered);
+        }
+
+        @Override
+        public int getStatus() {
+            if (covered == 0) {
+                return missed == 0 ? EMPTY : NOT_COVERED;
+            }
+            return missed == 0 ? FULLY_COVERED : PARTLY_COVERED;
+        }
+    }
+}
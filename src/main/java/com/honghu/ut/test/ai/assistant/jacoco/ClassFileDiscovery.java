@@ -0,0 +1,191 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 类文件发现器
+ * 基于 NIO 遍历输出目录查找 .class 文件，并缓存目录索引
+ *
+ * 功能：
+ * - 每个目录缓存一次列表结果，目录修改时间不变时直接复用，重复查找只需对目录做 stat；
+ *   编译改变目录内容时修改时间随之变化，因此不需要另外的失效通知
+ * - 按类名过滤（ClassFilter）：被排除的包整个跳过，被排除的类文件不会交给分析器读取
+ * - 跳过隐藏目录和 node_modules
+ * - 响应 ProgressIndicator 的取消操作
+ */
+public class ClassFileDiscovery {
+    private static final String CLASS_SUFFIX = ".class";
+    private static final long RACY_WINDOW_MILLIS = 2000;   // 修改时间离当前过近的目录不信任缓存
+
+    private final Map<Path, DirectoryEntry> index = new ConcurrentHashMap<>();
+
+    /**
+     * 查找目录下的所有类文件
+     */
+    public List<String> find(String basePath, @Nullable ProgressIndicator indicator) {
+        return find(basePath, "", ClassFilter.ALL, indicator);
+    }
+
+    /**
+     * 逐个输出目录下通过类过滤器的类文件，类名由包路径和文件名得出，不读取类文件
+     * 包下不可能有通过过滤器的类时不进入该目录
+     *
+     * @param basePackage 查找根目录对应的包路径（JVM 格式，以 / 结尾，输出目录本身为空串）；
+     *                    为 null 表示无法确定，此时不在发现阶段过滤，由分析器按类名过滤
+     */
+    public void find(String basePath, @Nullable String basePackage, ClassFilter filter, Consumer<String> sink,
+                     @Nullable ProgressIndicator indicator) {
+        if (basePath == null) {
+            return;
+        }
+        Path root = Paths.get(basePath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        if (filter.isAll() || basePackage == null) {
+            visit(root, sink, indicator);
+        } else if (filter.mayContain(basePackage)) {
+            visit(root, basePackage, filter, sink, indicator);
+        }
+    }
+
+    /**
+     * 查找目录下通过类过滤器的类文件，结果为绝对路径
+     */
+    public List<String> find(String basePath, @Nullable String basePackage, ClassFilter filter,
+                             @Nullable ProgressIndicator indicator) {
+        List<String> classFiles = new ArrayList<>();
+        find(basePath, basePackage, filter, classFiles::add, indicator);
+        return classFiles;
+    }
+
+    private void visit(Path dir, Consumer<String> sink, @Nullable ProgressIndicator indicator) {
+        if (indicator != null && indicator.isCanceled()) {
+            throw new ProcessCanceledException();
+        }
+        DirectoryEntry entry = getEntry(dir);
+        if (entry == null) {
+            return;
+        }
+        for (String classFile : entry.classFiles) {
+            sink.accept(classFile);
+        }
+        for (Path subDir : entry.subDirs) {
+            visit(subDir, sink, indicator);
+        }
+    }
+
+    private void visit(Path dir, String packagePath, ClassFilter filter, Consumer<String> sink,
+                       @Nullable ProgressIndicator indicator) {
+        if (indicator != null && indicator.isCanceled()) {
+            throw new ProcessCanceledException();
+        }
+        DirectoryEntry entry = getEntry(dir);
+        if (entry == null) {
+            return;
+        }
+        for (String classFile : entry.classFiles) {
+            String fileName = classFile.substring(classFile.lastIndexOf(File.separatorChar) + 1);
+            if (filter.accepts(packagePath + fileName.substring(0, fileName.length() - CLASS_SUFFIX.length()))) {
+                sink.accept(classFile);
+            }
+        }
+        for (Path subDir : entry.subDirs) {
+            String subPackage = packagePath + subDir.getFileName() + "/";
+            if (filter.mayContain(subPackage)) {
+                visit(subDir, subPackage, filter, sink, indicator);
+            }
+        }
+    }
+
+    /**
+     * 获取目录的列表结果，修改时间变化时重新列出
+     */
+    private @Nullable DirectoryEntry getEntry(Path dir) {
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(dir).toMillis();
+        } catch (IOException e) {
+            // 目录已被删除
+            removeSubtree(dir);
+            return null;
+        }
+        DirectoryEntry cached = index.get(dir);
+        if (cached != null && cached.modified == modified) {
+            return cached;
+        }
+        DirectoryEntry fresh = list(dir, modified);
+        if (cached != null) {
+            // 清理已经不存在的子目录的索引
+            Set<Path> current = new HashSet<>(List.of(fresh.subDirs));
+            for (Path oldSubDir : cached.subDirs) {
+                if (!current.contains(oldSubDir)) {
+                    removeSubtree(oldSubDir);
+                }
+            }
+        }
+        index.put(dir, fresh);
+        return fresh;
+    }
+
+    private static DirectoryEntry list(Path dir, long modified) {
+        List<String> classFiles = new ArrayList<>();
+        List<Path> subDirs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                String name = child.getFileName().toString();
+                if (name.endsWith(CLASS_SUFFIX)) {
+                    // 按扩展名判断，避免对每个类文件做一次 stat
+                    classFiles.add(child.toString());
+                } else if (!name.startsWith(".") && !name.equals("node_modules")
+                    && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    subDirs.add(child);
+                }
+            }
+        } catch (IOException e) {
+            // 无法读取的目录按空目录处理
+        }
+        Collections.sort(classFiles);
+        Collections.sort(subDirs);
+        // 刚修改过的目录可能在同一时间粒度内继续变化，下次查找时重新列出
+        long cachedModified = System.currentTimeMillis() - modified < RACY_WINDOW_MILLIS ? -1 : modified;
+        return new DirectoryEntry(cachedModified, classFiles.toArray(new String[0]), subDirs.toArray(new Path[0]));
+    }
+
+    private void removeSubtree(Path dir) {
+        index.keySet().removeIf(path -> path.startsWith(dir));
+    }
+
+    /**
+     * 单个目录的缓存列表
+     */
+    private static final class DirectoryEntry {
+        final long modified;
+        final String[] classFiles;
+        final Path[] subDirs;
+
+        DirectoryEntry(long modified, String[] classFiles, Path[] subDirs) {
+            this.modified = modified;
+            this.classFiles = classFiles;
+            this.subDirs = subDirs;
+        }
+    }
+}
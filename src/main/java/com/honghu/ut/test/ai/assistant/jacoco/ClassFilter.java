@@ -0,0 +1,272 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的类过滤器
+ * 按类名的包含 / 排除模式和类上的注解决定哪些类参与分析
+ *
+ * 功能：
+ * - 模式写法与 JaCoCo 代理的 includes / excludes 一致：点分类名，* 匹配任意字符（含 .），? 匹配单个字符
+ * - 只在末尾带 * 的模式（例如 com.foo.dto.*）和不含通配符的完整类名编入前缀树，其余模式编译为正则表达式
+ * - 发现阶段按包路径剪枝：整个包都被排除、或不可能有被包含的类时，不再进入该目录
+ * - 注解规则在读取类文件头时检查（不需要分析字节码），写简单名时匹配任意包下的同名注解
+ *   注意 SOURCE 级别的注解（例如 javax.annotation.processing.Generated）不会保留在类文件中
+ */
+public final class ClassFilter {
+    public static final ClassFilter ALL = new ClassFilter(new Rules(), new Rules(), Set.of(), Set.of());
+
+    private final Rules includes;
+    private final Rules excludes;
+    private final Set<String> annotationDescriptors;   // 完整名的注解描述符，例如 Llombok/Generated;
+    private final Set<String> annotationSimpleNames;   // 简单名的注解，例如 Generated
+
+    private ClassFilter(Rules includes, Rules excludes, Set<String> annotationDescriptors,
+                        Set<String> annotationSimpleNames) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.annotationDescriptors = annotationDescriptors;
+        this.annotationSimpleNames = annotationSimpleNames;
+    }
+
+    /**
+     * 编译过滤器，各参数为以逗号、分号或空白分隔的模式列表
+     * 不做全局缓存，由持有设置的一方（UtAssistantSettings）在设置未变化时复用编译结果
+     *
+     * @param includePatterns 包含的类，为空表示全部包含
+     * @param excludePatterns 排除的类
+     * @param annotations     带有这些注解的类被排除（完整名或简单名）
+     */
+    public static ClassFilter compile(@Nullable String includePatterns, @Nullable String excludePatterns,
+                                      @Nullable String annotations) {
+        Rules includes = new Rules();
+        for (String pattern : split(includePatterns)) {
+            includes.add(pattern);
+        }
+        Rules excludes = new Rules();
+        for (String pattern : split(excludePatterns)) {
+            excludes.add(pattern);
+        }
+        Set<String> descriptors = new HashSet<>();
+        Set<String> simpleNames = new HashSet<>();
+        for (String annotation : split(annotations)) {
+            String name = annotation.startsWith("@") ? annotation.substring(1) : annotation;
+            if (name.contains(".")) {
+                descriptors.add("L" + name.replace('.', '/') + ";");
+            } else {
+                simpleNames.add(name);
+            }
+        }
+        if (includes.isEmpty() && excludes.isEmpty() && descriptors.isEmpty() && simpleNames.isEmpty()) {
+            return ALL;
+        }
+        return new ClassFilter(includes, excludes, descriptors, simpleNames);
+    }
+
+    private static List<String> split(@Nullable String patterns) {
+        List<String> result = new ArrayList<>();
+        if (patterns == null) {
+            return result;
+        }
+        for (String pattern : patterns.split("[,;\\s]+")) {
+            if (!pattern.isEmpty()) {
+                result.add(pattern);
+            }
+        }
+        return result;
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    /**
+     * 类名（JVM 内部名，例如 com/foo/Bar$Inner）是否通过包含 / 排除模式
+     */
+    public boolean accepts(String className) {
+        return (includes.isEmpty() || includes.matches(className)) && !excludes.matches(className);
+    }
+
+    /**
+     * 包路径（JVM 格式，例如 com/foo/，根目录为空串）下是否可能有通过过滤的类，用于目录剪枝
+     */
+    public boolean mayContain(String packagePath) {
+        if (excludes.matchesAllUnder(packagePath)) {
+            return false;
+        }
+        return includes.isEmpty() || includes.mayMatchUnder(packagePath);
+    }
+
+    /**
+     * 是否有注解规则（有时需要读取类文件头）
+     */
+    public boolean hasAnnotationRules() {
+        return !annotationDescriptors.isEmpty() || !annotationSimpleNames.isEmpty();
+    }
+
+    /**
+     * 按类文件内容检查类名和类上的注解
+     * 先检查类名，只有类名通过且配置了注解规则时才读取类上的注解
+     */
+    public boolean acceptsClassFile(byte[] classBytes) {
+        if (isAll()) {
+            return true;
+        }
+        ClassReader reader;
+        try {
+            reader = new ClassReader(classBytes);
+        } catch (RuntimeException e) {
+            // 无法解析的类文件交给 Analyzer 报告错误
+            return true;
+        }
+        if (!accepts(reader.getClassName())) {
+            return false;
+        }
+        if (!hasAnnotationRules()) {
+            return true;
+        }
+        boolean[] excluded = new boolean[1];
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                if (matchesAnnotation(descriptor)) {
+                    excluded[0] = true;
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return !excluded[0];
+    }
+
+    private boolean matchesAnnotation(String descriptor) {
+        if (annotationDescriptors.contains(descriptor)) {
+            return true;
+        }
+        int start = Math.max(descriptor.lastIndexOf('/'), descriptor.lastIndexOf('$')) + 1;
+        return annotationSimpleNames.contains(descriptor.substring(Math.max(start, 1), descriptor.length() - 1));
+    }
+
+    /**
+     * 一组模式：前缀树加上无法编入前缀树的正则表达式
+     */
+    private static final class Rules {
+        private final TrieNode root = new TrieNode();
+        private final List<Pattern> patterns = new ArrayList<>();
+        private boolean empty = true;
+
+        void add(String pattern) {
+            String vmPattern = pattern.replace('.', '/');
+            int star = vmPattern.indexOf('*');
+            boolean trailingStarOnly = star == vmPattern.length() - 1 && vmPattern.indexOf('?') < 0;
+            boolean literal = star < 0 && vmPattern.indexOf('?') < 0;
+            if (trailingStarOnly) {
+                root.insert(vmPattern.substring(0, star)).prefix = true;
+            } else if (literal) {
+                root.insert(vmPattern).exact = true;
+            } else {
+                patterns.add(Pattern.compile(toRegex(vmPattern)));
+            }
+            empty = false;
+        }
+
+        boolean isEmpty() {
+            return empty;
+        }
+
+        boolean matches(String className) {
+            TrieNode node = root;
+            for (int i = 0; i < className.length() && node != null; i++) {
+                if (node.prefix) {
+                    return true;
+                }
+                node = node.children.get(className.charAt(i));
+            }
+            if (node != null && (node.prefix || node.exact)) {
+                return true;
+            }
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(className).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 包下的所有类是否都被匹配（只看前缀树，正则无法判断时按否处理）
+         */
+        boolean matchesAllUnder(String packagePath) {
+            TrieNode node = root;
+            for (int i = 0; i < packagePath.length() && node != null; i++) {
+                if (node.prefix) {
+                    return true;
+                }
+                node = node.children.get(packagePath.charAt(i));
+            }
+            return node != null && node.prefix;
+        }
+
+        /**
+         * 包下是否可能有被匹配的类（有正则时无法判断，按可能处理）
+         */
+        boolean mayMatchUnder(String packagePath) {
+            if (!patterns.isEmpty()) {
+                return true;
+            }
+            TrieNode node = root;
+            for (int i = 0; i < packagePath.length(); i++) {
+                if (node.prefix) {
+                    return true;
+                }
+                node = node.children.get(packagePath.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            for (char c : pattern.toCharArray()) {
+                if (c == '*') {
+                    regex.append(".*");
+                } else if (c == '?') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return regex.toString();
+        }
+    }
+
+    /**
+     * 前缀树节点：prefix 表示从这里开始的所有名称都匹配，exact 表示恰好在这里结束的名称匹配
+     */
+    private static final class TrieNode {
+        final Map<Character, TrieNode> children = new HashMap<>();
+        boolean prefix;
+        boolean exact;
+
+        TrieNode insert(String key) {
+            TrieNode node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new TrieNode());
+            }
+            return node;
+        }
+    }
+}
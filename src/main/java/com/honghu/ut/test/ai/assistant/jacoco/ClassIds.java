@@ -0,0 +1,51 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+/**
+ * JaCoCo 类标识的计算
+ * 与 JaCoCo 对类文件计算的 CRC64 标识一致，执行数据中的类 ID 与之对应
+ *
+ * 功能：
+ * - 不依赖 JaCoCo 的内部包，升级 JaCoCo 时不受内部 API 变化影响
+ * - Java 9 的类文件按 Java 8 的版本号计算，与 JaCoCo 的处理相同
+ */
+final class ClassIds {
+    private static final long POLY64REV = 0xd800000000000000L;
+    private static final long[] LOOKUP_TABLE = new long[256];
+
+    static {
+        for (int i = 0; i < LOOKUP_TABLE.length; i++) {
+            long value = i;
+            for (int j = 0; j < 8; j++) {
+                value = (value & 1) == 1 ? (value >>> 1) ^ POLY64REV : value >>> 1;
+            }
+            LOOKUP_TABLE[i] = value;
+        }
+    }
+
+    private ClassIds() {
+    }
+
+    /**
+     * 计算类文件的标识
+     */
+    static long classId(byte[] bytes) {
+        if (bytes.length > 7 && bytes[6] == 0 && bytes[7] == 53) {
+            // Java 9 类文件的主版本号按 52 计算
+            long sum = update(0, bytes, 0, 7);
+            sum = update(sum, (byte) 52);
+            return update(sum, bytes, 8, bytes.length);
+        }
+        return update(0, bytes, 0, bytes.length);
+    }
+
+    private static long update(long sum, byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sum = update(sum, bytes[i]);
+        }
+        return sum;
+    }
+
+    private static long update(long sum, byte b) {
+        return (sum >>> 8) ^ LOOKUP_TABLE[((int) sum ^ b) & 0xff];
+    }
+}
@@ -0,0 +1,408 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 覆盖率快照差异
+ * 对两个快照做一次线性的归并连接，得到覆盖率发生变化的类及其计数器增量
+ *
+ * 功能：
+ * - 两个快照都按（包名，类名）排序，按同一顺序归并，无需建立哈希表
+ * - 只保留新增、删除或计数器有变化的类，结果同样是列式数组
+ * - 变化的类保持包顺序，按包区间汇总增量
+ * - 两边都有行级明细的类，额外给出新覆盖和失去覆盖的行号，以及新覆盖和失去覆盖的方法（按方法名加描述符对应）
+ */
+public final class CoverageDiff {
+    private static final CounterEntity[] ENTITIES = CounterEntity.values();
+
+    /**
+     * 类的变化类型
+     */
+    public enum Status {
+        ADDED("新增"),
+        REMOVED("删除"),
+        CHANGED("变化");
+
+        private final String displayName;
+
+        Status(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final CoverageSnapshot before;
+    private final CoverageSnapshot after;
+    private final int[] beforeIndex;          // 变化的类在旧快照中的下标，新增时为 -1
+    private final int[] afterIndex;           // 变化的类在新快照中的下标，删除时为 -1
+    private final String[] packageNames;
+    private final int[] packageStart;         // 第 p 个包的变化类区间为 [packageStart[p], packageStart[p + 1])
+    private final Map<Integer, int[][]> lineChanges; // 变化类下标 -> {新覆盖的行, 失去覆盖的行}
+    private final Map<Integer, String[][]> methodChanges; // 变化类下标 -> {新覆盖的方法, 失去覆盖的方法}
+
+    private CoverageDiff(CoverageSnapshot before, CoverageSnapshot after, int[] beforeIndex, int[] afterIndex,
+                         String[] packageNames, int[] packageStart, Map<Integer, int[][]> lineChanges,
+                         Map<Integer, String[][]> methodChanges) {
+        this.before = before;
+        this.after = after;
+        this.beforeIndex = beforeIndex;
+        this.afterIndex = afterIndex;
+        this.packageNames = packageNames;
+        this.packageStart = packageStart;
+        this.lineChanges = lineChanges;
+        this.methodChanges = methodChanges;
+    }
+
+    /**
+     * 比较两个快照
+     */
+    public static CoverageDiff compute(CoverageSnapshot before, CoverageSnapshot after) {
+        return compute(before, after, Map.of(), Map.of());
+    }
+
+    /**
+     * 比较两次分析结果，两边都保留了明细的类会计算行级变化
+     */
+    public static CoverageDiff compute(CoverageResult before, CoverageResult after) {
+        return compute(before.getSnapshot(), after.getSnapshot(), before.getClassDetails(), after.getClassDetails());
+    }
+
+    private static CoverageDiff compute(CoverageSnapshot before, CoverageSnapshot after,
+                                        Map<String, IClassCoverage> beforeDetails,
+                                        Map<String, IClassCoverage> afterDetails) {
+        int beforeCount = before.getClassCount();
+        int afterCount = after.getClassCount();
+        int capacity = Math.max(16, Math.min(beforeCount + afterCount, 1024));
+        int[] beforeIdx = new int[capacity];
+        int[] afterIdx = new int[capacity];
+        int size = 0;
+
+        int i = 0;
+        int j = 0;
+        // 包名比较结果按（旧包下标，新包下标）缓存，同一对包内只比较一次包名
+        int cachedBeforePackage = -1;
+        int cachedAfterPackage = -1;
+        int cachedPackageCmp = 0;
+        while (i < beforeCount || j < afterCount) {
+            int cmp;
+            if (i == beforeCount) {
+                cmp = 1;
+            } else if (j == afterCount) {
+                cmp = -1;
+            } else {
+                int beforePackage = before.getPackageIndex(i);
+                int afterPackage = after.getPackageIndex(j);
+                if (beforePackage != cachedBeforePackage || afterPackage != cachedAfterPackage) {
+                    cachedBeforePackage = beforePackage;
+                    cachedAfterPackage = afterPackage;
+                    cachedPackageCmp = before.getPackageName(beforePackage).compareTo(after.getPackageName(afterPackage));
+                }
+                // 与 CoverageSnapshot.Builder 的排序规则一致：先比较包名，再比较类名
+                cmp = cachedPackageCmp != 0 ? cachedPackageCmp : before.getClassName(i).compareTo(after.getClassName(j));
+            }
+            int b = -1;
+            int a = -1;
+            if (cmp < 0) {
+                b = i++;
+            } else if (cmp > 0) {
+                a = j++;
+            } else {
+                if (!sameCounters(before, i, after, j)) {
+                    b = i;
+                    a = j;
+                }
+                i++;
+                j++;
+            }
+            if (b == -1 && a == -1) {
+                continue;
+            }
+            if (size == beforeIdx.length) {
+                beforeIdx = Arrays.copyOf(beforeIdx, size * 2);
+                afterIdx = Arrays.copyOf(afterIdx, size * 2);
+            }
+            beforeIdx[size] = b;
+            afterIdx[size] = a;
+            size++;
+        }
+        beforeIdx = Arrays.copyOf(beforeIdx, size);
+        afterIdx = Arrays.copyOf(afterIdx, size);
+
+        // 变化的类保持（包名，类名）顺序，相邻的同包类组成一个包区间
+        String[] packageNames = new String[size];
+        int[] packageStart = new int[size + 1];
+        int packageCount = 0;
+        Map<Integer, int[][]> lineChanges = new HashMap<>();
+        Map<Integer, String[][]> methodChanges = new HashMap<>();
+        for (int k = 0; k < size; k++) {
+            String packageName = packageNameOf(before, after, beforeIdx[k], afterIdx[k]);
+            if (packageCount == 0 || !packageNames[packageCount - 1].equals(packageName)) {
+                packageNames[packageCount] = packageName;
+                packageStart[packageCount] = k;
+                packageCount++;
+            }
+            if (beforeIdx[k] != -1 && afterIdx[k] != -1) {
+                String className = after.getClassName(afterIdx[k]);
+                IClassCoverage beforeDetail = beforeDetails.get(className);
+                IClassCoverage afterDetail = afterDetails.get(className);
+                if (hasLineDetail(beforeDetail) && hasLineDetail(afterDetail)) {
+                    lineChanges.put(k, compareLines(beforeDetail, afterDetail));
+                    methodChanges.put(k, compareMethods(beforeDetail, afterDetail));
+                }
+            }
+        }
+        packageStart[packageCount] = size;
+
+        return new CoverageDiff(before, after, beforeIdx, afterIdx, Arrays.copyOf(packageNames, packageCount),
+            Arrays.copyOf(packageStart, packageCount + 1), lineChanges, methodChanges);
+    }
+
+    /**
+     * 明细是否为真实分析的结果，缓存还原的类只有类级计数器，比较行和方法会得到错误的变化
+     */
+    private static boolean hasLineDetail(@Nullable IClassCoverage detail) {
+        return detail != null && !(detail instanceof ClassAnalysisCache.CachedClassCoverage);
+    }
+
+    private static boolean sameCounters(CoverageSnapshot left, int i, CoverageSnapshot right, int j) {
+        for (CounterEntity entity : ENTITIES) {
+            if (left.getMissed(entity, i) != right.getMissed(entity, j)
+                || left.getCovered(entity, i) != right.getCovered(entity, j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String packageNameOf(CoverageSnapshot before, CoverageSnapshot after, int b, int a) {
+        return a != -1 ? after.getPackageName(after.getPackageIndex(a)) : before.getPackageName(before.getPackageIndex(b));
+    }
+
+    /**
+     * 逐行比较覆盖状态，返回 {新覆盖的行, 失去覆盖的行}
+     */
+    private static int[][] compareLines(IClassCoverage before, IClassCoverage after) {
+        int first = Math.min(firstLine(before), firstLine(after));
+        int last = Math.max(before.getLastLine(), after.getLastLine());
+        int[] gained = new int[0];
+        int[] lost = new int[0];
+        int gainedCount = 0;
+        int lostCount = 0;
+        for (int line = first; line <= last; line++) {
+            boolean wasCovered = isCovered(before.getLine(line).getStatus());
+            boolean isCovered = isCovered(after.getLine(line).getStatus());
+            if (isCovered && !wasCovered) {
+                if (gainedCount == gained.length) {
+                    gained = Arrays.copyOf(gained, Math.max(8, gainedCount * 2));
+                }
+                gained[gainedCount++] = line;
+            } else if (wasCovered && !isCovered && after.getLine(line).getStatus() != ICounter.EMPTY) {
+                if (lostCount == lost.length) {
+                    lost = Arrays.copyOf(lost, Math.max(8, lostCount * 2));
+                }
+                lost[lostCount++] = line;
+            }
+        }
+        return new int[][]{Arrays.copyOf(gained, gainedCount), Arrays.copyOf(lost, lostCount)};
+    }
+
+    /**
+     * 按方法名加描述符比较方法是否被执行，返回 {新覆盖的方法, 失去覆盖的方法}
+     * 新增且已覆盖的方法算作新覆盖；删除的方法不算失去覆盖
+     */
+    private static String[][] compareMethods(IClassCoverage before, IClassCoverage after) {
+        Map<String, Boolean> wasCovered = new HashMap<>();
+        for (IMethodCoverage method : before.getMethods()) {
+            wasCovered.put(method.getName() + method.getDesc(), isCovered(method));
+        }
+        List<String> gained = new ArrayList<>();
+        List<String> lost = new ArrayList<>();
+        for (IMethodCoverage method : after.getMethods()) {
+            String key = method.getName() + method.getDesc();
+            Boolean previous = wasCovered.get(key);
+            boolean covered = isCovered(method);
+            if (covered && !Boolean.TRUE.equals(previous)) {
+                gained.add(key);
+            } else if (!covered && Boolean.TRUE.equals(previous)) {
+                lost.add(key);
+            }
+        }
+        return new String[][]{gained.toArray(new String[0]), lost.toArray(new String[0])};
+    }
+
+    private static boolean isCovered(IMethodCoverage method) {
+        return method.getMethodCounter().getCoveredCount() > 0;
+    }
+
+    private static int firstLine(IClassCoverage coverage) {
+        return coverage.getFirstLine() == -1 ? Integer.MAX_VALUE : coverage.getFirstLine();
+    }
+
+    private static boolean isCovered(int status) {
+        return status == ICounter.FULLY_COVERED || status == ICounter.PARTLY_COVERED;
+    }
+
+    /**
+     * 是否没有任何变化
+     */
+    public boolean isEmpty() {
+        return beforeIndex.length == 0;
+    }
+
+    /**
+     * 变化的类数量
+     */
+    public int getChangedCount() {
+        return beforeIndex.length;
+    }
+
+    public int getPackageCount() {
+        return packageNames.length;
+    }
+
+    public String getPackageName(int packageIndex) {
+        return packageNames[packageIndex];
+    }
+
+    public int getPackageStart(int packageIndex) {
+        return packageStart[packageIndex];
+    }
+
+    public int getPackageEnd(int packageIndex) {
+        return packageStart[packageIndex + 1];
+    }
+
+    public Status getStatus(int k) {
+        if (beforeIndex[k] == -1) {
+            return Status.ADDED;
+        }
+        return afterIndex[k] == -1 ? Status.REMOVED : Status.CHANGED;
+    }
+
+    /**
+     * 变化类的完整类名（点分格式）
+     */
+    public String getQualifiedName(int k) {
+        return afterIndex[k] != -1 ? after.getQualifiedName(afterIndex[k]) : before.getQualifiedName(beforeIndex[k]);
+    }
+
+    /**
+     * 变化类的 JVM 内部类名
+     */
+    public String getClassName(int k) {
+        return afterIndex[k] != -1 ? after.getClassName(afterIndex[k]) : before.getClassName(beforeIndex[k]);
+    }
+
+    public int getCoveredBefore(CounterEntity entity, int k) {
+        return beforeIndex[k] == -1 ? 0 : before.getCovered(entity, beforeIndex[k]);
+    }
+
+    public int getCoveredAfter(CounterEntity entity, int k) {
+        return afterIndex[k] == -1 ? 0 : after.getCovered(entity, afterIndex[k]);
+    }
+
+    /**
+     * 已覆盖数量的变化
+     */
+    public int getCoveredDelta(CounterEntity entity, int k) {
+        return getCoveredAfter(entity, k) - getCoveredBefore(entity, k);
+    }
+
+    /**
+     * 未覆盖数量的变化
+     */
+    public int getMissedDelta(CounterEntity entity, int k) {
+        int missedBefore = beforeIndex[k] == -1 ? 0 : before.getMissed(entity, beforeIndex[k]);
+        int missedAfter = afterIndex[k] == -1 ? 0 : after.getMissed(entity, afterIndex[k]);
+        return missedAfter - missedBefore;
+    }
+
+    /**
+     * 变化前的覆盖率，新增的类返回 NaN
+     */
+    public double getPercentBefore(CounterEntity entity, int k) {
+        return beforeIndex[k] == -1 ? Double.NaN : before.getCoveredPercent(entity, beforeIndex[k]);
+    }
+
+    /**
+     * 变化后的覆盖率，删除的类返回 NaN
+     */
+    public double getPercentAfter(CounterEntity entity, int k) {
+        return afterIndex[k] == -1 ? Double.NaN : after.getCoveredPercent(entity, afterIndex[k]);
+    }
+
+    /**
+     * 包内所有变化类的已覆盖数量变化之和
+     */
+    public long getPackageCoveredDelta(CounterEntity entity, int packageIndex) {
+        long total = 0;
+        for (int k = getPackageStart(packageIndex); k < getPackageEnd(packageIndex); k++) {
+            total += getCoveredDelta(entity, k);
+        }
+        return total;
+    }
+
+    /**
+     * 包内所有变化类的未覆盖数量变化之和
+     */
+    public long getPackageMissedDelta(CounterEntity entity, int packageIndex) {
+        long total = 0;
+        for (int k = getPackageStart(packageIndex); k < getPackageEnd(packageIndex); k++) {
+            total += getMissedDelta(entity, k);
+        }
+        return total;
+    }
+
+    /**
+     * 整体覆盖率变化（百分点）
+     */
+    public double getTotalPercentDelta(CounterEntity entity) {
+        return after.getCoveredPercent(entity, 0, after.getClassCount())
+            - before.getCoveredPercent(entity, 0, before.getClassCount());
+    }
+
+    /**
+     * 新覆盖的行号，没有行级明细时返回 null
+     */
+    public @Nullable int[] getGainedLines(int k) {
+        int[][] changes = lineChanges.get(k);
+        return changes == null ? null : changes[0];
+    }
+
+    /**
+     * 失去覆盖的行号，没有行级明细时返回 null
+     */
+    public @Nullable int[] getLostLines(int k) {
+        int[][] changes = lineChanges.get(k);
+        return changes == null ? null : changes[1];
+    }
+
+    /**
+     * 新覆盖的方法（方法名加描述符，例如 run(I)V），没有明细时返回 null
+     */
+    public @Nullable String[] getGainedMethods(int k) {
+        String[][] changes = methodChanges.get(k);
+        return changes == null ? null : changes[0];
+    }
+
+    /**
+     * 失去覆盖的方法（方法名加描述符），没有明细时返回 null
+     */
+    public @Nullable String[] getLostMethods(int k) {
+        String[][] changes = methodChanges.get(k);
+        return changes == null ? null : changes[1];
+    }
+}
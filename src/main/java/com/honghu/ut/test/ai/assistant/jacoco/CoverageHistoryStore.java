@@ -0,0 +1,573 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.io.ByteBufferUtil;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 覆盖率历史存储
+ * 每次分析完成后向项目的历史文件追加一条紧凑记录，供趋势图读取
+ *
+ * 功能：
+ * - 记录包含时间戳、VCS 修订号、项目合计计数器和各个包的计数器，不保存类级数据
+ * - 文件只追加；包名以名称记录写入一次，快照记录中只保存包编号
+ * - 读取时以内存映射方式按记录长度跳跃扫描，只取出需要的计数器，不把历史快照读入堆
+ * - 记录数超过上限时降采样：最近 7 天全部保留，90 天内每天保留一条，更早的每周保留一条
+ * - 进程中断留下的不完整记录在下次追加前截掉
+ */
+public final class CoverageHistoryStore {
+    private static final Logger LOG = Logger.getInstance(CoverageHistoryStore.class);
+
+    private static final int MAGIC = 0x55544348;         // "UTCH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORDS = 2048;         // 快照记录数超过该值时降采样
+
+    private static final byte TYPE_NAME = 1;             // 包名记录：编号 + 名称
+    private static final byte TYPE_SNAPSHOT = 2;         // 快照记录
+
+    // 快照记录布局：长度(4) 类型(1) 时间戳(8) 项目计数器(8 x 8) 修订号长度(2) 修订号 包数(4) 包条目...
+    private static final int TIMESTAMP_OFFSET = 5;
+    private static final int TOTALS_OFFSET = 13;
+    private static final int REVISION_OFFSET = TOTALS_OFFSET + 64;
+    private static final int MAX_REVISION_BYTES = 64;
+
+    // 记录的计数器，每个包条目为 编号(4) + 各计数器的 missed / covered(4 x 2 x 4)
+    private static final CounterEntity[] ENTITIES = {
+        CounterEntity.INSTRUCTION, CounterEntity.BRANCH, CounterEntity.LINE, CounterEntity.METHOD
+    };
+    private static final int PACKAGE_ENTRY_SIZE = 4 + ENTITIES.length * 8;
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long KEEP_ALL_MILLIS = 7 * DAY_MILLIS;
+    private static final long KEEP_DAILY_MILLIS = 90 * DAY_MILLIS;
+
+    private final Path historyFile;
+    private final List<String> packageNames = new ArrayList<>();    // 编号 -> 包名
+    private final Map<String, Integer> packageIds = new HashMap<>();
+    private boolean loaded;
+
+    public CoverageHistoryStore(Path historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * 项目默认的历史文件位置（与分析缓存在同一目录）
+     */
+    public static CoverageHistoryStore forProject(Project project) {
+        return new CoverageHistoryStore(ClassAnalysisCache.getProjectCacheDir(project).resolve("coverage-history.bin"));
+    }
+
+    /**
+     * 追加一条历史记录，记录数超过上限时降采样
+     *
+     * @param revision VCS 修订号，可为空
+     */
+    public synchronized void append(long timestamp, @Nullable String revision, CoverageRollup rollup) throws IOException {
+        ensureLoaded();
+        // 同名包分布在多个模块时合并为一个包
+        Map<String, long[]> packages = new TreeMap<>();
+        for (CoverageRollup.Node module : rollup.getModules()) {
+            for (CoverageRollup.Node pkg : module.getChildren()) {
+                long[] counters = packages.computeIfAbsent(pkg.getName(), name -> new long[ENTITIES.length * 2]);
+                addCounters(counters, pkg);
+            }
+        }
+        long[] totals = new long[ENTITIES.length * 2];
+        addCounters(totals, rollup.getProject());
+
+        byte[] revisionBytes = revision == null ? new byte[0] : revision.getBytes(StandardCharsets.UTF_8);
+        if (revisionBytes.length > MAX_REVISION_BYTES) {
+            revisionBytes = Arrays.copyOf(revisionBytes, MAX_REVISION_BYTES);
+        }
+
+        Files.createDirectories(historyFile.getParent());
+        int snapshotCount;
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            Scan scan = scan(channel);
+            long end;
+            if (!scan.valid) {
+                // 新文件或文件头不匹配：重新开始，包编号也从头分配
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+                packageNames.clear();
+                packageIds.clear();
+                end = HEADER_SIZE;
+            } else {
+                // 截掉上次中断留下的不完整记录
+                end = scan.validEnd;
+                channel.truncate(end);
+            }
+            snapshotCount = scan.snapshotOffsets.length;
+            for (ByteBuffer record : buildRecords(timestamp, revisionBytes, totals, packages)) {
+                record.flip();
+                while (record.hasRemaining()) {
+                    end += channel.write(record, end);
+                }
+            }
+        }
+        if (snapshotCount + 1 > MAX_RECORDS) {
+            compact(timestamp);
+        }
+    }
+
+    /**
+     * 构建本次需要追加的记录：新出现的包名记录在前，快照记录在后
+     */
+    private List<ByteBuffer> buildRecords(long timestamp, byte[] revisionBytes, long[] totals,
+                                          Map<String, long[]> packages) {
+        List<ByteBuffer> records = new ArrayList<>();
+        ByteBuffer snapshot = ByteBuffer.allocate(REVISION_OFFSET + 2 + revisionBytes.length + 4
+            + packages.size() * PACKAGE_ENTRY_SIZE);
+        snapshot.putInt(snapshot.capacity()).put(TYPE_SNAPSHOT).putLong(timestamp);
+        for (long total : totals) {
+            snapshot.putLong(total);
+        }
+        snapshot.putShort((short) revisionBytes.length).put(revisionBytes).putInt(packages.size());
+        for (Map.Entry<String, long[]> entry : packages.entrySet()) {
+            Integer id = packageIds.get(entry.getKey());
+            if (id == null) {
+                id = packageNames.size();
+                records.add(nameRecord(id, entry.getKey()));
+                packageNames.add(entry.getKey());
+                packageIds.put(entry.getKey(), id);
+            }
+            snapshot.putInt(id);
+            for (long counter : entry.getValue()) {
+                snapshot.putInt((int) Math.min(Integer.MAX_VALUE, counter));
+            }
+        }
+        records.add(snapshot);
+        return records;
+    }
+
+    private static void addCounters(long[] counters, CoverageRollup.Node node) {
+        for (int e = 0; e < ENTITIES.length; e++) {
+            counters[e * 2] += node.getMissed(ENTITIES[e]);
+            counters[e * 2 + 1] += node.getCovered(ENTITIES[e]);
+        }
+    }
+
+    private static ByteBuffer nameRecord(int id, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(4 + 1 + 4 + 2 + bytes.length);
+        record.putInt(record.capacity()).put(TYPE_NAME).putInt(id).putShort((short) bytes.length).put(bytes);
+        return record;
+    }
+
+    /**
+     * 项目合计的覆盖率趋势，包含每个点的修订号
+     *
+     * @param maxPoints 最多返回的点数，历史更长时等间隔抽取（总是包含最新一条）
+     */
+    public synchronized Trend readProjectTrend(CounterEntity entity, int maxPoints) throws IOException {
+        int e = entityIndex(entity);
+        return read((buffer, offsets) -> {
+            Trend trend = new Trend(readTimestamps(buffer, offsets), true);
+            for (int i = 0; i < offsets.length; i++) {
+                int offset = offsets[i];
+                trend.set(i, buffer.getLong(offset + TOTALS_OFFSET + e * 16),
+                    buffer.getLong(offset + TOTALS_OFFSET + e * 16 + 8));
+                trend.revisions[i] = readRevision(buffer, offset);
+            }
+            return Map.of("", trend);
+        }, maxPoints).getOrDefault("", new Trend(new long[0], true));
+    }
+
+    /**
+     * 各个包的覆盖率趋势，一次扫描得到所有包，键为包名
+     * 某个点上没有该包时（包尚未出现或已删除）该点的百分比为 NaN
+     */
+    public synchronized Map<String, Trend> readPackageTrends(CounterEntity entity, int maxPoints) throws IOException {
+        int e = entityIndex(entity);
+        return read((buffer, offsets) -> {
+            long[] timestamps = readTimestamps(buffer, offsets);
+            Map<Integer, Trend> byId = new HashMap<>();
+            for (int i = 0; i < offsets.length; i++) {
+                int offset = offsets[i];
+                int position = offset + REVISION_OFFSET + 2 + Short.toUnsignedInt(buffer.getShort(offset + REVISION_OFFSET));
+                int packageCount = buffer.getInt(position);
+                position += 4;
+                for (int p = 0; p < packageCount; p++, position += PACKAGE_ENTRY_SIZE) {
+                    int id = buffer.getInt(position);
+                    Trend trend = byId.get(id);
+                    if (trend == null) {
+                        // 各个包的趋势共用同一组时间戳
+                        trend = new Trend(timestamps, false);
+                        byId.put(id, trend);
+                    }
+                    int counters = position + 4 + e * 8;
+                    trend.set(i, buffer.getInt(counters), buffer.getInt(counters + 4));
+                }
+            }
+            Map<String, Trend> trends = new TreeMap<>();
+            for (Map.Entry<Integer, Trend> entry : byId.entrySet()) {
+                int id = entry.getKey();
+                trends.put(id < packageNames.size() ? packageNames.get(id) : "#" + id, entry.getValue());
+            }
+            return trends;
+        }, maxPoints);
+    }
+
+    /**
+     * 历史中的快照记录数
+     */
+    public synchronized int getRecordCount() throws IOException {
+        if (!Files.isRegularFile(historyFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.READ)) {
+            return scan(channel).snapshotOffsets.length;
+        }
+    }
+
+    /**
+     * 删除全部历史
+     */
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(historyFile);
+        packageNames.clear();
+        packageIds.clear();
+        loaded = true;
+    }
+
+    private static int entityIndex(CounterEntity entity) {
+        for (int e = 0; e < ENTITIES.length; e++) {
+            if (ENTITIES[e] == entity) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException("历史记录中没有该计数器: " + entity);
+    }
+
+    private static long[] readTimestamps(ByteBuffer buffer, int[] offsets) {
+        long[] timestamps = new long[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            timestamps[i] = buffer.getLong(offsets[i] + TIMESTAMP_OFFSET);
+        }
+        return timestamps;
+    }
+
+    private static String readRevision(ByteBuffer buffer, int offset) {
+        int length = Short.toUnsignedInt(buffer.getShort(offset + REVISION_OFFSET));
+        byte[] bytes = new byte[length];
+        buffer.get(offset + REVISION_OFFSET + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 映射历史文件，选出最多 maxPoints 条快照记录交给 reader 读取
+     */
+    private Map<String, Trend> read(RecordReader reader, int maxPoints) throws IOException {
+        ensureLoaded();
+        if (!Files.isRegularFile(historyFile)) {
+            return Map.of();
+        }
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.READ)) {
+            Scan scan = scan(channel);
+            if (scan.snapshotOffsets.length == 0) {
+                return Map.of();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, scan.validEnd);
+            try {
+                return reader.read(buffer, sample(scan.snapshotOffsets, maxPoints));
+            } finally {
+                // 读取结果已复制到趋势数组中，立即解除映射，否则 Windows 上降采样时无法替换文件
+                ByteBufferUtil.cleanBuffer(buffer);
+            }
+        }
+    }
+
+    /**
+     * 等间隔抽取 maxPoints 个记录，保留最后一条
+     */
+    private static int[] sample(int[] offsets, int maxPoints) {
+        if (maxPoints <= 0 || offsets.length <= maxPoints) {
+            return offsets;
+        }
+        int[] sampled = new int[maxPoints];
+        for (int i = 0; i < maxPoints; i++) {
+            sampled[i] = offsets[(int) ((long) (i + 1) * offsets.length / maxPoints) - 1];
+        }
+        return sampled;
+    }
+
+    /**
+     * 首次使用时读入包名记录
+     */
+    private void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(historyFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.READ)) {
+            Scan scan = scan(channel);
+            for (int i = 0; i < scan.nameOffsets.length; i++) {
+                ByteBuffer record = ByteBuffer.allocate(scan.nameLengths[i]);
+                readFully(channel, record, scan.nameOffsets[i]);
+                int id = record.getInt(5);
+                byte[] bytes = new byte[Short.toUnsignedInt(record.getShort(9))];
+                record.get(11, bytes);
+                String name = new String(bytes, StandardCharsets.UTF_8);
+                while (packageNames.size() <= id) {
+                    packageNames.add(null);
+                }
+                packageNames.set(id, name);
+                packageIds.put(name, id);
+            }
+        }
+    }
+
+    /**
+     * 按记录长度扫描整个文件，得到各类记录的偏移和最后一条完整记录的结束位置
+     * 只读取每条记录的头部；不做映射，以免映射未释放时无法截断或替换文件
+     * 文件头不匹配时按空文件处理
+     */
+    private static Scan scan(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("覆盖率历史文件过大: " + size);
+        }
+        ByteBuffer header = ByteBuffer.allocate(TOTALS_OFFSET);
+        if (size < HEADER_SIZE || !readFully(channel, header.limit(HEADER_SIZE), 0)
+            || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return new Scan(new int[0], new int[0], new int[0], new int[0], new long[0], 0, false);
+        }
+        IntList names = new IntList();
+        IntList nameLengths = new IntList();
+        IntList snapshots = new IntList();
+        IntList snapshotLengths = new IntList();
+        long[] timestamps = new long[64];
+        int position = HEADER_SIZE;
+        while (position + 5 <= size) {
+            header.clear().limit((int) Math.min(TOTALS_OFFSET, size - position));
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length < 5 || position + (long) length > size) {
+                break;
+            }
+            byte type = header.get(4);
+            if (type == TYPE_NAME) {
+                names.add(position);
+                nameLengths.add(length);
+            } else if (type == TYPE_SNAPSHOT && length >= REVISION_OFFSET + 2 + 4) {
+                if (snapshots.size == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, timestamps.length * 2);
+                }
+                timestamps[snapshots.size] = header.getLong(TIMESTAMP_OFFSET);
+                snapshots.add(position);
+                snapshotLengths.add(length);
+            }
+            position += length;
+        }
+        return new Scan(names.toArray(), nameLengths.toArray(), snapshots.toArray(), snapshotLengths.toArray(),
+            Arrays.copyOf(timestamps, snapshots.size), position, true);
+    }
+
+    /**
+     * 从 position 开始读满 buffer，文件不够长时返回 false
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * 降采样：按时间分档只保留每天 / 每周的最后一条记录，包名记录全部保留
+     * 写入临时文件后原子替换
+     */
+    private void compact(long now) throws IOException {
+        Path tmpFile = historyFile.resolveSibling(historyFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            Scan scan = scan(channel);
+            int[] snapshots = scan.snapshotOffsets;
+            boolean[] keep = new boolean[snapshots.length];
+            long previousBucket = Long.MIN_VALUE;
+            // 从新到旧遍历，同一档中最先遇到的即为最后一条
+            for (int i = snapshots.length - 1; i >= 0; i--) {
+                long timestamp = scan.snapshotTimestamps[i];
+                long age = now - timestamp;
+                long bucket;
+                if (age < KEEP_ALL_MILLIS) {
+                    keep[i] = true;
+                    continue;
+                } else if (age < KEEP_DAILY_MILLIS) {
+                    bucket = Math.floorDiv(timestamp, DAY_MILLIS);
+                } else {
+                    // 与按天的档错开，避免两种档的编号相同
+                    bucket = -1 - Math.floorDiv(timestamp, 7 * DAY_MILLIS);
+                }
+                keep[i] = bucket != previousBucket;
+                previousBucket = bucket;
+            }
+            // 仍然超出上限时丢弃最旧的记录
+            int kept = 0;
+            for (int i = keep.length - 1; i >= 0; i--) {
+                if (keep[i] && ++kept > MAX_RECORDS / 2) {
+                    keep[i] = false;
+                }
+            }
+
+            long position = 0;
+            position += out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), position);
+            for (int i = 0; i < scan.nameOffsets.length; i++) {
+                position += copyRecord(channel, scan.nameOffsets[i], scan.nameLengths[i], out, position);
+            }
+            for (int i = 0; i < snapshots.length; i++) {
+                if (keep[i]) {
+                    position += copyRecord(channel, snapshots[i], scan.snapshotLengths[i], out, position);
+                }
+            }
+            out.force(false);
+        }
+        try {
+            Files.move(tmpFile, historyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 替换失败（例如文件仍被映射）时保留原文件，下次追加时再尝试
+            LOG.warn("覆盖率历史降采样失败", e);
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static int copyRecord(FileChannel in, int offset, int length, FileChannel out, long position) throws IOException {
+        long copied = 0;
+        while (copied < length) {
+            copied += in.transferTo(offset + copied, length - copied, out.position(position + copied));
+        }
+        return length;
+    }
+
+    /**
+     * 一次扫描的结果
+     */
+    private static final class Scan {
+        final int[] nameOffsets;
+        final int[] nameLengths;
+        final int[] snapshotOffsets;
+        final int[] snapshotLengths;
+        final long[] snapshotTimestamps;
+        final long validEnd;
+        final boolean valid;    // 文件头是否匹配
+
+        Scan(int[] nameOffsets, int[] nameLengths, int[] snapshotOffsets, int[] snapshotLengths,
+             long[] snapshotTimestamps, long validEnd, boolean valid) {
+            this.nameOffsets = nameOffsets;
+            this.nameLengths = nameLengths;
+            this.snapshotOffsets = snapshotOffsets;
+            this.snapshotLengths = snapshotLengths;
+            this.snapshotTimestamps = snapshotTimestamps;
+            this.validEnd = validEnd;
+            this.valid = valid;
+        }
+    }
+
+    /**
+     * 扫描时收集偏移用的 int 列表
+     */
+    private static final class IntList {
+        int[] values = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private interface RecordReader {
+        Map<String, Trend> read(ByteBuffer buffer, int[] snapshotOffsets);
+    }
+
+    /**
+     * 一条覆盖率趋势：按时间顺序的时间戳和百分比
+     */
+    public static final class Trend {
+        private final long[] timestamps;
+        private final float[] percents;
+        private final String[] revisions;   // 只有项目趋势有修订号
+
+        private Trend(long[] timestamps, boolean withRevisions) {
+            this.timestamps = timestamps;
+            this.percents = new float[timestamps.length];
+            this.revisions = withRevisions ? new String[timestamps.length] : null;
+            Arrays.fill(percents, Float.NaN);
+        }
+
+        private void set(int index, long missed, long covered) {
+            percents[index] = (float) CoverageSnapshot.percent(covered, missed);
+        }
+
+        public int size() {
+            return timestamps.length;
+        }
+
+        public long getTimestamp(int index) {
+            return timestamps[index];
+        }
+
+        /**
+         * 覆盖率百分比，该点没有数据时为 NaN
+         */
+        public float getPercent(int index) {
+            return percents[index];
+        }
+
+        /**
+         * 最新一个点的百分比，没有数据时为 NaN
+         */
+        public float getLatestPercent() {
+            return percents.length == 0 ? Float.NaN : percents[percents.length - 1];
+        }
+
+        /**
+         * 该点的 VCS 修订号，包趋势或未记录修订号时为空
+         */
+        public @Nullable String getRevision(int index) {
+            return revisions == null || revisions[index].isEmpty() ? null : revisions[index];
+        }
+
+        /**
+         * 百分比数组的副本（供趋势图绘制）
+         */
+        public float[] getPercents() {
+            return percents.clone();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 一次覆盖率分析的不可变结果
+ * 由 JacocoCoverageService 整体发布，读取方拿到引用后看到的始终是同一次分析的完整数据
+ *
+ * 功能：
+ * - 带单调递增的版本号和生成时间
+ * - 包含列式快照以及保留了行级明细的类
+ * - 记录执行数据所在的会话，按需补充行级明细时使用同一会话
+ * - 附带包、模块、项目的分层汇总
+ * - 保留上一个版本的引用（上一版本不再继续向前链接），便于对比或回退
+ * - 从磁盘恢复的上次结果带有恢复标记，后台校验确认类文件没有变化后才去掉
+ */
+public final class CoverageResult {
+    public static final CoverageResult EMPTY = new CoverageResult(0, 0, null, CoverageSnapshot.EMPTY,
+        CoverageRollup.EMPTY, Map.of(), null);
+
+    private final long version;
+    private final long createdAt;
+    private final String sessionName;
+    private final CoverageSnapshot snapshot;
+    private final CoverageRollup rollup;
+    private final Map<String, IClassCoverage> classDetails;
+    private final CoverageResult previous;
+    private final boolean restored;
+
+    CoverageResult(long version, long createdAt, @Nullable String sessionName, CoverageSnapshot snapshot,
+                   CoverageRollup rollup, Map<String, IClassCoverage> classDetails, @Nullable CoverageResult previous) {
+        this(version, createdAt, sessionName, snapshot, rollup, classDetails, previous, false);
+    }
+
+    private CoverageResult(long version, long createdAt, @Nullable String sessionName, CoverageSnapshot snapshot,
+                           CoverageRollup rollup, Map<String, IClassCoverage> classDetails,
+                           @Nullable CoverageResult previous, boolean restored) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.sessionName = sessionName;
+        this.snapshot = snapshot;
+        this.rollup = rollup;
+        this.classDetails = Collections.unmodifiableMap(classDetails);
+        this.previous = previous;
+        this.restored = restored;
+    }
+
+    /**
+     * 从磁盘恢复的结果（没有行级明细，也没有上一版本）
+     */
+    static CoverageResult restored(long version, long createdAt, @Nullable String sessionName,
+                                   CoverageSnapshot snapshot, CoverageRollup rollup) {
+        return new CoverageResult(version, createdAt, sessionName, snapshot, rollup, Map.of(), null, true);
+    }
+
+    /**
+     * 校验通过后去掉恢复标记的副本，生成时间保持不变
+     */
+    CoverageResult confirmed(long newVersion) {
+        return new CoverageResult(newVersion, createdAt, sessionName, snapshot, rollup, classDetails, previous, false);
+    }
+
+    /**
+     * 以当前结果为上一版本创建新结果，上一版本自身不再持有更早的版本，避免形成长链
+     */
+    CoverageResult successor(long newVersion, @Nullable String newSessionName, CoverageSnapshot newSnapshot,
+                             CoverageRollup newRollup, Map<String, IClassCoverage> newDetails) {
+        CoverageResult detachedPrevious = this == EMPTY ? null
+            : new CoverageResult(version, createdAt, sessionName, snapshot, rollup, classDetails, null);
+        return new CoverageResult(newVersion, System.currentTimeMillis(), newSessionName, newSnapshot, newRollup,
+            newDetails, detachedPrevious);
+    }
+
+    /**
+     * 版本号，每次发布递增，未分析时为 0
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 结果生成时间（毫秒）
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * 分析所用执行数据的会话名，不使用执行数据直接分析时为 null
+     */
+    public @Nullable String getSessionName() {
+        return sessionName;
+    }
+
+    public CoverageSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 与快照对应的分层汇总
+     */
+    public CoverageRollup getRollup() {
+        return rollup;
+    }
+
+    /**
+     * 是否已经有过分析结果（包括没有找到类文件的空结果）
+     */
+    public boolean isAnalyzed() {
+        return version > 0;
+    }
+
+    /**
+     * 保留了行级明细的类，键为 JVM 内部类名
+     */
+    public Map<String, IClassCoverage> getClassDetails() {
+        return classDetails;
+    }
+
+    public @Nullable IClassCoverage getClassDetail(String className) {
+        return classDetails.get(className);
+    }
+
+    /**
+     * 是否是从磁盘恢复、尚未经过校验的结果，界面应提示可能已过期
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * 上一个版本的结果，没有时为 null
+     */
+    public @Nullable CoverageResult getPrevious() {
+        return previous;
+    }
+}
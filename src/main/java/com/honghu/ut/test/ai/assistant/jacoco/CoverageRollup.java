@@ -0,0 +1,234 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 覆盖率分层汇总（类 → 包 → 模块 → 项目）
+ * 每个节点直接累加原始的 missed / covered 计数器，覆盖率按计数器加权，而不是对类的百分比取平均
+ *
+ * 功能：
+ * - 每个快照只遍历一次所有类，同时得到包、模块和项目的计数器以及低覆盖率类的数量
+ * - 包节点挂在所属模块下，同名包分布在多个模块时分别汇总
+ * - 只有少量类变化时按差量更新：减去旧计数器、加上新计数器，不重新遍历全部类
+ * - 差量更新共享类到模块的映射，只有模块发生变化的类记在一个小的覆盖表中，覆盖表过大时才合并
+ * - 构建完成后不再修改，树形视图、报告和摘要都从这里读取汇总值
+ */
+public final class CoverageRollup {
+    private static final CounterEntity[] ENTITIES = CounterEntity.values();
+
+    public static final double LOW_COVERAGE_PERCENT = 70.0;   // 行覆盖率低于该值的类计为低覆盖率
+    public static final String UNASSIGNED_MODULE = "(未归属模块)"; // 无法确定模块的类
+    public static final CoverageRollup EMPTY = build(CoverageSnapshot.EMPTY, Map.of());
+
+    private static final int MIN_MERGE_OVERRIDES = 1024;   // 覆盖表至少达到该大小才合并进基础映射
+
+    private final Node project;
+    private final Map<String, String> classModules;      // JVM 内部类名 -> 模块名，差量更新之间共享
+    private final Map<String, String> moduleOverrides;   // 差量更新中模块发生变化的类，优先于 classModules
+
+    private CoverageRollup(Node project, Map<String, String> classModules, Map<String, String> moduleOverrides) {
+        this.project = project;
+        this.classModules = classModules;
+        this.moduleOverrides = moduleOverrides;
+    }
+
+    /**
+     * 由快照构建汇总树
+     *
+     * @param classModules JVM 内部类名到模块名的映射，不在映射中的类归入 UNASSIGNED_MODULE
+     */
+    public static CoverageRollup build(CoverageSnapshot snapshot, Map<String, String> classModules) {
+        Node project = new Node("project");
+        for (int i = 0; i < snapshot.getClassCount(); i++) {
+            String module = classModules.getOrDefault(snapshot.getClassName(i), UNASSIGNED_MODULE);
+            apply(project, snapshot, i, module, 1);
+        }
+        return new CoverageRollup(project, Collections.unmodifiableMap(new HashMap<>(classModules)), Map.of());
+    }
+
+    /**
+     * 用 updates 中的类替换 before 中的同名类后的汇总（与 CoverageSnapshot.withReplaced 对应）
+     * 只复制汇总节点并对变化的类做差量更新，本对象保持不变
+     *
+     * @param before         本汇总对应的快照
+     * @param updatedModules 变化的类所属的模块
+     */
+    public CoverageRollup withReplaced(CoverageSnapshot before, CoverageSnapshot updates,
+                                       Map<String, String> updatedModules) {
+        if (updates.isEmpty()) {
+            return this;
+        }
+        Node copy = project.copy();
+        Map<String, String> overrides = moduleOverrides;
+        boolean overridesCopied = false;
+        for (int j = 0; j < updates.getClassCount(); j++) {
+            String className = updates.getClassName(j);
+            String oldModule = moduleOf(classModules, overrides, className);
+            int old = before.indexOf(className);
+            if (old >= 0) {
+                apply(copy, before, old, oldModule, -1);
+            }
+            String module = updatedModules.get(className);
+            if (module != null && !module.equals(oldModule)) {
+                // 只有模块真正变化时才复制覆盖表，通常的增量更新完全共享映射
+                if (!overridesCopied) {
+                    overrides = new HashMap<>(overrides);
+                    overridesCopied = true;
+                }
+                overrides.put(className, module);
+            }
+            apply(copy, updates, j, moduleOf(classModules, overrides, className), 1);
+        }
+        copy.prune();
+        if (!overridesCopied) {
+            return new CoverageRollup(copy, classModules, moduleOverrides);
+        }
+        if (overrides.size() < Math.max(MIN_MERGE_OVERRIDES, classModules.size() / 4)) {
+            return new CoverageRollup(copy, classModules, Collections.unmodifiableMap(overrides));
+        }
+        // 覆盖表已经较大，合并进新的基础映射，均摊后每次更新仍然只与变化的类数量有关
+        Map<String, String> merged = new HashMap<>(classModules);
+        merged.putAll(overrides);
+        return new CoverageRollup(copy, Collections.unmodifiableMap(merged), Map.of());
+    }
+
+    private static String moduleOf(Map<String, String> classModules, Map<String, String> overrides,
+                                   String className) {
+        String module = overrides.get(className);
+        return module != null ? module : classModules.getOrDefault(className, UNASSIGNED_MODULE);
+    }
+
+    /**
+     * 把一个类的计数器按 sign（1 加上，-1 减去）累加到项目、模块和包节点
+     */
+    private static void apply(Node project, CoverageSnapshot snapshot, int classIndex, String module, int sign) {
+        Node moduleNode = project.child(module);
+        Node packageNode = moduleNode.child(snapshot.getPackageName(snapshot.getPackageIndex(classIndex)));
+        boolean low = snapshot.getCoveredPercent(CounterEntity.LINE, classIndex) < LOW_COVERAGE_PERCENT;
+        for (Node node : new Node[]{project, moduleNode, packageNode}) {
+            for (CounterEntity entity : ENTITIES) {
+                node.missed[entity.ordinal()] += (long) sign * snapshot.getMissed(entity, classIndex);
+                node.covered[entity.ordinal()] += (long) sign * snapshot.getCovered(entity, classIndex);
+            }
+            node.classCount += sign;
+            if (low) {
+                node.lowCoverageCount += sign;
+            }
+        }
+    }
+
+    /**
+     * 项目节点，子节点为模块
+     */
+    public Node getProject() {
+        return project;
+    }
+
+    /**
+     * 模块节点，按模块名排序，子节点为包
+     */
+    public Collection<Node> getModules() {
+        return project.getChildren();
+    }
+
+    public @Nullable Node getModule(String moduleName) {
+        return project.children.get(moduleName);
+    }
+
+    /**
+     * 类所属的模块名
+     */
+    public String getModuleName(String className) {
+        return moduleOf(classModules, moduleOverrides, className);
+    }
+
+    /**
+     * 汇总节点
+     */
+    public static final class Node {
+        private final String name;
+        private final long[] missed = new long[ENTITIES.length];
+        private final long[] covered = new long[ENTITIES.length];
+        private final TreeMap<String, Node> children = new TreeMap<>();
+        private int classCount;
+        private int lowCoverageCount;
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        private Node child(String childName) {
+            return children.computeIfAbsent(childName, Node::new);
+        }
+
+        private Node copy() {
+            Node copy = new Node(name);
+            System.arraycopy(missed, 0, copy.missed, 0, missed.length);
+            System.arraycopy(covered, 0, copy.covered, 0, covered.length);
+            copy.classCount = classCount;
+            copy.lowCoverageCount = lowCoverageCount;
+            for (Map.Entry<String, Node> entry : children.entrySet()) {
+                copy.children.put(entry.getKey(), entry.getValue().copy());
+            }
+            return copy;
+        }
+
+        /**
+         * 移除差量更新后已经没有类的子节点
+         */
+        private void prune() {
+            children.values().removeIf(child -> child.classCount <= 0);
+            for (Node child : children.values()) {
+                child.prune();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getMissed(CounterEntity entity) {
+            return missed[entity.ordinal()];
+        }
+
+        public long getCovered(CounterEntity entity) {
+            return covered[entity.ordinal()];
+        }
+
+        /**
+         * 按计数器加权的覆盖率百分比，计数器总数为 0 时返回 NaN
+         */
+        public double getCoveredPercent(CounterEntity entity) {
+            return CoverageSnapshot.percent(covered[entity.ordinal()], missed[entity.ordinal()]);
+        }
+
+        public int getClassCount() {
+            return classCount;
+        }
+
+        /**
+         * 行覆盖率低于 LOW_COVERAGE_PERCENT 的类数量
+         */
+        public int getLowCoverageCount() {
+            return lowCoverageCount;
+        }
+
+        /**
+         * 子节点，按名称排序
+         */
+        public Collection<Node> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        public @Nullable Node getChild(String childName) {
+            return children.get(childName);
+        }
+    }
+}
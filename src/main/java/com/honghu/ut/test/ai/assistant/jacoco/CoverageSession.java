@@ -0,0 +1,240 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 覆盖率会话
+ * 一组具名的执行数据（例如单元测试、集成测试、最近一次运行），由 CoverageSessionRegistry 管理
+ *
+ * 功能：
+ * - 会话内的 ExecutionData 对象创建后不再修改，合并时只为探针有变化的类创建新对象
+ * - 读取方需要时才生成只读的执行数据存储（只复制引用），已交给分析线程的存储不会再被修改
+ * - 估算执行数据占用的堆内存
+ * - 可以换出到磁盘（exec 格式），再次访问时重新读入
+ */
+public class CoverageSession {
+    private static final long ENTRY_OVERHEAD = 96;   // 每个 ExecutionData 对象及其在 HashMap 中的大致开销
+
+    private final String name;
+    private final Path spillFile;
+    private final Map<Long, ExecutionData> entries = new HashMap<>();
+    private SessionInfoStore sessionInfos = new SessionInfoStore();
+    private ExecutionDataStore published;           // 最近交给读取方的存储，内容变化后置为 null
+    private long estimatedBytes;
+    private boolean spilled;
+    private long lastAccess = System.nanoTime();
+
+    CoverageSession(String name, Path spillFile) {
+        this.name = name;
+        this.spillFile = spillFile;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前的执行数据，换出状态下返回前会先从磁盘读回
+     * 返回的存储不会再被修改，可以在分析线程中只读使用；内容没有变化时多次调用返回同一个存储
+     */
+    public synchronized ExecutionDataStore getExecutionDataStore() throws IOException {
+        restore();
+        if (published == null) {
+            ExecutionDataStore store = new ExecutionDataStore();
+            for (ExecutionData entry : entries.values()) {
+                store.put(entry);
+            }
+            published = store;
+        }
+        return published;
+    }
+
+    /**
+     * 当前的会话信息（副本）
+     */
+    public synchronized SessionInfoStore getSessionInfoStore() throws IOException {
+        restore();
+        SessionInfoStore copy = new SessionInfoStore();
+        sessionInfos.accept(copy);
+        return copy;
+    }
+
+    /**
+     * 把新的执行数据合并到会话中（同一个类的探针按“或”合并）
+     * 只有带来新命中的类会复制探针，没有变化的类不产生任何复制
+     */
+    public synchronized void merge(ExecutionDataStore data, SessionInfoStore infos) throws IOException {
+        restore();
+        boolean changed = false;
+        for (ExecutionData incoming : data.getContents()) {
+            changed |= mergeEntry(incoming);
+        }
+        for (SessionInfo info : infos.getInfos()) {
+            sessionInfos.visitSessionInfo(info);
+            estimatedBytes += infoBytes(info);
+        }
+        if (changed) {
+            published = null;
+        }
+    }
+
+    /**
+     * 用新的执行数据替换会话内容
+     */
+    public synchronized void replace(ExecutionDataStore data, SessionInfoStore infos) throws IOException {
+        discardSpillFile();
+        clearEntries();
+        merge(data, infos);
+    }
+
+    /**
+     * 清空会话中的执行数据（包括已换出到磁盘的数据）
+     */
+    public synchronized void reset() throws IOException {
+        discardSpillFile();
+        clearEntries();
+    }
+
+    /**
+     * 常驻内存的执行数据估算大小，换出后为 0
+     */
+    public synchronized long getEstimatedBytes() {
+        return spilled ? 0 : estimatedBytes;
+    }
+
+    public synchronized boolean isSpilled() {
+        return spilled;
+    }
+
+    /**
+     * 会话中的类数量，换出状态下不读回磁盘，返回 -1
+     */
+    public synchronized int getClassCount() {
+        return spilled ? -1 : entries.size();
+    }
+
+    synchronized long getLastAccess() {
+        return lastAccess;
+    }
+
+    synchronized void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    /**
+     * 换出到磁盘并释放内存，空会话直接释放
+     */
+    synchronized void spill() throws IOException {
+        if (spilled) {
+            return;
+        }
+        if (!entries.isEmpty() || !sessionInfos.getInfos().isEmpty()) {
+            Files.createDirectories(spillFile.getParent());
+            Path tmpFile = spillFile.resolveSibling(spillFile.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmpFile))) {
+                ExecutionDataWriter writer = new ExecutionDataWriter(out);
+                sessionInfos.accept(writer);
+                for (ExecutionData entry : entries.values()) {
+                    writer.visitClassExecution(entry);
+                }
+            }
+            Files.move(tmpFile, spillFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        // 只释放引用，正在分析的线程仍持有已发布的存储，分析结束后即可被回收
+        clearEntries();
+        spilled = true;
+    }
+
+    /**
+     * 删除换出文件（会话被移除时调用）
+     */
+    synchronized void discardSpillFile() throws IOException {
+        Files.deleteIfExists(spillFile);
+        spilled = false;
+    }
+
+    private void restore() throws IOException {
+        if (!spilled) {
+            return;
+        }
+        ExecutionDataStore data = new ExecutionDataStore();
+        SessionInfoStore infos = new SessionInfoStore();
+        if (Files.isRegularFile(spillFile)) {
+            MappedExecFileReader reader = new MappedExecFileReader(spillFile);
+            reader.setExecutionDataVisitor(data);
+            reader.setSessionInfoVisitor(infos);
+            reader.read();
+        }
+        discardSpillFile();
+        // 读回的存储只在这里使用，直接接管其中的对象
+        for (ExecutionData entry : data.getContents()) {
+            entries.put(entry.getId(), entry);
+            estimatedBytes += entryBytes(entry);
+        }
+        sessionInfos = infos;
+        for (SessionInfo info : infos.getInfos()) {
+            estimatedBytes += infoBytes(info);
+        }
+        published = null;
+    }
+
+    /**
+     * 合并一个类的执行数据，返回会话内容是否变化
+     * 已有的 ExecutionData 可能被已发布的存储引用，不在原对象上修改
+     */
+    private boolean mergeEntry(ExecutionData incoming) {
+        ExecutionData existing = entries.get(incoming.getId());
+        if (existing == null) {
+            ExecutionData copy = new ExecutionData(incoming.getId(), incoming.getName(), incoming.getProbes().clone());
+            entries.put(copy.getId(), copy);
+            estimatedBytes += entryBytes(copy);
+            return true;
+        }
+        // 探针数量或类名不一致时与 ExecutionDataStore 一样抛出 IllegalStateException
+        existing.assertCompatibility(incoming.getId(), incoming.getName(), incoming.getProbes().length);
+        if (!hasNewHits(existing.getProbes(), incoming.getProbes())) {
+            return false;
+        }
+        ExecutionData merged = new ExecutionData(existing.getId(), existing.getName(), existing.getProbes().clone());
+        merged.merge(incoming);
+        entries.put(merged.getId(), merged);
+        return true;
+    }
+
+    private static boolean hasNewHits(boolean[] existing, boolean[] incoming) {
+        for (int i = 0; i < incoming.length; i++) {
+            if (incoming[i] && !existing[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearEntries() {
+        entries.clear();
+        sessionInfos = new SessionInfoStore();
+        published = null;
+        estimatedBytes = 0;
+    }
+
+    private static long entryBytes(ExecutionData entry) {
+        return ENTRY_OVERHEAD + entry.getProbes().length + entry.getName().length() * 2L;
+    }
+
+    private static long infoBytes(SessionInfo info) {
+        return ENTRY_OVERHEAD + info.getId().length() * 2L;
+    }
+}
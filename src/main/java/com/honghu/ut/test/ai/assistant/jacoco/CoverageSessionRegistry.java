@@ -0,0 +1,159 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.honghu.ut.test.ai.assistant.config.UtAssistantSettings;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 覆盖率会话注册表（项目级服务）
+ * 统一持有项目中所有具名覆盖率会话，替代各处各自创建的执行数据加载器
+ *
+ * 功能：
+ * - 按名称创建和获取会话（单元测试、集成测试、最近一次运行等）
+ * - 显式的重置和移除语义，执行数据不会无限累积
+ * - 按配置的堆内存预算，把最久未使用的会话换出到磁盘，再次访问时自动读回
+ */
+@Service(Service.Level.PROJECT)
+public final class CoverageSessionRegistry {
+    private static final Logger LOG = Logger.getInstance(CoverageSessionRegistry.class);
+
+    public static final String UNIT = "unit";
+    public static final String INTEGRATION = "integration";
+    public static final String LAST_RUN = "last-run";
+    public static final String LIVE = "live";
+
+    private final Project project;
+    private final Map<String, CoverageSession> sessions = new LinkedHashMap<>();
+
+    public CoverageSessionRegistry(Project project) {
+        this.project = project;
+    }
+
+    public static CoverageSessionRegistry getInstance(Project project) {
+        return project.getService(CoverageSessionRegistry.class);
+    }
+
+    /**
+     * 获取会话，不存在时创建；访问会刷新会话的最近使用时间
+     */
+    public CoverageSession getSession(String name) {
+        CoverageSession session;
+        synchronized (sessions) {
+            session = sessions.computeIfAbsent(name, key -> new CoverageSession(key, getSpillFile(key)));
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * 用新的执行数据替换会话内容，并按预算换出其他会话
+     */
+    public CoverageSession replace(String name, ExecFileMerger.MergeResult mergeResult) throws IOException {
+        return replace(name, mergeResult.getExecutionDataStore(), mergeResult.getSessionInfoStore());
+    }
+
+    public CoverageSession replace(String name, ExecutionDataStore executionData,
+                                   SessionInfoStore sessionInfos) throws IOException {
+        CoverageSession session = getSession(name);
+        session.replace(executionData, sessionInfos);
+        enforceBudget(session);
+        return session;
+    }
+
+    /**
+     * 重置会话（清空执行数据，保留会话本身）
+     */
+    public void reset(String name) throws IOException {
+        CoverageSession session;
+        synchronized (sessions) {
+            session = sessions.get(name);
+        }
+        if (session != null) {
+            session.reset();
+        }
+    }
+
+    /**
+     * 移除会话并删除它的换出文件
+     */
+    public void remove(String name) throws IOException {
+        CoverageSession session;
+        synchronized (sessions) {
+            session = sessions.remove(name);
+        }
+        if (session != null) {
+            session.discardSpillFile();
+        }
+    }
+
+    /**
+     * 重置所有会话
+     */
+    public void resetAll() throws IOException {
+        for (CoverageSession session : getSessions()) {
+            session.reset();
+        }
+    }
+
+    public List<CoverageSession> getSessions() {
+        synchronized (sessions) {
+            return new ArrayList<>(sessions.values());
+        }
+    }
+
+    /**
+     * 所有会话常驻内存的估算大小
+     */
+    public long getResidentBytes() {
+        long total = 0;
+        for (CoverageSession session : getSessions()) {
+            total += session.getEstimatedBytes();
+        }
+        return total;
+    }
+
+    /**
+     * 超出堆内存预算时，按最近使用时间从旧到新换出会话，刚使用的会话不会被换出
+     */
+    public void enforceBudget(CoverageSession keep) {
+        long budget = UtAssistantSettings.getInstance(project).getSessionHeapBudgetBytes();
+        long resident = getResidentBytes();
+        if (resident <= budget) {
+            return;
+        }
+        List<CoverageSession> candidates = getSessions();
+        candidates.sort(Comparator.comparingLong(CoverageSession::getLastAccess));
+        for (CoverageSession session : candidates) {
+            if (resident <= budget) {
+                break;
+            }
+            if (session == keep || session.isSpilled()) {
+                continue;
+            }
+            long bytes = session.getEstimatedBytes();
+            try {
+                session.spill();
+                resident -= bytes;
+                LOG.info(String.format("覆盖率会话 %s 已换出到磁盘（约 %d KB）", session.getName(), bytes / 1024));
+            } catch (IOException e) {
+                LOG.warn("换出覆盖率会话失败: " + session.getName(), e);
+            }
+        }
+    }
+
+    private Path getSpillFile(String name) {
+        String fileName = name.replaceAll("[^A-Za-z0-9._-]", "_") + ".exec";
+        return ClassAnalysisCache.getProjectCacheDir(project).resolve("sessions").resolve(fileName);
+    }
+}
@@ -0,0 +1,481 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 列式覆盖率快照
+ * 用基本类型数组保存所有类的覆盖率计数器，替代逐类创建的 CoverageData 对象
+ *
+ * 功能：
+ * - 类按（包名，类名）排序，包通过起止下标索引到类区间
+ * - 每种计数器（指令、分支、行、圈复杂度、方法、类）各一组 missed / covered 的 int 数组
+ * - 包名、源文件名统一驻留，避免重复字符串
+ * - 提供按区间汇总计数器的紧凑循环，供树形视图、报告和导出使用
+ * - 创建时建立按全限定名和简单类名的哈希索引，按类查找为 O(1)
+ */
+public final class CoverageSnapshot {
+    private static final CounterEntity[] ENTITIES = CounterEntity.values();
+    public static final CoverageSnapshot EMPTY = new Builder().build();
+
+    private final String[] packageNames;     // 包名（点分格式）
+    private final int[] packageStart;        // 第 p 个包的类区间为 [packageStart[p], packageStart[p + 1])
+    private final String[] classNames;       // JVM 内部类名，例如 com/foo/Bar
+    private final int[] classPackage;        // 类所属包的下标
+    private final long[] classIds;           // JaCoCo classId
+    private final String[] sourceFileNames;  // 源文件名
+    private final int[][] missed;            // missed[entity][class]
+    private final int[][] covered;           // covered[entity][class]
+    private final Map<String, Integer> classIndex;      // JVM 内部类名 -> 类下标
+    private final Map<String, int[]> simpleNameIndex;   // 不含包名的类名 -> 类下标（不同包可能同名）
+
+    private CoverageSnapshot(String[] packageNames, int[] packageStart, String[] classNames, int[] classPackage,
+                             long[] classIds, String[] sourceFileNames, int[][] missed, int[][] covered) {
+        this.packageNames = packageNames;
+        this.packageStart = packageStart;
+        this.classNames = classNames;
+        this.classPackage = classPackage;
+        this.classIds = classIds;
+        this.sourceFileNames = sourceFileNames;
+        this.missed = missed;
+        this.covered = covered;
+        this.classIndex = new HashMap<>(classNames.length * 4 / 3 + 1);
+        this.simpleNameIndex = new HashMap<>(classNames.length * 4 / 3 + 1);
+        for (int i = 0; i < classNames.length; i++) {
+            classIndex.put(classNames[i], i);
+            String simpleName = classNames[i].substring(classNames[i].lastIndexOf('/') + 1);
+            int[] existing = simpleNameIndex.get(simpleName);
+            if (existing == null) {
+                simpleNameIndex.put(simpleName, new int[]{i});
+            } else {
+                int[] extended = Arrays.copyOf(existing, existing.length + 1);
+                extended[existing.length] = i;
+                simpleNameIndex.put(simpleName, extended);
+            }
+        }
+    }
+
+    /**
+     * 由 JaCoCo 的类覆盖率集合创建快照
+     */
+    public static CoverageSnapshot of(Collection<IClassCoverage> classes) {
+        Builder builder = new Builder();
+        for (IClassCoverage classCoverage : classes) {
+            if (classCoverage != null) {
+                builder.add(classCoverage);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 由已按（包名，类名）排好序的列直接创建快照，不经过 Builder 排序，用于读回保存的快照
+     * 数组直接被快照持有，调用方不能再修改；顺序不符时返回 null
+     *
+     * @param missed  missed[entity][class]
+     * @param covered covered[entity][class]
+     */
+    static @Nullable CoverageSnapshot fromSortedColumns(String[] classNames, long[] classIds, String[] sourceFileNames,
+                                                        int[][] missed, int[][] covered) {
+        int size = classNames.length;
+        String[] packageNames = new String[size];
+        int[] packageStart = new int[size + 1];
+        int[] classPackage = new int[size];
+        int packageCount = 0;
+        String packagePrefix = null;   // 当前包的 JVM 路径前缀，例如 com/foo/
+        for (int i = 0; i < size; i++) {
+            String name = classNames[i];
+            int prefixLength = name.lastIndexOf('/') + 1;
+            if (packagePrefix == null || prefixLength != packagePrefix.length() || !name.startsWith(packagePrefix)) {
+                String packageName = prefixLength == 0 ? "default"
+                    : name.substring(0, prefixLength - 1).replace('/', '.');
+                if (packageCount > 0 && packageNames[packageCount - 1].compareTo(packageName) >= 0) {
+                    return null;
+                }
+                packagePrefix = name.substring(0, prefixLength);
+                packageNames[packageCount] = packageName;
+                packageStart[packageCount] = i;
+                packageCount++;
+            } else if (classNames[i - 1].compareTo(name) >= 0) {
+                return null;
+            }
+            classPackage[i] = packageCount - 1;
+        }
+        packageStart[packageCount] = size;
+        return new CoverageSnapshot(Arrays.copyOf(packageNames, packageCount),
+            Arrays.copyOf(packageStart, packageCount + 1), classNames, classPackage, classIds, sourceFileNames,
+            missed, covered);
+    }
+
+    /**
+     * 用 updates 中的类替换本快照中的同名类，其余类保持不变，返回新快照
+     * 用于只重新分析了部分类的增量更新
+     */
+    public CoverageSnapshot withReplaced(CoverageSnapshot updates) {
+        if (updates.isEmpty()) {
+            return this;
+        }
+        Set<String> replaced = new HashSet<>(Arrays.asList(updates.classNames));
+        Builder builder = new Builder();
+        for (int i = 0; i < classNames.length; i++) {
+            if (!replaced.contains(classNames[i])) {
+                builder.add(this, i);
+            }
+        }
+        for (int i = 0; i < updates.classNames.length; i++) {
+            builder.add(updates, i);
+        }
+        return builder.build();
+    }
+
+    public boolean isEmpty() {
+        return classNames.length == 0;
+    }
+
+    public int getClassCount() {
+        return classNames.length;
+    }
+
+    public int getPackageCount() {
+        return packageNames.length;
+    }
+
+    public String getPackageName(int packageIndex) {
+        return packageNames[packageIndex];
+    }
+
+    public int getPackageStart(int packageIndex) {
+        return packageStart[packageIndex];
+    }
+
+    public int getPackageEnd(int packageIndex) {
+        return packageStart[packageIndex + 1];
+    }
+
+    public int getPackageIndex(int classIndex) {
+        return classPackage[classIndex];
+    }
+
+    /**
+     * 按包名（点分格式，默认包为 default）二分查找包下标，不存在时返回 -1
+     */
+    public int findPackage(String packageName) {
+        int index = Arrays.binarySearch(packageNames, packageName);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * JVM 内部类名，例如 com/foo/Bar$Inner
+     */
+    public String getClassName(int classIndex) {
+        return classNames[classIndex];
+    }
+
+    /**
+     * 点分格式的全限定类名，例如 com.foo.Bar$Inner
+     */
+    public String getQualifiedName(int classIndex) {
+        return classNames[classIndex].replace('/', '.');
+    }
+
+    /**
+     * 不含包名的类名，例如 Bar$Inner
+     */
+    public String getSimpleName(int classIndex) {
+        String name = classNames[classIndex];
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * 按 JVM 内部类名（例如 com/foo/Bar）查找类下标，不存在时返回 -1
+     */
+    public int indexOf(String className) {
+        Integer index = classIndex.get(className);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 按点分格式的全限定类名（例如 com.foo.Bar）查找类下标，不存在时返回 -1
+     */
+    public int indexOfQualifiedName(String qualifiedName) {
+        return indexOf(qualifiedName.replace('.', '/'));
+    }
+
+    /**
+     * 按不含包名的类名查找所有同名类的下标，没有时返回空数组
+     */
+    public int[] findBySimpleName(String simpleName) {
+        int[] indexes = simpleNameIndex.get(simpleName);
+        return indexes != null ? indexes.clone() : new int[0];
+    }
+
+    public long getClassId(int classIndex) {
+        return classIds[classIndex];
+    }
+
+    public String getSourceFileName(int classIndex) {
+        return sourceFileNames[classIndex];
+    }
+
+    public int getMissed(CounterEntity entity, int classIndex) {
+        return missed[entity.ordinal()][classIndex];
+    }
+
+    public int getCovered(CounterEntity entity, int classIndex) {
+        return covered[entity.ordinal()][classIndex];
+    }
+
+    /**
+     * 类的覆盖率百分比，计数器总数为 0 时与 JaCoCo 一致返回 NaN
+     */
+    public double getCoveredPercent(CounterEntity entity, int classIndex) {
+        return percent(covered[entity.ordinal()][classIndex], missed[entity.ordinal()][classIndex]);
+    }
+
+    /**
+     * 汇总区间 [from, to) 内类的 missed 计数
+     */
+    public long sumMissed(CounterEntity entity, int from, int to) {
+        return sum(missed[entity.ordinal()], from, to);
+    }
+
+    /**
+     * 汇总区间 [from, to) 内类的 covered 计数
+     */
+    public long sumCovered(CounterEntity entity, int from, int to) {
+        return sum(covered[entity.ordinal()], from, to);
+    }
+
+    /**
+     * 区间 [from, to) 按计数器加权后的覆盖率百分比
+     */
+    public double getCoveredPercent(CounterEntity entity, int from, int to) {
+        return percent(sumCovered(entity, from, to), sumMissed(entity, from, to));
+    }
+
+    /**
+     * 统计区间内某项覆盖率低于阈值的类数量
+     */
+    public int countBelow(CounterEntity entity, double thresholdPercent, int from, int to) {
+        int[] c = covered[entity.ordinal()];
+        int[] m = missed[entity.ordinal()];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (percent(c[i], m[i]) < thresholdPercent) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 以 CSV 格式导出每个类的计数器（与 JaCoCo CSV 报告的列含义一致）
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("PACKAGE,CLASS");
+        for (CounterEntity entity : ENTITIES) {
+            writer.write(',');
+            writer.write(entity.name());
+            writer.write("_MISSED,");
+            writer.write(entity.name());
+            writer.write("_COVERED");
+        }
+        writer.write('\n');
+        for (int p = 0; p < packageNames.length; p++) {
+            for (int i = packageStart[p]; i < packageStart[p + 1]; i++) {
+                writer.write(packageNames[p]);
+                writer.write(',');
+                writer.write(getSimpleName(i));
+                for (int e = 0; e < ENTITIES.length; e++) {
+                    writer.write(',');
+                    writer.write(Integer.toString(missed[e][i]));
+                    writer.write(',');
+                    writer.write(Integer.toString(covered[e][i]));
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    public static double percent(long coveredCount, long missedCount) {
+        long total = coveredCount + missedCount;
+        return total == 0 ? Double.NaN : coveredCount * 100.0 / total;
+    }
+
+    private static long sum(int[] values, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    /**
+     * 快照构建器，按添加顺序收集后在 build() 时排序压缩
+     * 同一个类（例如同时出现在两个输出目录，或目录与归档中）只保留一份
+     */
+    public static final class Builder {
+        private final Map<String, String> interned = new HashMap<>();
+        private final Map<String, Integer> slots = new HashMap<>();   // JVM 内部类名 -> 存放位置
+        private String[] names = new String[64];
+        private String[] packages = new String[64];
+        private String[] sources = new String[64];
+        private long[] ids = new long[64];
+        private int[][] missedValues = new int[ENTITIES.length][64];
+        private int[][] coveredValues = new int[ENTITIES.length][64];
+        private int size;
+
+        public Builder add(IClassCoverage classCoverage) {
+            int[] m = new int[ENTITIES.length];
+            int[] c = new int[ENTITIES.length];
+            for (CounterEntity entity : ENTITIES) {
+                ICounter counter = classCoverage.getCounter(entity);
+                m[entity.ordinal()] = counter.getMissedCount();
+                c[entity.ordinal()] = counter.getCoveredCount();
+            }
+            return add(classCoverage.getName(), classCoverage.getId(), classCoverage.getSourceFileName(), m, c);
+        }
+
+        /**
+         * 直接以计数器添加一个类
+         *
+         * @param vmName  JVM 内部类名
+         * @param missed  按 CounterEntity 顺序的 missed 计数
+         * @param covered 按 CounterEntity 顺序的 covered 计数
+         */
+        public Builder add(String vmName, long classId, String sourceFileName, int[] missed, int[] covered) {
+            int slot = slotFor(vmName, classId);
+            int slash = vmName.lastIndexOf('/');
+            packages[slot] = intern(slash == -1 ? "default" : vmName.substring(0, slash).replace('/', '.'));
+            sources[slot] = sourceFileName == null ? null : intern(sourceFileName);
+            for (int e = 0; e < ENTITIES.length; e++) {
+                missedValues[e][slot] = missed[e];
+                coveredValues[e][slot] = covered[e];
+            }
+            return this;
+        }
+
+        /**
+         * 复制另一个快照中的一个类
+         */
+        public Builder add(CoverageSnapshot source, int classIndex) {
+            int[] m = new int[ENTITIES.length];
+            int[] c = new int[ENTITIES.length];
+            for (int e = 0; e < ENTITIES.length; e++) {
+                m[e] = source.missed[e][classIndex];
+                c[e] = source.covered[e][classIndex];
+            }
+            return add(source.classNames[classIndex], source.classIds[classIndex],
+                source.sourceFileNames[classIndex], m, c);
+        }
+
+        /**
+         * 追加另一个构建器中已收集的全部类
+         */
+        public Builder addAll(Builder other) {
+            ensureCapacity(size + other.size);
+            for (int i = 0; i < other.size; i++) {
+                int slot = slotFor(other.names[i], other.ids[i]);
+                packages[slot] = intern(other.packages[i]);
+                sources[slot] = other.sources[i] == null ? null : intern(other.sources[i]);
+                for (int e = 0; e < ENTITIES.length; e++) {
+                    missedValues[e][slot] = other.missedValues[e][i];
+                    coveredValues[e][slot] = other.coveredValues[e][i];
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 类的存放位置：同名类已存在且 classId 相同时覆盖原位置（后添加的为准），
+         * 与 CoverageBuilder 一样，同名但 classId 不同的类视为冲突
+         */
+        private int slotFor(String vmName, long classId) {
+            Integer existing = slots.get(vmName);
+            if (existing != null) {
+                if (ids[existing] != classId) {
+                    throw new IllegalStateException("不能添加同名但内容不同的类: " + vmName.replace('/', '.'));
+                }
+                return existing;
+            }
+            ensureCapacity(size + 1);
+            names[size] = vmName;
+            ids[size] = classId;
+            slots.put(vmName, size);
+            return size++;
+        }
+
+        public CoverageSnapshot build() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int cmp = packages[a].compareTo(packages[b]);
+                return cmp != 0 ? cmp : names[a].compareTo(names[b]);
+            });
+
+            String[] sortedNames = new String[size];
+            String[] sortedSources = new String[size];
+            long[] sortedIds = new long[size];
+            int[] classPackage = new int[size];
+            int[][] sortedMissed = new int[ENTITIES.length][size];
+            int[][] sortedCovered = new int[ENTITIES.length][size];
+            String[] packageNames = new String[size];
+            int[] packageStart = new int[size + 1];
+            int packageCount = 0;
+
+            for (int i = 0; i < size; i++) {
+                int src = order[i];
+                if (packageCount == 0 || !packageNames[packageCount - 1].equals(packages[src])) {
+                    packageNames[packageCount] = packages[src];
+                    packageStart[packageCount] = i;
+                    packageCount++;
+                }
+                classPackage[i] = packageCount - 1;
+                sortedNames[i] = names[src];
+                sortedSources[i] = sources[src];
+                sortedIds[i] = ids[src];
+                for (int e = 0; e < ENTITIES.length; e++) {
+                    sortedMissed[e][i] = missedValues[e][src];
+                    sortedCovered[e][i] = coveredValues[e][src];
+                }
+            }
+            packageStart[packageCount] = size;
+
+            return new CoverageSnapshot(Arrays.copyOf(packageNames, packageCount),
+                Arrays.copyOf(packageStart, packageCount + 1), sortedNames, classPackage,
+                sortedIds, sortedSources, sortedMissed, sortedCovered);
+        }
+
+        private String intern(String value) {
+            return interned.computeIfAbsent(value, v -> v);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= names.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, names.length * 2);
+            names = Arrays.copyOf(names, newCapacity);
+            packages = Arrays.copyOf(packages, newCapacity);
+            sources = Arrays.copyOf(sources, newCapacity);
+            ids = Arrays.copyOf(ids, newCapacity);
+            for (int e = 0; e < ENTITIES.length; e++) {
+                missedValues[e] = Arrays.copyOf(missedValues[e], newCapacity);
+                coveredValues[e] = Arrays.copyOf(coveredValues[e], newCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 多 exec 文件并行合并器
+ * 用于分片测试、多模块项目产生的多个 jacoco exec 文件
+ *
+ * 功能：
+ * - 每个 exec 文件在独立线程中用 MappedExecFileReader 解码
+ * - 按 classId 对探针数组做 OR 合并，合并在 ConcurrentHashMap 的桶锁内完成
+ * - 汇报会话数量以及 classId 冲突（同 id 不同类名或探针数）
+ */
+public class ExecFileMerger {
+    private final int parallelism;
+
+    public ExecFileMerger(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 并行读取并合并多个 exec 文件
+     *
+     * @param execFilePaths exec 文件路径
+     * @param classFilter   类名过滤器，可为空
+     * @param indicator     进度指示器，可为空
+     */
+    public MergeResult merge(List<String> execFilePaths,
+                             @Nullable Predicate<String> classFilter,
+                             @Nullable ProgressIndicator indicator) throws IOException {
+        Map<Long, ExecutionData> merged = new ConcurrentHashMap<>();
+        Map<Long, String> conflicts = new ConcurrentHashMap<>();
+        Queue<SessionInfo> sessions = new ConcurrentLinkedQueue<>();
+        AtomicInteger finished = new AtomicInteger();
+        if (indicator != null) {
+            indicator.setIndeterminate(false);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, execFilePaths.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String execFilePath : execFilePaths) {
+                futures.add(executor.submit(() -> {
+                    if (indicator != null && indicator.isCanceled()) {
+                        throw new ProcessCanceledException();
+                    }
+                    MappedExecFileReader reader = new MappedExecFileReader(Paths.get(execFilePath));
+                    reader.setClassFilter(classFilter);
+                    reader.setSessionInfoVisitor(sessions::add);
+                    reader.setExecutionDataVisitor(data -> mergeInto(merged, conflicts, data));
+                    reader.read();
+                    if (indicator != null) {
+                        indicator.setFraction((double) finished.incrementAndGet() / execFilePaths.size());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                waitFor(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ExecutionDataStore executionDataStore = new ExecutionDataStore();
+        for (ExecutionData data : merged.values()) {
+            executionDataStore.put(data);
+        }
+        SessionInfoStore sessionInfoStore = new SessionInfoStore();
+        for (SessionInfo session : sessions) {
+            sessionInfoStore.visitSessionInfo(session);
+        }
+        return new MergeResult(execFilePaths, executionDataStore, sessionInfoStore, conflicts);
+    }
+
+    /**
+     * 在 classId 对应的桶锁内合并探针，不兼容的数据保留先到的一份并记为冲突
+     */
+    private static void mergeInto(Map<Long, ExecutionData> merged, Map<Long, String> conflicts, ExecutionData data) {
+        merged.compute(data.getId(), (id, existing) -> {
+            if (existing == null) {
+                return data;
+            }
+            if (!existing.getName().equals(data.getName()) || existing.getProbes().length != data.getProbes().length) {
+                conflicts.putIfAbsent(id, existing.getName() + " <-> " + data.getName());
+                return existing;
+            }
+            existing.merge(data);
+            return existing;
+        });
+    }
+
+    private static void waitFor(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 合并结果
+     */
+    public static class MergeResult {
+        private final List<String> execFiles;
+        private final ExecutionDataStore executionDataStore;
+        private final SessionInfoStore sessionInfoStore;
+        private final Map<Long, String> conflicts;
+
+        MergeResult(List<String> execFiles, ExecutionDataStore executionDataStore,
+                    SessionInfoStore sessionInfoStore, Map<Long, String> conflicts) {
+            this.execFiles = Collections.unmodifiableList(new ArrayList<>(execFiles));
+            this.executionDataStore = executionDataStore;
+            this.sessionInfoStore = sessionInfoStore;
+            this.conflicts = Collections.unmodifiableMap(conflicts);
+        }
+
+        public List<String> getExecFiles() {
+            return execFiles;
+        }
+
+        public ExecutionDataStore getExecutionDataStore() {
+            return executionDataStore;
+        }
+
+        public SessionInfoStore getSessionInfoStore() {
+            return sessionInfoStore;
+        }
+
+        public int getSessionCount() {
+            return sessionInfoStore.getInfos().size();
+        }
+
+        /**
+         * 冲突的 classId 及其涉及的类名
+         */
+        public Map<Long, String> getConflicts() {
+            return conflicts;
+        }
+
+        public String getSummary() {
+            return String.format("合并了 %d 个 exec 文件，%d 个会话，%d 个类，%d 个冲突的 classId",
+                execFiles.size(), getSessionCount(), executionDataStore.getContents().size(), conflicts.size());
+        }
+    }
+}
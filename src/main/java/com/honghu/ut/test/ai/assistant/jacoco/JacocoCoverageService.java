@@ -1,20 +1,48 @@
 package com.honghu.ut.test.ai.assistant.jacoco;
 
+import com.honghu.ut.test.ai.assistant.config.UtAssistantSettings;
+import com.honghu.ut.test.ai.assistant.runner.InProcessRunner;
+import com.honghu.ut.test.ai.assistant.runner.TestRunListener;
+import com.honghu.ut.test.ai.assistant.runner.TestRunRequest;
+import com.honghu.ut.test.ai.assistant.runner.TestRunResult;
+import com.honghu.ut.test.ai.assistant.runner.TestRunner;
+import com.honghu.ut.test.ai.assistant.runner.TestRunners;
+import com.honghu.ut.test.ai.assistant.runner.TestWorkerRunner;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vfs.VirtualFile;
-import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
 import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.tools.ExecFileLoader;
-import org.jacoco.core.runtime.IRuntime;
-import org.jacoco.core.runtime.LoggerRuntime;
-import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.data.ExecutionData;
-import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * JaCoCo 覆盖率服务类
@@ -24,115 +52,959 @@ import java.util.Collection;
  * - 加载 JaCoCo 执行数据
  * - 分析类文件的覆盖率
  * - 生成详细的覆盖率报告
- * - 自动执行JaCoCo分析
+ * - 自动执行JaCoCo分析，发现、分析、汇总以流水线方式同时进行
+ * - 按配置的线程数并行分析类文件，也可以直接分析 JAR（含嵌套 JAR）
+ * - 缓存未变化类的分析结果，增量分析
+ * - 以内存映射方式流式读取 exec 文件
+ * - 并行合并多个模块/分片产生的 exec 文件
+ * - 以列式快照提供给树形视图、报告和导出
+ * - 轻量模式下只保留类级计数器，行级明细仅保留给指定的类
+ * - 通过缓存的目录索引快速查找类文件
+ * - 按模块模型把选中的源码目录映射到编译输出目录
+ * - 分析结果以不可变的版本化结果原子发布，后台分析期间界面继续读取上一版本
+ * - 执行数据保存在项目级会话注册表的当前会话中，支持显式重置
+ * - 实时模式：通过 TCP 定时拉取运行中 JVM 的探针，只重新分析探针有变化的类
+ * - 与基线或上一版本结果对比，给出覆盖率发生变化的类
+ * - 按源文件构建行覆盖率索引，供编辑器在打开文件时按需加载
+ * - 每个结果附带按计数器加权的包、模块、项目分层汇总
+ * - 基于执行数据的分析完成后把包级汇总追加到覆盖率历史，供趋势图使用
+ * - 保存最近一次的快照，打开工具窗口时先恢复上次结果，再在后台校验类文件是否变化
+ * - 按测试类记录覆盖到的生产类（测试影响索引），类变化后只运行受影响的测试
+ * - 按构建工具选择测试运行器运行测试（Gradle 通过 Tooling API 复用守护进程），完成后直接分析本次的执行数据
  */
 public class JacocoCoverageService {
+    private static final Logger LOG = Logger.getInstance(JacocoCoverageService.class);
+
     private final Project project;
-    private final ExecFileLoader execFileLoader;
-    private CoverageBuilder coverageBuilder;
+    private final ClassAnalysisCache analysisCache;
+    private final CoverageHistoryStore historyStore;
+    private final LastResultStore lastResultStore;
+    private final TestImpactIndex testImpactIndex;
+    private final ClassFileDiscovery classFileDiscovery = new ClassFileDiscovery();
+    private final ModuleOutputResolver moduleOutputResolver;
+    private final Set<String> detailClasses = ConcurrentHashMap.newKeySet();  // 需要行级明细的类
+    private final AtomicReference<CoverageResult> result = new AtomicReference<>(CoverageResult.EMPTY); // 最近发布的分析结果
+    private final AtomicLong versionCounter = new AtomicLong();   // 分析开始时分配版本号
+    private volatile String activeSession = CoverageSessionRegistry.LAST_RUN; // 加载和分析使用的会话
+    private volatile List<String> knownExecFiles;             // 最近一次合并时找到的 exec 文件，未合并过时为 null
+    private final Object liveLock = new Object();             // 串行处理实时转储
+    private LiveCoverageClient liveClient;                    // 实时覆盖率客户端，未启动时为 null
+    private Map<String, List<String>> liveClassFiles = Map.of(); // 实时模式下按类文件名索引的类文件路径
+    private volatile CoverageResult baseline;                 // 用户标记的对比基线，未标记时与上一版本对比
+    private final Map<String, LineCoverageIndex> lineIndexes = new ConcurrentHashMap<>(); // 按源文件路径缓存的行索引
+    private final List<Runnable> resultListeners = new CopyOnWriteArrayList<>(); // 发布新结果后通知
 
     public JacocoCoverageService(Project project) {
         this.project = project;
-        this.execFileLoader = new ExecFileLoader();
+        this.analysisCache = ClassAnalysisCache.forProject(project);
+        this.historyStore = CoverageHistoryStore.forProject(project);
+        this.lastResultStore = LastResultStore.forProject(project);
+        this.testImpactIndex = TestImpactIndex.forProject(project);
+        this.moduleOutputResolver = new ModuleOutputResolver(project);
     }
 
     /**
      * 从 JaCoCo exec 文件加载执行数据
      */
     public void loadExecutionData(String execFilePath) throws Exception {
-        execFileLoader.load(new File(execFilePath));
+        loadExecutionData(execFilePath, null);
     }
 
     /**
-     * 分析类文件的覆盖率
+     * 从 JaCoCo exec 文件加载执行数据并合并到当前会话，只保留通过过滤器的类
+     * 使用内存映射流式解析，被过滤的类不会占用堆内存；需要丢弃旧数据时先调用 resetSession()
      */
-    public CoverageBuilder analyzeClassFiles(List<String> classFilePaths) throws Exception {
-        final CoverageBuilder builder = new CoverageBuilder();
-        final Analyzer analyzer = new Analyzer(execFileLoader.getExecutionDataStore(), builder);
+    public void loadExecutionData(String execFilePath, @Nullable Predicate<String> classFilter) throws Exception {
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        SessionInfoStore sessionInfos = new SessionInfoStore();
+        MappedExecFileReader reader = new MappedExecFileReader(new File(execFilePath).toPath());
+        reader.setClassFilter(classFilter);
+        reader.setSessionInfoVisitor(sessionInfos);
+        reader.setExecutionDataVisitor(executionData);
+        reader.read();
+        CoverageSession session = getSessionRegistry().getSession(activeSession);
+        session.merge(executionData, sessionInfos);
+        getSessionRegistry().enforceBudget(session);
+    }
 
-        for (String classFilePath : classFilePaths) {
-            File classFile = new File(classFilePath);
-            if (classFile.exists()) {
-                analyzer.analyzeAll(classFile);
-            }
-        }
+    /**
+     * 查找项目下所有匹配的 exec 文件，并行读取合并后替换当前会话的执行数据
+     */
+    public ExecFileMerger.MergeResult loadMergedExecutionData(String projectPath,
+                                                              @Nullable Predicate<String> classFilter,
+                                                              @Nullable ProgressIndicator indicator) throws Exception {
+        UtAssistantSettings settings = UtAssistantSettings.getInstance(project);
+        List<String> execFiles = JacocoUtils.findExecFiles(projectPath, settings.getState().execFileGlob,
+            moduleOutputResolver.getBuildRoots());
+        knownExecFiles = execFiles;
+        ExecFileMerger.MergeResult result = new ExecFileMerger(settings.getEffectiveAnalysisParallelism())
+            .merge(execFiles, classFilter, indicator);
+        getSessionRegistry().replace(activeSession, result);
+        return result;
+    }
 
-        this.coverageBuilder = builder;
-        return builder;
+    /**
+     * 清空当前会话的执行数据
+     */
+    public void resetSession() throws IOException {
+        getSessionRegistry().reset(activeSession);
+    }
+
+    /**
+     * 切换加载和分析使用的会话（例如 unit、integration）
+     */
+    public void setActiveSession(String sessionName) {
+        this.activeSession = sessionName;
+    }
+
+    public String getActiveSession() {
+        return activeSession;
+    }
+
+    private CoverageSessionRegistry getSessionRegistry() {
+        return CoverageSessionRegistry.getInstance(project);
+    }
+
+    /**
+     * 分析类文件的覆盖率
+     */
+    public CoverageSnapshot analyzeClassFiles(List<String> classFilePaths) throws Exception {
+        return analyzeClassFiles(classFilePaths, null);
+    }
+
+    /**
+     * 分析类文件的覆盖率，支持进度显示和取消
+     */
+    public CoverageSnapshot analyzeClassFiles(List<String> classFilePaths, @Nullable ProgressIndicator indicator) throws Exception {
+        CoverageSession session = getSessionRegistry().getSession(activeSession);
+        // 会话可能刚从磁盘读回，读回后重新检查内存预算
+        ExecutionDataStore executionData = session.getExecutionDataStore();
+        getSessionRegistry().enforceBudget(session);
+        // 返回本次分析的快照，而不是可能已被并发分析替换的最新快照
+        return analyze(classFilePaths, executionData, session.getName(), indicator);
     }
 
     /**
      * 直接分析类文件而不依赖jacoco.exec文件
      */
     public void analyzeClassFilesDirectly(List<String> classFilePaths) throws Exception {
-        // 创建一个空的执行数据存储
-        ExecutionDataStore executionDataStore = new ExecutionDataStore();
-        
-        // 创建一个空的覆盖率构建器
-        this.coverageBuilder = new CoverageBuilder();
-        Analyzer analyzer = new Analyzer(executionDataStore, this.coverageBuilder);
+        analyzeClassFilesDirectly(classFilePaths, null);
+    }
+
+    /**
+     * 直接分析类文件而不依赖jacoco.exec文件，支持进度显示和取消
+     */
+    public void analyzeClassFilesDirectly(List<String> classFilePaths, @Nullable ProgressIndicator indicator) throws Exception {
+        // 使用空的执行数据存储，所有类都显示为未覆盖
+        analyze(classFilePaths, new ExecutionDataStore(), null, indicator);
+    }
+
+    /**
+     * 按设置选择完整模式或轻量模式分析，完成后发布新结果
+     * 分析期间不修改已发布的结果，读取方始终看到上一个完整版本
+     */
+    private CoverageSnapshot analyze(List<String> classFilePaths, ExecutionDataStore executionDataStore,
+                                     @Nullable String sessionName, @Nullable ProgressIndicator indicator) throws IOException {
+        long version = versionCounter.incrementAndGet();
+        ParallelClassAnalyzer analyzer = createAnalyzer();
+        Map<String, String> classModules = moduleOutputResolver.mapClassesToModules(classFilePaths);
+        CoverageSnapshot analyzed;
+        if (UtAssistantSettings.getInstance(project).getState().lightweightAnalysis) {
+            // 轻量模式：类访问后立即折叠为计数器，不保留 CoverageBuilder
+            SummarizingCoverageVisitor summary = analyzer.analyzeSummary(classFilePaths, executionDataStore,
+                getDetailFilter(), indicator);
+            analyzed = summary.getSnapshot();
+            publish(version, sessionName, analyzed, classModules, summary.getDetails());
+        } else {
+            // 完整模式下所有类都作为明细发布，缓存中只有类级计数器，不能用于明细
+            CoverageBuilder builder = analyzer.analyze(classFilePaths, executionDataStore, className -> true, indicator);
+            Map<String, IClassCoverage> details = new HashMap<>();
+            for (IClassCoverage classCoverage : builder.getClasses()) {
+                details.put(classCoverage.getName(), classCoverage);
+            }
+            analyzed = CoverageSnapshot.of(builder.getClasses());
+            publish(version, sessionName, analyzed, classModules, details);
+        }
+        analysisCache.save();
+        return analyzed;
+    }
 
-        // 分析所有类文件
-        for (String classFilePath : classFilePaths) {
-            File classFile = new File(classFilePath);
-            if (classFile.exists()) {
-                analyzer.analyzeAll(classFile);
+    /**
+     * 原子发布分析结果
+     * 多个分析并发完成时只接受版本号更大的结果，先开始、后完成的旧分析不会覆盖新结果
+     */
+    private void publish(long version, @Nullable String sessionName, CoverageSnapshot snapshot,
+                         Map<String, String> classModules, Map<String, IClassCoverage> details) {
+        CoverageRollup rollup = CoverageRollup.build(snapshot, classModules);
+        CoverageResult published = result.accumulateAndGet(null, (current, ignored) ->
+            current.getVersion() >= version ? current
+                : current.successor(version, sessionName, snapshot, rollup, details));
+        if (published.getVersion() == version) {
+            // 没有执行数据的直接分析全部为未覆盖，不计入历史
+            if (sessionName != null && !snapshot.isEmpty()) {
+                recordHistory(rollup);
             }
+            // 增量发布（实时模式）过于频繁，只在完整分析后保存
+            saveLastResult(published);
+            fireResultChanged();
         }
     }
 
     /**
-     * 自动执行测试并生成覆盖率数据
+     * 把本次结果的包级汇总追加到覆盖率历史
      */
-    public void executeTestsAndGenerateCoverage(String targetPath) throws Exception {
-        // 首先查找类文件
-        List<String> classFiles = findClassFiles(targetPath);
-        if (classFiles.isEmpty()) {
-            // 如果在目标路径中找不到类文件，尝试在标准输出目录查找
-            String projectPath = project.getBasePath();
-            String[] classDirs = JacocoUtils.getClassDirectories(projectPath);
-            for (String classDir : classDirs) {
-                classFiles = findClassFiles(classDir);
-                if (!classFiles.isEmpty()) {
-                    break;
+    private void recordHistory(CoverageRollup rollup) {
+        try {
+            historyStore.append(System.currentTimeMillis(), JacocoUtils.getVcsRevision(project.getBasePath()), rollup);
+        } catch (IOException e) {
+            LOG.warn("写入覆盖率历史失败", e);
+        }
+    }
+
+    /**
+     * 覆盖率历史，读取趋势时会扫描历史文件，不要在 EDT 上调用
+     */
+    public CoverageHistoryStore getHistoryStore() {
+        return historyStore;
+    }
+
+    private void saveLastResult(CoverageResult published) {
+        if (published.getSnapshot().isEmpty()) {
+            return;
+        }
+        try {
+            lastResultStore.save(published);
+        } catch (IOException e) {
+            LOG.warn("保存最近一次覆盖率结果失败", e);
+        }
+    }
+
+    /**
+     * 恢复上次保存的结果，当前已有分析结果或没有保存过时不做任何事
+     * 读取为内存映射加整块解码，可以在打开工具窗口时直接调用
+     *
+     * @return 是否发布了恢复的结果
+     */
+    public boolean restoreLastResult() {
+        if (result.get().isAnalyzed()) {
+            return false;
+        }
+        CoverageResult restored;
+        try {
+            restored = lastResultStore.load(versionCounter.incrementAndGet());
+        } catch (IOException e) {
+            LOG.warn("读取上次的覆盖率结果失败", e);
+            return false;
+        }
+        if (restored == null || !result.compareAndSet(CoverageResult.EMPTY, restored)) {
+            return false;
+        }
+        fireResultChanged();
+        return true;
+    }
+
+    /**
+     * 校验恢复的结果是否仍然有效：执行数据没有更新，快照中的类文件都还在且内容（classId）没有变化
+     * 校验通过时发布去掉恢复标记的结果；不通过时保留恢复标记，由用户重新分析
+     * 会读取修改时间晚于结果生成时间的类文件，不要在 EDT 上调用
+     *
+     * @return 结果已过期的原因，仍然有效或当前结果不是恢复的结果时返回 null
+     */
+    public @Nullable String revalidateRestoredResult() {
+        CoverageResult current = result.get();
+        if (!current.isRestored()) {
+            return null;
+        }
+        String projectPath = project.getBasePath();
+        try {
+            // 本次会话已经合并过时直接使用当时找到的文件，否则只在构建输出目录中查找
+            List<String> execFiles = knownExecFiles;
+            if (execFiles == null) {
+                execFiles = JacocoUtils.findExecFiles(projectPath,
+                    UtAssistantSettings.getInstance(project).getState().execFileGlob, moduleOutputResolver.getBuildRoots());
+            }
+            for (String execFile : execFiles) {
+                if (new File(execFile).lastModified() > current.getCreatedAt()) {
+                    return "执行数据已更新: " + new File(execFile).getName();
                 }
             }
+        } catch (IOException e) {
+            LOG.warn("查找执行数据文件失败", e);
         }
-        
-        if (classFiles.isEmpty()) {
-            // 如果仍然找不到类文件，尝试在标准项目输出目录查找
-            String projectPath = project.getBasePath();
-            String[] standardDirs = {
-                projectPath + "/build/classes/java/main",
-                projectPath + "/target/classes",
-                projectPath + "/out/production/classes",
-                projectPath + "/build/classes/kotlin/main",
-                projectPath + "/out/production/" + new File(projectPath).getName()
-            };
-            
-            for (String dir : standardDirs) {
-                classFiles = findClassFiles(dir);
-                if (!classFiles.isEmpty()) {
+
+        Set<Path> roots = new LinkedHashSet<>();
+        for (String dir : moduleOutputResolver.getProductionOutputDirectories()) {
+            roots.add(Path.of(dir));
+        }
+        for (String dir : JacocoUtils.getClassDirectories(projectPath)) {
+            if (new File(dir).isDirectory()) {
+                roots.add(Path.of(dir));
+            }
+        }
+        CoverageSnapshot snapshot = current.getSnapshot();
+        for (int i = 0; i < snapshot.getClassCount(); i++) {
+            String className = snapshot.getClassName(i);
+            Path classFile = null;
+            for (Path root : roots) {
+                Path candidate = root.resolve(className + ".class");
+                if (Files.isRegularFile(candidate)) {
+                    classFile = candidate;
                     break;
                 }
             }
+            if (classFile == null) {
+                return "找不到类文件: " + className.replace('/', '.');
+            }
+            try {
+                // 生成结果之后没有修改过的类文件不必读取；重新编译但内容相同的类 classId 不变
+                if (Files.getLastModifiedTime(classFile).toMillis() > current.getCreatedAt()
+                    && ClassIds.classId(Files.readAllBytes(classFile)) != snapshot.getClassId(i)) {
+                    return "类文件已变化: " + className.replace('/', '.');
+                }
+            } catch (IOException e) {
+                return "无法读取类文件: " + className.replace('/', '.');
+            }
+            if (result.get() != current) {
+                // 校验期间已经发布了新的分析结果
+                return null;
+            }
         }
-        
+        if (result.compareAndSet(current, current.confirmed(versionCounter.incrementAndGet()))) {
+            fireResultChanged();
+        }
+        return null;
+    }
+
+    /**
+     * 增量发布：用新分析的类替换当前结果中的同名类
+     */
+    private void publishIncremental(long version, CoverageSnapshot updates, Map<String, String> updatedModules,
+                                    Map<String, IClassCoverage> updatedDetails) {
+        CoverageResult published = result.accumulateAndGet(null, (current, ignored) -> {
+            if (current.getVersion() >= version) {
+                return current;
+            }
+            Map<String, IClassCoverage> details = new HashMap<>(current.getClassDetails());
+            details.putAll(updatedDetails);
+            // 汇总只对变化的类做差量更新
+            CoverageRollup rollup = current.getRollup().withReplaced(current.getSnapshot(), updates, updatedModules);
+            return current.successor(version, current.getSessionName(), current.getSnapshot().withReplaced(updates),
+                rollup, details);
+        });
+        if (published.getVersion() == version) {
+            fireResultChanged();
+        }
+    }
+
+    /**
+     * 注册结果监听器，每次发布新结果后在发布线程中调用，parentDisposable 释放时自动移除
+     */
+    public void addResultListener(Runnable listener, Disposable parentDisposable) {
+        resultListeners.add(listener);
+        Disposer.register(parentDisposable, () -> resultListeners.remove(listener));
+    }
+
+    private void fireResultChanged() {
+        for (Runnable listener : resultListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOG.warn("覆盖率结果监听器出错", e);
+            }
+        }
+    }
+
+    /**
+     * 获取最近发布的分析结果，调用方在一次读取中应只使用同一个结果对象
+     */
+    public CoverageResult getResult() {
+        return result.get();
+    }
+
+    /**
+     * 获取最近一次分析结果的列式快照
+     */
+    public CoverageSnapshot getSnapshot() {
+        return result.get().getSnapshot();
+    }
+
+    /**
+     * 把当前结果标记为对比基线（基线会一直保留在内存中，直到清除或重新标记）
+     */
+    public void markBaseline() {
+        CoverageResult current = result.get();
+        baseline = current.isAnalyzed() ? current : null;
+    }
+
+    public void clearBaseline() {
+        baseline = null;
+    }
+
+    public @Nullable CoverageResult getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * 当前结果与基线的差异，未标记基线时与上一版本对比；没有可对比的结果时返回 null
+     */
+    public @Nullable CoverageDiff diffWithBaseline() {
+        CoverageResult current = result.get();
+        CoverageResult reference = baseline != null ? baseline : current.getPrevious();
+        if (reference == null || !current.isAnalyzed()) {
+            return null;
+        }
+        return CoverageDiff.compute(reference, current);
+    }
+
+    /**
+     * 登记需要行级明细的类（JVM 内部名），下次分析时生效，内部类和匿名类随外层类一起保留
+     */
+    public void requestLineDetail(String className) {
+        detailClasses.add(className);
+    }
+
+    /**
+     * 取消登记行级明细
+     */
+    public void releaseLineDetail(String className) {
+        detailClasses.remove(className);
+    }
+
+    /**
+     * 登记源文件中的类需要行级明细，编辑器打开源文件时调用，对比视图据此给出行和方法的变化
+     */
+    public void requestLineDetail(VirtualFile sourceFile) {
+        String className = outerClassNameOf(sourceFile);
+        if (className != null) {
+            requestLineDetail(className);
+        }
+    }
+
+    /**
+     * 源文件关闭后取消登记
+     */
+    public void releaseLineDetail(VirtualFile sourceFile) {
+        String className = outerClassNameOf(sourceFile);
+        if (className != null) {
+            releaseLineDetail(className);
+        }
+    }
+
+    /**
+     * 按源码根和文件名推断源文件对应的外层类（JVM 内部名），不在任何源码根下时返回 null
+     */
+    private @Nullable String outerClassNameOf(VirtualFile sourceFile) {
+        ModuleOutputResolver.SourceRootMapping mapping = moduleOutputResolver.findMapping(sourceFile.getPath());
+        if (mapping == null) {
+            return null;
+        }
+        String packageName = mapping.getPackageName(sourceFile.getPath());
+        String prefix = "default".equals(packageName) ? "" : packageName.replace('.', '/') + "/";
+        return prefix + sourceFile.getNameWithoutExtension();
+    }
+
+    /**
+     * 获取类的完整覆盖率（含方法和行），轻量模式下只有登记过的类可用
+     */
+    public @Nullable IClassCoverage getClassDetail(String className) {
+        return result.get().getClassDetail(className);
+    }
+
+    private @Nullable Predicate<String> getDetailFilter() {
+        if (detailClasses.isEmpty()) {
+            return null;
+        }
+        Set<String> requested = Set.copyOf(detailClasses);
+        return className -> {
+            int inner = className.indexOf('$');
+            return requested.contains(className) || inner > 0 && requested.contains(className.substring(0, inner));
+        };
+    }
+
+    /**
+     * 启动实时覆盖率：先以空探针分析目标路径下的所有类，之后按设置的间隔拉取代理的转储
+     *
+     * @param targetPath 需要统计的类所在路径（源码目录或输出目录）
+     * @param onUpdate   每次发布新结果后调用（在后台线程中），可为空
+     */
+    public void startLiveCoverage(String targetPath, @Nullable Runnable onUpdate) throws Exception {
+        stopLiveCoverage();
+        List<String> classFiles = findClassFilesForPath(targetPath, null);
         if (classFiles.isEmpty()) {
-            // 如果仍然找不到类文件，创建一个示例报告
-            createEmptyCoverageReport();
+            throw new Exception("未找到可分析的类文件: " + targetPath);
+        }
+        UtAssistantSettings.SettingsState state = UtAssistantSettings.getInstance(project).getState();
+        String address = state.liveAddress.trim();
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new Exception("实时覆盖率代理地址格式应为 host:port: " + address);
+        }
+        String host = address.substring(0, colon);
+        int port = Integer.parseInt(address.substring(colon + 1).trim());
+
+        Map<String, List<String>> index = new HashMap<>();
+        for (String classFile : classFiles) {
+            String fileName = new File(classFile).getName();
+            index.computeIfAbsent(fileName, key -> new ArrayList<>(1)).add(classFile);
+        }
+
+        CoverageSessionRegistry registry = getSessionRegistry();
+        registry.reset(CoverageSessionRegistry.LIVE);
+        synchronized (liveLock) {
+            liveClassFiles = index;
+            analyze(classFiles, registry.getSession(CoverageSessionRegistry.LIVE).getExecutionDataStore(),
+                CoverageSessionRegistry.LIVE, null);
+        }
+
+        LiveCoverageClient client = new LiveCoverageClient(host, port, state.liveListen, state.liveResetOnDump,
+            new LiveCoverageClient.Listener() {
+                @Override
+                public void onDump(ExecutionDataStore executionData, SessionInfoStore sessionInfos) {
+                    try {
+                        if (onLiveDump(executionData, sessionInfos) && onUpdate != null) {
+                            onUpdate.run();
+                        }
+                    } catch (IOException e) {
+                        LOG.warn("处理实时覆盖率数据失败", e);
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    LOG.warn("实时覆盖率连接出错: " + e.getMessage());
+                }
+            });
+        client.start(Math.max(1, state.liveDumpIntervalSeconds) * 1000L);
+        synchronized (liveLock) {
+            liveClient = client;
+        }
+    }
+
+    /**
+     * 停止实时覆盖率，已发布的结果保留
+     */
+    public void stopLiveCoverage() {
+        LiveCoverageClient client;
+        synchronized (liveLock) {
+            client = liveClient;
+            liveClient = null;
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    public boolean isLiveCoverageRunning() {
+        LiveCoverageClient client = liveClient;
+        return client != null && client.isRunning();
+    }
+
+    /**
+     * 立即拉取一次实时转储
+     */
+    public void dumpLiveCoverageNow() {
+        LiveCoverageClient client = liveClient;
+        if (client != null) {
+            client.requestDump();
+        }
+    }
+
+    /**
+     * 合并一次实时转储，只重新分析新增了命中探针的类
+     *
+     * @return 是否发布了新结果
+     */
+    private boolean onLiveDump(ExecutionDataStore dump, SessionInfoStore sessionInfos) throws IOException {
+        synchronized (liveLock) {
+            CoverageSessionRegistry registry = getSessionRegistry();
+            CoverageSession session = registry.getSession(CoverageSessionRegistry.LIVE);
+            ExecutionDataStore previous = session.getExecutionDataStore();
+
+            Set<String> changedClasses = new HashSet<>();
+            for (ExecutionData data : dump.getContents()) {
+                if (hasNewHits(data, previous.get(data.getId()))) {
+                    changedClasses.add(data.getName());
+                }
+            }
+            if (changedClasses.isEmpty()) {
+                return false;
+            }
+            session.merge(dump, sessionInfos);
+            registry.enforceBudget(session);
+
+            List<String> changedFiles = new ArrayList<>();
+            for (String className : changedClasses) {
+                String suffix = className + ".class";
+                String fileName = suffix.substring(suffix.lastIndexOf('/') + 1);
+                for (String classFile : liveClassFiles.getOrDefault(fileName, List.of())) {
+                    if (classFile.replace('\\', '/').endsWith("/" + suffix)) {
+                        changedFiles.add(classFile);
+                    }
+                }
+            }
+            if (changedFiles.isEmpty()) {
+                return false;
+            }
+
+            long version = versionCounter.incrementAndGet();
+            // 完整模式下已发布的结果包含所有类的明细，重新分析的类也要保留明细
+            Predicate<String> detailFilter = UtAssistantSettings.getInstance(project).getState().lightweightAnalysis
+                ? getDetailFilter() : changedClasses::contains;
+            SummarizingCoverageVisitor summary = createAnalyzer().analyzeSummary(changedFiles,
+                session.getExecutionDataStore(), detailFilter, null);
+            publishIncremental(version, summary.getSnapshot(), moduleOutputResolver.mapClassesToModules(changedFiles),
+                summary.getDetails());
+            analysisCache.save();
+            return true;
+        }
+    }
+
+    /**
+     * 转储中是否有之前未命中的探针
+     */
+    private static boolean hasNewHits(ExecutionData dumped, @Nullable ExecutionData previous) {
+        boolean[] probes = dumped.getProbes();
+        if (previous == null || previous.getProbes().length != probes.length) {
+            for (boolean probe : probes) {
+                if (probe) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        boolean[] previousProbes = previous.getProbes();
+        for (int i = 0; i < probes.length; i++) {
+            if (probes[i] && !previousProbes[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 清空增量分析缓存，下次分析时重新分析所有类
+     */
+    public void clearAnalysisCache() {
+        analysisCache.clear();
+    }
+
+    /**
+     * 按项目设置的线程数和类过滤器创建分析器（带增量缓存）
+     */
+    private ParallelClassAnalyzer createAnalyzer() {
+        UtAssistantSettings settings = UtAssistantSettings.getInstance(project);
+        return new ParallelClassAnalyzer(settings.getEffectiveAnalysisParallelism(), analysisCache,
+            settings.getClassFilter());
+    }
+
+    /**
+     * 自动执行测试并生成覆盖率数据
+     */
+    public void executeTestsAndGenerateCoverage(String targetPath) throws Exception {
+        executeTestsAndGenerateCoverage(targetPath, null);
+    }
+
+    /**
+     * 自动执行测试并生成覆盖率数据，支持进度显示和取消
+     */
+    public void executeTestsAndGenerateCoverage(String targetPath, @Nullable ProgressIndicator indicator) throws Exception {
+        executeTestsAndGenerateCoverage(targetPath, indicator, null);
+    }
+
+    /**
+     * 自动执行测试并生成覆盖率数据
+     * 类文件的发现、分析和汇总以流水线方式同时进行，进度条显示真实进度和预计剩余时间
+     *
+     * @param onPartial 分析过程中的部分快照（在调用线程中回调），可为空
+     */
+    public void executeTestsAndGenerateCoverage(String targetPath, @Nullable ProgressIndicator indicator,
+                                                @Nullable Consumer<CoverageSnapshot> onPartial) throws Exception {
+        // 首先按模块模型定位输出目录，其次才扫描目标路径
+        if (analyzeStreaming(resolveAnalysisRoots(targetPath), moduleOutputResolver::getPackagePath, indicator, onPartial)) {
             return;
         }
-        
-        // 直接分析类文件而不依赖jacoco.exec文件
-        analyzeClassFilesDirectly(classFiles);
+
+        // 如果在目标路径中找不到类文件，依次尝试标准输出目录
+        String projectPath = project.getBasePath();
+        List<String> fallbackDirs = new ArrayList<>(List.of(JacocoUtils.getClassDirectories(projectPath)));
+        fallbackDirs.addAll(List.of(
+            projectPath + "/build/classes/java/main",
+            projectPath + "/target/classes",
+            projectPath + "/out/production/classes",
+            projectPath + "/build/classes/kotlin/main",
+            projectPath + "/out/production/" + new File(projectPath).getName()
+        ));
+        for (String dir : fallbackDirs) {
+            // 标准输出目录本身就是类的根目录
+            if (new File(dir).isDirectory() && analyzeStreaming(List.of(dir), root -> "", indicator, onPartial)) {
+                return;
+            }
+        }
+
+        // 如果仍然找不到类文件，创建一个示例报告
+        createEmptyCoverageReport();
+    }
+
+    /**
+     * 运行测试，读取本次运行写出的执行数据后分析项目的类文件
+     * 按项目的构建工具选择运行器，测试进度通过监听器逐个报告；有测试失败时仍然分析已写出的执行数据
+     * 启用进程内运行或常驻测试 JVM 时不经过构建工具，执行数据直接取自运行时，并且只分析运行的测试所在包的生产代码
+     *
+     * @param scopePath   选中的目录，运行器只构建其所属的模块，为 null 时不限制
+     * @param testClasses 要运行的测试类全限定名，为空时运行全部测试
+     */
+    public TestRunResult runTestsWithCoverage(@Nullable String scopePath, List<String> testClasses,
+                                              TestRunListener listener,
+                                              @Nullable ProgressIndicator indicator) throws Exception {
+        String projectPath = project.getBasePath();
+        UtAssistantSettings settings = UtAssistantSettings.getInstance(project);
+        UtAssistantSettings.SettingsState state = settings.getState();
+        // 进程内和常驻 JVM 运行属于快速循环，只分析运行的测试所在的包
+        boolean fastLoop = state.testWorker || state.inProcessTests;
+        TestRunner runner;
+        if (state.testWorker) {
+            runner = new TestWorkerRunner(project, collectTestClasspath(scopePath), moduleOutputResolver::groupByModule,
+                toPaths(moduleOutputResolver.getTestOutputDirectories(scopePath)), state.classIncludes,
+                state.classExcludes, moduleOutputResolver::getDirectoryPackageName);
+        } else if (state.inProcessTests) {
+            runner = createInProcessRunner(scopePath);
+        } else {
+            runner = TestRunners.select(project, projectPath);
+        }
+        if (indicator != null) {
+            indicator.setText("正在通过 " + runner.getName() + " 运行测试...");
+        }
+        TestRunResult runResult = runner.run(new TestRunRequest(projectPath, scopePath, testClasses), listener,
+            indicator);
+
+        if (indicator != null) {
+            indicator.setText("合并执行数据...");
+        }
+        if (runResult.getExecutionData() != null) {
+            SessionInfoStore sessionInfos = runResult.getSessionInfos();
+            getSessionRegistry().replace(activeSession, runResult.getExecutionData(),
+                sessionInfos != null ? sessionInfos : new SessionInfoStore());
+        } else if (runResult.getExecFiles().isEmpty()) {
+            // 运行器无法确定 exec 文件位置时按配置的通配符查找
+            loadMergedExecutionData(projectPath, null, indicator);
+        } else {
+            ExecFileMerger.MergeResult merged = new ExecFileMerger(settings.getEffectiveAnalysisParallelism())
+                .merge(runResult.getExecFiles(), null, indicator);
+            getSessionRegistry().replace(activeSession, merged);
+        }
+
+        if (indicator != null) {
+            indicator.setText("分析类文件...");
+        }
+        List<String> classFiles = fastLoop
+            ? findClassFilesForTestedPackages(projectPath, scopePath, testClasses, indicator)
+            : findClassFilesForPath(projectPath, indicator);
+        analyzeClassFiles(classFiles, indicator);
+        updateTestImpactIndex(runResult);
+        return runResult;
+    }
+
+    /**
+     * 用按测试类区分的覆盖数据更新测试影响索引，运行器不能区分时不做任何事
+     * Gradle、Maven 写出的 exec 文件只有整次运行的合并数据，不更新索引；索引中各测试类按自己的运行时间判断变化，
+     * 不会因为这些运行而漏选测试
+     */
+    private void updateTestImpactIndex(TestRunResult runResult) {
+        if (runResult.getTestClassCoverage().isEmpty()) {
+            return;
+        }
+        List<String> productionDirs = moduleOutputResolver.getProductionOutputDirectories();
+        Map<String, Boolean> production = new HashMap<>();
+        testImpactIndex.update(runResult.getTestClassCoverage(),
+            className -> production.computeIfAbsent(className, name -> isProductionClass(productionDirs, name)),
+            System.currentTimeMillis() - runResult.getDurationMillis());
+        try {
+            testImpactIndex.save();
+        } catch (IOException e) {
+            LOG.warn("保存测试影响索引失败", e);
+        }
+    }
+
+    private static boolean isProductionClass(List<String> productionDirs, String className) {
+        for (String dir : productionDirs) {
+            if (new File(dir, className + ".class").isFile()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 选出受当前变化影响的测试类，交给 runTestsWithCoverage 作为测试过滤条件
+     * 变化的类来自版本控制中未提交的源文件，以及测试类上次运行后重新编译的类文件（按每个测试类各自的运行时间比较）；
+     * 测试源码根中新增、尚未进入索引的类也会被选中
+     *
+     * @return 受影响的测试类全限定名，没有受影响的测试时为空
+     * @throws Exception 索引为空（还没有用进程内或常驻 JVM 方式运行过测试）时抛出
+     */
+    public List<String> selectAffectedTests(@Nullable ProgressIndicator indicator) throws Exception {
+        if (testImpactIndex.isEmpty()) {
+            throw new Exception("测试影响索引为空，请先启用进程内运行或常驻测试 JVM 运行一次全部测试");
+        }
+        if (indicator != null) {
+            indicator.setText("查找变化的类...");
+        }
+        Set<String> changedClasses = new HashSet<>();
+        Set<String> newTests = new LinkedHashSet<>();
+        for (VirtualFile file : ChangeListManager.getInstance(project).getAffectedFiles()) {
+            ModuleOutputResolver.SourceRootMapping mapping = moduleOutputResolver.findMapping(file.getPath());
+            if (mapping == null || file.isDirectory() || !isSourceFile(file.getName())) {
+                continue;
+            }
+            String packageName = mapping.getPackageName(file.getPath());
+            String className = ("default".equals(packageName) ? "" : packageName.replace('.', '/') + "/")
+                + file.getNameWithoutExtension();
+            changedClasses.add(className);
+            String testClass = className.replace('/', '.');
+            if (mapping.isTest() && !testImpactIndex.contains(testClass)) {
+                newTests.add(testClass);
+            }
+        }
+        // 早于所有测试类上次运行的类文件不会影响选择，不必记录
+        long since = testImpactIndex.getEarliestRunAt();
+        Map<String, Long> compiledAt = new HashMap<>();
+        List<String> outputDirs = new ArrayList<>(moduleOutputResolver.getProductionOutputDirectories());
+        outputDirs.addAll(moduleOutputResolver.getTestOutputDirectories(null));
+        for (String outputDir : outputDirs) {
+            collectCompiledSince(Path.of(outputDir), since, compiledAt, indicator);
+        }
+
+        Set<String> affected = new LinkedHashSet<>(testImpactIndex.selectAffected(changedClasses, compiledAt));
+        affected.addAll(newTests);
+        LOG.info("变化的类 " + changedClasses.size() + " 个，重新编译的类 " + compiledAt.size() + " 个，受影响的测试类 " + affected.size() + " 个（索引中共 "
+            + testImpactIndex.getTestClassCount() + " 个）");
+        return new ArrayList<>(affected);
+    }
+
+    private static boolean isSourceFile(String fileName) {
+        return fileName.endsWith(".java") || fileName.endsWith(".kt") || fileName.endsWith(".groovy");
+    }
+
+    /**
+     * 输出目录中修改时间晚于 since 的类文件，按 JVM 内部类名记录修改时间
+     */
+    private static void collectCompiledSince(Path outputDir, long since, Map<String, Long> compiledAt,
+                                             @Nullable ProgressIndicator indicator) throws IOException {
+        if (!Files.isDirectory(outputDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (indicator != null) {
+                    indicator.checkCanceled();
+                }
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".class")) {
+                    continue;
+                }
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (modified > since) {
+                    String relative = outputDir.relativize(file).toString().replace('\\', '/');
+                    compiledAt.merge(relative.substring(0, relative.length() - ".class".length()), modified, Math::max);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按模块模型创建进程内运行器：生产输出目录在加载时插桩，测试输出目录作为默认的测试来源
+     * 输出目录放在类路径最前面，保证加载到的是被插桩的那一份类
+     */
+    private InProcessRunner createInProcessRunner(@Nullable String scopePath) {
+        List<Path> productionRoots = toPaths(moduleOutputResolver.getProductionOutputDirectories());
+        List<Path> testRoots = toPaths(moduleOutputResolver.getTestOutputDirectories(scopePath));
+        ClassFilter classFilter = UtAssistantSettings.getInstance(project).getClassFilter();
+        return new InProcessRunner(collectTestClasspath(scopePath), productionRoots, testRoots,
+            classFilter::accepts, moduleOutputResolver::getDirectoryPackageName);
+    }
+
+    /**
+     * 运行测试的类路径：生产和测试输出目录在前，之后是模块的运行时类路径
+     */
+    private List<Path> collectTestClasspath(@Nullable String scopePath) {
+        Set<Path> classpath = new LinkedHashSet<>(toPaths(moduleOutputResolver.getProductionOutputDirectories()));
+        classpath.addAll(toPaths(moduleOutputResolver.getTestOutputDirectories(scopePath)));
+        classpath.addAll(toPaths(moduleOutputResolver.getRuntimeClasspath()));
+        return new ArrayList<>(classpath);
+    }
+
+    private static List<Path> toPaths(List<String> paths) {
+        List<Path> result = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            result.add(Paths.get(path).toAbsolutePath().normalize());
+        }
+        return result;
+    }
+
+    /**
+     * 只查找运行的测试所在包对应的生产类文件，快速循环中不必分析整个项目
+     * 测试类或选中目录无法对应到包（默认包、模块目录、整个项目）或者包中没有生产类时，按选中路径查找
+     */
+    private List<String> findClassFilesForTestedPackages(String projectPath, @Nullable String scopePath,
+                                                         List<String> testClasses,
+                                                         @Nullable ProgressIndicator indicator) {
+        String fallbackPath = scopePath != null && testClasses.isEmpty() ? scopePath : projectPath;
+        Set<String> packagePaths = new LinkedHashSet<>();
+        for (String testClass : testClasses) {
+            int dot = testClass.lastIndexOf('.');
+            packagePaths.add(dot < 0 ? "" : testClass.substring(0, dot).replace('.', '/'));
+        }
+        if (testClasses.isEmpty() && scopePath != null) {
+            String packageName = moduleOutputResolver.getDirectoryPackageName(scopePath);
+            packagePaths.add(packageName == null ? "" : packageName.replace('.', '/'));
+        }
+        if (packagePaths.isEmpty() || packagePaths.contains("")) {
+            return findClassFilesForPath(fallbackPath, indicator);
+        }
+
+        Set<String> classFiles = new LinkedHashSet<>();
+        for (String outputDir : moduleOutputResolver.getProductionOutputDirectories()) {
+            for (String packagePath : packagePaths) {
+                File packageDir = new File(outputDir, packagePath);
+                if (packageDir.isDirectory()) {
+                    classFiles.addAll(findClassFiles(packageDir.getPath(), indicator));
+                }
+            }
+        }
+        return classFiles.isEmpty() ? findClassFilesForPath(fallbackPath, indicator) : new ArrayList<>(classFiles);
+    }
+
+    /**
+     * 以流水线方式直接分析（不依赖jacoco.exec文件，所有类显示为未覆盖）
+     *
+     * @param packageResolver 根目录对应的包路径，用于发现阶段按类过滤器剪枝，无法确定时返回 null
+     * @return 没有发现任何类文件时返回 false，且不发布结果
+     */
+    private boolean analyzeStreaming(List<String> roots, Function<String, String> packageResolver,
+                                     @Nullable ProgressIndicator indicator,
+                                     @Nullable Consumer<CoverageSnapshot> onPartial) throws IOException {
+        long version = versionCounter.incrementAndGet();
+        // 完整模式下保留所有类的明细
+        Predicate<String> detailFilter = UtAssistantSettings.getInstance(project).getState().lightweightAnalysis
+            ? getDetailFilter() : className -> true;
+        AnalysisPipeline pipeline = new AnalysisPipeline(createAnalyzer(), classFileDiscovery,
+            new ExecutionDataStore(), detailFilter, indicator, packageResolver);
+        SummarizingCoverageVisitor summary = pipeline.run(roots, onPartial);
+        List<String> discovered = pipeline.getDiscovered();
+        if (discovered.isEmpty()) {
+            return false;
+        }
+        publish(version, null, summary.getSnapshot(), moduleOutputResolver.mapClassesToModules(discovered),
+            summary.getDetails());
+        analysisCache.save();
+        return true;
     }
     
     /**
      * 创建空的覆盖率报告（当没有类文件时）
      */
     private void createEmptyCoverageReport() {
-        this.coverageBuilder = new CoverageBuilder();
+        publish(versionCounter.incrementAndGet(), null, CoverageSnapshot.EMPTY, Map.of(), Map.of());
         // 这将创建一个空的覆盖率报告，稍后会显示没有找到类文件的信息
     }
     
@@ -270,102 +1142,46 @@ public class JacocoCoverageService {
     }
     
     /**
-     * 执行Gradle测试
+     * 选中的文件能否作为覆盖率分析的目标：目录，或者 JAR / WAR / EAR / ZIP 归档
      */
-    private void executeGradleTest() throws Exception {
-        String projectPath = project.getBasePath();
-        ProcessBuilder processBuilder = new ProcessBuilder();
-        
-        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
-            processBuilder.command("cmd", "/c", "gradlew.bat", "test", "--info");
-        } else {
-            processBuilder.command("./gradlew", "test", "--info");
-        }
-        
-        processBuilder.directory(new File(projectPath));
-        processBuilder.redirectErrorStream(true);
-        
-        Process process = processBuilder.start();
-        
-        // 读取输出
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.out.println(line); // 记录输出
-            }
-        }
-        
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new Exception("Gradle测试执行失败，退出码: " + exitCode);
-        }
+    public static boolean isAnalysisTarget(@Nullable VirtualFile file) {
+        return file != null && (file.isDirectory() || ArchiveEntries.isArchive(file.getName()));
     }
-    
+
     /**
-     * 执行Maven测试
+     * 查找选中路径对应的类文件
+     * 模块模型能把路径映射到输出目录时只查找这些目录，否则扫描路径本身；选中 JAR 等归档时直接返回归档
      */
-    private void executeMavenTest() throws Exception {
-        String projectPath = project.getBasePath();
-        ProcessBuilder processBuilder = new ProcessBuilder();
-        
-        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
-            processBuilder.command("cmd", "/c", "mvn", "test", "-Djacoco.skip=false");
-        } else {
-            processBuilder.command("mvn", "test", "-Djacoco.skip=false");
-        }
-        
-        processBuilder.directory(new File(projectPath));
-        processBuilder.redirectErrorStream(true);
-        
-        Process process = processBuilder.start();
-        
-        // 读取输出
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.out.println(line); // 记录输出
+    public List<String> findClassFilesForPath(String targetPath, @Nullable ProgressIndicator indicator) {
+        List<String> classFiles = new ArrayList<>();
+        for (String root : resolveAnalysisRoots(targetPath)) {
+            if (ArchiveEntries.isArchive(root)) {
+                // 归档由分析器展开为条目并行分析
+                classFiles.add(root);
+            } else {
+                classFiles.addAll(findClassFiles(root, indicator));
             }
         }
-        
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new Exception("Maven测试执行失败，退出码: " + exitCode);
-        }
+        return classFiles;
     }
-    
+
     /**
-     * 查找目录中的类文件
+     * 选中路径对应的分析根：归档本身、模块模型映射出的输出目录，或者路径本身
      */
-    private List<String> findClassFiles(String basePath) {
-        List<String> classFiles = new java.util.ArrayList<>();
-        File baseDir = new File(basePath);
-        
-        findClassFilesRecursive(baseDir, classFiles);
-        
-        return classFiles;
-    }
-    
-    private void findClassFilesRecursive(File dir, List<String> classFiles) {
-        if (dir == null || !dir.exists() || !dir.isDirectory()) {
-            return;
-        }
-        
-        File[] files = dir.listFiles();
-        if (files == null) return;
-        
-        for (File file : files) {
-            if (file.isDirectory()) {
-                // 跳过某些不需要的目录
-                if (!file.getName().equals(".gradle") && 
-                    !file.getName().equals("build") && 
-                    !file.getName().equals(".git") &&
-                    !file.getName().startsWith(".")) {
-                    findClassFilesRecursive(file, classFiles);
-                }
-            } else if (file.getName().endsWith(".class")) {
-                classFiles.add(file.getAbsolutePath());
-            }
+    private List<String> resolveAnalysisRoots(String targetPath) {
+        if (ArchiveEntries.isArchive(targetPath) && new File(targetPath).isFile()) {
+            return List.of(targetPath);
         }
+        List<String> classDirs = moduleOutputResolver.resolveClassDirectories(targetPath);
+        return classDirs.isEmpty() ? List.of(targetPath) : classDirs;
+    }
+
+    /**
+     * 查找目录中通过类过滤器的类文件（使用带缓存索引的类文件发现器）
+     */
+    public List<String> findClassFiles(String basePath, @Nullable ProgressIndicator indicator) {
+        return classFileDiscovery.find(basePath, moduleOutputResolver.getPackagePath(basePath),
+            UtAssistantSettings.getInstance(project).getClassFilter(), indicator);
     }
     
     /**
@@ -377,34 +1193,127 @@ public class JacocoCoverageService {
 
     /**
      * 获取特定文件的覆盖率数据
+     * 按源文件所在的包和文件名通过快照的哈希索引直接定位类；文件不在任何源码根下时按简单类名查找，
+     * 有多个同名类无法区分时返回 null
      */
     public CoverageData getCoverageData(VirtualFile sourceFile) {
-        if (coverageBuilder == null) {
+        CoverageSnapshot current = getSnapshot();
+        String simpleName = sourceFile.getNameWithoutExtension();
+
+        int index;
+        ModuleOutputResolver.SourceRootMapping mapping = moduleOutputResolver.findMapping(sourceFile.getPath());
+        if (mapping != null) {
+            String packageName = mapping.getPackageName(sourceFile.getPath());
+            index = current.indexOf("default".equals(packageName) ? simpleName
+                : packageName.replace('.', '/') + "/" + simpleName);
+        } else {
+            int[] candidates = current.findBySimpleName(simpleName);
+            index = candidates.length == 1 ? candidates[0] : -1;
+        }
+        if (index < 0) {
             return null;
         }
+        return new CoverageData(
+            current.getClassName(index),
+            current.getCoveredPercent(CounterEntity.INSTRUCTION, index),
+            current.getCoveredPercent(CounterEntity.BRANCH, index),
+            current.getCoveredPercent(CounterEntity.LINE, index)
+        );
+    }
+
+    /**
+     * 获取源文件的行覆盖率索引，编辑器打开文件时调用；可能需要读取类文件，不要在 EDT 上调用
+     * 结果中已有该文件各个类的行级明细时直接构建，否则只对这个源文件编译出的类补充分析一次，
+     * 索引按结果版本缓存，结果更新后再次调用时重建
+     */
+    public LineCoverageIndex getLineIndex(VirtualFile sourceFile) throws IOException {
+        CoverageResult current = result.get();
+        if (!current.isAnalyzed()) {
+            return LineCoverageIndex.EMPTY;
+        }
+        String key = sourceFile.getPath();
+        LineCoverageIndex cached = lineIndexes.get(key);
+        if (cached != null && cached.getVersion() == current.getVersion()) {
+            return cached;
+        }
+        LineCoverageIndex index = buildLineIndex(sourceFile, current);
+        lineIndexes.put(key, index);
+        return index;
+    }
 
-        String className = sourceFile.getNameWithoutExtension();
-        // 修正：使用getClasses().get()来获取类覆盖率数据
-        Collection<org.jacoco.core.analysis.IClassCoverage> classes = coverageBuilder.getClasses();
-        for (org.jacoco.core.analysis.IClassCoverage classCoverage : classes) {
-            // 类名可能包含包路径，需要正确匹配
-            if (classCoverage.getName().endsWith(className)) {
-                return new CoverageData(
-                    classCoverage.getName(),
-                    classCoverage.getInstructionCounter().getCoveredRatio() * 100,
-                    classCoverage.getBranchCounter().getCoveredRatio() * 100,
-                    classCoverage.getLineCounter().getCoveredRatio() * 100
-                );
+    /**
+     * 文件关闭后释放缓存的行索引
+     */
+    public void releaseLineIndex(VirtualFile sourceFile) {
+        lineIndexes.remove(sourceFile.getPath());
+    }
+
+    private LineCoverageIndex buildLineIndex(VirtualFile sourceFile, CoverageResult current) throws IOException {
+        ModuleOutputResolver.SourceRootMapping mapping = moduleOutputResolver.findMapping(sourceFile.getPath());
+        if (mapping == null) {
+            return LineCoverageIndex.build(List.of(), current.getVersion());
+        }
+        CoverageSnapshot snapshot = current.getSnapshot();
+        int packageIndex = snapshot.findPackage(mapping.getPackageName(sourceFile.getPath()));
+        List<IClassCoverage> classes = new ArrayList<>();
+        Set<String> missing = new HashSet<>();
+        if (packageIndex >= 0) {
+            for (int i = snapshot.getPackageStart(packageIndex); i < snapshot.getPackageEnd(packageIndex); i++) {
+                // 同一源文件中的内部类、匿名类记录的源文件名相同
+                if (sourceFile.getName().equals(snapshot.getSourceFileName(i))) {
+                    IClassCoverage detail = current.getClassDetail(snapshot.getClassName(i));
+                    if (detail != null) {
+                        classes.add(detail);
+                    } else {
+                        missing.add(snapshot.getClassName(i));
+                    }
+                }
             }
         }
-        return null;
+        if (!missing.isEmpty()) {
+            classes.addAll(analyzeLineDetails(missing, mapping, current));
+        }
+        return LineCoverageIndex.build(classes, current.getVersion());
+    }
+
+    /**
+     * 对少量类补充行级明细，使用结果对应会话的执行数据
+     */
+    private Collection<IClassCoverage> analyzeLineDetails(Set<String> classNames,
+                                                          ModuleOutputResolver.SourceRootMapping mapping,
+                                                          CoverageResult current) throws IOException {
+        List<String> classFiles = new ArrayList<>();
+        for (Path outputRoot : mapping.getExistingOutputRoots()) {
+            for (String className : classNames) {
+                Path classFile = outputRoot.resolve(className + ".class");
+                if (Files.isRegularFile(classFile)) {
+                    classFiles.add(classFile.toString());
+                }
+            }
+        }
+        if (classFiles.isEmpty()) {
+            return List.of();
+        }
+        ExecutionDataStore executionData;
+        if (current.getSessionName() == null) {
+            executionData = new ExecutionDataStore();
+        } else {
+            CoverageSession session = getSessionRegistry().getSession(current.getSessionName());
+            executionData = session.getExecutionDataStore();
+            getSessionRegistry().enforceBudget(session);
+        }
+        // 只有一个源文件的几个类，单线程分析；增量缓存中没有行级明细，这里不使用缓存
+        return new ParallelClassAnalyzer(1)
+            .analyzeSummary(classFiles, executionData, classNames::contains, null)
+            .getDetails().values();
     }
 
     /**
      * 生成详细的覆盖率报告
      */
     public String generateCoverageReport() {
-        if (coverageBuilder == null) {
+        CoverageResult published = result.get();
+        if (!published.isAnalyzed()) {
             return "没有可用的覆盖率数据。请先运行单元测试以生成jacoco.exec文件，然后分析覆盖率。";
         }
 
@@ -412,29 +1321,32 @@ public class JacocoCoverageService {
         report.append("JaCoCo 覆盖率报告\n");
         report.append("========================\n");
 
-        Collection<org.jacoco.core.analysis.IClassCoverage> classes = coverageBuilder.getClasses();
-        if (classes.isEmpty()) {
+        CoverageSnapshot current = published.getSnapshot();
+        if (current.isEmpty()) {
             report.append("没有找到类文件进行分析。请确保项目已编译且包含可分析的类文件。\n");
             return report.toString();
         }
 
-        for (org.jacoco.core.analysis.IClassCoverage classCoverage : classes) {
-            if (classCoverage != null) {
-                double lineCoverage = classCoverage.getLineCounter().getCoveredRatio() * 100;
-                double branchCoverage = classCoverage.getBranchCounter().getCoveredRatio() * 100;
-                double instructionCoverage = classCoverage.getInstructionCounter().getCoveredRatio() * 100;
-                // 计算方法和类覆盖率
-                double methodCoverage = classCoverage.getMethodCounter().getCoveredRatio() * 100;
-                double classCoveragePercent = classCoverage.getClassCounter().getCoveredRatio() * 100;
+        // 项目和模块的总体覆盖率取自分层汇总（按计数器加权）
+        CoverageRollup.Node projectNode = published.getRollup().getProject();
+        report.append(String.format("项目: 行覆盖率 %.2f%%，分支覆盖率 %.2f%%，低于 %.0f%% 的类 %d 个\n",
+            projectNode.getCoveredPercent(CounterEntity.LINE), projectNode.getCoveredPercent(CounterEntity.BRANCH),
+            CoverageRollup.LOW_COVERAGE_PERCENT, projectNode.getLowCoverageCount()));
+        for (CoverageRollup.Node moduleNode : published.getRollup().getModules()) {
+            report.append(String.format("  模块 %s: 行覆盖率 %.2f%%，分支覆盖率 %.2f%%（%d 个类）\n", moduleNode.getName(),
+                moduleNode.getCoveredPercent(CounterEntity.LINE), moduleNode.getCoveredPercent(CounterEntity.BRANCH),
+                moduleNode.getClassCount()));
+        }
+        report.append("\n");
 
-                report.append(String.format("类: %s\n", classCoverage.getName()));
-                report.append(String.format("  行覆盖率: %.2f%%\n", lineCoverage));
-                report.append(String.format("  分支覆盖率: %.2f%%\n", branchCoverage));
-                report.append(String.format("  指令覆盖率: %.2f%%\n", instructionCoverage));
-                report.append(String.format("  方法覆盖率: %.2f%%\n", methodCoverage));
-                report.append(String.format("  类覆盖率: %.2f%%\n", classCoveragePercent));
-                report.append("\n");
-            }
+        for (int i = 0; i < current.getClassCount(); i++) {
+            report.append(String.format("类: %s\n", current.getClassName(i)));
+            report.append(String.format("  行覆盖率: %.2f%%\n", current.getCoveredPercent(CounterEntity.LINE, i)));
+            report.append(String.format("  分支覆盖率: %.2f%%\n", current.getCoveredPercent(CounterEntity.BRANCH, i)));
+            report.append(String.format("  指令覆盖率: %.2f%%\n", current.getCoveredPercent(CounterEntity.INSTRUCTION, i)));
+            report.append(String.format("  方法覆盖率: %.2f%%\n", current.getCoveredPercent(CounterEntity.METHOD, i)));
+            report.append(String.format("  类覆盖率: %.2f%%\n", current.getCoveredPercent(CounterEntity.CLASS, i)));
+            report.append("\n");
         }
 
         return report.toString();
@@ -442,34 +1354,21 @@ public class JacocoCoverageService {
 
     /**
      * 获取所有类的覆盖率数据
+     * 逐类创建对象，数据量大时请直接使用 getSnapshot()
      */
     public List<CoverageData> getAllCoverageData() {
-        if (coverageBuilder == null) {
-            return new java.util.ArrayList<>();
+        CoverageSnapshot current = getSnapshot();
+        List<CoverageData> coverageDataList = new ArrayList<>(current.getClassCount());
+        for (int i = 0; i < current.getClassCount(); i++) {
+            coverageDataList.add(new CoverageData(
+                current.getQualifiedName(i),
+                current.getCoveredPercent(CounterEntity.INSTRUCTION, i),  // 使用指令覆盖率作为主要覆盖率
+                current.getCoveredPercent(CounterEntity.BRANCH, i),
+                current.getCoveredPercent(CounterEntity.LINE, i),
+                current.getCoveredPercent(CounterEntity.METHOD, i),
+                current.getCoveredPercent(CounterEntity.CLASS, i)
+            ));
         }
-
-        Collection<org.jacoco.core.analysis.IClassCoverage> classes = coverageBuilder.getClasses();
-        List<CoverageData> coverageDataList = new java.util.ArrayList<>();
-        
-        for (org.jacoco.core.analysis.IClassCoverage classCoverage : classes) {
-            if (classCoverage != null) {
-                double lineCoverage = classCoverage.getLineCounter().getCoveredRatio() * 100;
-                double branchCoverage = classCoverage.getBranchCounter().getCoveredRatio() * 100;
-                double instructionCoverage = classCoverage.getInstructionCounter().getCoveredRatio() * 100;
-                double methodCoverage = classCoverage.getMethodCounter().getCoveredRatio() * 100;
-                double classCoveragePercent = classCoverage.getClassCounter().getCoveredRatio() * 100;
-
-                coverageDataList.add(new CoverageData(
-                    classCoverage.getName().replace('/', '.').replace('\\', '.'),
-                    instructionCoverage,  // 使用指令覆盖率作为主要覆盖率
-                    branchCoverage,
-                    lineCoverage,
-                    methodCoverage,
-                    classCoveragePercent
-                ));
-            }
-        }
-
         return coverageDataList;
     }
-}
\ No newline at end of file
+}
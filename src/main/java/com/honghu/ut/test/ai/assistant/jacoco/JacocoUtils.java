@@ -3,13 +3,28 @@ package com.honghu.ut.test.ai.assistant.jacoco;
 import com.intellij.openapi.project.Project;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * JaCoCo工具类
  * 提供JaCoCo相关的实用方法
  */
 public class JacocoUtils {
-    
+    // 构建工具写出 exec 文件的目录（相对于构建根目录，空串为构建根目录本身）
+    private static final String[] EXEC_FILE_DIRECTORIES = {"", "build", "build/jacoco", "target"};
+
     /**
      * 查找jacoco.exec文件
      */
@@ -46,6 +61,54 @@ public class JacocoUtils {
         return null; // 未找到
     }
     
+    /**
+     * 按 glob 模式查找 exec 文件（模式相对于项目根目录）
+     * 不遍历整个项目，只查看项目根目录和各构建根目录本身及其 build、build/jacoco、target 目录下的文件
+     * 以 "**" 加斜杠开头的模式同时匹配项目根目录下的文件
+     *
+     * @param buildRoots 各模块的构建根目录（包含构建文件的目录），项目根目录总是会查看
+     */
+    public static List<String> findExecFiles(String projectPath, String globPattern,
+                                             Collection<String> buildRoots) throws IOException {
+        Path root = Paths.get(projectPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return Collections.emptyList();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + globPattern);
+        PathMatcher rootMatcher = globPattern.startsWith("**/")
+            ? FileSystems.getDefault().getPathMatcher("glob:" + globPattern.substring(3))
+            : matcher;
+
+        Set<Path> directories = new LinkedHashSet<>();
+        Set<Path> searchRoots = new LinkedHashSet<>();
+        searchRoots.add(root);
+        for (String buildRoot : buildRoots) {
+            searchRoots.add(Paths.get(buildRoot).toAbsolutePath().normalize());
+        }
+        for (Path searchRoot : searchRoots) {
+            for (String outputDir : EXEC_FILE_DIRECTORIES) {
+                directories.add(outputDir.isEmpty() ? searchRoot : searchRoot.resolve(outputDir));
+            }
+        }
+
+        List<String> execFiles = new ArrayList<>();
+        for (Path directory : directories) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Path relative = root.relativize(file);
+                    if (Files.isRegularFile(file) && (matcher.matches(relative) || rootMatcher.matches(relative))) {
+                        execFiles.add(file.toString());
+                    }
+                }
+            }
+        }
+        Collections.sort(execFiles);
+        return execFiles;
+    }
+
     /**
      * 检查项目是否配置了JaCoCo
      */
@@ -105,4 +168,57 @@ public class JacocoUtils {
             projectPath + "/classes"                   // Other
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * 读取项目 Git 仓库当前的提交号（直接读取 .git 目录，不调用 git 命令）
+     * 不是 Git 仓库或无法解析时返回 null
+     */
+    public static String getVcsRevision(String projectPath) {
+        if (projectPath == null) {
+            return null;
+        }
+        try {
+            Path gitDir = Paths.get(projectPath, ".git");
+            if (Files.isRegularFile(gitDir)) {
+                // 工作树或子模块：.git 文件中记录实际的 git 目录
+                String content = Files.readString(gitDir).trim();
+                if (!content.startsWith("gitdir:")) {
+                    return null;
+                }
+                gitDir = gitDir.getParent().resolve(content.substring("gitdir:".length()).trim()).normalize();
+            }
+            Path headFile = gitDir.resolve("HEAD");
+            if (!Files.isRegularFile(headFile)) {
+                return null;
+            }
+            String head = Files.readString(headFile).trim();
+            if (!head.startsWith("ref:")) {
+                return head;   // 分离头指针，直接是提交号
+            }
+            String ref = head.substring("ref:".length()).trim();
+            // 工作树的分支引用保存在公共目录中
+            Path commonDir = gitDir;
+            Path commonDirFile = gitDir.resolve("commondir");
+            if (Files.isRegularFile(commonDirFile)) {
+                commonDir = gitDir.resolve(Files.readString(commonDirFile).trim()).normalize();
+            }
+            for (Path dir : new Path[] {gitDir, commonDir}) {
+                Path refFile = dir.resolve(ref);
+                if (Files.isRegularFile(refFile)) {
+                    return Files.readString(refFile).trim();
+                }
+            }
+            Path packedRefs = commonDir.resolve("packed-refs");
+            if (Files.isRegularFile(packedRefs)) {
+                for (String line : Files.readAllLines(packedRefs)) {
+                    if (line.endsWith(" " + ref)) {
+                        return line.substring(0, line.indexOf(' '));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 无法读取时不记录修订号
+        }
+        return null;
+    }
+}
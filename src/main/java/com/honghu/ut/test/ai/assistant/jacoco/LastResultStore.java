@@ -0,0 +1,240 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.project.Project;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最近一次分析结果的持久化存储
+ * 打开工具窗口时直接读回上次的快照，不必等待重新分析
+ *
+ * 功能：
+ * - 只保存列式快照（类名、classId、源文件、模块和各计数器），不保存行级明细
+ * - 源文件名和模块名写成字符串表，类只记录下标；计数器按计数器类型连续存放，读取时整块取出
+ * - 先写临时文件再原子替换，写到一半中断不会破坏上一次的结果
+ * - 读取时以内存映射方式打开，各列按保存时的顺序直接组成快照，不重新排序
+ * - 格式不符或文件损坏时返回 null
+ */
+final class LastResultStore {
+    private static final int MAGIC = 0x55544c53;   // "UTLS"
+    private static final int VERSION = 1;
+    private static final CounterEntity[] ENTITIES = CounterEntity.values();
+
+    private final Path file;
+
+    LastResultStore(Path file) {
+        this.file = file;
+    }
+
+    static LastResultStore forProject(Project project) {
+        return new LastResultStore(ClassAnalysisCache.getProjectCacheDir(project).resolve("last-result.bin"));
+    }
+
+    /**
+     * 保存结果的快照和模块归属，空结果不保存
+     */
+    void save(CoverageResult result) throws IOException {
+        CoverageSnapshot snapshot = result.getSnapshot();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        int classCount = snapshot.getClassCount();
+        Map<String, Integer> sourceFiles = new LinkedHashMap<>();
+        Map<String, Integer> modules = new LinkedHashMap<>();
+        int[] sourceIndex = new int[classCount];
+        int[] moduleIndex = new int[classCount];
+        for (int i = 0; i < classCount; i++) {
+            String sourceFileName = snapshot.getSourceFileName(i);
+            sourceIndex[i] = sourceFileName == null ? -1
+                : sourceFiles.computeIfAbsent(sourceFileName, k -> sourceFiles.size());
+            String module = result.getRollup().getModuleName(snapshot.getClassName(i));
+            moduleIndex[i] = CoverageRollup.UNASSIGNED_MODULE.equals(module) ? -1
+                : modules.computeIfAbsent(module, k -> modules.size());
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024))) {
+            // 头部：魔数 版本 计数器种类数 生成时间 会话名 类数
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ENTITIES.length);
+            out.writeLong(result.getCreatedAt());
+            writeString(out, result.getSessionName() == null ? "" : result.getSessionName());
+            out.writeInt(classCount);
+            // 定长列先写，读取时可以整块取出
+            for (int i = 0; i < classCount; i++) {
+                out.writeLong(snapshot.getClassId(i));
+            }
+            for (int i = 0; i < classCount; i++) {
+                out.writeInt(sourceIndex[i]);
+            }
+            for (int i = 0; i < classCount; i++) {
+                out.writeInt(moduleIndex[i]);
+            }
+            for (CounterEntity entity : ENTITIES) {
+                for (int i = 0; i < classCount; i++) {
+                    out.writeInt(snapshot.getMissed(entity, i));
+                }
+                for (int i = 0; i < classCount; i++) {
+                    out.writeInt(snapshot.getCovered(entity, i));
+                }
+            }
+            // 变长部分：字符串表和类名
+            writeStrings(out, sourceFiles.keySet());
+            writeStrings(out, modules.keySet());
+            for (int i = 0; i < classCount; i++) {
+                writeString(out, snapshot.getClassName(i));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读回上次保存的结果，版本号使用传入的值；没有保存过或文件无法识别时返回 null
+     */
+    @Nullable CoverageResult load(long version) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getInt() != ENTITIES.length) {
+                return null;
+            }
+            long createdAt = buffer.getLong();
+            String sessionName = readString(buffer);
+            int classCount = buffer.getInt();
+            if (classCount <= 0 || (long) classCount * (8 + 8 + ENTITIES.length * 8L) > buffer.remaining()) {
+                return null;
+            }
+
+            long[] classIds = new long[classCount];
+            LongBuffer longs = buffer.asLongBuffer();
+            longs.get(classIds);
+            buffer.position(buffer.position() + classCount * 8);
+            int[] sourceIndex = readInts(buffer, classCount);
+            int[] moduleIndex = readInts(buffer, classCount);
+            int[][] missed = new int[ENTITIES.length][];
+            int[][] covered = new int[ENTITIES.length][];
+            for (int e = 0; e < ENTITIES.length; e++) {
+                missed[e] = readInts(buffer, classCount);
+                covered[e] = readInts(buffer, classCount);
+            }
+            String[] sourceFiles = readStrings(buffer);
+            String[] modules = readStrings(buffer);
+
+            String[] classNames = new String[classCount];
+            String[] classSources = new String[classCount];
+            Map<String, String> classModules = new HashMap<>(classCount * 4 / 3 + 1);
+            for (int i = 0; i < classCount; i++) {
+                classNames[i] = readString(buffer);
+                classSources[i] = sourceIndex[i] < 0 ? null : sourceFiles[sourceIndex[i]];
+                if (moduleIndex[i] >= 0) {
+                    classModules.put(classNames[i], modules[moduleIndex[i]]);
+                }
+            }
+            // 保存时已按快照顺序写出，直接使用各列；顺序不符（例如排序规则变化）时退回 Builder
+            CoverageSnapshot snapshot = CoverageSnapshot.fromSortedColumns(classNames, classIds, classSources,
+                missed, covered);
+            if (snapshot == null) {
+                snapshot = rebuild(classNames, classIds, classSources, missed, covered);
+            }
+            return CoverageResult.restored(version, createdAt, sessionName.isEmpty() ? null : sessionName, snapshot,
+                CoverageRollup.build(snapshot, classModules));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // 截断或损坏的文件当作没有保存过
+            return null;
+        }
+    }
+
+    private static CoverageSnapshot rebuild(String[] classNames, long[] classIds, String[] classSources,
+                                            int[][] missed, int[][] covered) {
+        CoverageSnapshot.Builder builder = new CoverageSnapshot.Builder();
+        int[] classMissed = new int[ENTITIES.length];
+        int[] classCovered = new int[ENTITIES.length];
+        for (int i = 0; i < classNames.length; i++) {
+            for (int e = 0; e < ENTITIES.length; e++) {
+                classMissed[e] = missed[e][i];
+                classCovered[e] = covered[e][i];
+            }
+            builder.add(classNames[i], classIds[i], classSources[i], classMissed, classCovered);
+        }
+        return builder.build();
+    }
+
+    void clear() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream out, Iterable<String> values) throws IOException {
+        List<String> list = new ArrayList<>();
+        values.forEach(list::add);
+        out.writeInt(list.size());
+        for (String value : list) {
+            writeString(out, value);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 2) {
+            throw new IllegalArgumentException("字符串表长度无效: " + count);
+        }
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = readString(buffer);
+        }
+        return values;
+    }
+
+    /**
+     * 字符串写成 2 字节长度 + UTF-8 字节（与 writeUTF 不同，使用标准 UTF-8）
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IOException("字符串过长: " + value.substring(0, 64));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
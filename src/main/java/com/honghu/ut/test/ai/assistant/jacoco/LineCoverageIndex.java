@@ -0,0 +1,135 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+
+import java.util.Collection;
+
+/**
+ * 单个源文件的行覆盖率索引
+ * 每行用 2 位保存覆盖状态，一个 long 存 32 行，10000 行的文件只占约 2.5KB
+ *
+ * 功能：
+ * - 状态值直接使用 ICounter 的常量：EMPTY、NOT_COVERED、FULLY_COVERED、PARTLY_COVERED
+ * - 同一源文件中的多个类（内部类、匿名类）合并到同一个索引
+ * - 按行区间遍历，编辑器只查询可见范围
+ */
+public final class LineCoverageIndex {
+    public static final LineCoverageIndex EMPTY = new LineCoverageIndex(0, -1, new long[0], 0);
+
+    private static final int LINES_PER_WORD = 32;
+
+    private final int firstLine;
+    private final int lastLine;
+    private final long[] bits;
+    private final long version;
+
+    private LineCoverageIndex(int firstLine, int lastLine, long[] bits, long version) {
+        this.firstLine = firstLine;
+        this.lastLine = lastLine;
+        this.bits = bits;
+        this.version = version;
+    }
+
+    /**
+     * 由同一源文件的类覆盖率（需含行级明细）构建索引
+     *
+     * @param version 索引对应的分析结果版本，用于判断是否需要重建
+     */
+    public static LineCoverageIndex build(Collection<IClassCoverage> classes, long version) {
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (IClassCoverage classCoverage : classes) {
+            // 没有调试信息的类行号为 -1
+            if (classCoverage.getFirstLine() > 0) {
+                first = Math.min(first, classCoverage.getFirstLine());
+                last = Math.max(last, classCoverage.getLastLine());
+            }
+        }
+        if (last < 0) {
+            return new LineCoverageIndex(0, -1, new long[0], version);
+        }
+        long[] bits = new long[(last - first) / LINES_PER_WORD + 1];
+        for (IClassCoverage classCoverage : classes) {
+            if (classCoverage.getFirstLine() <= 0) {
+                continue;
+            }
+            for (int line = classCoverage.getFirstLine(); line <= classCoverage.getLastLine(); line++) {
+                int status = classCoverage.getLine(line).getStatus();
+                if (status != ICounter.EMPTY) {
+                    int offset = line - first;
+                    int shift = (offset % LINES_PER_WORD) * 2;
+                    int merged = merge((int) (bits[offset / LINES_PER_WORD] >>> shift) & 3, status);
+                    bits[offset / LINES_PER_WORD] = (bits[offset / LINES_PER_WORD] & ~(3L << shift)) | ((long) merged << shift);
+                }
+            }
+        }
+        return new LineCoverageIndex(first, last, bits, version);
+    }
+
+    /**
+     * 同一行出现在多个类中时合并状态（与 JaCoCo 合并计数器的规则一致）
+     */
+    private static int merge(int existing, int status) {
+        if (existing == ICounter.EMPTY || existing == status) {
+            return status;
+        }
+        return ICounter.PARTLY_COVERED;
+    }
+
+    /**
+     * 行的覆盖状态（行号从 1 开始），没有代码的行返回 ICounter.EMPTY
+     */
+    public int getStatus(int line) {
+        if (line < firstLine || line > lastLine) {
+            return ICounter.EMPTY;
+        }
+        int offset = line - firstLine;
+        return (int) (bits[offset / LINES_PER_WORD] >>> ((offset % LINES_PER_WORD) * 2)) & 3;
+    }
+
+    public int getFirstLine() {
+        return firstLine;
+    }
+
+    public int getLastLine() {
+        return lastLine;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return bits.length == 0;
+    }
+
+    /**
+     * 遍历 [fromLine, toLine] 中有代码的行，整字为 0 的 32 行直接跳过
+     */
+    public void forEachLine(int fromLine, int toLine, LineVisitor visitor) {
+        int from = Math.max(fromLine, firstLine);
+        int to = Math.min(toLine, lastLine);
+        int line = from;
+        while (line <= to) {
+            int offset = line - firstLine;
+            long word = bits[offset / LINES_PER_WORD];
+            if (word == 0) {
+                line += LINES_PER_WORD - offset % LINES_PER_WORD;
+                continue;
+            }
+            int status = (int) (word >>> ((offset % LINES_PER_WORD) * 2)) & 3;
+            if (status != ICounter.EMPTY) {
+                visitor.visit(line, status);
+            }
+            line++;
+        }
+    }
+
+    /**
+     * 行访问者
+     */
+    public interface LineVisitor {
+        void visit(int line, int status);
+    }
+}
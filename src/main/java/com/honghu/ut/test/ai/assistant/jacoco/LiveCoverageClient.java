@@ -0,0 +1,246 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JaCoCo 实时覆盖率客户端
+ * 通过 JaCoCo 远程控制协议定时从运行中的 JVM 拉取探针数据
+ *
+ * 功能：
+ * - 连接模式：连接到以 output=tcpserver 启动的代理
+ * - 监听模式：在本机端口上等待以 output=tcpclient 启动的代理连接，可同时接入多个 JVM
+ * - 按固定间隔发送转储命令，可选在转储后重置代理端的探针
+ * - 每个连接在独立线程中读取数据，收到一次完整转储（或代理退出前的最后一次转储）后回调监听器
+ * - 连接模式下连接断开后在下一次转储时自动重连
+ */
+public class LiveCoverageClient {
+    private static final Logger LOG = Logger.getInstance(LiveCoverageClient.class);
+    private static final int CONNECT_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * 收到转储数据时的回调，可能在多个连接线程中被调用
+     */
+    public interface Listener {
+        void onDump(ExecutionDataStore executionData, SessionInfoStore sessionInfos);
+
+        default void onError(Exception e) {
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final boolean listen;
+    private final boolean resetOnDump;
+    private final Listener listener;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    /**
+     * @param listen      true 表示监听端口等待代理连接，false 表示主动连接代理
+     * @param resetOnDump 转储后重置代理的探针，此时每次收到的是两次转储之间的增量
+     */
+    public LiveCoverageClient(String host, int port, boolean listen, boolean resetOnDump, Listener listener) {
+        this.host = host;
+        this.port = port;
+        this.listen = listen;
+        this.resetOnDump = resetOnDump;
+        this.listener = listener;
+    }
+
+    /**
+     * 启动定时转储
+     */
+    public synchronized void start(long intervalMillis) throws IOException {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduler = Executors.newScheduledThreadPool(1, runnable -> {
+            Thread thread = new Thread(runnable, "UT Assistant live coverage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (listen) {
+            serverSocket = new ServerSocket(port, 0, InetAddress.getByName(host));
+            scheduler.execute(this::acceptLoop);
+        }
+        scheduler.scheduleWithFixedDelay(this::scheduledDump, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 定时任务抛出异常后不会再被调度，这里把异常交给监听器，保证后续转储继续进行
+     */
+    private void scheduledDump() {
+        try {
+            requestDump();
+        } catch (RuntimeException e) {
+            listener.onError(e);
+        }
+    }
+
+    /**
+     * 停止定时转储并关闭所有连接
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverSocket);
+        serverSocket = null;
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 当前已建立的连接数
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * 立即向所有连接发送一次转储命令
+     */
+    public void requestDump() {
+        if (!running) {
+            return;
+        }
+        if (!listen && connections.isEmpty()) {
+            connect();
+        }
+        for (Connection connection : connections) {
+            try {
+                connection.requestDump(resetOnDump);
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+    }
+
+    private void connect() {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            open(socket);
+        } catch (IOException e) {
+            closeQuietly(socket);
+            listener.onError(new IOException("无法连接 JaCoCo 代理 " + host + ":" + port + "，请确认代理以 output=tcpserver 启动", e));
+        }
+    }
+
+    private void acceptLoop() {
+        ServerSocket server = serverSocket;
+        while (running && server != null && !server.isClosed()) {
+            try {
+                open(server.accept());
+            } catch (IOException e) {
+                if (running) {
+                    listener.onError(e);
+                }
+            }
+        }
+    }
+
+    private void open(Socket socket) throws IOException {
+        Connection connection = new Connection(socket);
+        connections.add(connection);
+        Thread reader = new Thread(connection::readLoop, "UT Assistant live coverage " + socket.getRemoteSocketAddress());
+        reader.setDaemon(true);
+        reader.start();
+        LOG.info("已连接 JaCoCo 代理: " + socket.getRemoteSocketAddress());
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // 忽略关闭错误
+        }
+    }
+
+    /**
+     * 与单个代理的连接，读取线程把两次 CMDOK 之间收到的数据作为一次转储交给监听器
+     */
+    private final class Connection {
+        private final Socket socket;
+        private final RemoteControlWriter writer;
+        private final RemoteControlReader reader;
+        private ExecutionDataStore executionData = new ExecutionDataStore();
+        private SessionInfoStore sessionInfos = new SessionInfoStore();
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.writer = new RemoteControlWriter(socket.getOutputStream());
+            this.reader = new RemoteControlReader(socket.getInputStream());
+            reader.setExecutionDataVisitor(data -> executionData.put(data));
+            reader.setSessionInfoVisitor(info -> sessionInfos.visitSessionInfo(info));
+        }
+
+        synchronized void requestDump(boolean reset) throws IOException {
+            writer.visitDumpCommand(true, reset);
+        }
+
+        void readLoop() {
+            try {
+                // read() 读到 CMDOK 时返回 true，连接结束时返回 false
+                while (reader.read()) {
+                    deliver();
+                }
+                // 代理退出前会发送最后一次数据
+                deliver();
+            } catch (IOException e) {
+                if (running && !socket.isClosed()) {
+                    listener.onError(e);
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private void deliver() {
+            if (executionData.getContents().isEmpty()) {
+                return;
+            }
+            ExecutionDataStore dumped = executionData;
+            SessionInfoStore dumpedInfos = sessionInfos;
+            executionData = new ExecutionDataStore();
+            sessionInfos = new SessionInfoStore();
+            listener.onDump(dumped, dumpedInfos);
+        }
+
+        void close() {
+            connections.remove(this);
+            closeQuietly(socket);
+        }
+    }
+}
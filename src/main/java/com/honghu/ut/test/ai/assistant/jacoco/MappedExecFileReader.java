@@ -0,0 +1,271 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.util.io.ByteBufferUtil;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 基于内存映射的 exec 文件读取器
+ * 直接在 FileChannel.map 的映射区上解析 JaCoCo exec 数据块
+ *
+ * 功能：
+ * - 按窗口分段映射，支持超过 2GB 的 exec 文件
+ * - 读取时按类名过滤，被过滤的类不会在堆上创建探针数组
+ * - 兼容多个 exec 文件直接拼接的格式（中间可以出现多个文件头）
+ */
+public class MappedExecFileReader {
+    private static final long WINDOW_SIZE = 256L << 20;   // 每次映射 256MB
+
+    private final Path file;
+    private final long windowSize;
+    private Predicate<String> classFilter;
+    private ISessionInfoVisitor sessionInfoVisitor;
+    private IExecutionDataVisitor executionDataVisitor;
+
+    private FileChannel channel;
+    private long fileSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    private int acceptedClasses;
+    private int skippedClasses;
+
+    public MappedExecFileReader(Path file) {
+        this(file, WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize 每次映射的字节数（测试中用很小的窗口覆盖跨窗口边界的读取）
+     */
+    MappedExecFileReader(Path file, long windowSize) {
+        this.file = file;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * 设置类名过滤器（JVM 内部名，例如 com/foo/Bar），为空表示读取全部
+     */
+    public void setClassFilter(@Nullable Predicate<String> classFilter) {
+        this.classFilter = classFilter;
+    }
+
+    public void setSessionInfoVisitor(ISessionInfoVisitor sessionInfoVisitor) {
+        this.sessionInfoVisitor = sessionInfoVisitor;
+    }
+
+    public void setExecutionDataVisitor(IExecutionDataVisitor executionDataVisitor) {
+        this.executionDataVisitor = executionDataVisitor;
+    }
+
+    public int getAcceptedClasses() {
+        return acceptedClasses;
+    }
+
+    public int getSkippedClasses() {
+        return skippedClasses;
+    }
+
+    /**
+     * 读取整个文件，把会话和执行数据交给对应的访问者
+     */
+    public void read() throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel = fileChannel;
+            fileSize = fileChannel.size();
+            windowStart = 0;
+            window = null;
+            while (position() < fileSize) {
+                byte blockType = readByte();
+                switch (blockType) {
+                    case ExecutionDataWriter.BLOCK_HEADER:
+                        readHeader();
+                        break;
+                    case ExecutionDataWriter.BLOCK_SESSIONINFO:
+                        readSessionInfo();
+                        break;
+                    case ExecutionDataWriter.BLOCK_EXECUTIONDATA:
+                        readExecutionData();
+                        break;
+                    default:
+                        throw new IOException(String.format("exec 文件 %s 中存在未知数据块类型 %x", file, blockType));
+                }
+            }
+        } finally {
+            releaseWindow();
+            channel = null;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        if (readChar() != ExecutionDataWriter.MAGIC_NUMBER) {
+            throw new IOException("不是有效的 JaCoCo exec 文件: " + file);
+        }
+        char version = readChar();
+        if (version != ExecutionDataWriter.FORMAT_VERSION) {
+            throw new IOException(String.format("不兼容的 exec 文件版本 0x%x: %s", (int) version, file));
+        }
+    }
+
+    private void readSessionInfo() throws IOException {
+        String id = readUTF();
+        long start = readLong();
+        long dump = readLong();
+        if (sessionInfoVisitor != null) {
+            sessionInfoVisitor.visitSessionInfo(new SessionInfo(id, start, dump));
+        }
+    }
+
+    private void readExecutionData() throws IOException {
+        long id = readLong();
+        String name = readUTF();
+        int probeCount = readVarInt();
+        int byteCount = (probeCount + 7) >>> 3;
+        if (executionDataVisitor == null || (classFilter != null && !classFilter.test(name))) {
+            // 直接跳过探针数据，不在堆上创建数组
+            skip(byteCount);
+            skippedClasses++;
+            return;
+        }
+        boolean[] probes = new boolean[probeCount];
+        ensure(byteCount);
+        int buffer = 0;
+        for (int i = 0; i < probeCount; i++) {
+            if ((i & 7) == 0) {
+                buffer = window.get();
+            }
+            probes[i] = (buffer & 0x01) != 0;
+            buffer >>>= 1;
+        }
+        acceptedClasses++;
+        executionDataVisitor.visitClassExecution(new ExecutionData(id, name, probes));
+    }
+
+    // ---------------------------------------------------------------- 映射窗口上的基础读取
+
+    private long position() {
+        return window == null ? windowStart : windowStart + window.position();
+    }
+
+    /**
+     * 确保当前窗口中至少还有 n 个字节，不足时从当前位置重新映射
+     */
+    private void ensure(int n) throws IOException {
+        if (window != null && window.remaining() >= n) {
+            return;
+        }
+        long pos = position();
+        if (pos + n > fileSize) {
+            throw new EOFException("exec 文件意外结束: " + file);
+        }
+        releaseWindow();
+        long size = Math.min(Math.max(windowSize, n), fileSize - pos);
+        windowStart = pos;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+    }
+
+    private void skip(int n) throws IOException {
+        if (window != null && window.remaining() >= n) {
+            window.position(window.position() + n);
+            return;
+        }
+        long target = position() + n;
+        if (target > fileSize) {
+            throw new EOFException("exec 文件意外结束: " + file);
+        }
+        releaseWindow();
+        windowStart = target;
+    }
+
+    private void releaseWindow() {
+        if (window != null) {
+            // 及时解除映射，避免 Windows 上文件被锁定导致构建工具无法覆盖 exec 文件
+            ByteBufferUtil.cleanBuffer(window);
+            window = null;
+        }
+    }
+
+    private byte readByte() throws IOException {
+        ensure(1);
+        return window.get();
+    }
+
+    private char readChar() throws IOException {
+        ensure(2);
+        return window.getChar();
+    }
+
+    private long readLong() throws IOException {
+        ensure(8);
+        return window.getLong();
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0xFF & readByte();
+        if ((value & 0x80) == 0) {
+            return value;
+        }
+        return (value & 0x7F) | (readVarInt() << 7);
+    }
+
+    /**
+     * 按 DataInput.readUTF 的修改版 UTF-8 格式解码
+     */
+    private String readUTF() throws IOException {
+        ensure(2);
+        int length = window.getShort() & 0xFFFF;
+        ensure(length);
+        char[] chars = new char[length];
+        int count = 0;
+        int end = window.position() + length;
+        while (window.position() < end) {
+            int c = window.get() & 0xFF;
+            if (c < 0x80) {
+                chars[count++] = (char) c;
+            } else if ((c & 0xE0) == 0xC0) {
+                int c2 = window.get() & 0x3F;
+                chars[count++] = (char) (((c & 0x1F) << 6) | c2);
+            } else {
+                int c2 = window.get() & 0x3F;
+                int c3 = window.get() & 0x3F;
+                chars[count++] = (char) (((c & 0x0F) << 12) | (c2 << 6) | c3);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * 根据待分析的类文件构造类名预过滤器
+     * 按简单类名（含内部类后缀）匹配，精确匹配由分析时的 classId 保证
+     *
+     * @return 类名预过滤器；待分析的路径中有归档时，归档内的类名要展开后才知道，返回 null 表示不预过滤
+     */
+    public static @Nullable Predicate<String> simpleNameFilter(Collection<String> classFilePaths) {
+        Set<String> simpleNames = new HashSet<>(classFilePaths.size() * 2);
+        for (String path : classFilePaths) {
+            if (ArchiveEntries.isArchive(path) || ArchiveEntries.isEntry(path)) {
+                return null;
+            }
+            String fileName = new File(path).getName();
+            if (fileName.endsWith(".class")) {
+                simpleNames.add(fileName.substring(0, fileName.length() - ".class".length()));
+            }
+        }
+        return name -> simpleNames.contains(name.substring(name.lastIndexOf('/') + 1));
+    }
+}
@@ -0,0 +1,437 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 模块输出目录解析器
+ * 根据 IntelliJ 模块模型建立源码根到编译输出目录的索引
+ *
+ * 功能：
+ * - 读取每个模块 CompilerModuleExtension 中的生产、测试输出路径
+ * - 构建委托给 Gradle / Maven 时，按构建工具的约定补充输出目录
+ * - 将选中的源码目录映射到输出目录中对应的包子目录，避免扫描整个项目
+ * - 模块模型变化（ProjectRootManager 修改计数变化）时自动重建索引
+ * - 给出类目录对应的包路径，供类过滤器在发现阶段按包剪枝
+ * - 给出项目的运行时类路径和测试输出目录，供进程内运行测试
+ * - 给出各模块的构建根目录，查找 exec 文件时只查看这些目录下的构建输出
+ */
+public class ModuleOutputResolver {
+    private static final String[] PRODUCTION_CONVENTIONS = {
+        "build/classes/java/main", "build/classes/kotlin/main", "target/classes"
+    };
+    private static final String[] TEST_CONVENTIONS = {
+        "build/classes/java/test", "build/classes/kotlin/test", "target/test-classes"
+    };
+    private static final String[] BUILD_FILES = {"build.gradle", "build.gradle.kts", "pom.xml"};
+
+    private final Project project;
+    private volatile List<SourceRootMapping> mappings;
+    private volatile long mappingsStamp = -1;
+
+    public ModuleOutputResolver(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * 将选中的路径解析为需要分析的类目录
+     * - 源码根或其子目录：映射为输出目录中对应的包目录
+     * - 输出目录或其子目录：直接使用
+     * - 模块或项目目录：包含的所有生产源码根的输出目录
+     * 模块模型中没有匹配项时返回空列表，由调用方决定是否回退到扫描
+     */
+    public List<String> resolveClassDirectories(String selectedPath) {
+        Path selected = Paths.get(selectedPath).toAbsolutePath().normalize();
+        List<SourceRootMapping> current = getMappings();
+        Set<String> classDirs = new LinkedHashSet<>();
+
+        for (SourceRootMapping mapping : current) {
+            if (selected.startsWith(mapping.getSourceRoot())) {
+                Path relative = mapping.getSourceRoot().relativize(selected);
+                for (Path outputRoot : mapping.getExistingOutputRoots()) {
+                    Path packageDir = outputRoot.resolve(relative);
+                    if (Files.isDirectory(packageDir)) {
+                        classDirs.add(packageDir.toString());
+                    }
+                }
+            }
+        }
+        if (!classDirs.isEmpty()) {
+            return new ArrayList<>(classDirs);
+        }
+
+        for (SourceRootMapping mapping : current) {
+            for (Path outputRoot : mapping.getOutputRoots()) {
+                if (selected.startsWith(outputRoot)) {
+                    return List.of(selected.toString());
+                }
+            }
+        }
+
+        for (SourceRootMapping mapping : current) {
+            if (!mapping.isTest() && mapping.getSourceRoot().startsWith(selected)) {
+                for (Path outputRoot : mapping.getExistingOutputRoots()) {
+                    classDirs.add(outputRoot.toString());
+                }
+            }
+        }
+        return new ArrayList<>(classDirs);
+    }
+
+    /**
+     * 所有模块的生产代码输出目录（仅包含已存在的目录）
+     */
+    public List<String> getProductionOutputDirectories() {
+        Set<String> classDirs = new LinkedHashSet<>();
+        for (SourceRootMapping mapping : getMappings()) {
+            if (!mapping.isTest()) {
+                for (Path outputRoot : mapping.getExistingOutputRoots()) {
+                    classDirs.add(outputRoot.toString());
+                }
+            }
+        }
+        return new ArrayList<>(classDirs);
+    }
+
+    /**
+     * 各模块的构建根目录（包含 build.gradle / pom.xml 的目录），用于在构建输出目录中查找 exec 文件
+     */
+    public List<String> getBuildRoots() {
+        Set<String> buildRoots = new LinkedHashSet<>();
+        for (SourceRootMapping mapping : getMappings()) {
+            Path buildRoot = findBuildRoot(mapping.getSourceRoot());
+            if (buildRoot != null) {
+                buildRoots.add(buildRoot.toString());
+            }
+        }
+        return new ArrayList<>(buildRoots);
+    }
+
+    /**
+     * 测试输出目录（仅包含已存在的目录）
+     * 选中的目录不在任何源码根下时（例如模块目录）只返回其中的模块的测试输出，没有时返回所有模块的
+     */
+    public List<String> getTestOutputDirectories(@Nullable String scopePath) {
+        Path scope = scopePath == null || findMapping(scopePath) != null ? null
+            : Paths.get(scopePath).toAbsolutePath().normalize();
+        Set<String> all = new LinkedHashSet<>();
+        Set<String> inScope = new LinkedHashSet<>();
+        for (SourceRootMapping mapping : getMappings()) {
+            if (mapping.isTest()) {
+                for (Path outputRoot : mapping.getExistingOutputRoots()) {
+                    all.add(outputRoot.toString());
+                    if (scope != null && mapping.getSourceRoot().startsWith(scope)) {
+                        inScope.add(outputRoot.toString());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(inScope.isEmpty() ? all : inScope);
+    }
+
+    /**
+     * 把输出目录按所属模块分组，模块按依赖顺序排列（被依赖的模块在前），同一模块的生产和测试输出在一组
+     * 不属于任何模块输出的目录（例如资源目录）放在最前面的一组
+     */
+    public List<List<String>> groupByModule(List<String> directories) {
+        Map<Path, String> moduleOfOutput = new HashMap<>();
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (SourceRootMapping mapping : getMappings()) {
+            groups.putIfAbsent(mapping.getModuleName(), new ArrayList<>());
+            for (Path outputRoot : mapping.getOutputRoots()) {
+                moduleOfOutput.putIfAbsent(outputRoot, mapping.getModuleName());
+            }
+        }
+        List<String> other = new ArrayList<>();
+        for (String directory : directories) {
+            String module = moduleOfOutput.get(Paths.get(directory).toAbsolutePath().normalize());
+            (module == null ? other : groups.get(module)).add(directory);
+        }
+        List<List<String>> result = new ArrayList<>();
+        if (!other.isEmpty()) {
+            result.add(other);
+        }
+        for (List<String> group : groups.values()) {
+            if (!group.isEmpty()) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 项目所有模块的运行时类路径（输出目录和依赖库，不含 JDK）
+     */
+    public List<String> getRuntimeClasspath() {
+        return ApplicationManager.getApplication().runReadAction(this::collectRuntimeClasspath);
+    }
+
+    private List<String> collectRuntimeClasspath() {
+        return new ArrayList<>(OrderEnumerator.orderEntries(project).withoutSdk().recursively()
+            .getPathsList().getPathList());
+    }
+
+    /**
+     * 源码根下目录对应的包名（点分格式，源码根本身为空串），不在任何源码根下时返回 null
+     */
+    public @Nullable String getDirectoryPackageName(String directoryPath) {
+        SourceRootMapping mapping = findMapping(directoryPath);
+        if (mapping == null) {
+            return null;
+        }
+        Path relative = mapping.getSourceRoot().relativize(Paths.get(directoryPath).toAbsolutePath().normalize());
+        StringBuilder packageName = new StringBuilder();
+        for (Path part : relative) {
+            if (part.toString().isEmpty()) {
+                continue;
+            }
+            if (packageName.length() > 0) {
+                packageName.append('.');
+            }
+            packageName.append(part);
+        }
+        return packageName.toString();
+    }
+
+    /**
+     * 查找包含指定路径的源码根，源码根嵌套时取最内层的一个，找不到时返回 null
+     */
+    public @Nullable SourceRootMapping findMapping(String path) {
+        Path target = Paths.get(path).toAbsolutePath().normalize();
+        SourceRootMapping best = null;
+        for (SourceRootMapping mapping : getMappings()) {
+            if (target.startsWith(mapping.getSourceRoot())
+                && (best == null || mapping.getSourceRoot().getNameCount() > best.getSourceRoot().getNameCount())) {
+                best = mapping;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按类文件所在的输出目录确定类所属的模块
+     * 返回 JVM 内部类名到模块名的映射，不在任何已知输出目录下的类文件不包含在结果中
+     */
+    public Map<String, String> mapClassesToModules(List<String> classFilePaths) {
+        List<String[]> roots = new ArrayList<>();   // {以 / 结尾的输出目录, 模块名}
+        for (SourceRootMapping mapping : getMappings()) {
+            for (Path outputRoot : mapping.getOutputRoots()) {
+                roots.add(new String[]{outputRoot.toString().replace('\\', '/') + "/", mapping.getModuleName()});
+            }
+        }
+        // 输出目录嵌套时优先匹配更深的目录
+        roots.sort((a, b) -> Integer.compare(b[0].length(), a[0].length()));
+
+        Map<String, String> classModules = new HashMap<>(classFilePaths.size() * 4 / 3 + 1);
+        for (String classFilePath : classFilePaths) {
+            String path = classFilePath.replace('\\', '/');
+            if (!path.endsWith(".class")) {
+                continue;
+            }
+            for (String[] root : roots) {
+                if (path.startsWith(root[0])) {
+                    classModules.put(path.substring(root[0].length(), path.length() - ".class".length()), root[1]);
+                    break;
+                }
+            }
+        }
+        return classModules;
+    }
+
+    /**
+     * 类目录相对于所在输出目录的包路径（JVM 格式，以 / 结尾，输出目录本身为空串）
+     * 不在任何已知输出目录下时返回 null
+     */
+    public @Nullable String getPackagePath(String classDir) {
+        String dir = classDir.replace('\\', '/');
+        if (dir.endsWith("/")) {
+            dir = dir.substring(0, dir.length() - 1);
+        }
+        String best = null;
+        for (SourceRootMapping mapping : getMappings()) {
+            for (Path outputRoot : mapping.getOutputRoots()) {
+                String root = outputRoot.toString().replace('\\', '/');
+                String packagePath;
+                if (dir.equals(root)) {
+                    packagePath = "";
+                } else if (dir.startsWith(root + "/")) {
+                    packagePath = dir.substring(root.length() + 1) + "/";
+                } else {
+                    continue;
+                }
+                // 输出目录嵌套时取最深的一个，即最短的包路径
+                if (best == null || packagePath.length() < best.length()) {
+                    best = packagePath;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 源码根到输出目录的索引
+     */
+    public List<SourceRootMapping> getMappings() {
+        long stamp = ProjectRootManager.getInstance(project).getModificationCount();
+        List<SourceRootMapping> current = mappings;
+        if (current == null || stamp != mappingsStamp) {
+            current = ApplicationManager.getApplication().runReadAction(this::buildMappings);
+            mappings = current;
+            mappingsStamp = stamp;
+        }
+        return current;
+    }
+
+    private List<SourceRootMapping> buildMappings() {
+        List<SourceRootMapping> result = new ArrayList<>();
+        if (project.isDisposed()) {
+            return result;
+        }
+        // 按依赖排序，被依赖的模块在前
+        for (Module module : ModuleManager.getInstance(project).getSortedModules()) {
+            ModuleRootManager rootManager = ModuleRootManager.getInstance(module);
+            CompilerModuleExtension compilerExtension = CompilerModuleExtension.getInstance(module);
+            Path productionOutput = toPath(compilerExtension == null ? null : compilerExtension.getCompilerOutputUrl());
+            Path testOutput = toPath(compilerExtension == null ? null : compilerExtension.getCompilerOutputUrlForTests());
+
+            Set<VirtualFile> productionRoots = new HashSet<>(List.of(rootManager.getSourceRoots(false)));
+            for (VirtualFile sourceRoot : rootManager.getSourceRoots(true)) {
+                boolean test = !productionRoots.contains(sourceRoot);
+                Path sourcePath = Paths.get(sourceRoot.getPath()).toAbsolutePath().normalize();
+                List<Path> conventionalRoots = new ArrayList<>();
+                Path buildRoot = findBuildRoot(sourcePath);
+                if (buildRoot != null) {
+                    for (String convention : test ? TEST_CONVENTIONS : PRODUCTION_CONVENTIONS) {
+                        conventionalRoots.add(buildRoot.resolve(convention));
+                    }
+                }
+                result.add(new SourceRootMapping(module.getName(), sourcePath,
+                    test ? testOutput : productionOutput, conventionalRoots, test));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static @Nullable Path toPath(@Nullable String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        return Paths.get(VfsUtilCore.urlToPath(url)).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 从源码根向上查找包含构建文件的目录（Gradle 按源码集拆分模块时内容根不是构建根）
+     */
+    private static @Nullable Path findBuildRoot(Path sourceRoot) {
+        for (Path dir = sourceRoot.getParent(); dir != null; dir = dir.getParent()) {
+            for (String buildFile : BUILD_FILES) {
+                if (Files.isRegularFile(dir.resolve(buildFile))) {
+                    return dir;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 单个源码根与其输出目录
+     */
+    public static final class SourceRootMapping {
+        private final String moduleName;
+        private final Path sourceRoot;
+        private final Path ideOutputRoot;
+        private final List<Path> conventionalRoots;
+        private final boolean test;
+
+        SourceRootMapping(String moduleName, Path sourceRoot, @Nullable Path ideOutputRoot,
+                          List<Path> conventionalRoots, boolean test) {
+            this.moduleName = moduleName;
+            this.sourceRoot = sourceRoot;
+            this.ideOutputRoot = ideOutputRoot;
+            this.conventionalRoots = Collections.unmodifiableList(conventionalRoots);
+            this.test = test;
+        }
+
+        public String getModuleName() {
+            return moduleName;
+        }
+
+        public Path getSourceRoot() {
+            return sourceRoot;
+        }
+
+        /**
+         * 全部候选输出目录（IDE 输出目录在前，构建工具约定目录在后）
+         */
+        public List<Path> getOutputRoots() {
+            List<Path> outputRoots = new ArrayList<>(conventionalRoots.size() + 1);
+            if (ideOutputRoot != null) {
+                outputRoots.add(ideOutputRoot);
+            }
+            outputRoots.addAll(conventionalRoots);
+            return outputRoots;
+        }
+
+        /**
+         * 当前实际使用的输出目录
+         * IDE 自己编译时只用 IDE 输出目录，避免与构建工具的输出重复分析同一个类；
+         * 构建委托给构建工具（IDE 输出目录就是约定目录之一）或 IDE 输出不存在时，使用所有已存在的约定目录
+         */
+        public List<Path> getExistingOutputRoots() {
+            if (ideOutputRoot != null && !conventionalRoots.contains(ideOutputRoot) && Files.isDirectory(ideOutputRoot)) {
+                return List.of(ideOutputRoot);
+            }
+            List<Path> existing = new ArrayList<>(conventionalRoots.size());
+            for (Path outputRoot : conventionalRoots) {
+                if (Files.isDirectory(outputRoot)) {
+                    existing.add(outputRoot);
+                }
+            }
+            return existing;
+        }
+
+        public boolean isTest() {
+            return test;
+        }
+
+        /**
+         * 源码根下源文件所属的包名（点分格式），直接位于源码根下时为 default，与快照中的包名一致
+         */
+        public String getPackageName(String sourceFilePath) {
+            Path relativeDir = sourceRoot.relativize(Paths.get(sourceFilePath).toAbsolutePath().normalize()).getParent();
+            if (relativeDir == null) {
+                return "default";
+            }
+            StringBuilder packageName = new StringBuilder();
+            for (Path part : relativeDir) {
+                if (packageName.length() > 0) {
+                    packageName.append('.');
+                }
+                packageName.append(part);
+            }
+            return packageName.toString();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 并行类文件分析器
+ * 将类文件列表分片后在 ForkJoin 线程池中并行分析
+ *
+ * 功能：
+ * - 每个分片使用独立的 Analyzer 和覆盖率访问者，线程间不共享可变状态
+ * - 按分片顺序和类名合并结果，保证输出与调度无关
+ * - 响应 ProgressIndicator 的取消操作并汇报真实进度
+ * - 可选地复用 ClassAnalysisCache 中未变化的类，只重新分析变化的类
+ * - 轻量模式下用 SummarizingCoverageVisitor 汇总，不保留完整的类覆盖率树
+ * - JAR 等归档先展开为条目再分片，同一归档内的类也并行分析，条目直接从归档流式读取，不解压
+ * - 单元分析器也供 AnalysisPipeline 的分析线程使用
+ * - 按 ClassFilter 过滤：归档条目在展开时过滤，带排除注解的类在读取类文件头后跳过，不进入分析
+ */
+public class ParallelClassAnalyzer {
+    private static final int MIN_SHARD_SIZE = 64;   // 单个分片的最小类文件数
+    private static final int SHARDS_PER_WORKER = 4; // 每个线程分到的分片数，用于负载均衡
+
+    private final int parallelism;
+    private final ClassAnalysisCache cache;
+    private final ClassFilter classFilter;
+
+    public ParallelClassAnalyzer(int parallelism) {
+        this(parallelism, null);
+    }
+
+    public ParallelClassAnalyzer(int parallelism, @Nullable ClassAnalysisCache cache) {
+        this(parallelism, cache, ClassFilter.ALL);
+    }
+
+    public ParallelClassAnalyzer(int parallelism, @Nullable ClassAnalysisCache cache, ClassFilter classFilter) {
+        this.parallelism = Math.max(1, parallelism);
+        this.cache = cache;
+        this.classFilter = classFilter;
+    }
+
+    /**
+     * 并行分析类文件，返回合并后的覆盖率构建器
+     * 命中缓存的类只有类级计数器，没有方法和行信息
+     *
+     * @param classFilePaths      类文件（或目录、归档）路径
+     * @param executionDataStore  执行数据，分析期间只读
+     * @param indicator           进度指示器，可为空
+     */
+    public CoverageBuilder analyze(List<String> classFilePaths,
+                                   ExecutionDataStore executionDataStore,
+                                   @Nullable ProgressIndicator indicator) throws IOException {
+        return analyze(classFilePaths, executionDataStore, null, indicator);
+    }
+
+    /**
+     * 并行分析类文件，detailFilter 接受的类不使用缓存，保证带有完整的方法和行信息
+     *
+     * @param detailFilter 需要完整明细的类（JVM 内部名），可为空
+     */
+    public CoverageBuilder analyze(List<String> classFilePaths,
+                                   ExecutionDataStore executionDataStore,
+                                   @Nullable Predicate<String> detailFilter,
+                                   @Nullable ProgressIndicator indicator) throws IOException {
+        return merge(runShards(classFilePaths, executionDataStore, CoverageBuilder::new, detailFilter, indicator));
+    }
+
+    /**
+     * 轻量模式：并行分析类文件，每个类访问后立即折叠为类级计数器
+     * 只有 detailFilter 接受的类保留行级明细，且这些类不使用缓存
+     *
+     * @param detailFilter 需要保留行级明细的类（JVM 内部名），可为空
+     */
+    public SummarizingCoverageVisitor analyzeSummary(List<String> classFilePaths,
+                                                     ExecutionDataStore executionDataStore,
+                                                     @Nullable Predicate<String> detailFilter,
+                                                     @Nullable ProgressIndicator indicator) throws IOException {
+        List<SummarizingCoverageVisitor> shards = runShards(classFilePaths, executionDataStore,
+            () -> new SummarizingCoverageVisitor(detailFilter), detailFilter, indicator);
+        return SummarizingCoverageVisitor.merge(shards, detailFilter);
+    }
+
+    /**
+     * 分片并行执行，每个分片使用 visitorFactory 创建的独立访问者
+     */
+    private <V extends ICoverageVisitor> List<V> runShards(List<String> classFilePaths,
+                                                           ExecutionDataStore executionDataStore,
+                                                           Supplier<V> visitorFactory,
+                                                           @Nullable Predicate<String> detailFilter,
+                                                           @Nullable ProgressIndicator indicator) throws IOException {
+        // 归档展开为条目后再分片，一个大归档可以分到多个线程
+        List<String> units = ArchiveEntries.expand(classFilePaths, classFilter);
+        int total = units.size();
+        if (indicator != null) {
+            indicator.setIndeterminate(false);
+        }
+        int shardSize = Math.max(MIN_SHARD_SIZE, total / (parallelism * SHARDS_PER_WORKER) + 1);
+        ShardContext<V> context = new ShardContext<>(executionDataStore, visitorFactory, detailFilter, indicator, total);
+
+        try {
+            if (parallelism == 1 || total <= shardSize) {
+                // 数据量太小时直接在当前线程分析，省去线程池开销
+                return List.of(analyzeShard(units, context));
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                return pool.invoke(new ShardTask<>(units, 0, total, shardSize, context));
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 按分片顺序合并结果，分片内按类名排序，保证合并结果确定
+     */
+    private static CoverageBuilder merge(List<CoverageBuilder> shards) {
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        CoverageBuilder merged = new CoverageBuilder();
+        for (CoverageBuilder shard : shards) {
+            // getClasses() 已包含 no-match 的类，不需要单独处理
+            List<IClassCoverage> classes = new ArrayList<>(shard.getClasses());
+            classes.sort(Comparator.comparing(IClassCoverage::getName));
+            for (IClassCoverage classCoverage : classes) {
+                merged.visitCoverage(classCoverage);
+            }
+        }
+        return merged;
+    }
+
+    private <V extends ICoverageVisitor> V analyzeShard(List<String> paths, ShardContext<V> context) {
+        ProgressIndicator indicator = context.indicator;
+        try (UnitAnalyzer<V> unitAnalyzer = new UnitAnalyzer<>(context.executionDataStore,
+            context.visitorFactory.get(), context.detailFilter)) {
+            for (String path : paths) {
+                if (indicator != null && indicator.isCanceled()) {
+                    throw new ProcessCanceledException();
+                }
+                try {
+                    unitAnalyzer.analyze(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                int done = context.analyzed.incrementAndGet();
+                if (indicator != null) {
+                    indicator.setFraction((double) done / context.total);
+                }
+            }
+            return unitAnalyzer.getVisitor();
+        }
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    ClassFilter getClassFilter() {
+        return classFilter;
+    }
+
+    /**
+     * 单个线程使用的分析器：持有独立的 Analyzer、访问者和已打开的归档
+     * 分片分析和流水线的分析线程共用，访问者可以中途替换，以便分批交出结果
+     */
+    final class UnitAnalyzer<V extends ICoverageVisitor> implements AutoCloseable {
+        private final ExecutionDataStore executionDataStore;
+        private final Predicate<String> detailFilter;
+        private final Analyzer analyzer;
+        private final Map<String, ZipFile> archives = new HashMap<>(); // 同一归档在一个线程内只打开一次
+        private V visitor;
+
+        UnitAnalyzer(ExecutionDataStore executionDataStore, V visitor, @Nullable Predicate<String> detailFilter) {
+            this.executionDataStore = executionDataStore;
+            this.detailFilter = detailFilter;
+            this.visitor = visitor;
+            this.analyzer = new Analyzer(executionDataStore, coverage -> {
+                // 目录、嵌套归档整体分析时，类名在这里才能确定
+                if (!classFilter.accepts(coverage.getName())) {
+                    return;
+                }
+                if (cache != null) {
+                    cache.put(coverage, executionDataStore);
+                }
+                this.visitor.visitCoverage(coverage);
+            });
+        }
+
+        /**
+         * 分析一个单元：类文件、目录、归档或归档中的条目
+         */
+        void analyze(String path) throws IOException {
+            if (ArchiveEntries.isEntry(path)) {
+                analyzeEntry(path);
+                return;
+            }
+            File classFile = new File(path);
+            if (readsBytes() && classFile.isFile() && path.endsWith(".class")) {
+                analyzeBytes(Files.readAllBytes(classFile.toPath()), path);
+            } else if (classFile.exists()) {
+                analyzer.analyzeAll(classFile);
+            }
+        }
+
+        /**
+         * 分析归档中的一个条目：类文件直接读取字节（可命中缓存），嵌套归档交给 Analyzer 以流的方式逐层分析
+         */
+        private void analyzeEntry(String entryPath) throws IOException {
+            String archivePath = ArchiveEntries.getArchivePath(entryPath);
+            ZipFile archive = archives.get(archivePath);
+            if (archive == null) {
+                archive = new ZipFile(archivePath);
+                archives.put(archivePath, archive);
+            }
+            ZipEntry entry = archive.getEntry(ArchiveEntries.getEntryName(entryPath));
+            if (entry == null) {
+                // 展开后归档被重新构建
+                return;
+            }
+            try (InputStream input = archive.getInputStream(entry)) {
+                if (!entry.getName().endsWith(".class")) {
+                    analyzer.analyzeAll(input, entryPath);
+                } else if (readsBytes()) {
+                    analyzeBytes(input.readAllBytes(), entryPath);
+                } else {
+                    analyzer.analyzeClass(input, entryPath);
+                }
+            }
+        }
+
+        /**
+         * 类文件是否需要先读成字节：使用缓存，或者需要检查类上的注解
+         */
+        private boolean readsBytes() {
+            return cache != null || classFilter.hasAnnotationRules();
+        }
+
+        /**
+         * 先按类文件头检查类过滤器，被排除的类不做分析
+         */
+        private void analyzeBytes(byte[] bytes, String location) throws IOException {
+            if (!classFilter.acceptsClassFile(bytes)) {
+                return;
+            }
+            if (cache != null) {
+                analyzeCached(bytes, location);
+            } else {
+                analyzer.analyzeClass(bytes, location);
+            }
+        }
+
+        /**
+         * 命中缓存时直接使用缓存的计数器，否则交给 Analyzer 分析（结果会写入缓存）
+         * 需要行级明细的类即使命中缓存也重新分析，因为缓存中只有类级计数器
+         */
+        private void analyzeCached(byte[] bytes, String location) throws IOException {
+            IClassCoverage cached = cache.lookup(ClassIds.classId(bytes), executionDataStore);
+            if (cached != null && (detailFilter == null || !detailFilter.test(cached.getName()))) {
+                visitor.visitCoverage(cached);
+            } else {
+                analyzer.analyzeClass(bytes, location);
+            }
+        }
+
+        V getVisitor() {
+            return visitor;
+        }
+
+        /**
+         * 换上新的访问者，返回之前的访问者
+         */
+        V swapVisitor(V next) {
+            V previous = visitor;
+            visitor = next;
+            return previous;
+        }
+
+        @Override
+        public void close() {
+            for (ZipFile archive : archives.values()) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    // 忽略关闭错误
+                }
+            }
+            archives.clear();
+        }
+    }
+
+    /**
+     * 一次分析中所有分片共享的只读参数和进度计数
+     */
+    private static final class ShardContext<V extends ICoverageVisitor> {
+        final ExecutionDataStore executionDataStore;
+        final Supplier<V> visitorFactory;
+        final Predicate<String> detailFilter;
+        final ProgressIndicator indicator;
+        final AtomicInteger analyzed = new AtomicInteger();
+        final int total;
+
+        ShardContext(ExecutionDataStore executionDataStore, Supplier<V> visitorFactory,
+                     @Nullable Predicate<String> detailFilter, @Nullable ProgressIndicator indicator, int total) {
+            this.executionDataStore = executionDataStore;
+            this.visitorFactory = visitorFactory;
+            this.detailFilter = detailFilter;
+            this.indicator = indicator;
+            this.total = total;
+        }
+    }
+
+    /**
+     * 分片任务：区间大于分片大小时二分，否则在当前线程分析
+     */
+    private final class ShardTask<V extends ICoverageVisitor> extends RecursiveTask<List<V>> {
+        private final List<String> paths;
+        private final int from;
+        private final int to;
+        private final int shardSize;
+        private final ShardContext<V> context;
+
+        ShardTask(List<String> paths, int from, int to, int shardSize, ShardContext<V> context) {
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+            this.shardSize = shardSize;
+            this.context = context;
+        }
+
+        @Override
+        protected List<V> compute() {
+            if (to - from <= shardSize) {
+                List<V> result = new ArrayList<>(1);
+                result.add(analyzeShard(paths.subList(from, to), context));
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            ShardTask<V> left = new ShardTask<>(paths, from, mid, shardSize, context);
+            ShardTask<V> right = new ShardTask<>(paths, mid, to, shardSize, context);
+            left.fork();
+            List<V> rightResult = right.compute();
+            List<V> result = left.join();
+            result.addAll(rightResult);
+            return result;
+        }
+    }
+}
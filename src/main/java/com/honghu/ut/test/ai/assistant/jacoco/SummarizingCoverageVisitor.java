@@ -0,0 +1,83 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 汇总型覆盖率访问者
+ * 轻量分析模式下替代 CoverageBuilder，类被访问后立即折叠为类级计数器
+ *
+ * 功能：
+ * - 每个类只保留六种计数器，方法和行数组随 IClassCoverage 一起被回收
+ * - 只有通过明细过滤器的类才保留完整的 IClassCoverage（含行级数据）
+ * - 分片结果可以合并为一份快照
+ * - 与 CoverageBuilder 一致，同一个类被访问多次时只计一次，同名但 classId 不同的类抛出 IllegalStateException
+ */
+public class SummarizingCoverageVisitor implements ICoverageVisitor {
+    private final Predicate<String> detailFilter;
+    private final CoverageSnapshot.Builder snapshotBuilder = new CoverageSnapshot.Builder();
+    private final Map<String, IClassCoverage> details = new HashMap<>();
+
+    /**
+     * @param detailFilter 需要保留行级明细的类（JVM 内部名），为空表示都不保留
+     */
+    public SummarizingCoverageVisitor(@Nullable Predicate<String> detailFilter) {
+        this.detailFilter = detailFilter;
+    }
+
+    @Override
+    public void visitCoverage(IClassCoverage coverage) {
+        snapshotBuilder.add(coverage);
+        if (wantsDetail(coverage.getName())) {
+            details.put(coverage.getName(), coverage);
+        }
+    }
+
+    /**
+     * 该类是否需要保留行级明细
+     */
+    public boolean wantsDetail(String className) {
+        return detailFilter != null && detailFilter.test(className);
+    }
+
+    public CoverageSnapshot getSnapshot() {
+        return snapshotBuilder.build();
+    }
+
+    /**
+     * 保留了行级明细的类，键为 JVM 内部类名
+     */
+    public Map<String, IClassCoverage> getDetails() {
+        return Collections.unmodifiableMap(details);
+    }
+
+    /**
+     * 追加另一批访问结果（流水线汇总时使用）
+     */
+    void addAll(SummarizingCoverageVisitor other) {
+        snapshotBuilder.addAll(other.snapshotBuilder);
+        details.putAll(other.details);
+    }
+
+    /**
+     * 合并多个分片的访问结果
+     */
+    static SummarizingCoverageVisitor merge(List<SummarizingCoverageVisitor> shards, @Nullable Predicate<String> detailFilter) {
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        SummarizingCoverageVisitor merged = new SummarizingCoverageVisitor(detailFilter);
+        for (SummarizingCoverageVisitor shard : shards) {
+            merged.snapshotBuilder.addAll(shard.snapshotBuilder);
+            merged.details.putAll(shard.details);
+        }
+        return merged;
+    }
+}
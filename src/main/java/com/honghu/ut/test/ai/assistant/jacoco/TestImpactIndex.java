@@ -0,0 +1,267 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.intellij.openapi.project.Project;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * 测试影响索引
+ * 记录每个测试类执行到的生产类，类变化后只需要运行可能受影响的测试
+ *
+ * 功能：
+ * - 生产类按名称分配连续的编号，每个测试类的覆盖用编号上的位图表示
+ * - 能按测试类区分覆盖数据的运行（进程内、常驻 JVM）结束后更新运行过的测试类，其他测试类保持不变；
+ *   构建工具（Gradle、Maven）写出的执行数据不区分测试类，不更新索引
+ * - 每个测试类记录自己最近一次运行的时间，只运行了部分测试后，其他测试类仍按各自的运行时间判断类是否变化
+ * - 给出变化的类（JVM 内部类名）时，选出覆盖到这些类或其内部类的测试类，以及本身发生变化的测试类
+ * - 嵌套测试类归到外层测试类，运行外层类即可
+ * - 持久化到项目缓存目录，先写临时文件再原子替换；文件损坏时当作空索引
+ */
+final class TestImpactIndex {
+    private static final int MAGIC = 0x55545449;   // "UTTI"
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final List<String> classNames = new ArrayList<>();           // 编号 -> 生产类
+    private final Map<String, Integer> classIds = new HashMap<>();       // 生产类 -> 编号
+    private final Map<String, TestEntry> testClasses = new TreeMap<>();  // 测试类（点分） -> 运行时间和执行到的生产类
+    private boolean loaded;
+
+    TestImpactIndex(Path file) {
+        this.file = file;
+    }
+
+    static TestImpactIndex forProject(Project project) {
+        return new TestImpactIndex(ClassAnalysisCache.getProjectCacheDir(project).resolve("test-impact.bin"));
+    }
+
+    /**
+     * 用一次运行的结果更新索引
+     *
+     * @param coverage        测试类（点分）到其执行到的类（JVM 内部类名）
+     * @param productionClass 只记录判定为生产类的类，测试类自身和依赖库不进入索引
+     * @param timestamp       运行开始的时间，此后编译的类对这些测试类视为变化
+     */
+    synchronized void update(Map<String, Set<String>> coverage, Predicate<String> productionClass, long timestamp) {
+        ensureLoaded();
+        for (Map.Entry<String, Set<String>> entry : coverage.entrySet()) {
+            BitSet bits = new BitSet();
+            for (String className : entry.getValue()) {
+                Integer id = classIds.get(className);
+                if (id == null) {
+                    if (!productionClass.test(className)) {
+                        continue;
+                    }
+                    id = classNames.size();
+                    classNames.add(className);
+                    classIds.put(className, id);
+                }
+                bits.set(id);
+            }
+            testClasses.put(entry.getKey(), new TestEntry(timestamp, bits));
+        }
+    }
+
+    /**
+     * 选出受变化影响的测试类（点分类名，嵌套测试类取外层类）
+     *
+     * @param changedClasses 变化的类（JVM 内部类名），对所有测试类都视为变化，外层类变化时其内部类也视为变化
+     */
+    synchronized List<String> selectAffected(Collection<String> changedClasses) {
+        return selectAffected(changedClasses, Map.of());
+    }
+
+    /**
+     * 选出受变化影响的测试类（点分类名，嵌套测试类取外层类）
+     *
+     * @param changedClasses 变化的类（JVM 内部类名），对所有测试类都视为变化，外层类变化时其内部类也视为变化
+     * @param compiledAt     重新编译的类（JVM 内部类名）到类文件的修改时间，晚于测试类上次运行时才视为变化
+     */
+    synchronized List<String> selectAffected(Collection<String> changedClasses, Map<String, Long> compiledAt) {
+        ensureLoaded();
+        Set<String> changed = new HashSet<>(changedClasses);
+        BitSet changedBits = new BitSet();
+        long[] compiledTimes = new long[classNames.size()];
+        for (int id = 0; id < classNames.size(); id++) {
+            String className = classNames.get(id);
+            if (isChanged(className, changed)) {
+                changedBits.set(id);
+            }
+            compiledTimes[id] = lastCompiled(className, compiledAt);
+        }
+        Set<String> affected = new LinkedHashSet<>();
+        for (Map.Entry<String, TestEntry> entry : testClasses.entrySet()) {
+            String testClass = entry.getKey();
+            TestEntry test = entry.getValue();
+            String testClassName = testClass.replace('.', '/');
+            if (test.classes.intersects(changedBits) || isChanged(testClassName, changed)
+                || lastCompiled(testClassName, compiledAt) > test.runAt
+                || coversCompiledSince(test, compiledTimes)) {
+                affected.add(outerClass(testClass));
+            }
+        }
+        return new ArrayList<>(affected);
+    }
+
+    private static boolean coversCompiledSince(TestEntry test, long[] compiledTimes) {
+        for (int id = test.classes.nextSetBit(0); id >= 0; id = test.classes.nextSetBit(id + 1)) {
+            if (compiledTimes[id] > test.runAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 类或其外层类最近一次编译的时间，没有重新编译时为 0
+     */
+    private static long lastCompiled(String className, Map<String, Long> compiledAt) {
+        if (compiledAt.isEmpty()) {
+            return 0;
+        }
+        long time = compiledAt.getOrDefault(className, 0L);
+        int nested = className.indexOf('$');
+        return nested > 0 ? Math.max(time, compiledAt.getOrDefault(className.substring(0, nested), 0L)) : time;
+    }
+
+    /**
+     * 索引中是否已有测试类
+     */
+    synchronized boolean contains(String testClass) {
+        ensureLoaded();
+        return testClasses.containsKey(testClass);
+    }
+
+    synchronized boolean isEmpty() {
+        ensureLoaded();
+        return testClasses.isEmpty();
+    }
+
+    synchronized int getTestClassCount() {
+        ensureLoaded();
+        return testClasses.size();
+    }
+
+    /**
+     * 所有测试类中最早的一次运行时间，在此之后编译的类才可能影响测试的选择；没有数据时为 0
+     */
+    synchronized long getEarliestRunAt() {
+        ensureLoaded();
+        long earliest = Long.MAX_VALUE;
+        for (TestEntry test : testClasses.values()) {
+            earliest = Math.min(earliest, test.runAt);
+        }
+        return testClasses.isEmpty() ? 0 : earliest;
+    }
+
+    private static boolean isChanged(String className, Set<String> changed) {
+        if (changed.contains(className)) {
+            return true;
+        }
+        int nested = className.indexOf('$');
+        return nested > 0 && changed.contains(className.substring(0, nested));
+    }
+
+    private static String outerClass(String testClass) {
+        int nested = testClass.indexOf('$');
+        return nested > 0 ? testClass.substring(0, nested) : testClass;
+    }
+
+    synchronized void save() throws IOException {
+        ensureLoaded();
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(classNames.size());
+            for (String className : classNames) {
+                out.writeUTF(className);
+            }
+            out.writeInt(testClasses.size());
+            for (Map.Entry<String, TestEntry> entry : testClasses.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().runAt);
+                long[] words = entry.getValue().classes.toLongArray();
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (InputStream fileIn = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn, 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int classCount = in.readInt();
+            List<String> names = new ArrayList<>(Math.max(0, Math.min(classCount, 1 << 20)));
+            for (int i = 0; i < classCount; i++) {
+                names.add(in.readUTF());
+            }
+            int testCount = in.readInt();
+            Map<String, TestEntry> tests = new TreeMap<>();
+            for (int i = 0; i < testCount; i++) {
+                String testClass = in.readUTF();
+                long runAt = in.readLong();
+                long[] words = new long[in.readInt()];
+                for (int w = 0; w < words.length; w++) {
+                    words[w] = in.readLong();
+                }
+                tests.put(testClass, new TestEntry(runAt, BitSet.valueOf(words)));
+            }
+            for (int id = 0; id < names.size(); id++) {
+                classIds.put(names.get(id), id);
+            }
+            classNames.addAll(names);
+            testClasses.putAll(tests);
+        } catch (IOException | NegativeArraySizeException e) {
+            // 截断或损坏的文件当作空索引（读完整个文件后才填入索引）
+        }
+    }
+
+    /**
+     * 一个测试类的索引条目：最近一次运行开始的时间和执行到的生产类编号
+     */
+    private static final class TestEntry {
+        final long runAt;
+        final BitSet classes;
+
+        TestEntry(long runAt, BitSet classes) {
+            this.runAt = runAt;
+            this.classes = classes;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.honghu.ut.test.ai.assistant.plugin;
 
 import com.honghu.ut.test.ai.assistant.jacoco.JacocoCoverageService;
 import com.honghu.ut.test.ai.assistant.services.ServiceManager;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
@@ -14,9 +15,10 @@ import org.jetbrains.annotations.NotNull;
  * 功能：
  * - 项目打开/关闭时初始化和清理服务
  * - 管理插件的服务管理器
+ * - 项目关闭时停止实时覆盖率，释放监听端口和读取线程
  */
 @Service(Service.Level.PROJECT)
-public final class UtAssistantPlugin {
+public final class UtAssistantPlugin implements Disposable {
     public static final String PLUGIN_ID = "com.honghu.ut.test.ai.assigment.ut-ai-assistant";
     private static final Logger LOG = Logger.getInstance(UtAssistantPlugin.class);
     
@@ -27,8 +29,9 @@ public final class UtAssistantPlugin {
     public UtAssistantPlugin(Project project) {
         this.project = project;
         LOG.info("UT AI 助手插件为项目初始化: " + project.getName());
-        serviceManager = new ServiceManager(project);
+        // 覆盖率服务在项目内只创建一次，由服务管理器和各个动作共享
         jacocoCoverageService = new JacocoCoverageService(project);
+        serviceManager = new ServiceManager(project, jacocoCoverageService);
     }
 
     public static UtAssistantPlugin getInstance(Project project) {
@@ -47,8 +50,12 @@ public final class UtAssistantPlugin {
         LOG.info("UT AI 助手插件初始化");
     }
 
+    @Override
     public void dispose() {
         LOG.info("UT AI 助手插件释放");
+        if (jacocoCoverageService != null) {
+            jacocoCoverageService.stopLiveCoverage();
+        }
         serviceManager = null;
         jacocoCoverageService = null;
     }
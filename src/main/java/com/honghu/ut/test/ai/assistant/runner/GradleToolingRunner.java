@@ -0,0 +1,323 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestFinishEvent;
+import org.gradle.tooling.events.test.TestOperationResult;
+import org.gradle.tooling.events.test.TestSkippedResult;
+import org.gradle.tooling.events.test.TestStartEvent;
+import org.gradle.tooling.model.GradleProject;
+import org.gradle.tooling.model.GradleTask;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 Gradle Tooling API 的测试运行器
+ * 项目内复用同一个 ProjectConnection，测试在常驻的 Gradle 守护进程中执行，
+ * 不再为每次覆盖率运行启动 gradlew 进程和重新配置构建
+ *
+ * 功能：
+ * - 指定测试类时使用 TestLauncher 只运行这些类；选中目录时只运行所属项目的 test 任务（测试源码中的包目录再按包过滤），否则运行所有项目的 test 任务
+ * - 通过测试进度事件逐个报告测试的开始、结束和耗时
+ * - 按构建模型（各项目的构建目录和 verification 组的任务）确定 exec 文件位置，只返回本次运行写出的文件
+ * - 构建模型（exec 文件位置、各项目目录）按根目录构建脚本的修改时间缓存
+ * - 进度指示器取消时通过取消令牌中止构建
+ * - 项目关闭时关闭连接
+ */
+@Service(Service.Level.PROJECT)
+public final class GradleToolingRunner implements TestRunner, Disposable {
+    private static final Logger LOG = Logger.getInstance(GradleToolingRunner.class);
+    private static final long MTIME_TOLERANCE_MILLIS = 2000;   // 文件系统时间戳精度
+    private static final String[] TEST_SOURCE_DIRS = {"src/test/java", "src/test/kotlin", "src/test/groovy"};
+
+    private final Map<String, ProjectConnection> connections = new HashMap<>();   // 项目根目录 -> 连接
+    private final Map<String, BuildLayout> layouts = new HashMap<>();             // 项目根目录 -> 构建模型摘要
+
+    public static GradleToolingRunner getInstance(Project project) {
+        return project.getService(GradleToolingRunner.class);
+    }
+
+    @Override
+    public String getName() {
+        return "Gradle";
+    }
+
+    @Override
+    public TestRunResult run(TestRunRequest request, TestRunListener listener,
+                             @Nullable ProgressIndicator indicator) throws Exception {
+        long startedAt = System.currentTimeMillis();
+        ProjectConnection connection = getConnection(request.getProjectPath());
+        CancellationTokenSource cancellation = GradleConnector.newCancellationTokenSource();
+        Runnable checkCanceled = () -> {
+            if (indicator != null && indicator.isCanceled()) {
+                cancellation.cancel();
+            }
+        };
+
+        BuildLayout layout = getBuildLayout(request.getProjectPath(), connection, cancellation);
+
+        AtomicInteger passed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        org.gradle.tooling.events.ProgressListener progressListener = event -> {
+            checkCanceled.run();
+            onTestEvent(event, listener, indicator, passed, failed, skipped);
+        };
+        LineOutputStream output = new LineOutputStream(line -> {
+            checkCanceled.run();
+            listener.onOutput(line);
+        }, Charset.defaultCharset());
+
+        try {
+            if (request.isAllTests()) {
+                connection.newBuild()
+                    .forTasks(layout.getTestTask(request.getScopePath()))
+                    .withArguments(layout.getTestFilterArguments(request.getScopePath()))
+                    .setStandardOutput(output)
+                    .setStandardError(output)
+                    .withCancellationToken(cancellation.token())
+                    .addProgressListener(progressListener, OperationType.TEST)
+                    .run();
+            } else {
+                connection.newTestLauncher()
+                    .withJvmTestClasses(request.getTestClasses())
+                    .setStandardOutput(output)
+                    .setStandardError(output)
+                    .withCancellationToken(cancellation.token())
+                    .addProgressListener(progressListener, OperationType.TEST)
+                    .run();
+            }
+        } catch (BuildCancelledException e) {
+            throw new ProcessCanceledException(e);
+        } catch (GradleConnectionException e) {
+            // 测试失败时构建同样失败，此时 exec 文件已经写出，按失败的测试继续分析
+            if (failed.get() == 0) {
+                throw new Exception("Gradle 测试执行失败: " + e.getMessage(), e);
+            }
+        } finally {
+            output.close();
+        }
+
+        return new TestRunResult(getName(), passed.get(), failed.get(), skipped.get(),
+            selectWrittenExecFiles(layout.execCandidates, startedAt), System.currentTimeMillis() - startedAt);
+    }
+
+    private static void onTestEvent(ProgressEvent event, TestRunListener listener,
+                                    @Nullable ProgressIndicator indicator,
+                                    AtomicInteger passed, AtomicInteger failed, AtomicInteger skipped) {
+        if (!(event.getDescriptor() instanceof JvmTestOperationDescriptor)) {
+            return;
+        }
+        JvmTestOperationDescriptor descriptor = (JvmTestOperationDescriptor) event.getDescriptor();
+        // 只报告具体的测试方法，测试类和执行器等套件节点不计数
+        if (descriptor.getJvmTestKind() != JvmTestKind.ATOMIC) {
+            return;
+        }
+        String className = descriptor.getClassName() == null ? "" : descriptor.getClassName();
+        String methodName = descriptor.getMethodName() == null ? descriptor.getName() : descriptor.getMethodName();
+        if (event instanceof TestStartEvent) {
+            listener.onTestStarted(className, methodName);
+            if (indicator != null) {
+                indicator.setText2(className + "." + methodName);
+            }
+        } else if (event instanceof TestFinishEvent) {
+            TestOperationResult result = ((TestFinishEvent) event).getResult();
+            long duration = result.getEndTime() - result.getStartTime();
+            if (result instanceof TestFailureResult) {
+                failed.incrementAndGet();
+                List<? extends Failure> failures = ((TestFailureResult) result).getFailures();
+                String message = failures.isEmpty() ? null : failures.get(0).getMessage();
+                listener.onTestFinished(className, methodName, TestRunListener.Outcome.FAILED, duration, message);
+            } else if (result instanceof TestSkippedResult) {
+                skipped.incrementAndGet();
+                listener.onTestFinished(className, methodName, TestRunListener.Outcome.SKIPPED, duration, null);
+            } else {
+                passed.incrementAndGet();
+                listener.onTestFinished(className, methodName, TestRunListener.Outcome.PASSED, duration, null);
+            }
+        }
+    }
+
+    private ProjectConnection getConnection(String projectPath) {
+        synchronized (connections) {
+            return connections.computeIfAbsent(projectPath, path -> GradleConnector.newConnector()
+                .forProjectDirectory(new File(path))
+                .connect());
+        }
+    }
+
+    /**
+     * 构建模型摘要，按根目录构建脚本的修改时间缓存；模型获取失败时返回空的摘要
+     */
+    private BuildLayout getBuildLayout(String projectPath, ProjectConnection connection,
+                                       CancellationTokenSource cancellation) {
+        long stamp = buildScriptStamp(projectPath);
+        synchronized (layouts) {
+            BuildLayout cached = layouts.get(projectPath);
+            if (cached != null && cached.stamp == stamp) {
+                return cached;
+            }
+        }
+        BuildLayout layout = new BuildLayout(stamp);
+        try {
+            GradleProject root = connection.model(GradleProject.class)
+                .withCancellationToken(cancellation.token())
+                .get();
+            layout.collect(root);
+        } catch (BuildCancelledException e) {
+            throw new ProcessCanceledException(e);
+        } catch (GradleConnectionException e) {
+            // 模型获取失败时仍然可以运行全部测试，只是无法定位 exec 文件和选中目录所属的项目
+            LOG.warn("获取 Gradle 构建模型失败", e);
+            return layout;
+        }
+        synchronized (layouts) {
+            layouts.put(projectPath, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * 本次运行写出的 exec 文件；没有比运行开始更新的文件时（例如测试任务被判定为最新）返回所有已存在的候选文件
+     */
+    private static List<String> selectWrittenExecFiles(List<String> candidates, long startedAt) {
+        List<String> written = new ArrayList<>();
+        List<String> existing = new ArrayList<>();
+        for (String candidate : candidates) {
+            File file = new File(candidate);
+            if (file.isFile()) {
+                existing.add(candidate);
+                if (file.lastModified() >= startedAt - MTIME_TOLERANCE_MILLIS) {
+                    written.add(candidate);
+                }
+            }
+        }
+        return written.isEmpty() ? existing : written;
+    }
+
+    private static long buildScriptStamp(String projectPath) {
+        long stamp = 0;
+        for (String script : TestRunners.GRADLE_SCRIPTS) {
+            stamp = Math.max(stamp, new File(projectPath, script).lastModified());
+        }
+        return stamp;
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (connections) {
+            for (ProjectConnection connection : connections.values()) {
+                try {
+                    connection.close();
+                } catch (RuntimeException e) {
+                    LOG.warn("关闭 Gradle 连接失败", e);
+                }
+            }
+            connections.clear();
+        }
+    }
+
+    /**
+     * 从构建模型中取出的 exec 文件候选位置和各项目的目录
+     */
+    private static final class BuildLayout {
+        final long stamp;
+        final List<String> execCandidates = new ArrayList<>();
+        final Map<Path, String> projectPaths = new HashMap<>();   // 项目目录 -> Gradle 项目路径，例如 :core
+
+        BuildLayout(long stamp) {
+            this.stamp = stamp;
+        }
+
+        /**
+         * JaCoCo 插件默认把测试任务的执行数据写到 构建目录/jacoco/任务名.exec
+         */
+        void collect(GradleProject gradleProject) {
+            File buildDir = gradleProject.getBuildDirectory();
+            if (buildDir != null) {
+                for (GradleTask task : gradleProject.getTasks()) {
+                    if ("verification".equals(task.getGroup())) {
+                        execCandidates.add(new File(new File(buildDir, "jacoco"), task.getName() + ".exec").getPath());
+                    }
+                }
+            }
+            if (gradleProject.getProjectDirectory() != null) {
+                projectPaths.put(gradleProject.getProjectDirectory().toPath().toAbsolutePath().normalize(),
+                    gradleProject.getPath());
+            }
+            for (GradleProject child : gradleProject.getChildren()) {
+                collect(child);
+            }
+        }
+
+        /**
+         * 选中目录所属的最内层项目的 test 任务；未选中目录或属于根项目时使用任务选择器 test（所有项目）
+         */
+        String getTestTask(@Nullable String scopePath) {
+            String projectPath = findProjectPath(scopePath);
+            return projectPath == null || ":".equals(projectPath) ? "test" : projectPath + ":test";
+        }
+
+        /**
+         * 选中测试源码中的包目录时按包过滤（--tests 包名.*）
+         */
+        String[] getTestFilterArguments(@Nullable String scopePath) {
+            Path projectDir = findProjectDir(scopePath);
+            if (projectDir == null) {
+                return new String[0];
+            }
+            Path scope = Paths.get(scopePath).toAbsolutePath().normalize();
+            for (String testSourceDir : TEST_SOURCE_DIRS) {
+                Path testRoot = projectDir.resolve(testSourceDir);
+                if (scope.startsWith(testRoot) && !scope.equals(testRoot)) {
+                    String packageName = testRoot.relativize(scope).toString().replace(File.separatorChar, '.');
+                    return new String[]{"--tests", packageName + ".*"};
+                }
+            }
+            return new String[0];
+        }
+
+        private @Nullable String findProjectPath(@Nullable String scopePath) {
+            Path projectDir = findProjectDir(scopePath);
+            return projectDir == null ? null : projectPaths.get(projectDir);
+        }
+
+        private @Nullable Path findProjectDir(@Nullable String scopePath) {
+            if (scopePath == null) {
+                return null;
+            }
+            Path scope = Paths.get(scopePath).toAbsolutePath().normalize();
+            Path best = null;
+            for (Path projectDir : projectPaths.keySet()) {
+                if (scope.startsWith(projectDir) && (best == null || projectDir.getNameCount() > best.getNameCount())) {
+                    best = projectDir;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 进程内测试运行器
+ * 不启动构建工具，在 IDE 进程中用隔离的类加载器直接运行测试，适合对单个包反复运行的快速循环
+ *
+ * 功能：
+ * - 生产代码在加载时于内存中插桩（JaCoCo LoggerRuntime），不需要 javaagent，也不读写 exec 文件
+ * - 通过项目测试类路径中的 JUnit Platform Launcher 运行测试（JUnit 5，以及带 vintage 引擎的 JUnit 4）
+ * - 指定测试类时按类运行，选中包目录时按包运行，否则运行所有测试输出目录中的测试
+ * - 每个测试类结束时取出并清零探针，得到各测试类执行到的类；运行结束后合并为整次运行的数据随结果返回
+ * - 依赖已编译好的输出目录，不会先编译；需要构建工具参与的测试（资源过滤、特殊插件等）请使用构建工具运行器
+ */
+public final class InProcessRunner implements TestRunner {
+    private static final Logger LOG = Logger.getInstance(InProcessRunner.class);
+
+    private final List<Path> classpath;
+    private final List<Path> productionRoots;
+    private final List<Path> testRoots;
+    private final Predicate<String> instrumentFilter;
+    private final Function<String, String> packageResolver;
+
+    /**
+     * @param classpath        测试运行的完整类路径（输出目录和依赖）
+     * @param productionRoots  需要插桩的生产代码输出目录
+     * @param testRoots        未指定测试类和包时扫描的测试输出目录
+     * @param instrumentFilter 以 JVM 内部类名判断是否插桩
+     * @param packageResolver  选中目录对应的包名，无法确定时返回 null
+     */
+    public InProcessRunner(List<Path> classpath, List<Path> productionRoots, List<Path> testRoots,
+                           Predicate<String> instrumentFilter, Function<String, String> packageResolver) {
+        this.classpath = new ArrayList<>(classpath);
+        this.productionRoots = new ArrayList<>(productionRoots);
+        this.testRoots = new ArrayList<>(testRoots);
+        this.instrumentFilter = instrumentFilter;
+        this.packageResolver = packageResolver;
+    }
+
+    @Override
+    public String getName() {
+        return "进程内";
+    }
+
+    @Override
+    public TestRunResult run(TestRunRequest request, TestRunListener listener,
+                             @Nullable ProgressIndicator indicator) throws Exception {
+        long startedAt = System.currentTimeMillis();
+        checkCanceled(indicator);
+
+        RuntimeData data = new RuntimeData();
+        data.setSessionId("ut-in-process-" + startedAt);
+        IRuntime runtime = new LoggerRuntime();
+        runtime.startup(data);
+        TestClassCoverageCollector collector = new TestClassCoverageCollector();
+        SessionInfoStore sessionInfos = new SessionInfoStore();
+        String packageName = request.getScopePath() == null ? null : packageResolver.apply(request.getScopePath());
+        JUnitPlatformDriver.Counts counts;
+
+        Thread thread = Thread.currentThread();
+        ClassLoader previousLoader = thread.getContextClassLoader();
+        try (InstrumentingClassLoader loader = new InstrumentingClassLoader(toUrls(classpath), productionRoots,
+                instrumentFilter, runtime)) {
+            thread.setContextClassLoader(loader);
+            counts = JUnitPlatformDriver.execute(loader, request.getTestClasses(), packageName, testRoots, listener,
+                testClass -> collector.record(testClass, collect(data, sessionInfos, true)));
+            LOG.info("进程内测试运行完成，插桩类数: " + loader.getInstrumentedCount());
+        } finally {
+            thread.setContextClassLoader(previousLoader);
+            // 测试抛出异常时也收集已经记录的探针
+            collector.record(null, collect(data, sessionInfos, false));
+            runtime.shutdown();
+        }
+        checkCanceled(indicator);
+
+        return new TestRunResult(getName(), counts.passed.get(), counts.failed.get(), counts.skipped.get(), List.of(),
+            System.currentTimeMillis() - startedAt, collector.getExecutionData(), sessionInfos,
+            collector.getTestClassCoverage());
+    }
+
+    /**
+     * 取出运行时当前的探针，reset 为 true 时随后清零，下一段数据只包含之后的执行
+     */
+    private static ExecutionDataStore collect(RuntimeData data, SessionInfoStore sessionInfos, boolean reset) {
+        ExecutionDataStore store = new ExecutionDataStore();
+        data.collect(TestClassCoverageCollector.copyingInto(store), sessionInfos, reset);
+        return store;
+    }
+
+    private static URL[] toUrls(List<Path> paths) throws MalformedURLException {
+        URL[] urls = new URL[paths.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = paths.get(i).toUri().toURL();
+        }
+        return urls;
+    }
+
+    private static void checkCanceled(@Nullable ProgressIndicator indicator) {
+        if (indicator != null && indicator.isCanceled()) {
+            throw new ProcessCanceledException();
+        }
+    }
+}
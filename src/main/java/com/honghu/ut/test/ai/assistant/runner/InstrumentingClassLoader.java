@@ -0,0 +1,87 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.IRuntime;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 进程内运行测试使用的隔离类加载器
+ * 父加载器是平台类加载器，测试和被测代码与插件自身的类互不可见
+ *
+ * 功能：
+ * - 生产代码输出目录下通过过滤器的类在首次加载时于内存中插桩，不写回磁盘
+ * - 只有测试真正用到的类才会被读取和插桩
+ * - 插桩失败（例如字节码版本过新）时按原始字节码加载，该类没有覆盖率但测试照常运行
+ */
+final class InstrumentingClassLoader extends URLClassLoader {
+    private static final Logger LOG = Logger.getInstance(InstrumentingClassLoader.class);
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final List<Path> productionRoots;
+    private final Predicate<String> instrumentFilter;
+    private final Instrumenter instrumenter;
+    private final Set<String> instrumentedClasses = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param instrumentFilter 以 JVM 内部类名（a/b/C）判断是否插桩
+     */
+    InstrumentingClassLoader(URL[] urls, List<Path> productionRoots, Predicate<String> instrumentFilter,
+                             IRuntime runtime) {
+        super("ut-in-process", urls, ClassLoader.getPlatformClassLoader());
+        this.productionRoots = productionRoots;
+        this.instrumentFilter = instrumentFilter;
+        this.instrumenter = new Instrumenter(runtime);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String vmName = name.replace('.', '/');
+        if (instrumentFilter.test(vmName)) {
+            for (Path root : productionRoots) {
+                Path classFile = root.resolve(vmName + ".class");
+                if (Files.isRegularFile(classFile)) {
+                    byte[] bytes = instrument(name, classFile);
+                    return defineClass(name, bytes, 0, bytes.length);
+                }
+            }
+        }
+        return super.findClass(name);
+    }
+
+    private byte[] instrument(String name, Path classFile) throws ClassNotFoundException {
+        byte[] original;
+        try {
+            original = Files.readAllBytes(classFile);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+        try {
+            byte[] instrumented = instrumenter.instrument(original, name);
+            instrumentedClasses.add(name);
+            return instrumented;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("类插桩失败，按原始字节码加载: " + name, e);
+            return original;
+        }
+    }
+
+    /**
+     * 已插桩的类数
+     */
+    int getInstrumentedCount() {
+        return instrumentedClasses.size();
+    }
+}
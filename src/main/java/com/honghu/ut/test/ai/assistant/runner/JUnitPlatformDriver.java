@@ -0,0 +1,248 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 通过 JUnit Platform Launcher 运行测试
+ * Launcher 的类来自被测项目的类路径而不是插件，因此全部通过反射调用
+ *
+ * 功能：
+ * - 指定测试类时按类选择，给出包名时按包选择，否则扫描测试输出目录
+ * - 把 TestExecutionListener 的回调转成运行监听器事件，并统计通过、失败、跳过的测试数
+ * - 每个测试类结束时通知调用方，调用方据此按测试类取出覆盖数据
+ * - 只依赖 JDK，既用于 IDE 进程内运行，也用于常驻的测试工作进程
+ */
+final class JUnitPlatformDriver {
+    private static final String LAUNCHER_PACKAGE = "org.junit.platform.launcher.";
+
+    private JUnitPlatformDriver() {
+    }
+
+    /**
+     * 在指定的类加载器中发现并执行测试，调用方负责设置线程上下文类加载器
+     *
+     * @param testClasses 要运行的测试类全限定名，为空时按包或测试输出目录选择
+     * @param packageName 要运行的包，为 null 或空串时扫描测试输出目录
+     * @param testClassFinished 每个测试类（含嵌套测试类）执行完后以类名调用，用于按测试类收集覆盖数据
+     */
+    static Counts execute(ClassLoader loader, List<String> testClasses, @Nullable String packageName,
+                          Collection<Path> testRoots, TestRunListener listener,
+                          @Nullable Consumer<String> testClassFinished) throws Exception {
+        Counts state = new Counts(listener, testClassFinished);
+        Class<?> selectors;
+        Class<?> requestBuilder;
+        Class<?> launcherFactory;
+        Class<?> discoveryRequest;
+        Class<?> launcher;
+        Class<?> executionListener;
+        try {
+            selectors = loader.loadClass("org.junit.platform.engine.discovery.DiscoverySelectors");
+            requestBuilder = loader.loadClass(LAUNCHER_PACKAGE + "core.LauncherDiscoveryRequestBuilder");
+            launcherFactory = loader.loadClass(LAUNCHER_PACKAGE + "core.LauncherFactory");
+            discoveryRequest = loader.loadClass(LAUNCHER_PACKAGE + "LauncherDiscoveryRequest");
+            launcher = loader.loadClass(LAUNCHER_PACKAGE + "Launcher");
+            executionListener = loader.loadClass(LAUNCHER_PACKAGE + "TestExecutionListener");
+        } catch (ClassNotFoundException e) {
+            throw new Exception("测试类路径中没有 JUnit Platform Launcher（junit-platform-launcher），无法运行测试", e);
+        }
+
+        List<Object> selectorList = new ArrayList<>();
+        if (!testClasses.isEmpty()) {
+            Method selectClass = selectors.getMethod("selectClass", String.class);
+            for (String testClass : testClasses) {
+                selectorList.add(selectClass.invoke(null, testClass));
+            }
+        } else if (packageName != null && !packageName.isEmpty()) {
+            selectorList.add(selectors.getMethod("selectPackage", String.class).invoke(null, packageName));
+        } else {
+            selectorList.addAll((List<?>) selectors.getMethod("selectClasspathRoots", Set.class)
+                .invoke(null, new LinkedHashSet<>(testRoots)));
+        }
+
+        Object builder = requestBuilder.getMethod("request").invoke(null);
+        requestBuilder.getMethod("selectors", List.class).invoke(builder, selectorList);
+        Object discovery = requestBuilder.getMethod("build").invoke(builder);
+
+        Object listenerProxy = Proxy.newProxyInstance(loader, new Class<?>[]{executionListener},
+            (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return invokeObjectMethod(proxy, method, args);
+                }
+                handleEvent(state, method.getName(), args);
+                return null;
+            });
+        Object listenerArray = Array.newInstance(executionListener, 1);
+        Array.set(listenerArray, 0, listenerProxy);
+
+        Object launcherInstance = launcherFactory.getMethod("create").invoke(null);
+        try {
+            launcher.getMethod("execute", discoveryRequest, listenerArray.getClass())
+                .invoke(launcherInstance, discovery, listenerArray);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new Exception("测试运行失败", cause);
+        }
+        return state;
+    }
+
+    private static Object invokeObjectMethod(Object proxy, Method method, @Nullable Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return args != null && proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "JUnitPlatformDriver$TestExecutionListener";
+        }
+    }
+
+    /**
+     * 把 TestExecutionListener 的回调转成运行监听器事件，只报告测试本身（不含容器）
+     */
+    private static void handleEvent(Counts state, String event, @Nullable Object[] args) throws Exception {
+        if (args == null || args.length == 0) {
+            return;
+        }
+        Object identifier = args[0];
+        switch (event) {
+            case "executionStarted": {
+                if (isTest(identifier)) {
+                    String[] name = testName(identifier);
+                    state.startedAt.put(uniqueId(identifier), System.currentTimeMillis());
+                    state.listener.onTestStarted(name[0], name[1]);
+                }
+                break;
+            }
+            case "executionSkipped": {
+                if (isTest(identifier)) {
+                    String[] name = testName(identifier);
+                    state.skipped.incrementAndGet();
+                    state.listener.onTestFinished(name[0], name[1], TestRunListener.Outcome.SKIPPED, 0,
+                        null);
+                }
+                break;
+            }
+            case "executionFinished": {
+                if (isTest(identifier)) {
+                    finishTest(state, identifier, args[1]);
+                } else {
+                    // 容器失败（例如 @BeforeAll 抛出异常）时其中的测试不会单独报告
+                    reportContainerFailure(state, identifier, args[1]);
+                    String testClass = testClassName(identifier);
+                    if (testClass != null && state.testClassFinished != null) {
+                        state.testClassFinished.accept(testClass);
+                    }
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private static void finishTest(Counts state, Object identifier, Object result) throws Exception {
+        String[] name = testName(identifier);
+        Long started = state.startedAt.remove(uniqueId(identifier));
+        long duration = started == null ? 0 : System.currentTimeMillis() - started;
+        String status = ((Enum<?>) invoke(result, "getStatus")).name();
+        TestRunListener.Outcome outcome;
+        if ("SUCCESSFUL".equals(status)) {
+            outcome = TestRunListener.Outcome.PASSED;
+            state.passed.incrementAndGet();
+        } else if ("ABORTED".equals(status)) {
+            // 假设不成立（Assumptions）中止的测试按跳过处理
+            outcome = TestRunListener.Outcome.SKIPPED;
+            state.skipped.incrementAndGet();
+        } else {
+            outcome = TestRunListener.Outcome.FAILED;
+            state.failed.incrementAndGet();
+        }
+        state.listener.onTestFinished(name[0], name[1], outcome, duration,
+            outcome == TestRunListener.Outcome.FAILED ? failureMessage(result) : null);
+    }
+
+    private static void reportContainerFailure(Counts state, Object identifier, Object result)
+            throws Exception {
+        if (!"FAILED".equals(((Enum<?>) invoke(result, "getStatus")).name())) {
+            return;
+        }
+        String displayName = (String) invoke(identifier, "getDisplayName");
+        state.failed.incrementAndGet();
+        state.listener.onTestFinished(displayName, "", TestRunListener.Outcome.FAILED, 0,
+            failureMessage(result));
+    }
+
+    private static @Nullable String failureMessage(Object result) throws Exception {
+        Optional<?> throwable = (Optional<?>) invoke(result, "getThrowable");
+        return throwable.map(Object::toString).orElse(null);
+    }
+
+    private static boolean isTest(Object identifier) throws Exception {
+        return (Boolean) invoke(identifier, "isTest");
+    }
+
+    private static String uniqueId(Object identifier) throws Exception {
+        return (String) invoke(identifier, "getUniqueId");
+    }
+
+    /**
+     * 测试的类名和方法名；没有方法来源（例如动态测试）时用显示名作为方法名
+     */
+    private static String[] testName(Object identifier) throws Exception {
+        Optional<?> source = (Optional<?>) invoke(identifier, "getSource");
+        if (source.isPresent() && source.get().getClass().getName().endsWith(".MethodSource")) {
+            return new String[]{(String) invoke(source.get(), "getClassName"),
+                (String) invoke(source.get(), "getMethodName")};
+        }
+        return new String[]{"", (String) invoke(identifier, "getDisplayName")};
+    }
+
+    /**
+     * 测试类容器的类名，其他容器（引擎、动态容器等）返回 null
+     */
+    private static @Nullable String testClassName(Object identifier) throws Exception {
+        Optional<?> source = (Optional<?>) invoke(identifier, "getSource");
+        if (source.isPresent() && source.get().getClass().getName().endsWith(".ClassSource")) {
+            return (String) invoke(source.get(), "getClassName");
+        }
+        return null;
+    }
+
+    private static Object invoke(Object target, String methodName) throws Exception {
+        return target.getClass().getMethod(methodName).invoke(target);
+    }
+
+    /**
+     * 一次运行的测试计数，以及监听器回调共享的开始时间
+     * JUnit 默认在单线程中执行测试，并行执行时回调可能来自多个线程
+     */
+    static final class Counts {
+        final TestRunListener listener;
+        final Consumer<String> testClassFinished;
+        final Map<String, Long> startedAt = new ConcurrentHashMap<>();
+        final AtomicInteger passed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+
+        Counts(TestRunListener listener, @Nullable Consumer<String> testClassFinished) {
+            this.listener = listener;
+            this.testClassFinished = testClassFinished;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+/**
+ * 按行转发的输出流
+ * 把构建工具写出的字节按换行切分，逐行交给监听器，不在内存中保留完整输出
+ */
+final class LineOutputStream extends OutputStream {
+    private final Consumer<String> sink;
+    private final Charset charset;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+    LineOutputStream(Consumer<String> sink, Charset charset) {
+        this.sink = sink;
+        this.charset = charset;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            flushLine();
+        } else if (b != '\r') {
+            line.write(b);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\n') {
+                line.write(bytes, start, i - start);
+                flushLine();
+                start = i + 1;
+            }
+        }
+        line.write(bytes, start, end - start);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (line.size() > 0) {
+            flushLine();
+        }
+    }
+
+    private void flushLine() {
+        String text = line.toString(charset);
+        line.reset();
+        sink.accept(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+    }
+}
@@ -0,0 +1,299 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maven 测试运行器
+ * 只构建选中目录或测试类所属的 reactor 模块，并行构建，用 surefire 的 -Dtest 过滤测试
+ *
+ * 功能：
+ * - 从根 pom 递归读取 reactor 模块，把选中目录映射到最内层的模块，把测试类映射到包含其源文件的模块
+ * - 只构建这些模块及其依赖（-pl … -am），-T 1C 按 CPU 核数并行；选中整个项目或无法确定模块时构建整个 reactor
+ * - 指定测试类时传入 -Dtest，选中测试源码中的包目录时按包过滤；依赖模块中没有匹配的测试不视为失败
+ * - 本机安装了 mvnd 时使用常驻的 mvnd 守护进程（并行度由 mvnd 自己决定），其次使用项目的 mvnw，最后使用 mvn
+ * - 逐行解析 surefire 输出报告测试进度
+ * - 只返回本次运行写出的 target/jacoco.exec
+ */
+public final class MavenRunner implements TestRunner {
+    private static final Logger LOG = Logger.getInstance(MavenRunner.class);
+    private static final Pattern MODULE = Pattern.compile("<module>\\s*([^<]+?)\\s*</module>");
+    private static final Pattern COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final String[] TEST_SOURCE_DIRS = {"src/test/java", "src/test/kotlin", "src/test/groovy"};
+    private static final String[] SOURCE_EXTENSIONS = {".java", ".kt", ".groovy"};
+    private static final long MTIME_TOLERANCE_MILLIS = 2000;   // 文件系统时间戳精度
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase().contains("windows");
+
+    @Override
+    public String getName() {
+        return "Maven";
+    }
+
+    /**
+     * 项目根目录下是否有 pom.xml
+     */
+    public static boolean isApplicable(String projectPath) {
+        return new File(projectPath, "pom.xml").isFile();
+    }
+
+    @Override
+    public TestRunResult run(TestRunRequest request, TestRunListener listener,
+                             @Nullable ProgressIndicator indicator) throws Exception {
+        long startedAt = System.currentTimeMillis();
+        Path root = Paths.get(request.getProjectPath()).toAbsolutePath().normalize();
+        List<Path> modules = readReactorModules(root);
+        List<String> command = buildCommand(root, modules, request);
+        LOG.info("运行 Maven 测试: " + String.join(" ", command));
+        listener.onOutput("> " + String.join(" ", command));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(root.toFile());
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
+
+        SurefireOutputParser parser = new SurefireOutputParser(listener);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (indicator != null && indicator.isCanceled()) {
+                    destroy(process);
+                    throw new ProcessCanceledException();
+                }
+                parser.accept(line);
+                if (indicator != null && line.contains("Building ")) {
+                    indicator.setText2(line);
+                }
+            }
+        } finally {
+            parser.finish();
+            if (process.isAlive() && indicator != null && indicator.isCanceled()) {
+                destroy(process);
+            }
+        }
+
+        int exitCode = process.waitFor();
+        // 测试失败时 Maven 同样以非零退出，此时 exec 文件已经写出，按失败的测试继续分析
+        if (exitCode != 0 && parser.getFailed() == 0) {
+            throw new Exception("Maven测试执行失败，退出码: " + exitCode);
+        }
+        return new TestRunResult(getName(), parser.getPassed(), parser.getFailed(), parser.getSkipped(),
+            findWrittenExecFiles(modules, startedAt), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * 组装命令行，供运行和日志使用
+     */
+    List<String> buildCommand(Path root, List<Path> modules, TestRunRequest request) {
+        List<String> command = new ArrayList<>();
+        String mvnd = findOnPath(WINDOWS ? new String[]{"mvnd.cmd", "mvnd.exe"} : new String[]{"mvnd"});
+        String executable;
+        if (mvnd != null) {
+            executable = mvnd;
+        } else if (Files.isRegularFile(root.resolve(WINDOWS ? "mvnw.cmd" : "mvnw"))) {
+            executable = root.resolve(WINDOWS ? "mvnw.cmd" : "mvnw").toString();
+        } else {
+            executable = WINDOWS ? "mvn.cmd" : "mvn";
+        }
+        if (WINDOWS) {
+            command.add("cmd");
+            command.add("/c");
+        }
+        command.add(executable);
+        command.add("-B");
+        command.add("test");
+        command.add("-Djacoco.skip=false");
+
+        Set<String> selectedModules = selectModules(root, modules, request);
+        if (!selectedModules.isEmpty()) {
+            command.add("-pl");
+            command.add(String.join(",", selectedModules));
+            command.add("-am");
+        }
+        if (mvnd == null) {
+            command.add("-T");
+            command.add("1C");
+        }
+
+        String testFilter = buildTestFilter(root, modules, request);
+        if (testFilter != null) {
+            command.add("-Dtest=" + testFilter);
+            // -am 带入的依赖模块中没有匹配的测试
+            command.add("-Dsurefire.failIfNoSpecifiedTests=false");
+            command.add("-DfailIfNoTests=false");
+        }
+        return command;
+    }
+
+    /**
+     * 需要构建的模块（相对根目录的路径），为空表示整个 reactor
+     */
+    private static Set<String> selectModules(Path root, List<Path> modules, TestRunRequest request) {
+        Set<String> selected = new LinkedHashSet<>();
+        if (request.getScopePath() != null) {
+            Path module = findOwningModule(modules, Paths.get(request.getScopePath()).toAbsolutePath().normalize());
+            if (module == null || module.equals(root)) {
+                return Set.of();
+            }
+            selected.add(toModuleArgument(root, module));
+        }
+        for (String testClass : request.getTestClasses()) {
+            Path module = findTestSourceModule(modules, testClass);
+            if (module == null || module.equals(root)) {
+                // 找不到测试类所在的模块时构建整个 reactor，由 -Dtest 过滤
+                return Set.of();
+            }
+            selected.add(toModuleArgument(root, module));
+        }
+        return selected;
+    }
+
+    /**
+     * surefire 的 -Dtest 参数：指定的测试类，或选中测试源码中的包目录时该包下的所有测试；不需要过滤时返回 null
+     */
+    private static @Nullable String buildTestFilter(Path root, List<Path> modules, TestRunRequest request) {
+        if (!request.isAllTests()) {
+            return String.join(",", request.getTestClasses());
+        }
+        if (request.getScopePath() == null) {
+            return null;
+        }
+        Path scope = Paths.get(request.getScopePath()).toAbsolutePath().normalize();
+        Path module = findOwningModule(modules, scope);
+        if (module == null) {
+            return null;
+        }
+        for (String testSourceDir : TEST_SOURCE_DIRS) {
+            Path testRoot = module.resolve(testSourceDir);
+            if (scope.startsWith(testRoot) && !scope.equals(testRoot)) {
+                return testRoot.relativize(scope).toString().replace('\\', '/') + "/**/*";
+            }
+        }
+        return null;
+    }
+
+    private static String toModuleArgument(Path root, Path module) {
+        return root.relativize(module).toString().replace('\\', '/');
+    }
+
+    /**
+     * 包含路径的最内层模块
+     */
+    private static @Nullable Path findOwningModule(List<Path> modules, Path path) {
+        Path best = null;
+        for (Path module : modules) {
+            if (path.startsWith(module) && (best == null || module.getNameCount() > best.getNameCount())) {
+                best = module;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 测试源码中包含该测试类源文件的模块
+     */
+    private static @Nullable Path findTestSourceModule(List<Path> modules, String testClass) {
+        int inner = testClass.indexOf('$');
+        String relativePath = (inner < 0 ? testClass : testClass.substring(0, inner)).replace('.', '/');
+        for (Path module : modules) {
+            for (String testSourceDir : TEST_SOURCE_DIRS) {
+                for (String extension : SOURCE_EXTENSIONS) {
+                    if (Files.isRegularFile(module.resolve(testSourceDir).resolve(relativePath + extension))) {
+                        return module;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从根 pom 开始递归读取 reactor 中的所有模块目录（含根目录本身）
+     * 只做文本解析，profile 中声明的模块同样计入
+     */
+    static List<Path> readReactorModules(Path root) {
+        Set<Path> modules = new LinkedHashSet<>();
+        collectModules(root, modules);
+        return new ArrayList<>(modules);
+    }
+
+    private static void collectModules(Path moduleDir, Set<Path> modules) {
+        if (!modules.add(moduleDir)) {
+            return;
+        }
+        String pom;
+        try {
+            pom = Files.readString(moduleDir.resolve("pom.xml"));
+        } catch (IOException e) {
+            return;
+        }
+        Matcher matcher = MODULE.matcher(COMMENT.matcher(pom).replaceAll(""));
+        while (matcher.find()) {
+            Path child = moduleDir.resolve(matcher.group(1)).normalize();
+            // <module> 也可以直接指向 pom 文件
+            if (Files.isRegularFile(child)) {
+                child = child.getParent();
+            }
+            if (Files.isRegularFile(child.resolve("pom.xml"))) {
+                collectModules(child, modules);
+            }
+        }
+    }
+
+    /**
+     * 各模块本次运行写出的 target/jacoco.exec（jacoco-maven-plugin 的默认位置）
+     */
+    private static List<String> findWrittenExecFiles(List<Path> modules, long startedAt) {
+        List<String> execFiles = new ArrayList<>();
+        for (Path module : modules) {
+            File execFile = module.resolve("target").resolve("jacoco.exec").toFile();
+            if (execFile.isFile() && execFile.lastModified() >= startedAt - MTIME_TOLERANCE_MILLIS) {
+                execFiles.add(execFile.getPath());
+            }
+        }
+        return execFiles;
+    }
+
+    private static @Nullable String findOnPath(String[] names) {
+        List<String> dirs = new ArrayList<>();
+        String mvndHome = System.getenv("MVND_HOME");
+        if (mvndHome != null) {
+            dirs.add(mvndHome + File.separator + "bin");
+        }
+        String path = System.getenv("PATH");
+        if (path != null) {
+            dirs.addAll(List.of(path.split(File.pathSeparator)));
+        }
+        for (String dir : dirs) {
+            for (String name : names) {
+                File candidate = new File(dir, name);
+                if (candidate.isFile() && candidate.canExecute()) {
+                    return candidate.getPath();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void destroy(Process process) {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+    }
+}
@@ -0,0 +1,154 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 常驻测试工作进程的类加载器链
+ * 依赖库放在最底层，每个模块的输出目录各用一个类加载器，按模块依赖顺序依次以前一个为父加载器
+ *
+ * 功能：
+ * - 依赖库（JAR）列表变化时整条链重建
+ * - 模块的输出目录内容（文件数、大小、修改时间）变化时，只重建该模块及链上排在它之后的类加载器，之前的模块继续复用已加载的类
+ * - 只依赖 JDK，供工作进程使用
+ */
+final class ModuleClassLoaders implements AutoCloseable {
+    private List<String> jars = List.of();
+    private URLClassLoader libraryLoader;
+    private final List<ModuleLoader> moduleLoaders = new ArrayList<>();
+
+    /**
+     * 按需重建类加载器
+     *
+     * @param requestJars 依赖库
+     * @param modules     各模块的输出目录，被依赖的模块在前
+     * @return 重新创建的模块类加载器数量
+     */
+    int prepare(List<String> requestJars, List<List<String>> modules) throws IOException {
+        if (libraryLoader == null || !requestJars.equals(jars)) {
+            closeModules(0);
+            close(libraryLoader);
+            libraryLoader = new URLClassLoader("ut-worker-libraries", toUrls(requestJars),
+                ClassLoader.getPlatformClassLoader());
+            jars = requestJars;
+        }
+        long[] stamps = new long[modules.size()];
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = fingerprint(modules.get(i));
+        }
+        // 找到第一个变化的模块，之前的类加载器保持不变
+        int reused = 0;
+        while (reused < modules.size() && reused < moduleLoaders.size()
+            && moduleLoaders.get(reused).directories.equals(modules.get(reused))
+            && moduleLoaders.get(reused).stamp == stamps[reused]) {
+            reused++;
+        }
+        closeModules(reused);
+        for (int i = reused; i < modules.size(); i++) {
+            List<String> directories = modules.get(i);
+            URLClassLoader loader = new URLClassLoader("ut-worker-module-" + i, toUrls(directories), getTestLoader());
+            moduleLoaders.add(new ModuleLoader(directories, stamps[i], loader));
+        }
+        return modules.size() - reused;
+    }
+
+    /**
+     * 运行测试使用的类加载器：链上最后一个模块的类加载器，没有模块时为依赖库的类加载器
+     */
+    ClassLoader getTestLoader() {
+        return moduleLoaders.isEmpty() ? libraryLoader : moduleLoaders.get(moduleLoaders.size() - 1).loader;
+    }
+
+    ClassLoader getModuleLoader(int module) {
+        return moduleLoaders.get(module).loader;
+    }
+
+    @Override
+    public void close() {
+        closeModules(0);
+        close(libraryLoader);
+        libraryLoader = null;
+    }
+
+    /**
+     * 关闭并移除从 from 开始的模块类加载器
+     */
+    private void closeModules(int from) {
+        while (moduleLoaders.size() > from) {
+            close(moduleLoaders.remove(moduleLoaders.size() - 1).loader);
+        }
+    }
+
+    /**
+     * 输出目录内容的指纹：文件路径、大小和修改时间
+     */
+    static long fingerprint(List<String> directories) throws IOException {
+        long hash = 17;
+        for (String directory : directories) {
+            Path root = Paths.get(directory);
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        // 与遍历顺序无关的累加
+                        long entry = file.hashCode() * 31L + attributes.size();
+                        entry = entry * 31L + attributes.lastModifiedTime().toMillis();
+                        hash += entry * 0x9E3779B97F4A7C15L;
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                // 遍历中文件被删除（例如正在编译），按已变化处理
+                return System.nanoTime();
+            }
+        }
+        return hash;
+    }
+
+    private static URL[] toUrls(List<String> paths) throws MalformedURLException {
+        URL[] urls = new URL[paths.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = Paths.get(paths.get(i)).toUri().toURL();
+        }
+        return urls;
+    }
+
+    private static void close(@Nullable URLClassLoader loader) {
+        if (loader != null) {
+            try {
+                loader.close();
+            } catch (IOException ignored) {
+                // 关闭失败只影响文件句柄的释放
+            }
+        }
+    }
+
+    /**
+     * 一个模块的类加载器及创建时输出目录的指纹
+     */
+    private static final class ModuleLoader {
+        final List<String> directories;
+        final long stamp;
+        final URLClassLoader loader;
+
+        ModuleLoader(List<String> directories, long stamp, URLClassLoader loader) {
+            this.directories = directories;
+            this.stamp = stamp;
+            this.loader = loader;
+        }
+    }
+}
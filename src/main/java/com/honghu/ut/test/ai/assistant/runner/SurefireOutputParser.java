@@ -0,0 +1,121 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Surefire 控制台输出解析
+ * Maven 没有测试事件接口，按 surefire 2.x / 3.x 的输出格式逐行识别测试类的开始、结束和失败的测试方法
+ *
+ * 功能：
+ * - "Running 类名" 报告测试类开始
+ * - 测试类的 "Tests run: ... in 类名" 汇总行报告测试类结束，并累计通过、失败、跳过数
+ * - "<<< FAILURE!" / "<<< ERROR!" 行报告失败的测试方法，下一行的异常信息作为失败原因
+ * - 并行构建时各模块的输出交错，但每一行是完整的，逐行解析不受影响
+ */
+final class SurefireOutputParser implements Consumer<String> {
+    private static final Pattern RUNNING = Pattern.compile("Running ([\\w.$]+)\\s*$");
+    private static final Pattern CLASS_SUMMARY = Pattern.compile(
+        "Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+), Time elapsed: ([\\d.,]+) s(?:ec)?\\b.*\\bin ([\\w.$]+)\\s*$");
+    // surefire 3.x: 类名.方法名 -- Time elapsed: 0.01 s <<< FAILURE!
+    private static final Pattern METHOD_FAILURE = Pattern.compile(
+        "([\\w.$]+)\\.([\\w$\\[\\]]+)\\s+--?\\s+Time elapsed: ([\\d.,]+) s.*<<< (?:FAILURE|ERROR)!");
+    // surefire 2.x: 方法名(类名)  Time elapsed: 0.01 sec  <<< FAILURE!
+    private static final Pattern LEGACY_METHOD_FAILURE = Pattern.compile(
+        "([\\w$\\[\\]]+)\\(([\\w.$]+)\\)\\s+Time elapsed: ([\\d.,]+) sec.*<<< (?:FAILURE|ERROR)!");
+    private static final String[] LOG_PREFIXES = {"[INFO] ", "[ERROR] ", "[WARNING] "};
+
+    private final TestRunListener listener;
+    private int passed;
+    private int failed;
+    private int skipped;
+    private String[] pendingFailure;   // {类名, 方法名, 耗时}，等待下一行的失败原因
+
+    SurefireOutputParser(TestRunListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void accept(String rawLine) {
+        listener.onOutput(rawLine);
+        String line = stripLogPrefix(rawLine);
+        reportPendingFailure(line);
+
+        Matcher matcher = CLASS_SUMMARY.matcher(line);
+        if (matcher.find()) {
+            int run = Integer.parseInt(matcher.group(1));
+            int classFailed = Integer.parseInt(matcher.group(2)) + Integer.parseInt(matcher.group(3));
+            int classSkipped = Integer.parseInt(matcher.group(4));
+            passed += Math.max(0, run - classFailed - classSkipped);
+            failed += classFailed;
+            skipped += classSkipped;
+            TestRunListener.Outcome outcome = classFailed > 0 ? TestRunListener.Outcome.FAILED
+                : run == classSkipped ? TestRunListener.Outcome.SKIPPED : TestRunListener.Outcome.PASSED;
+            listener.onTestFinished(matcher.group(6), "", outcome, parseMillis(matcher.group(5)),
+                String.format("%d 个测试，失败 %d，跳过 %d", run, classFailed, classSkipped));
+            return;
+        }
+        matcher = METHOD_FAILURE.matcher(line);
+        if (matcher.find()) {
+            pendingFailure = new String[]{matcher.group(1), matcher.group(2), matcher.group(3)};
+            return;
+        }
+        matcher = LEGACY_METHOD_FAILURE.matcher(line);
+        if (matcher.find()) {
+            pendingFailure = new String[]{matcher.group(2), matcher.group(1), matcher.group(3)};
+            return;
+        }
+        matcher = RUNNING.matcher(line);
+        if (matcher.find()) {
+            listener.onTestStarted(matcher.group(1), "");
+        }
+    }
+
+    /**
+     * 输出结束时报告还在等待失败原因的测试方法
+     */
+    void finish() {
+        reportPendingFailure("");
+    }
+
+    private void reportPendingFailure(String messageLine) {
+        if (pendingFailure != null) {
+            String[] failure = pendingFailure;
+            pendingFailure = null;
+            listener.onTestFinished(failure[0], failure[1], TestRunListener.Outcome.FAILED, parseMillis(failure[2]),
+                messageLine.isBlank() ? null : messageLine.trim());
+        }
+    }
+
+    int getPassed() {
+        return passed;
+    }
+
+    int getFailed() {
+        return failed;
+    }
+
+    int getSkipped() {
+        return skipped;
+    }
+
+    private static String stripLogPrefix(String line) {
+        for (String prefix : LOG_PREFIXES) {
+            if (line.startsWith(prefix)) {
+                return line.substring(prefix.length());
+            }
+        }
+        return line;
+    }
+
+    private static long parseMillis(@Nullable String seconds) {
+        try {
+            return Math.round(Double.parseDouble(seconds.replace(',', '.')) * 1000);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
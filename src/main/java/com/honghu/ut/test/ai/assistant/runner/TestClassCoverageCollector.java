@@ -0,0 +1,59 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 按测试类收集覆盖数据
+ * 运行器在每个测试类结束时取出并重置探针，交给收集器记录
+ *
+ * 功能：
+ * - 记录每个测试类执行到的类（JVM 内部类名），供测试影响分析使用
+ * - 各段数据合并为整次运行的执行数据
+ * - 同一个测试类出现多次（例如重复运行）时合并
+ */
+final class TestClassCoverageCollector {
+    private final ExecutionDataStore executionData = new ExecutionDataStore();
+    private final Map<String, Set<String>> testClassCoverage = new LinkedHashMap<>();
+
+    /**
+     * 复制探针后写入目标存储的访问器，运行时随后重置探针不会影响已取出的数据
+     */
+    static IExecutionDataVisitor copyingInto(ExecutionDataStore target) {
+        return data -> target.put(new ExecutionData(data.getId(), data.getName(), data.getProbes().clone()));
+    }
+
+    /**
+     * 记录一段执行数据
+     *
+     * @param testClass 产生这段数据的测试类，为 null 时只合并不归属（例如最后一个测试类之后的剩余数据）
+     */
+    synchronized void record(@Nullable String testClass, ExecutionDataStore data) {
+        Set<String> touched = testClass == null ? null
+            : testClassCoverage.computeIfAbsent(testClass, key -> new TreeSet<>());
+        for (ExecutionData classData : data.getContents()) {
+            if (touched != null && classData.hasHits()) {
+                touched.add(classData.getName());
+            }
+            executionData.put(classData);
+        }
+    }
+
+    synchronized ExecutionDataStore getExecutionData() {
+        return executionData;
+    }
+
+    /**
+     * 测试类（点分类名）到其执行到的类（JVM 内部类名）
+     */
+    synchronized Map<String, Set<String>> getTestClassCoverage() {
+        return testClassCoverage;
+    }
+}
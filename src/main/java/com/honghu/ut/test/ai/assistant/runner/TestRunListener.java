@@ -0,0 +1,36 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 测试运行监听器
+ * 在运行器的线程中调用，更新界面时需要自行切换到 EDT
+ *
+ * 功能：
+ * - 单个测试开始、结束（含结果和耗时）
+ * - 构建工具的输出行
+ */
+public interface TestRunListener {
+    TestRunListener NONE = new TestRunListener() {
+    };
+
+    /**
+     * 测试结果
+     */
+    enum Outcome {
+        PASSED, FAILED, SKIPPED
+    }
+
+    default void onTestStarted(String className, String methodName) {
+    }
+
+    /**
+     * @param message 失败时的错误信息，其他情况为 null
+     */
+    default void onTestFinished(String className, String methodName, Outcome outcome, long durationMillis,
+                                @Nullable String message) {
+    }
+
+    default void onOutput(String line) {
+    }
+}
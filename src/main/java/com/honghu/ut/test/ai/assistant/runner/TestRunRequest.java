@@ -0,0 +1,53 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次测试运行的请求
+ *
+ * 功能：
+ * - 项目根目录
+ * - 选中的目录，运行器据此只构建所属的模块，为 null 表示整个项目
+ * - 要运行的测试类（全限定名），为空表示运行全部测试
+ */
+public final class TestRunRequest {
+    private final String projectPath;
+    private final String scopePath;
+    private final List<String> testClasses;
+
+    public TestRunRequest(String projectPath, List<String> testClasses) {
+        this(projectPath, null, testClasses);
+    }
+
+    public TestRunRequest(String projectPath, @Nullable String scopePath, List<String> testClasses) {
+        this.projectPath = projectPath;
+        this.scopePath = scopePath;
+        this.testClasses = Collections.unmodifiableList(new ArrayList<>(testClasses));
+    }
+
+    public String getProjectPath() {
+        return projectPath;
+    }
+
+    /**
+     * 选中的目录，为 null 表示整个项目
+     */
+    public @Nullable String getScopePath() {
+        return scopePath;
+    }
+
+    /**
+     * 要运行的测试类全限定名，为空表示全部
+     */
+    public List<String> getTestClasses() {
+        return testClasses;
+    }
+
+    public boolean isAllTests() {
+        return testClasses.isEmpty();
+    }
+}
@@ -0,0 +1,108 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次测试运行的结果
+ *
+ * 功能：
+ * - 通过、失败、跳过的测试数
+ * - 本次运行写出的 exec 文件，或进程内运行时直接收集的执行数据
+ * - 能按测试类区分覆盖数据的运行器给出各测试类执行到的类
+ * - 运行耗时
+ */
+public final class TestRunResult {
+    private final String runnerName;
+    private final int passed;
+    private final int failed;
+    private final int skipped;
+    private final List<String> execFiles;
+    private final long durationMillis;
+    private final ExecutionDataStore executionData;
+    private final SessionInfoStore sessionInfos;
+    private final Map<String, Set<String>> testClassCoverage;
+
+    public TestRunResult(String runnerName, int passed, int failed, int skipped, List<String> execFiles,
+                         long durationMillis) {
+        this(runnerName, passed, failed, skipped, execFiles, durationMillis, null, null, Map.of());
+    }
+
+    public TestRunResult(String runnerName, int passed, int failed, int skipped, List<String> execFiles,
+                         long durationMillis, @Nullable ExecutionDataStore executionData,
+                         @Nullable SessionInfoStore sessionInfos, Map<String, Set<String>> testClassCoverage) {
+        this.runnerName = runnerName;
+        this.passed = passed;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.execFiles = Collections.unmodifiableList(new ArrayList<>(execFiles));
+        this.durationMillis = durationMillis;
+        this.executionData = executionData;
+        this.sessionInfos = sessionInfos;
+        this.testClassCoverage = Collections.unmodifiableMap(new LinkedHashMap<>(testClassCoverage));
+    }
+
+    public String getRunnerName() {
+        return runnerName;
+    }
+
+    public int getPassed() {
+        return passed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * 本次运行写出（或更新）的 exec 文件
+     */
+    public List<String> getExecFiles() {
+        return execFiles;
+    }
+
+    /**
+     * 运行器直接收集的执行数据，通过 exec 文件交付时为 null
+     */
+    public @Nullable ExecutionDataStore getExecutionData() {
+        return executionData;
+    }
+
+    public @Nullable SessionInfoStore getSessionInfos() {
+        return sessionInfos;
+    }
+
+    /**
+     * 各测试类执行到的类（点分测试类名 -> JVM 内部类名），运行器不能按测试类区分时为空
+     */
+    public Map<String, Set<String>> getTestClassCoverage() {
+        return testClassCoverage;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isSuccessful() {
+        return failed == 0;
+    }
+
+    public String getSummary() {
+        String data = executionData != null ? executionData.getContents().size() + " 个类的执行数据"
+            : execFiles.size() + " 个 exec 文件";
+        return String.format("%s：通过 %d，失败 %d，跳过 %d，耗时 %.1f 秒，%s",
+            runnerName, passed, failed, skipped, durationMillis / 1000.0, data);
+    }
+}
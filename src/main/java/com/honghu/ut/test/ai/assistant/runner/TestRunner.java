@@ -0,0 +1,24 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 测试运行器
+ * 运行项目的测试并产生 JaCoCo 执行数据
+ *
+ * 功能：
+ * - 按请求中的测试类过滤要运行的测试，未指定时运行全部测试
+ * - 运行过程中通过监听器逐个报告测试的开始和结束
+ * - 返回本次运行写出的 exec 文件，由覆盖率服务读取分析
+ * - 进度指示器取消时中止运行
+ */
+public interface TestRunner {
+    /**
+     * 运行器名称，用于界面和日志
+     */
+    String getName();
+
+    TestRunResult run(TestRunRequest request, TestRunListener listener,
+                      @Nullable ProgressIndicator indicator) throws Exception;
+}
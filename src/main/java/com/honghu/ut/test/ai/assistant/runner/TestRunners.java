@@ -0,0 +1,58 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.project.Project;
+
+import java.io.File;
+
+/**
+ * 测试运行器选择
+ * 按项目使用的构建工具选择运行器
+ *
+ * 功能：
+ * - Gradle 构建且 IDE 中启用了 Gradle 插件时使用 Tooling API 运行器
+ * - Maven 构建使用按模块选择、并行构建的 Maven 运行器
+ * - 运行器类只在确认可用后才加载，Gradle 插件未启用时不会因为缺少 Tooling API 类而出错
+ */
+public final class TestRunners {
+    private static final String TOOLING_API_CLASS = "org.gradle.tooling.GradleConnector";
+    static final String[] GRADLE_SCRIPTS = {
+        "settings.gradle", "settings.gradle.kts", "build.gradle", "build.gradle.kts"
+    };
+
+    private TestRunners() {
+    }
+
+    /**
+     * 选择项目的测试运行器，没有可用的运行器时抛出异常
+     */
+    public static TestRunner select(Project project, String projectPath) throws Exception {
+        if (isGradleBuild(projectPath)) {
+            if (!isToolingApiAvailable()) {
+                throw new Exception("Gradle 插件未启用，无法通过 Gradle Tooling API 运行测试");
+            }
+            return GradleToolingRunner.getInstance(project);
+        }
+        if (MavenRunner.isApplicable(projectPath)) {
+            return new MavenRunner();
+        }
+        throw new Exception("未找到可用的测试运行器，目前只支持 Gradle 和 Maven 构建");
+    }
+
+    static boolean isGradleBuild(String projectPath) {
+        for (String script : GRADLE_SCRIPTS) {
+            if (new File(projectPath, script).isFile()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isToolingApiAvailable() {
+        try {
+            Class.forName(TOOLING_API_CLASS, false, TestRunners.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 常驻测试工作进程的入口
+ * 由插件以 JaCoCo 代理启动，在多次运行之间保持 JVM、依赖库的类和 JIT 编译结果
+ *
+ * 功能：
+ * - 依赖库（JAR）放在一个长期保留的类加载器中，类路径中的 JAR 列表变化时才重建
+ * - 每个模块的输出目录各用一个类加载器，按模块依赖顺序串成一条链（ModuleClassLoaders），
+ *   某个模块的目录内容变化时只重建它和链上之后的类加载器，重新加载编译过的类
+ * - 每次运行前重置代理的探针，每个测试类结束时取出并清零一次，按测试类发送执行数据，不写 exec 文件
+ * - 只依赖 JDK 和本包中不依赖 IDE 的类，可以单独运行在项目的 JDK 上
+ * - 插件进程退出（标准输入关闭）时自动退出
+ */
+public final class TestWorkerMain {
+    private final Object agent;
+    private final Method resetMethod;
+    private final Method dumpMethod;
+
+    private final ModuleClassLoaders loaders = new ModuleClassLoaders();
+
+    private TestWorkerMain(Object agent, Method resetMethod, Method dumpMethod) {
+        this.agent = agent;
+        this.resetMethod = resetMethod;
+        this.dumpMethod = dumpMethod;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String token = System.getenv(TestWorkerProtocol.TOKEN_ENV);
+        if (token == null || token.isEmpty()) {
+            System.err.println("缺少工作进程令牌，只能由插件启动");
+            System.exit(2);
+        }
+        TestWorkerMain worker;
+        try {
+            // 代理的类由 -javaagent 加入系统类路径
+            Class<?> agentInterface = Class.forName("org.jacoco.agent.rt.IAgent");
+            Object agent = Class.forName("org.jacoco.agent.rt.RT").getMethod("getAgent").invoke(null);
+            worker = new TestWorkerMain(agent, agentInterface.getMethod("reset"),
+                agentInterface.getMethod("getExecutionData", boolean.class));
+        } catch (ReflectiveOperationException e) {
+            System.err.println("JaCoCo 代理未加载，工作进程需要以 -javaagent 启动: " + e);
+            System.exit(2);
+            return;
+        }
+
+        Thread watchdog = new Thread(() -> {
+            try {
+                while (System.in.read() >= 0) {
+                    // 插件不会写入标准输入，读到结束说明插件已退出
+                }
+            } catch (IOException ignored) {
+                // 按插件已退出处理
+            }
+            System.exit(0);
+        }, "ut-test-worker-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            System.out.println(TestWorkerProtocol.READY_PREFIX + server.getLocalPort());
+            System.out.flush();
+            boolean running = true;
+            while (running) {
+                try (Socket socket = server.accept()) {
+                    running = worker.serve(socket, token);
+                } catch (IOException e) {
+                    // 插件取消运行时会直接断开连接
+                    System.err.println("处理请求失败: " + e);
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 处理一个连接上的请求
+     *
+     * @return 收到停止命令时返回 false
+     */
+    private boolean serve(Socket socket, String token) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(in.readUTF())) {
+            return true;
+        }
+        int command = in.readInt();
+        if (command == TestWorkerProtocol.SHUTDOWN) {
+            return false;
+        }
+        List<String> requestJars = TestWorkerProtocol.readStrings(in);
+        List<List<String>> requestModules = TestWorkerProtocol.readStringLists(in);
+        List<String> testClasses = TestWorkerProtocol.readStrings(in);
+        String packageName = TestWorkerProtocol.readString(in);
+        List<Path> testRoots = new ArrayList<>();
+        for (String testRoot : TestWorkerProtocol.readStrings(in)) {
+            testRoots.add(Paths.get(testRoot));
+        }
+
+        Thread thread = Thread.currentThread();
+        ClassLoader previousLoader = thread.getContextClassLoader();
+        try {
+            int reloaded = loaders.prepare(requestJars, requestModules);
+            ClassLoader testLoader = loaders.getTestLoader();
+            thread.setContextClassLoader(testLoader);
+            resetMethod.invoke(agent);
+            JUnitPlatformDriver.Counts counts = JUnitPlatformDriver.execute(testLoader, testClasses,
+                packageName, testRoots, new SocketListener(out), testClass -> sendClassData(out, testClass));
+            byte[] executionData = (byte[]) dumpMethod.invoke(agent, false);
+            synchronized (out) {
+                out.writeInt(TestWorkerProtocol.EVENT_DONE);
+                out.writeInt(counts.passed.get());
+                out.writeInt(counts.failed.get());
+                out.writeInt(counts.skipped.get());
+                out.writeInt(reloaded);
+                out.writeInt(executionData.length);
+                out.write(executionData);
+            }
+        } catch (Exception e) {
+            synchronized (out) {
+                out.writeInt(TestWorkerProtocol.EVENT_ERROR);
+                TestWorkerProtocol.writeString(out, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        } finally {
+            thread.setContextClassLoader(previousLoader);
+        }
+        out.flush();
+        return true;
+    }
+
+    /**
+     * 取出并清零代理的探针，作为该测试类的执行数据发送
+     */
+    private void sendClassData(DataOutputStream out, String testClass) {
+        byte[] executionData;
+        try {
+            executionData = (byte[]) dumpMethod.invoke(agent, true);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("读取代理的执行数据失败", e);
+        }
+        synchronized (out) {
+            try {
+                out.writeInt(TestWorkerProtocol.EVENT_CLASS_DATA);
+                out.writeUTF(testClass);
+                out.writeInt(executionData.length);
+                out.write(executionData);
+                out.flush();
+            } catch (IOException ignored) {
+                // 插件已断开
+            }
+        }
+    }
+
+    /**
+     * 把测试事件写到连接上，插件断开后的事件直接丢弃
+     */
+    private static final class SocketListener implements TestRunListener {
+        private final DataOutputStream out;
+
+        SocketListener(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void onTestStarted(String className, String methodName) {
+            synchronized (out) {
+                try {
+                    out.writeInt(TestWorkerProtocol.EVENT_STARTED);
+                    out.writeUTF(className);
+                    out.writeUTF(methodName);
+                    out.flush();
+                } catch (IOException ignored) {
+                    // 插件已断开
+                }
+            }
+        }
+
+        @Override
+        public void onTestFinished(String className, String methodName, Outcome outcome, long durationMillis,
+                                   @Nullable String message) {
+            synchronized (out) {
+                try {
+                    out.writeInt(TestWorkerProtocol.EVENT_FINISHED);
+                    out.writeUTF(className);
+                    out.writeUTF(methodName);
+                    out.writeInt(outcome.ordinal());
+                    out.writeLong(durationMillis);
+                    TestWorkerProtocol.writeString(out, message);
+                    out.flush();
+                } catch (IOException ignored) {
+                    // 插件已断开
+                }
+            }
+        }
+    }
+}
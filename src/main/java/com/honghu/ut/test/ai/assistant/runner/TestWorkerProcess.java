@@ -0,0 +1,335 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import org.jacoco.agent.AgentJar;
+import org.jacoco.core.JaCoCo;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 常驻测试工作进程（项目级服务）
+ * 持有一个以 JaCoCo 代理启动的测试 JVM，多次运行复用，省去每次启动 JVM 和加载依赖库的开销
+ *
+ * 功能：
+ * - 首次运行时启动工作进程，Java 可执行文件或代理参数变化、进程已退出时重新启动
+ * - 通过本地回环地址上的 TCP 连接发送运行请求、接收测试事件和按测试类划分的执行数据，连接需要启动时生成的令牌
+ * - 工作进程的标准输出（测试打印的内容）转发给当前运行的监听器
+ * - 同一时间只运行一个请求；取消运行时结束工作进程（JUnit 无法中途停止），下次运行重新启动
+ * - 项目关闭时结束工作进程
+ */
+@Service(Service.Level.PROJECT)
+public final class TestWorkerProcess implements Disposable {
+    private static final Logger LOG = Logger.getInstance(TestWorkerProcess.class);
+    private static final long START_TIMEOUT_MILLIS = 30_000;
+    private static final int POLL_MILLIS = 200;
+    private static final int OUTPUT_TAIL_LINES = 20;
+
+    private final Deque<String> outputTail = new ArrayDeque<>();   // 最近的输出，用于报告启动失败的原因
+    private volatile TestRunListener outputListener = TestRunListener.NONE;
+    private volatile Process process;   // 项目关闭时可能在运行中被结束，不加锁访问
+    private String launchKey;
+    private String token;
+    private int port;
+
+    public static TestWorkerProcess getInstance(Project project) {
+        return project.getService(TestWorkerProcess.class);
+    }
+
+    /**
+     * 在工作进程中运行一次测试
+     *
+     * @param jars        依赖库，列表不变时工作进程复用已加载的类
+     * @param modules     各模块的输出目录（被依赖的模块在前），某个模块的内容变化时工作进程只重建它和之后的类加载器
+     */
+    synchronized Result execute(String javaExecutable, String agentOptions, List<String> jars,
+                                List<List<String>> modules, List<String> testClasses, @Nullable String packageName,
+                                List<String> testRoots, TestRunListener listener,
+                                @Nullable ProgressIndicator indicator) throws Exception {
+        String key = javaExecutable + '\n' + agentOptions;
+        if (process == null || !process.isAlive() || !key.equals(launchKey)) {
+            stop();
+            start(javaExecutable, agentOptions, indicator);
+            launchKey = key;
+        }
+
+        outputListener = listener;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(POLL_MILLIS);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(token);
+            out.writeInt(TestWorkerProtocol.RUN);
+            TestWorkerProtocol.writeStrings(out, jars);
+            TestWorkerProtocol.writeStringLists(out, modules);
+            TestWorkerProtocol.writeStrings(out, testClasses);
+            TestWorkerProtocol.writeString(out, packageName);
+            TestWorkerProtocol.writeStrings(out, testRoots);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new CancellableInputStream(socket.getInputStream(), indicator)));
+            Map<String, byte[]> testClassData = new LinkedHashMap<>();
+            while (true) {
+                int event = in.readInt();
+                switch (event) {
+                    case TestWorkerProtocol.EVENT_STARTED:
+                        listener.onTestStarted(in.readUTF(), in.readUTF());
+                        break;
+                    case TestWorkerProtocol.EVENT_FINISHED: {
+                        String className = in.readUTF();
+                        String methodName = in.readUTF();
+                        TestRunListener.Outcome outcome = TestRunListener.Outcome.values()[in.readInt()];
+                        long durationMillis = in.readLong();
+                        listener.onTestFinished(className, methodName, outcome, durationMillis,
+                            TestWorkerProtocol.readString(in));
+                        break;
+                    }
+                    case TestWorkerProtocol.EVENT_CLASS_DATA: {
+                        String testClass = in.readUTF();
+                        byte[] executionData = new byte[in.readInt()];
+                        in.readFully(executionData);
+                        // 同一个测试类出现多次时直接拼接，exec 格式允许多段
+                        testClassData.merge(testClass, executionData, TestWorkerProcess::concat);
+                        break;
+                    }
+                    case TestWorkerProtocol.EVENT_DONE: {
+                        int passed = in.readInt();
+                        int failed = in.readInt();
+                        int skipped = in.readInt();
+                        int reloaded = in.readInt();
+                        byte[] executionData = new byte[in.readInt()];
+                        in.readFully(executionData);
+                        return new Result(passed, failed, skipped, reloaded, executionData, testClassData);
+                    }
+                    case TestWorkerProtocol.EVENT_ERROR:
+                        throw new Exception("测试工作进程运行失败：" + TestWorkerProtocol.readString(in));
+                    default:
+                        throw new IOException("未知的工作进程事件: " + event);
+                }
+            }
+        } catch (ProcessCanceledException e) {
+            // 工作进程仍在运行被取消的测试，直接结束，下次运行重新启动
+            stop();
+            throw e;
+        } catch (IOException e) {
+            stop();
+            throw new Exception("与测试工作进程的连接中断：" + e.getMessage(), e);
+        } finally {
+            outputListener = TestRunListener.NONE;
+        }
+    }
+
+    private void start(String javaExecutable, String agentOptions, @Nullable ProgressIndicator indicator)
+            throws Exception {
+        if (indicator != null) {
+            indicator.setText("正在启动测试工作进程...");
+        }
+        Path agentJar = extractAgentJar();
+        String workerClasspath = PathManager.getJarPathForClass(TestWorkerMain.class);
+        if (workerClasspath == null) {
+            throw new Exception("无法确定插件的类路径，不能启动测试工作进程");
+        }
+        token = UUID.randomUUID().toString();
+        List<String> command = List.of(javaExecutable, "-javaagent:" + agentJar + "=" + agentOptions,
+            "-cp", workerClasspath, TestWorkerMain.class.getName());
+        LOG.info("启动测试工作进程: " + String.join(" ", command));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.redirectErrorStream(true);
+        processBuilder.environment().put(TestWorkerProtocol.TOKEN_ENV, token);
+        synchronized (outputTail) {
+            outputTail.clear();
+        }
+        Process started = processBuilder.start();
+        CompletableFuture<Integer> ready = new CompletableFuture<>();
+        Thread pump = new Thread(() -> pumpOutput(started, ready), "ut-test-worker-output");
+        pump.setDaemon(true);
+        pump.start();
+
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                port = ready.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                process = started;
+                return;
+            } catch (TimeoutException e) {
+                if (indicator != null && indicator.isCanceled()) {
+                    destroy(started);
+                    throw new ProcessCanceledException();
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    destroy(started);
+                    throw new Exception("测试工作进程启动超时" + describeOutputTail());
+                }
+            } catch (ExecutionException e) {
+                destroy(started);
+                throw new Exception("测试工作进程启动失败" + describeOutputTail(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 逐行读取工作进程的输出：READY 行给出端口，其余行转发给当前运行的监听器
+     */
+    private void pumpOutput(Process started, CompletableFuture<Integer> ready) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(started.getInputStream(), Charset.defaultCharset()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!ready.isDone() && line.startsWith(TestWorkerProtocol.READY_PREFIX)) {
+                    ready.complete(Integer.parseInt(line.substring(TestWorkerProtocol.READY_PREFIX.length()).trim()));
+                    continue;
+                }
+                synchronized (outputTail) {
+                    if (outputTail.size() == OUTPUT_TAIL_LINES) {
+                        outputTail.removeFirst();
+                    }
+                    outputTail.addLast(line);
+                }
+                outputListener.onOutput(line);
+            }
+        } catch (IOException | NumberFormatException e) {
+            ready.completeExceptionally(e);
+        }
+        ready.completeExceptionally(new IOException("工作进程已退出"));
+    }
+
+    private String describeOutputTail() {
+        synchronized (outputTail) {
+            return outputTail.isEmpty() ? "" : "：\n" + String.join("\n", outputTail);
+        }
+    }
+
+    /**
+     * 插件自带的 JaCoCo 代理解压到系统目录，按 JaCoCo 版本区分
+     */
+    private static Path extractAgentJar() throws IOException {
+        Path agentJar = PathManager.getSystemDir().resolve("ut-ai-assistant")
+            .resolve("jacocoagent-" + JaCoCo.VERSION + ".jar");
+        if (!Files.isRegularFile(agentJar)) {
+            Files.createDirectories(agentJar.getParent());
+            Path temp = agentJar.resolveSibling(agentJar.getFileName() + ".tmp");
+            AgentJar.extractTo(temp.toFile());
+            Files.move(temp, agentJar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return agentJar;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private void stop() {
+        Process current = process;
+        process = null;
+        if (current != null) {
+            destroy(current);
+        }
+    }
+
+    private static void destroy(Process process) {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+    }
+
+    @Override
+    public void dispose() {
+        stop();
+    }
+
+    /**
+     * 读取时定期检查取消状态的输入流，等待数据期间不会丢失已读取的部分
+     */
+    private static final class CancellableInputStream extends FilterInputStream {
+        private final ProgressIndicator indicator;
+
+        CancellableInputStream(InputStream in, @Nullable ProgressIndicator indicator) {
+            super(in);
+            this.indicator = indicator;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (true) {
+                try {
+                    return super.read();
+                } catch (SocketTimeoutException e) {
+                    checkCanceled();
+                }
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (true) {
+                try {
+                    return super.read(buffer, offset, length);
+                } catch (SocketTimeoutException e) {
+                    checkCanceled();
+                }
+            }
+        }
+
+        private void checkCanceled() {
+            if (indicator != null && indicator.isCanceled()) {
+                throw new ProcessCanceledException();
+            }
+        }
+    }
+
+    /**
+     * 工作进程返回的一次运行结果
+     */
+    static final class Result {
+        final int passed;
+        final int failed;
+        final int skipped;
+        final int reloaded;              // 重新加载的模块类加载器数量
+        final byte[] executionData;      // 最后一个测试类之后剩余的执行数据（exec 格式）
+        final Map<String, byte[]> testClassData;   // 测试类 -> 该测试类的执行数据（exec 格式）
+
+        Result(int passed, int failed, int skipped, int reloaded, byte[] executionData,
+               Map<String, byte[]> testClassData) {
+            this.passed = passed;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.reloaded = reloaded;
+            this.executionData = executionData;
+            this.testClassData = testClassData;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 插件与常驻测试工作进程之间的通信协议
+ * 每次运行使用一个本地 TCP 连接：插件发送请求，工作进程逐条发送测试事件和各测试类的执行数据，最后发送结果
+ *
+ * 功能：
+ * - 工作进程启动后在标准输出打印 READY 行和监听端口
+ * - 请求以启动时通过环境变量传入的令牌开头，令牌不符的连接直接关闭
+ * - 字符串可为 null，过长的文本（例如异常信息）截断，避免超出 writeUTF 的长度限制
+ */
+final class TestWorkerProtocol {
+    static final String READY_PREFIX = "UT-TEST-WORKER-READY ";
+    static final String TOKEN_ENV = "UT_TEST_WORKER_TOKEN";
+
+    // 请求命令
+    static final int RUN = 1;
+    static final int SHUTDOWN = 2;
+
+    // 工作进程发送的事件
+    static final int EVENT_STARTED = 1;
+    static final int EVENT_FINISHED = 2;
+    static final int EVENT_DONE = 3;
+    static final int EVENT_ERROR = 4;
+    static final int EVENT_CLASS_DATA = 5;   // 一个测试类结束时的执行数据（取出后探针清零）
+
+    private static final int MAX_STRING_LENGTH = 16 * 1024;
+
+    private TestWorkerProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value.length() > MAX_STRING_LENGTH ? value.substring(0, MAX_STRING_LENGTH) : value);
+        }
+    }
+
+    static @Nullable String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    static void writeStringLists(DataOutputStream out, List<List<String>> values) throws IOException {
+        out.writeInt(values.size());
+        for (List<String> value : values) {
+            writeStrings(out, value);
+        }
+    }
+
+    static List<List<String>> readStringLists(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("列表长度无效: " + count);
+        }
+        List<List<String>> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readStrings(in));
+        }
+        return values;
+    }
+
+    static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("列表长度无效: " + count);
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+}
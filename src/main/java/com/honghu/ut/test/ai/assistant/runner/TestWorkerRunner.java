@@ -0,0 +1,145 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.roots.ProjectRootManager;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 常驻测试 JVM 运行器
+ * 测试在插件持有的工作进程（TestWorkerProcess）中运行，多次运行之间不重新启动 JVM
+ *
+ * 功能：
+ * - 类路径分为依赖库和输出目录两层，输出目录再按模块分组，只有内容变化的模块及依赖它的模块重新加载类
+ * - 工作进程以 JaCoCo 代理启动，每次运行前重置探针，按测试类取回执行数据，不写 exec 文件
+ * - 代理按设置中的包含 / 排除模式插桩（两者写法相同）
+ * - 使用项目 SDK 的 Java 运行工作进程（需要 JDK 17 及以上），未配置时使用 IDE 自身的运行时
+ * - 与进程内运行一样依赖已编译好的输出目录，测试通过项目类路径中的 JUnit Platform Launcher 运行
+ */
+public final class TestWorkerRunner implements TestRunner {
+    private static final Logger LOG = Logger.getInstance(TestWorkerRunner.class);
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase().contains("windows");
+
+    private final Project project;
+    private final List<String> jars = new ArrayList<>();
+    private final List<List<String>> modules;
+    private final List<String> testRoots = new ArrayList<>();
+    private final String agentOptions;
+    private final Function<String, String> packageResolver;
+
+    /**
+     * @param classpath       测试运行的完整类路径（输出目录和依赖）
+     * @param moduleGrouper   把输出目录按模块分组，被依赖的模块在前
+     * @param testRoots       未指定测试类和包时扫描的测试输出目录
+     * @param classIncludes   插桩的类（设置中的包含模式），为空表示全部
+     * @param classExcludes   不插桩的类
+     * @param packageResolver 选中目录对应的包名，无法确定时返回 null
+     */
+    public TestWorkerRunner(Project project, List<Path> classpath,
+                            Function<List<String>, List<List<String>>> moduleGrouper, List<Path> testRoots,
+                            String classIncludes, String classExcludes, Function<String, String> packageResolver) {
+        this.project = project;
+        List<String> directories = new ArrayList<>();
+        for (Path entry : classpath) {
+            if (Files.isDirectory(entry)) {
+                directories.add(entry.toString());
+            } else if (Files.isRegularFile(entry)) {
+                jars.add(entry.toString());
+            }
+        }
+        this.modules = moduleGrouper.apply(directories);
+        for (Path testRoot : testRoots) {
+            this.testRoots.add(testRoot.toString());
+        }
+        this.agentOptions = buildAgentOptions(classIncludes, classExcludes);
+        this.packageResolver = packageResolver;
+    }
+
+    @Override
+    public String getName() {
+        return "常驻 JVM";
+    }
+
+    @Override
+    public TestRunResult run(TestRunRequest request, TestRunListener listener,
+                             @Nullable ProgressIndicator indicator) throws Exception {
+        long startedAt = System.currentTimeMillis();
+        String packageName = request.getScopePath() == null ? null : packageResolver.apply(request.getScopePath());
+        TestWorkerProcess.Result result = TestWorkerProcess.getInstance(project).execute(findJavaExecutable(),
+            agentOptions, jars, modules, request.getTestClasses(), packageName, testRoots, listener, indicator);
+        LOG.info(result.reloaded > 0
+            ? "输出目录有变化，工作进程重新加载了 " + result.reloaded + " / " + modules.size() + " 个模块的类"
+            : "工作进程复用已加载的类");
+
+        TestClassCoverageCollector collector = new TestClassCoverageCollector();
+        SessionInfoStore sessionInfos = new SessionInfoStore();
+        for (Map.Entry<String, byte[]> entry : result.testClassData.entrySet()) {
+            collector.record(entry.getKey(), read(entry.getValue(), sessionInfos));
+        }
+        collector.record(null, read(result.executionData, sessionInfos));
+        return new TestRunResult(getName(), result.passed, result.failed, result.skipped, List.of(),
+            System.currentTimeMillis() - startedAt, collector.getExecutionData(), sessionInfos,
+            collector.getTestClassCoverage());
+    }
+
+    private static ExecutionDataStore read(byte[] bytes, SessionInfoStore sessionInfos) throws IOException {
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        ExecutionDataReader reader = new ExecutionDataReader(new ByteArrayInputStream(bytes));
+        reader.setExecutionDataVisitor(executionData);
+        reader.setSessionInfoVisitor(sessionInfos);
+        reader.read();
+        return executionData;
+    }
+
+    /**
+     * 代理参数：不输出文件，插件按需取回数据；包含 / 排除模式转换为代理使用的冒号分隔
+     */
+    static String buildAgentOptions(String classIncludes, String classExcludes) {
+        StringBuilder options = new StringBuilder("output=none,dumponexit=false,sessionid=ut-test-worker");
+        String includes = toAgentPatterns(classIncludes);
+        if (!includes.isEmpty()) {
+            options.append(",includes=").append(includes);
+        }
+        String excludes = toAgentPatterns(classExcludes);
+        if (!excludes.isEmpty()) {
+            options.append(",excludes=").append(excludes);
+        }
+        return options.toString();
+    }
+
+    private static String toAgentPatterns(@Nullable String patterns) {
+        if (patterns == null) {
+            return "";
+        }
+        List<String> result = new ArrayList<>();
+        for (String pattern : patterns.trim().split("[,;\\s]+")) {
+            if (!pattern.isEmpty()) {
+                result.add(pattern);
+            }
+        }
+        return String.join(":", result);
+    }
+
+    private String findJavaExecutable() {
+        Sdk sdk = ProjectRootManager.getInstance(project).getProjectSdk();
+        String home = sdk != null && sdk.getHomePath() != null ? sdk.getHomePath() : System.getProperty("java.home");
+        File java = Paths.get(home, "bin", WINDOWS ? "java.exe" : "java").toFile();
+        return java.isFile() ? java.getPath() : "java";
+    }
+}
@@ -9,22 +9,22 @@ import com.intellij.openapi.project.Project;
  * 协调不同功能的中央服务管理器
  * 
  * 功能：
- * - 初始化和管理覆盖率服务
+ * - 持有项目共享的覆盖率服务
  * - 初始化和管理测试生成服务
  * - 协调完整的分析工作流程
  */
 public class ServiceManager {
     private final Project project;
-    private JacocoCoverageService coverageService;        // 覆盖率服务
+    private final JacocoCoverageService coverageService;  // 覆盖率服务（与插件服务共享）
     private UnitTestGenerationService testGenerationService; // 测试生成服务
 
-    public ServiceManager(Project project) {
+    public ServiceManager(Project project, JacocoCoverageService coverageService) {
         this.project = project;
+        this.coverageService = coverageService;
         initializeServices();
     }
 
     private void initializeServices() {
-        coverageService = new JacocoCoverageService(project);
         testGenerationService = new UnitTestGenerationService(project);
     }
 
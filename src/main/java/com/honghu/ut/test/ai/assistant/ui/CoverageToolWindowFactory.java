@@ -17,6 +17,7 @@ import java.util.Objects;
  * 功能：
  * - 创建覆盖率工具窗口内容
  * - 将覆盖率面板添加到工具窗口中
+ * - 打开时恢复上次保存的分析结果
  */
 public class CoverageToolWindowFactory implements ToolWindowFactory {
     @Override
@@ -25,5 +26,6 @@ public class CoverageToolWindowFactory implements ToolWindowFactory {
         ContentFactory contentFactory = ContentFactory.getInstance();
         Content content = contentFactory.createContent(windowPanel, "", false);
         toolWindow.getContentManager().addContent(content);
+        windowPanel.restoreLastResult();
     }
 }
\ No newline at end of file
@@ -1,15 +1,28 @@
 package com.honghu.ut.test.ai.assistant.ui;
 
-import com.honghu.ut.test.ai.assistant.jacoco.CoverageData;
+import com.honghu.ut.test.ai.assistant.config.UtAssistantSettings;
+import com.honghu.ut.test.ai.assistant.jacoco.CoverageDiff;
+import com.honghu.ut.test.ai.assistant.jacoco.CoverageHistoryStore;
+import com.honghu.ut.test.ai.assistant.jacoco.CoverageResult;
+import com.honghu.ut.test.ai.assistant.jacoco.CoverageRollup;
+import com.honghu.ut.test.ai.assistant.jacoco.CoverageSnapshot;
 import com.honghu.ut.test.ai.assistant.jacoco.JacocoCoverageService;
 import com.honghu.ut.test.ai.assistant.jacoco.JacocoUtils;
 import com.honghu.ut.test.ai.assistant.plugin.UtAssistantPlugin;
+import com.honghu.ut.test.ai.assistant.runner.TestRunListener;
+import com.honghu.ut.test.ai.assistant.runner.TestRunResult;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.SimpleToolWindowPanel;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.components.JBTabbedPane;
 import com.intellij.ui.table.JBTable;
 import com.intellij.util.ui.JBUI;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -24,7 +37,10 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 覆盖率工具窗口面板
@@ -35,6 +51,11 @@ import java.util.List;
  * - 提供详细报告视图
  * - 包含生成报告和AI修复按钮
  * - 支持报告下载功能
+ * - 实时覆盖率开关，定时刷新覆盖率摘要
+ * - 变更视图：与基线或上一次分析对比，列出覆盖率变化的包和类
+ * - 趋势视图：从覆盖率历史读取项目和各个包的覆盖率趋势，以迷你折线图显示
+ * - 打开时立即显示上次保存的结果并标记为待校验，后台校验完成后去掉标记或提示已过期
+ * - 测试视图：运行指定的测试类或全部测试，逐个显示测试结果，完成后刷新覆盖率摘要
  */
 public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
     private final Project project;
@@ -49,6 +70,18 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
     private JPanel contentPanel;            // 内容面板，用于切换显示
     private JComboBox<String> aiClassComboBox;    // AI分析类选择器
     private JComboBox<String> aiModelComboBox;    // AI分析模型选择器
+    private static final int TREND_POINTS = 200;          // 项目趋势最多显示的点数
+    private static final int PACKAGE_TREND_POINTS = 60;   // 每个包的趋势最多显示的点数
+
+    private DefaultTableModel changesTableModel;  // 变更视图表格模型
+    private JLabel changesSummaryLabel;           // 变更视图摘要
+    private DefaultTableModel trendTableModel;    // 趋势视图表格模型（各个包）
+    private JLabel trendSummaryLabel;             // 趋势视图摘要
+    private Sparkline lineTrend;                  // 项目行覆盖率趋势
+    private Sparkline branchTrend;                // 项目分支覆盖率趋势
+    private DefaultTableModel testRunTableModel;  // 测试视图表格模型
+    private JLabel testRunSummaryLabel;           // 测试视图摘要
+    private JButton runTestsButton;               // 运行测试按钮，运行期间禁用
 
     public CoverageToolWindowPanel(Project project) {
         super(true, true);
@@ -75,6 +108,21 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
         // 修补标签页
         mainTabbedPane.addTab("修补", createFixTab());
 
+        // 变更标签页
+        mainTabbedPane.addTab("变更", createChangesTab());
+
+        // 测试标签页
+        mainTabbedPane.addTab("测试", createTestRunTab());
+
+        // 趋势标签页，切换到该页时读取历史
+        mainTabbedPane.addTab("趋势", createTrendTab());
+        int trendTabIndex = mainTabbedPane.getTabCount() - 1;
+        mainTabbedPane.addChangeListener(e -> {
+            if (mainTabbedPane.getSelectedIndex() == trendTabIndex) {
+                refreshTrends();
+            }
+        });
+
         return mainTabbedPane;
     }
 
@@ -149,17 +197,21 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
         JButton coverageSummaryButton = new JButton("覆盖率摘要");
         JButton detailedReportButton = new JButton("详细报告");
         JButton downloadReportButton = new JButton("下载报告");
+        JToggleButton liveCoverageButton = new JToggleButton("实时覆盖率");
         
         // 添加按钮事件
         coverageSummaryButton.addActionListener(e -> showCoverageSummary());
         detailedReportButton.addActionListener(e -> showDetailedReport());
         downloadReportButton.addActionListener(e -> downloadCoverageReport());
+        liveCoverageButton.addActionListener(e -> toggleLiveCoverage(liveCoverageButton));
         
         summaryButtonsPanel.add(coverageSummaryButton);
         summaryButtonsPanel.add(Box.createHorizontalStrut(15));
         summaryButtonsPanel.add(detailedReportButton);
         summaryButtonsPanel.add(Box.createHorizontalStrut(15));
         summaryButtonsPanel.add(downloadReportButton);
+        summaryButtonsPanel.add(Box.createHorizontalStrut(15));
+        summaryButtonsPanel.add(liveCoverageButton);
         
         // 创建覆盖率摘要面板和详细报告面板
         coverageSummaryPanel = new JPanel(new BorderLayout());
@@ -222,6 +274,392 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
         return reportPanel;
     }
 
+    // 创建变更标签页内容
+    private JComponent createChangesTab() {
+        JPanel changesPanel = new JPanel(new BorderLayout());
+
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton markBaselineButton = new JButton("设为基线");
+        JButton clearBaselineButton = new JButton("清除基线");
+        JButton refreshChangesButton = new JButton("刷新变更");
+        markBaselineButton.addActionListener(e -> {
+            coverageService.markBaseline();
+            statusLabel.setText(coverageService.getBaseline() == null ? "没有可作为基线的分析结果" : "已将当前结果设为基线");
+            refreshChanges();
+        });
+        clearBaselineButton.addActionListener(e -> {
+            coverageService.clearBaseline();
+            refreshChanges();
+        });
+        refreshChangesButton.addActionListener(e -> refreshChanges());
+        changesSummaryLabel = new JLabel("与上一次分析对比");
+        controlsPanel.add(markBaselineButton);
+        controlsPanel.add(clearBaselineButton);
+        controlsPanel.add(refreshChangesButton);
+        controlsPanel.add(Box.createHorizontalStrut(15));
+        controlsPanel.add(changesSummaryLabel);
+
+        String[] columns = {"包 / 类", "状态", "行覆盖率", "分支覆盖率", "已覆盖行变化", "已覆盖分支变化", "行变化", "方法变化"};
+        changesTableModel = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JBTable changesTable = new JBTable(changesTableModel);
+        changesTable.getColumnModel().getColumn(0).setPreferredWidth(320);
+
+        changesPanel.add(controlsPanel, BorderLayout.NORTH);
+        changesPanel.add(new JBScrollPane(changesTable), BorderLayout.CENTER);
+        return changesPanel;
+    }
+
+    // 创建测试标签页
+    private JComponent createTestRunTab() {
+        JPanel testRunPanel = new JPanel(new BorderLayout());
+
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JTextField testClassesField = new JTextField(30);
+        testClassesField.setToolTipText("测试类全限定名，以逗号分隔；留空运行全部测试");
+        runTestsButton = new JButton("运行测试");
+        runTestsButton.addActionListener(e -> runTestsWithCoverage(null, parseTestClasses(testClassesField.getText())));
+        JButton runAffectedTestsButton = new JButton("运行受影响的测试");
+        runAffectedTestsButton.setToolTipText("根据测试影响索引，只运行覆盖到已修改类的测试");
+        runAffectedTestsButton.addActionListener(e -> runAffectedTests());
+        testRunSummaryLabel = new JLabel("运行测试后自动分析覆盖率");
+        controlsPanel.add(new JLabel("测试类:"));
+        controlsPanel.add(testClassesField);
+        controlsPanel.add(runTestsButton);
+        controlsPanel.add(runAffectedTestsButton);
+        controlsPanel.add(Box.createHorizontalStrut(15));
+        controlsPanel.add(testRunSummaryLabel);
+
+        String[] columns = {"测试类", "方法", "结果", "耗时", "信息"};
+        testRunTableModel = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JBTable testRunTable = new JBTable(testRunTableModel);
+        testRunTable.getColumnModel().getColumn(0).setPreferredWidth(280);
+        testRunTable.getColumnModel().getColumn(4).setPreferredWidth(320);
+
+        testRunPanel.add(controlsPanel, BorderLayout.NORTH);
+        testRunPanel.add(new JBScrollPane(testRunTable), BorderLayout.CENTER);
+        return testRunPanel;
+    }
+
+    private static List<String> parseTestClasses(String testClassesText) {
+        List<String> testClasses = new ArrayList<>();
+        for (String testClass : testClassesText.split("[,;\\s]+")) {
+            if (!testClass.isEmpty()) {
+                testClasses.add(testClass);
+            }
+        }
+        return testClasses;
+    }
+
+    /**
+     * 在后台按测试影响索引选出受变化影响的测试类，再运行这些测试
+     */
+    private void runAffectedTests() {
+        if (!runTestsButton.isEnabled()) {
+            statusLabel.setText("已有测试正在运行");
+            return;
+        }
+        testRunSummaryLabel.setText("正在查找受影响的测试...");
+        runTestsButton.setEnabled(false);
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "查找受影响的测试", true) {
+            private List<String> affectedTests;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                try {
+                    affectedTests = coverageService.selectAffectedTests(indicator);
+                } catch (ProcessCanceledException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                runTestsButton.setEnabled(true);
+                if (affectedTests.isEmpty()) {
+                    testRunSummaryLabel.setText("没有受影响的测试");
+                    return;
+                }
+                runTestsWithCoverage(null, affectedTests);
+            }
+
+            @Override
+            public void onCancel() {
+                runTestsButton.setEnabled(true);
+                testRunSummaryLabel.setText("已取消查找受影响的测试");
+            }
+
+            @Override
+            public void onThrowable(Throwable error) {
+                runTestsButton.setEnabled(true);
+                testRunSummaryLabel.setText("查找受影响的测试失败: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 在后台运行测试，测试结果逐个追加到测试视图的表格，完成后刷新覆盖率摘要
+     *
+     * @param scopePath   选中的目录，只构建其所属的模块，为 null 时不限制
+     * @param testClasses 测试类全限定名，为空时运行全部（或选中目录下的）测试
+     */
+    public void runTestsWithCoverage(String scopePath, List<String> testClasses) {
+        if (!runTestsButton.isEnabled()) {
+            statusLabel.setText("已有测试正在运行");
+            return;
+        }
+        mainTabbedPane.setSelectedIndex(mainTabbedPane.indexOfTab("测试"));
+        testRunTableModel.setRowCount(0);
+        if (!testClasses.isEmpty()) {
+            testRunSummaryLabel.setText("正在运行 " + testClasses.size() + " 个测试类...");
+        } else if (scopePath != null) {
+            testRunSummaryLabel.setText("正在运行 " + new File(scopePath).getName() + " 下的测试...");
+        } else {
+            testRunSummaryLabel.setText("正在运行全部测试...");
+        }
+        runTestsButton.setEnabled(false);
+
+        Map<String, Integer> rows = new HashMap<>();   // 测试类#方法 -> 表格行，只在 EDT 上访问
+        TestRunListener listener = new TestRunListener() {
+            @Override
+            public void onTestStarted(String className, String methodName) {
+                SwingUtilities.invokeLater(() -> {
+                    rows.put(className + "#" + methodName, testRunTableModel.getRowCount());
+                    testRunTableModel.addRow(new Object[]{className, methodName, "运行中", "", ""});
+                });
+            }
+
+            @Override
+            public void onTestFinished(String className, String methodName, Outcome outcome, long durationMillis,
+                                       String message) {
+                SwingUtilities.invokeLater(() -> {
+                    Object[] row = {className, methodName, formatOutcome(outcome), durationMillis + " ms",
+                        message == null ? "" : message};
+                    Integer index = rows.remove(className + "#" + methodName);
+                    if (index == null) {
+                        testRunTableModel.addRow(row);
+                    } else {
+                        for (int column = 0; column < row.length; column++) {
+                            testRunTableModel.setValueAt(row[column], index, column);
+                        }
+                    }
+                });
+            }
+        };
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "运行测试并分析覆盖率", true) {
+            private TestRunResult runResult;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                try {
+                    runResult = coverageService.runTestsWithCoverage(scopePath, testClasses, listener, indicator);
+                } catch (ProcessCanceledException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                testRunSummaryLabel.setText(runResult.getSummary());
+                updateCoverageSummary();
+                statusLabel.setText(runResult.isSuccessful() ? "测试全部通过，覆盖率已更新" : "有测试失败，覆盖率已更新");
+            }
+
+            @Override
+            public void onCancel() {
+                testRunSummaryLabel.setText("测试运行已取消");
+            }
+
+            @Override
+            public void onThrowable(Throwable error) {
+                testRunSummaryLabel.setText("运行测试失败: " + error.getMessage());
+            }
+
+            @Override
+            public void onFinished() {
+                runTestsButton.setEnabled(true);
+            }
+        });
+    }
+
+    private static String formatOutcome(TestRunListener.Outcome outcome) {
+        switch (outcome) {
+            case PASSED:
+                return "通过";
+            case FAILED:
+                return "失败";
+            default:
+                return "跳过";
+        }
+    }
+
+    // 刷新变更视图
+    private void refreshChanges() {
+        changesTableModel.setRowCount(0);
+        CoverageDiff diff = coverageService.diffWithBaseline();
+        String reference = coverageService.getBaseline() != null ? "基线" : "上一次分析";
+        if (diff == null) {
+            changesSummaryLabel.setText("没有可对比的" + reference + "结果");
+            return;
+        }
+        changesSummaryLabel.setText(String.format("与%s对比：%d 个类变化，行覆盖率 %s，分支覆盖率 %s",
+            reference, diff.getChangedCount(),
+            formatPercentDelta(diff.getTotalPercentDelta(CounterEntity.LINE)),
+            formatPercentDelta(diff.getTotalPercentDelta(CounterEntity.BRANCH))));
+
+        for (int p = 0; p < diff.getPackageCount(); p++) {
+            changesTableModel.addRow(new Object[]{
+                "包: " + diff.getPackageName(p), "", "", "",
+                formatCountDelta(diff.getPackageCoveredDelta(CounterEntity.LINE, p)),
+                formatCountDelta(diff.getPackageCoveredDelta(CounterEntity.BRANCH, p)), "", ""
+            });
+            for (int k = diff.getPackageStart(p); k < diff.getPackageEnd(p); k++) {
+                int[] gained = diff.getGainedLines(k);
+                int[] lost = diff.getLostLines(k);
+                String lineChanges = gained == null ? "" : "+" + gained.length + " / -" + lost.length;
+                changesTableModel.addRow(new Object[]{
+                    "    " + diff.getQualifiedName(k),
+                    diff.getStatus(k).getDisplayName(),
+                    formatPercent(diff.getPercentBefore(CounterEntity.LINE, k)) + " → " + formatPercent(diff.getPercentAfter(CounterEntity.LINE, k)),
+                    formatPercent(diff.getPercentBefore(CounterEntity.BRANCH, k)) + " → " + formatPercent(diff.getPercentAfter(CounterEntity.BRANCH, k)),
+                    formatCountDelta(diff.getCoveredDelta(CounterEntity.LINE, k)),
+                    formatCountDelta(diff.getCoveredDelta(CounterEntity.BRANCH, k)),
+                    lineChanges,
+                    formatMethodChanges(diff.getGainedMethods(k), diff.getLostMethods(k))
+                });
+            }
+        }
+    }
+
+    // 方法变化显示为 "+新覆盖的方法, -失去覆盖的方法"，只显示方法名
+    private static String formatMethodChanges(String[] gained, String[] lost) {
+        if (gained == null) {
+            return "";
+        }
+        List<String> parts = new ArrayList<>(gained.length + lost.length);
+        for (String method : gained) {
+            parts.add("+" + method.substring(0, method.indexOf('(')));
+        }
+        for (String method : lost) {
+            parts.add("-" + method.substring(0, method.indexOf('(')));
+        }
+        return String.join(", ", parts);
+    }
+
+    // 创建趋势标签页内容
+    private JComponent createTrendTab() {
+        JPanel trendPanel = new JPanel(new BorderLayout());
+        UtAssistantSettings.SettingsState state = UtAssistantSettings.getInstance(project).getState();
+
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton refreshTrendButton = new JButton("刷新趋势");
+        refreshTrendButton.addActionListener(e -> refreshTrends());
+        trendSummaryLabel = new JLabel("尚未读取覆盖率历史");
+        controlsPanel.add(refreshTrendButton);
+        controlsPanel.add(Box.createHorizontalStrut(15));
+        controlsPanel.add(trendSummaryLabel);
+
+        // 项目合计的行 / 分支覆盖率趋势
+        JPanel projectPanel = new JPanel(new GridLayout(2, 2, 10, 2));
+        lineTrend = new Sparkline(state.minLineCoverage);
+        branchTrend = new Sparkline(state.minBranchCoverage);
+        projectPanel.add(new JLabel("项目行覆盖率:"));
+        projectPanel.add(lineTrend);
+        projectPanel.add(new JLabel("项目分支覆盖率:"));
+        projectPanel.add(branchTrend);
+        projectPanel.setBorder(JBUI.Borders.empty(0, 10, 5, 10));
+
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(controlsPanel, BorderLayout.NORTH);
+        northPanel.add(projectPanel, BorderLayout.CENTER);
+
+        String[] columns = {"包", "行覆盖率", "变化", "行覆盖率趋势"};
+        trendTableModel = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JBTable trendTable = new JBTable(trendTableModel);
+        trendTable.setRowHeight(JBUI.scale(26));
+        trendTable.getColumnModel().getColumn(0).setPreferredWidth(320);
+        trendTable.getColumnModel().getColumn(3).setPreferredWidth(200);
+        trendTable.getColumnModel().getColumn(3).setCellRenderer(new Sparkline(state.minLineCoverage));
+
+        trendPanel.add(northPanel, BorderLayout.NORTH);
+        trendPanel.add(new JBScrollPane(trendTable), BorderLayout.CENTER);
+        return trendPanel;
+    }
+
+    // 在后台读取覆盖率历史后刷新趋势视图
+    private void refreshTrends() {
+        trendSummaryLabel.setText("正在读取覆盖率历史...");
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            CoverageHistoryStore history = coverageService.getHistoryStore();
+            CoverageHistoryStore.Trend line;
+            CoverageHistoryStore.Trend branch;
+            Map<String, CoverageHistoryStore.Trend> packages;
+            try {
+                line = history.readProjectTrend(CounterEntity.LINE, TREND_POINTS);
+                branch = history.readProjectTrend(CounterEntity.BRANCH, TREND_POINTS);
+                packages = history.readPackageTrends(CounterEntity.LINE, PACKAGE_TREND_POINTS);
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> trendSummaryLabel.setText("读取覆盖率历史失败: " + e.getMessage()));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> showTrends(line, branch, packages));
+        });
+    }
+
+    private void showTrends(CoverageHistoryStore.Trend line, CoverageHistoryStore.Trend branch,
+                            Map<String, CoverageHistoryStore.Trend> packages) {
+        lineTrend.setValues(line.getPercents());
+        branchTrend.setValues(branch.getPercents());
+        trendTableModel.setRowCount(0);
+        if (line.size() == 0) {
+            trendSummaryLabel.setText("还没有覆盖率历史，基于执行数据完成一次分析后开始记录");
+            return;
+        }
+        String revision = line.getRevision(line.size() - 1);
+        trendSummaryLabel.setText(String.format("共 %d 个点，最新：行覆盖率 %s，分支覆盖率 %s%s",
+            line.size(), formatPercent(line.getLatestPercent()), formatPercent(branch.getLatestPercent()),
+            revision == null ? "" : "（提交 " + revision.substring(0, Math.min(8, revision.length())) + "）"));
+        for (Map.Entry<String, CoverageHistoryStore.Trend> entry : packages.entrySet()) {
+            CoverageHistoryStore.Trend trend = entry.getValue();
+            float latest = trend.getLatestPercent();
+            float first = Float.NaN;
+            for (int i = 0; i < trend.size() && Float.isNaN(first); i++) {
+                first = trend.getPercent(i);
+            }
+            trendTableModel.addRow(new Object[]{
+                entry.getKey(), formatPercent(latest), formatPercentDelta(latest - first), trend.getPercents()
+            });
+        }
+    }
+
+    private static String formatCountDelta(long delta) {
+        return delta > 0 ? "+" + delta : String.valueOf(delta);
+    }
+
+    private static String formatPercentDelta(double delta) {
+        return Double.isNaN(delta) ? "N/A" : String.format("%+.2f%%", delta);
+    }
+
     // 显示覆盖率摘要
     private void showCoverageSummary() {
         contentPanel.removeAll();
@@ -230,6 +668,76 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
         contentPanel.repaint();
     }
     
+    // 恢复上次的分析结果，立即显示后在后台校验是否过期
+    public void restoreLastResult() {
+        if (!coverageService.restoreLastResult()) {
+            return;
+        }
+        showCoverageSummary();
+        updateCoverageSummary();
+        statusLabel.setText("已显示上次的分析结果，正在校验...");
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                return coverageService.revalidateRestoredResult();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    String outdatedReason = get();
+                    // 重建树以去掉（或保留）根节点上的标记；校验期间用户可能已经重新分析，状态栏只覆盖恢复时的提示
+                    updateCoverageSummary();
+                    if (outdatedReason != null) {
+                        statusLabel.setText("上次的分析结果已过期（" + outdatedReason + "），请重新分析");
+                    } else if (statusLabel.getText().startsWith("已显示上次的分析结果")) {
+                        statusLabel.setText("就绪");
+                    }
+                } catch (Exception ex) {
+                    statusLabel.setText("校验上次的分析结果失败");
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    // 启动或停止实时覆盖率
+    private void toggleLiveCoverage(JToggleButton button) {
+        if (!button.isSelected()) {
+            coverageService.stopLiveCoverage();
+            statusLabel.setText("实时覆盖率已停止");
+            return;
+        }
+        statusLabel.setText("正在启动实时覆盖率...");
+        showCoverageSummary();
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                coverageService.startLiveCoverage(project.getBasePath(), () -> SwingUtilities.invokeLater(() -> {
+                    updateCoverageSummary();
+                    statusLabel.setText("实时覆盖率已更新（版本 " + coverageService.getResult().getVersion() + "）");
+                }));
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    updateCoverageSummary();
+                    statusLabel.setText("实时覆盖率运行中");
+                } catch (Exception ex) {
+                    button.setSelected(false);
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    statusLabel.setText("实时覆盖率启动失败");
+                    JOptionPane.showMessageDialog(CoverageToolWindowPanel.this, "启动实时覆盖率失败: " + cause.getMessage(),
+                        "错误", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
     // 显示详细报告
     private void showDetailedReport() {
         contentPanel.removeAll();
@@ -564,8 +1072,12 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
                     // 获取覆盖率服务并执行分析
                     coverageService.executeTestsAndGenerateCoverage(projectPath);
                     
-                    // 获取分析后的覆盖率数据
-                    List<CoverageData> coverageDataList = coverageService.getAllCoverageData();
+                    // 获取分析后的结果，快照和分层汇总来自同一次分析
+                    CoverageResult analyzed = coverageService.getResult();
+                    CoverageSnapshot snapshot = analyzed.getSnapshot();
+                    CoverageRollup rollup = analyzed.getRollup();
+                    CoverageRollup.Node projectNode = rollup.getProject();
+                    int classCount = snapshot.getClassCount();
                     
                     // 生成HTML格式的报告
                     StringBuilder htmlReport = new StringBuilder();
@@ -602,86 +1114,51 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
                     htmlReport.append("<p class='report-info'><strong>项目:</strong> ").append(project.getName()).append("</p>");
                     htmlReport.append("<p class='report-info'><strong>时间:</strong> ").append(new java.util.Date()).append("</p>");
                     
-                    // 计算总体统计信息
-                    if (!coverageDataList.isEmpty()) {
-                        double totalLineCoverage = 0;
-                        double totalBranchCoverage = 0;
-                        double totalMethodCoverage = 0;
-                        double totalClassCoverage = 0;
-                        
-                        for (CoverageData data : coverageDataList) {
-                            totalLineCoverage += data.getLineCoverage();
-                            totalBranchCoverage += data.getBranchCoverage();
-                            totalMethodCoverage += data.getMethodCoverage();
-                            totalClassCoverage += data.getClassCoverage();
-                        }
-                        
-                        double avgLineCoverage = totalLineCoverage / coverageDataList.size();
-                        double avgBranchCoverage = totalBranchCoverage / coverageDataList.size();
-                        double avgMethodCoverage = totalMethodCoverage / coverageDataList.size();
-                        double avgClassCoverage = totalClassCoverage / coverageDataList.size();
-                        
-                        htmlReport.append("<p class='report-info'><strong>覆盖率统计:</strong> 行覆盖率: ").append(String.format("%.2f%%", avgLineCoverage))
-                                 .append(" | 分支覆盖率: ").append(String.format("%.2f%%", avgBranchCoverage))
-                                 .append(" | 方法覆盖率: ").append(String.format("%.2f%%", avgMethodCoverage))
-                                 .append(" | 类覆盖率: ").append(String.format("%.2f%%", avgClassCoverage)).append("</p>");
+                    // 总体统计信息取自项目汇总节点（按计数器加权）
+                    if (!snapshot.isEmpty()) {
+                        htmlReport.append("<p class='report-info'><strong>覆盖率统计:</strong> ").append(formatRollup(projectNode)).append("</p>");
                     } else {
                         htmlReport.append("<p class='report-info'><strong>覆盖率统计:</strong> 未找到可分析的类文件或项目尚未编译</p>");
                     }
                     
                     htmlReport.append("</div>");
                     
-                    if (!coverageDataList.isEmpty()) {
+                    if (!snapshot.isEmpty()) {
                         htmlReport.append("<h2>覆盖率详情</h2>");
                         htmlReport.append("<table>");
                         htmlReport.append("<tr><th>类名</th><th>行覆盖率</th><th>分支覆盖率</th><th>方法覆盖率</th><th>类覆盖率</th></tr>");
                         
                         // 添加真实覆盖率数据
-                        for (CoverageData data : coverageDataList) {
-                            addCoverageRowWithClass(htmlReport, data.getName(), 
-                                                  data.getFormattedLineCoverage(), 
-                                                  data.getFormattedBranchCoverage(),
-                                                  data.getFormattedMethodCoverage(),
-                                                  data.getFormattedClassCoverage());
+                        for (int i = 0; i < classCount; i++) {
+                            addCoverageRowWithClass(htmlReport, snapshot, i, snapshot.getQualifiedName(i));
                         }
                         
                         htmlReport.append("</table>");
                         
-                        // 按包名分组显示
+                        // 按模块、包分组显示，分组标题带该组的汇总覆盖率
                         htmlReport.append("<h2>按包分组的覆盖率</h2>");
+                        boolean multiModule = rollup.getModules().size() > 1;
                         
-                        // 按包名分组
-                        java.util.Map<String, java.util.List<CoverageData>> groupedByPackage = new java.util.HashMap<>();
-                        for (CoverageData data : coverageDataList) {
-                            String className = data.getName();
-                            String packageName = className.contains("/") ? 
-                                className.substring(0, className.lastIndexOf("/")) : 
-                                className.contains(".") ? 
-                                    className.substring(0, className.lastIndexOf(".")) : 
-                                    "default";
-                                    
-                            groupedByPackage.computeIfAbsent(packageName, k -> new java.util.ArrayList<>()).add(data);
-                        }
-                        
-                        // 为每个包生成报告
-                        for (java.util.Map.Entry<String, java.util.List<CoverageData>> entry : groupedByPackage.entrySet()) {
-                            String packageName = entry.getKey();
-                            java.util.List<CoverageData> packageDataList = entry.getValue();
-                            
-                            htmlReport.append("<div class='folder-header'>").append(packageName).append("</div>");
-                            htmlReport.append("<table>");
-                            htmlReport.append("<tr><th>类名</th><th>行覆盖率</th><th>分支覆盖率</th><th>方法覆盖率</th><th>类覆盖率</th></tr>");
-                            
-                            for (CoverageData data : packageDataList) {
-                                addCoverageRowWithClass(htmlReport, 
-                                                      data.getName().substring(data.getName().lastIndexOf('.') + 1), 
-                                                      data.getFormattedLineCoverage(), 
-                                                      data.getFormattedBranchCoverage(),
-                                                      data.getFormattedMethodCoverage(),
-                                                      data.getFormattedClassCoverage());
+                        for (CoverageRollup.Node moduleNode : rollup.getModules()) {
+                            if (multiModule) {
+                                htmlReport.append("<h3>模块 ").append(moduleNode.getName()).append("</h3>");
+                                htmlReport.append("<p class='report-info'>").append(formatRollup(moduleNode)).append("</p>");
+                            }
+                            for (CoverageRollup.Node packageNode : moduleNode.getChildren()) {
+                                htmlReport.append("<div class='folder-header'>").append(packageNode.getName())
+                                         .append(" (").append(formatRollup(packageNode)).append(")</div>");
+                                htmlReport.append("<table>");
+                                htmlReport.append("<tr><th>类名</th><th>行覆盖率</th><th>分支覆盖率</th><th>方法覆盖率</th><th>类覆盖率</th></tr>");
+                                
+                                int p = snapshot.findPackage(packageNode.getName());
+                                for (int i = snapshot.getPackageStart(p); i < snapshot.getPackageEnd(p); i++) {
+                                    if (rollup.getModuleName(snapshot.getClassName(i)).equals(moduleNode.getName())) {
+                                        addCoverageRowWithClass(htmlReport, snapshot, i, snapshot.getSimpleName(i));
+                                    }
+                                }
+                                
+                                htmlReport.append("</table>");
                             }
-                            
-                            htmlReport.append("</table>");
                         }
                     } else {
                         htmlReport.append("<h2>覆盖率详情</h2>");
@@ -694,13 +1171,11 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
                     htmlReport.append("<div class='stats-container'>");
                     htmlReport.append("<h2>统计摘要</h2>");
                     htmlReport.append("<ul>");
-                    htmlReport.append("<li><strong>总类数:</strong> ").append(coverageDataList.size()).append("</li>");
+                    htmlReport.append("<li><strong>总类数:</strong> ").append(classCount).append("</li>");
                     
-                    if (!coverageDataList.isEmpty()) {
-                        // 计算覆盖不足的类
-                        long lowCoverageClasses = coverageDataList.stream()
-                            .filter(data -> data.getLineCoverage() < 70)
-                            .count();
+                    // 覆盖不足的类数量在汇总时已经统计
+                    int lowCoverageClasses = projectNode.getLowCoverageCount();
+                    if (!snapshot.isEmpty()) {
                         htmlReport.append("<li><strong>覆盖率低于70%的类:</strong> ").append(lowCoverageClasses).append("</li>");
                     } else {
                         htmlReport.append("<li><strong>覆盖率低于70%的类:</strong> N/A (无数据)</li>");
@@ -709,27 +1184,22 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
                     htmlReport.append("</ul>");
                     htmlReport.append("</div>");
                     
-                    if (!coverageDataList.isEmpty()) {
-                        long lowCoverageClasses = coverageDataList.stream()
-                            .filter(data -> data.getLineCoverage() < 70)
-                            .count();
+                    if (lowCoverageClasses > 0) {
+                        htmlReport.append("<h2>覆盖率建议</h2>");
+                        htmlReport.append("<div class='suggestion'>");
+                        htmlReport.append("<div class='suggestion-title'>需要改进的区域:</div>");
+                        htmlReport.append("<ul>");
                         
-                        if (lowCoverageClasses > 0) {
-                            htmlReport.append("<h2>覆盖率建议</h2>");
-                            htmlReport.append("<div class='suggestion'>");
-                            htmlReport.append("<div class='suggestion-title'>需要改进的区域:</div>");
-                            htmlReport.append("<ul>");
-                            
-                            for (CoverageData data : coverageDataList) {
-                                if (data.getLineCoverage() < 70) {
-                                    htmlReport.append("<li>").append(data.getName()).append(" 行覆盖率: ")
-                                             .append(data.getFormattedLineCoverage()).append(" (需要改进)</li>");
-                                }
+                        for (int i = 0; i < classCount; i++) {
+                            double lineCoverage = snapshot.getCoveredPercent(CounterEntity.LINE, i);
+                            if (lineCoverage < CoverageRollup.LOW_COVERAGE_PERCENT) {
+                                htmlReport.append("<li>").append(snapshot.getQualifiedName(i)).append(" 行覆盖率: ")
+                                         .append(formatPercent(lineCoverage)).append(" (需要改进)</li>");
                             }
-                            
-                            htmlReport.append("</ul>");
-                            htmlReport.append("</div>");
                         }
+                        
+                        htmlReport.append("</ul>");
+                        htmlReport.append("</div>");
                     }
                     
                     htmlReport.append("</body></html>");
@@ -741,37 +1211,34 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
                 }
             }
 
-            private void addCoverageRowWithClass(StringBuilder html, String className, String lineCoverage, 
-                                               String branchCoverage, String methodCoverage, String classCoverage) {
+            private void addCoverageRowWithClass(StringBuilder html, CoverageSnapshot snapshot, int classIndex, String className) {
                 html.append("<tr>");
                 html.append("<td>").append(className).append("</td>");
-                html.append("<td class='").append(getCoverageClass(lineCoverage)).append("'>").append(lineCoverage).append("</td>");
-                html.append("<td class='").append(getCoverageClass(branchCoverage)).append("'>").append(branchCoverage).append("</td>");
-                html.append("<td class='").append(getCoverageClass(methodCoverage)).append("'>").append(methodCoverage).append("</td>");
-                html.append("<td class='").append(getCoverageClass(classCoverage)).append("'>").append(classCoverage).append("</td>");
+                appendCoverageCell(html, snapshot.getCoveredPercent(CounterEntity.LINE, classIndex));
+                appendCoverageCell(html, snapshot.getCoveredPercent(CounterEntity.BRANCH, classIndex));
+                appendCoverageCell(html, snapshot.getCoveredPercent(CounterEntity.METHOD, classIndex));
+                appendCoverageCell(html, snapshot.getCoveredPercent(CounterEntity.CLASS, classIndex));
                 html.append("</tr>");
             }
+
+            private void appendCoverageCell(StringBuilder html, double coverage) {
+                html.append("<td class='").append(getCoverageClass(coverage)).append("'>").append(formatPercent(coverage)).append("</td>");
+            }
             
-            private String getCoverageClass(String coverageStr) {
-                if (coverageStr.endsWith("%")) {
-                    try {
-                        double coverage = Double.parseDouble(coverageStr.substring(0, coverageStr.length() - 1));
-                        if (coverage == 100.0) {
-                            return "coverage-high";
-                        } else if (coverage >= 75.0) {
-                            return "coverage-medium";
-                        } else if (coverage >= 50.0) {
-                            return "coverage-low";
-                        } else if (coverage >= 25.0) {
-                            return "coverage-very-low";
-                        } else {
-                            return "coverage-critical";
-                        }
-                    } catch (NumberFormatException e) {
-                        return "";
-                    }
+            private String getCoverageClass(double coverage) {
+                if (Double.isNaN(coverage)) {
+                    return "";
+                } else if (coverage == 100.0) {
+                    return "coverage-high";
+                } else if (coverage >= 75.0) {
+                    return "coverage-medium";
+                } else if (coverage >= 50.0) {
+                    return "coverage-low";
+                } else if (coverage >= 25.0) {
+                    return "coverage-very-low";
+                } else {
+                    return "coverage-critical";
                 }
-                return "";
             }
 
             @Override
@@ -820,16 +1287,21 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
         }
         
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("保存覆盖率报告");
+        fileChooser.setDialogTitle("保存覆盖率报告（文件名以 .csv 结尾时导出 CSV）");
         fileChooser.setSelectedFile(new File(project.getName() + "_coverage_report.html"));
         int userSelection = fileChooser.showSaveDialog(this);
         
         if (userSelection == JFileChooser.APPROVE_OPTION) {
             File fileToSave = fileChooser.getSelectedFile();
             try (FileWriter writer = new FileWriter(fileToSave, StandardCharsets.UTF_8)) {
-                // 获取当前报告内容并写入文件
-                String reportContent = reportArea.getText();
-                writer.write(reportContent);
+                if (fileToSave.getName().toLowerCase().endsWith(".csv")) {
+                    // 以 .csv 结尾时直接从快照导出各类的计数器
+                    coverageService.getSnapshot().writeCsv(writer);
+                } else {
+                    // 获取当前报告内容并写入文件
+                    String reportContent = reportArea.getText();
+                    writer.write(reportContent);
+                }
                 
                 // 获取文件的父目录
                 Path parentDir = fileToSave.toPath().getParent();
@@ -851,52 +1323,33 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
         }
     }
 
-    public void updateCoverageData(Object[][] data) {
-        // 创建树形结构
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode("项目: " + project.getName());
-        
-        // 按包名组织数据
-        java.util.Map<String, java.util.List<Object[]>> groupedByPackage = new java.util.HashMap<>();
-        for (Object[] row : data) {
-            String fullClassName = (String) row[0];
-            String packageName = fullClassName.contains(".") ? 
-                fullClassName.substring(0, fullClassName.lastIndexOf(".")) : 
-                "default";
-                
-            groupedByPackage.computeIfAbsent(packageName, k -> new java.util.ArrayList<>()).add(row);
-        }
-        
-        // 为每个包创建节点
-        for (java.util.Map.Entry<String, java.util.List<Object[]>> entry : groupedByPackage.entrySet()) {
-            String packageName = entry.getKey();
-            java.util.List<Object[]> packageDataList = entry.getValue();
-            
-            DefaultMutableTreeNode packageNode = new DefaultMutableTreeNode(new CoverageTreeNode(packageName, null));
-            
-            // 为每个类创建子节点
-            for (Object[] classData : packageDataList) {
-                DefaultMutableTreeNode classNode = new DefaultMutableTreeNode(
-                    new CoverageTreeNode((String) classData[0], new double[]{
-                        Double.parseDouble(((String) classData[1]).replace("%", "")),
-                        Double.parseDouble(((String) classData[2]).replace("%", "")),
-                        Double.parseDouble(((String) classData[3]).replace("%", "")),
-                        Double.parseDouble(((String) classData[4]).replace("%", ""))
-                    })
-                );
-                packageNode.add(classNode);
-            }
-            
-            root.add(packageNode);
-        }
-        
-        // 更新树模型
-        DefaultTreeModel model = new DefaultTreeModel(root);
-        coverageTree.setModel(model);
-        
-        // 展开所有节点
-        for (int i = 0; i < coverageTree.getRowCount(); i++) {
-            coverageTree.expandRow(i);
-        }
+    /**
+     * 汇总节点的行、分支、方法、类覆盖率
+     */
+    private static String formatRollup(CoverageRollup.Node node) {
+        return "行覆盖率: " + formatPercent(node.getCoveredPercent(CounterEntity.LINE))
+            + " | 分支覆盖率: " + formatPercent(node.getCoveredPercent(CounterEntity.BRANCH))
+            + " | 方法覆盖率: " + formatPercent(node.getCoveredPercent(CounterEntity.METHOD))
+            + " | 类覆盖率: " + formatPercent(node.getCoveredPercent(CounterEntity.CLASS));
+    }
+
+    /**
+     * 汇总节点的 [行, 分支, 方法, 类] 覆盖率，供树节点显示
+     */
+    private static double[] rollupCoverage(CoverageRollup.Node node) {
+        return new double[]{
+            node.getCoveredPercent(CounterEntity.LINE),
+            node.getCoveredPercent(CounterEntity.BRANCH),
+            node.getCoveredPercent(CounterEntity.METHOD),
+            node.getCoveredPercent(CounterEntity.CLASS)
+        };
+    }
+
+    /**
+     * 格式化覆盖率百分比，无可统计项时显示 N/A
+     */
+    private static String formatPercent(double coverage) {
+        return Double.isNaN(coverage) ? "N/A" : String.format("%.2f%%", coverage);
     }
 
     public void updateReportText(String report) {
@@ -908,46 +1361,47 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
     
     // 更新覆盖率摘要的方法
     public void updateCoverageSummary() {
-        // 获取当前覆盖率数据并更新树形结构
-        List<CoverageData> coverageDataList = coverageService.getAllCoverageData();
-        
-        // 创建树形结构
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode("项目: " + project.getName());
-        
-        // 按包名组织数据
-        java.util.Map<String, java.util.List<CoverageData>> groupedByPackage = new java.util.HashMap<>();
-        for (CoverageData data : coverageDataList) {
-            String fullClassName = data.getName();
-            String packageName = fullClassName.contains("/") ? 
-                fullClassName.substring(0, fullClassName.lastIndexOf("/")) : 
-                fullClassName.contains(".") ? 
-                    fullClassName.substring(0, fullClassName.lastIndexOf(".")) : 
-                    "default";
-                    
-            groupedByPackage.computeIfAbsent(packageName, k -> new java.util.ArrayList<>()).add(data);
-        }
-        
-        // 为每个包创建节点
-        for (java.util.Map.Entry<String, java.util.List<CoverageData>> entry : groupedByPackage.entrySet()) {
-            String packageName = entry.getKey();
-            java.util.List<CoverageData> packageDataList = entry.getValue();
-            
-            DefaultMutableTreeNode packageNode = new DefaultMutableTreeNode(new CoverageTreeNode(packageName, null));
-            
-            // 为每个类创建子节点
-            for (CoverageData data : packageDataList) {
-                DefaultMutableTreeNode classNode = new DefaultMutableTreeNode(
-                    new CoverageTreeNode(data.getName(), new double[]{
-                        data.getLineCoverage(), // 行覆盖率
-                        data.getBranchCoverage(), // 分支覆盖率
-                        data.getMethodCoverage(), // 方法覆盖率
-                        data.getClassCoverage() // 类覆盖率
-                    })
-                );
-                packageNode.add(classNode);
+        // 获取当前结果，树中各级节点的覆盖率取自同一次分析的分层汇总
+        CoverageResult current = coverageService.getResult();
+        CoverageSnapshot snapshot = current.getSnapshot();
+        CoverageRollup rollup = current.getRollup();
+        
+        // 创建树形结构：项目 → 模块（多模块时）→ 包 → 类
+        // 从磁盘恢复、尚未校验或已确认过期的结果在根节点上标出
+        String rootName = "项目: " + project.getName() + (current.isRestored() ? "（上次的结果）" : "");
+        DefaultMutableTreeNode root = new DefaultMutableTreeNode(
+            new CoverageTreeNode(rootName, snapshot.isEmpty() ? null : rollupCoverage(rollup.getProject())));
+        boolean multiModule = rollup.getModules().size() > 1;
+        
+        for (CoverageRollup.Node moduleNode : rollup.getModules()) {
+            DefaultMutableTreeNode moduleParent = root;
+            if (multiModule) {
+                moduleParent = new DefaultMutableTreeNode(new CoverageTreeNode(moduleNode.getName(), rollupCoverage(moduleNode)));
+                root.add(moduleParent);
+            }
+            for (CoverageRollup.Node packageNode : moduleNode.getChildren()) {
+                DefaultMutableTreeNode packageTreeNode = new DefaultMutableTreeNode(
+                    new CoverageTreeNode(packageNode.getName(), rollupCoverage(packageNode)));
+                
+                // 为每个类创建子节点（快照中同一个包的类是连续的区间）
+                int p = snapshot.findPackage(packageNode.getName());
+                for (int i = snapshot.getPackageStart(p); i < snapshot.getPackageEnd(p); i++) {
+                    if (!rollup.getModuleName(snapshot.getClassName(i)).equals(moduleNode.getName())) {
+                        continue;
+                    }
+                    DefaultMutableTreeNode classNode = new DefaultMutableTreeNode(
+                        new CoverageTreeNode(snapshot.getQualifiedName(i), new double[]{
+                            snapshot.getCoveredPercent(CounterEntity.LINE, i), // 行覆盖率
+                            snapshot.getCoveredPercent(CounterEntity.BRANCH, i), // 分支覆盖率
+                            snapshot.getCoveredPercent(CounterEntity.METHOD, i), // 方法覆盖率
+                            snapshot.getCoveredPercent(CounterEntity.CLASS, i) // 类覆盖率
+                        })
+                    );
+                    packageTreeNode.add(classNode);
+                }
+                
+                moduleParent.add(packageTreeNode);
             }
-            
-            root.add(packageNode);
         }
         
         // 更新树模型
@@ -972,8 +1426,8 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
         
         public String toString() {
             if (coverageData != null) {
-                return String.format("%s (%.2f%%, %.2f%%, %.2f%%, %.2f%%)", 
-                    name, coverageData[0], coverageData[1], coverageData[2], coverageData[3]);
+                return name + " (" + formatPercent(coverageData[0]) + ", " + formatPercent(coverageData[1])
+                    + ", " + formatPercent(coverageData[2]) + ", " + formatPercent(coverageData[3]) + ")";
             } else {
                 return name;
             }
@@ -1025,13 +1479,17 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
                 
                 // 根据覆盖率设置背景色
                 if (coverageNode.getCoverageData() != null) {
-                    // 类节点，显示覆盖率信息
+                    // 类节点或汇总节点，显示覆盖率信息
                     double[] coverageData = coverageNode.getCoverageData();
                     double lineCoverage = coverageData[0];
                     
                     if (selected) {
                         setBackground(UIManager.getColor("Tree.selectionBackground"));
                         textLabel.setForeground(UIManager.getColor("Tree.selectionForeground"));
+                    } else if (Double.isNaN(lineCoverage)) {
+                        // 没有可统计的行，不按覆盖率着色
+                        setBackground(tree.getBackground());
+                        textLabel.setForeground(tree.getForeground());
                     } else {
                         // 根据行覆盖率设置背景色
                         if (lineCoverage >= 90) {
@@ -1053,14 +1511,14 @@ public class CoverageToolWindowPanel extends SimpleToolWindowPanel {
                     }
                     
                     // 添加覆盖率信息到面板
-                    String coverageText = String.format("行:%.1f%% | 分支:%.1f%% | 方法:%.1f%% | 类:%.1f%%", 
-                        coverageData[0], coverageData[1], coverageData[2], coverageData[3]);
+                    String coverageText = "行:" + formatPercent(coverageData[0]) + " | 分支:" + formatPercent(coverageData[1])
+                        + " | 方法:" + formatPercent(coverageData[2]) + " | 类:" + formatPercent(coverageData[3]);
                     JLabel coverageLabel = new JLabel(coverageText);
                     coverageLabel.setFont(tree.getFont().deriveFont(10f));
                     coveragePanel.add(coverageLabel);
                     
-                    // 设置图标
-                    iconLabel.setText("  📄 "); // 文件图标
+                    // 设置图标：类节点为文件，包、模块、项目的汇总节点为文件夹
+                    iconLabel.setText(node.isLeaf() ? "  📄 " : "  📁 ");
                 } else {
                     // 包节点
                     if (selected) {
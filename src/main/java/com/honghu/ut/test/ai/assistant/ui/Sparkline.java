@@ -0,0 +1,100 @@
+package com.honghu.ut.test.ai.assistant.ui;
+
+import com.intellij.ui.JBColor;
+
+import javax.swing.*;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+
+/**
+ * 覆盖率趋势迷你折线图
+ * 纵轴固定为 0% ~ 100%，不同包的趋势可以直接比较
+ *
+ * 功能：
+ * - 可单独放在面板中，也可作为表格单元格渲染器
+ * - 值为 NaN 的点（该时间点没有数据）断开折线
+ * - 最后一个点用圆点标出，低于阈值时用红色
+ */
+class Sparkline extends JComponent implements TableCellRenderer {
+    private static final Color LINE_COLOR = new JBColor(new Color(0x1976d2), new Color(0x64b5f6));
+    private static final Color LOW_COLOR = new JBColor(new Color(0xd32f2f), new Color(0xef5350));
+    private static final Color GRID_COLOR = new JBColor(new Color(0xe0e0e0), new Color(0x4a4a4a));
+
+    private float[] values = new float[0];
+    private final double threshold;   // 阈值线（百分比），为 0 时不画
+    private boolean selected;
+
+    Sparkline(double threshold) {
+        this.threshold = threshold;
+        setPreferredSize(new Dimension(160, 28));
+        setOpaque(false);
+    }
+
+    void setValues(float[] values) {
+        this.values = values;
+        repaint();
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                                                   int row, int column) {
+        values = value instanceof float[] ? (float[]) value : new float[0];
+        selected = isSelected;
+        setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+        return this;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            if (selected) {
+                g2.setColor(getBackground());
+                g2.fillRect(0, 0, getWidth(), getHeight());
+            }
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            int left = 2;
+            int top = 3;
+            int width = getWidth() - 7;
+            int height = getHeight() - 6;
+            if (width <= 0 || height <= 0 || values.length == 0) {
+                return;
+            }
+            if (threshold > 0) {
+                g2.setColor(GRID_COLOR);
+                int y = top + (int) Math.round(height * (1 - threshold / 100.0));
+                g2.drawLine(left, y, left + width, y);
+            }
+
+            g2.setColor(LINE_COLOR);
+            g2.setStroke(new BasicStroke(1.5f));
+            int previousX = -1;
+            int previousY = -1;
+            int lastX = -1;
+            int lastY = -1;
+            for (int i = 0; i < values.length; i++) {
+                float value = values[i];
+                if (Float.isNaN(value)) {
+                    previousX = -1;
+                    continue;
+                }
+                int x = left + (values.length == 1 ? width : (int) ((long) width * i / (values.length - 1)));
+                int y = top + Math.round(height * (1 - value / 100f));
+                if (previousX >= 0) {
+                    g2.drawLine(previousX, previousY, x, y);
+                }
+                previousX = x;
+                previousY = y;
+                lastX = x;
+                lastY = y;
+            }
+            if (lastX >= 0) {
+                float last = values[values.length - 1];
+                g2.setColor(!Float.isNaN(last) && last < threshold ? LOW_COLOR : LINE_COLOR);
+                g2.fillOval(lastX - 2, lastY - 2, 5, 5);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.honghu.ut.test.ai.assistant.jacoco.ParallelClassAnalyzerTest.executed;
+import static com.honghu.ut.test.ai.assistant.jacoco.ParallelClassAnalyzerTest.fixtureBytes;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ClassAnalysisCache 的持久化和失效测试
+ */
+class ClassAnalysisCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void classIdMatchesTheAnalyzer() throws IOException {
+        byte[] bytes = fixtureBytes();
+        assertEquals(analyze(bytes, new ExecutionDataStore()).getId(), ClassIds.classId(bytes));
+
+        // Java 9 的类文件与 JaCoCo 一样按 Java 8 的版本号计算
+        byte[] java8 = bytes.clone();
+        java8[7] = 52;
+        byte[] java9 = bytes.clone();
+        java9[7] = 53;
+        assertEquals(ClassIds.classId(java8), ClassIds.classId(java9));
+        assertNotEquals(ClassIds.classId(bytes), ClassIds.classId(java9));
+    }
+
+    @Test
+    void restoresCountersAfterSaveAndReload() throws IOException {
+        byte[] bytes = fixtureBytes();
+        ExecutionDataStore executionData = executed(bytes);
+        IClassCoverage coverage = analyze(bytes, executionData);
+        ClassAnalysisCache cache = newCache();
+        cache.put(coverage, executionData);
+        cache.save();
+
+        IClassCoverage cached = newCache().lookup(coverage.getId(), executionData);
+
+        assertNotNull(cached);
+        assertEquals(coverage.getName(), cached.getName());
+        assertEquals(coverage.getSourceFileName(), cached.getSourceFileName());
+        for (CounterEntity entity : CounterEntity.values()) {
+            assertEquals(coverage.getCounter(entity).getMissedCount(), cached.getCounter(entity).getMissedCount());
+            assertEquals(coverage.getCounter(entity).getCoveredCount(), cached.getCounter(entity).getCoveredCount());
+            assertEquals(coverage.getCounter(entity).getStatus(), cached.getCounter(entity).getStatus());
+        }
+        assertEquals(coverage.getLineCounter().getCoveredCount(),
+            cached.getPlainCopy().getLineCounter().getCoveredCount());
+        assertTrue(cached.getMethods().isEmpty());
+        assertEquals(ICounter.EMPTY, cached.getLine(cached.getFirstLine()).getStatus());
+    }
+
+    @Test
+    void changedProbesInvalidateTheEntry() throws IOException {
+        byte[] bytes = fixtureBytes();
+        ExecutionDataStore executionData = executed(bytes);
+        IClassCoverage coverage = analyze(bytes, executionData);
+        ClassAnalysisCache cache = newCache();
+        cache.put(coverage, executionData);
+
+        ExecutionDataStore changed = new ExecutionDataStore();
+        changed.put(new ExecutionData(coverage.getId(), coverage.getName(), new boolean[64]));
+        assertNull(cache.lookup(coverage.getId(), changed));
+        assertNull(cache.lookup(coverage.getId(), new ExecutionDataStore()));
+        assertNotNull(cache.lookup(coverage.getId(), executed(bytes)));
+    }
+
+    @Test
+    void ignoresACorruptedCacheFile() throws IOException {
+        byte[] bytes = fixtureBytes();
+        ExecutionDataStore executionData = executed(bytes);
+        IClassCoverage coverage = analyze(bytes, executionData);
+        Files.write(tempDir.resolve("class-analysis.cache"), new byte[]{0x55, 0x54, 0x43, 0x43, 0, 0, 0, 1, 0, 0});
+
+        ClassAnalysisCache cache = newCache();
+        assertNull(cache.lookup(coverage.getId(), executionData));
+
+        // 损坏的文件在下一次保存时被覆盖
+        cache.put(coverage, executionData);
+        cache.save();
+        assertNotNull(newCache().lookup(coverage.getId(), executionData));
+    }
+
+    @Test
+    void saveClearsTheTouchedEntries() throws IOException {
+        byte[] bytes = fixtureBytes();
+        ExecutionDataStore executionData = executed(bytes);
+        IClassCoverage coverage = analyze(bytes, executionData);
+        ClassAnalysisCache cache = newCache();
+        cache.put(coverage, executionData);
+        assertEquals(1, cache.getTouchedCount());
+
+        cache.save();
+        assertEquals(0, cache.getTouchedCount());
+
+        cache.lookup(coverage.getId(), executionData);
+        assertEquals(1, cache.getTouchedCount());
+    }
+
+    private ClassAnalysisCache newCache() {
+        return new ClassAnalysisCache(tempDir.resolve("class-analysis.cache"));
+    }
+
+    private static IClassCoverage analyze(byte[] bytes, ExecutionDataStore executionData) throws IOException {
+        CoverageBuilder builder = new CoverageBuilder();
+        new Analyzer(executionData, builder).analyzeClass(bytes, "Fixture");
+        return builder.getClasses().iterator().next();
+    }
+}
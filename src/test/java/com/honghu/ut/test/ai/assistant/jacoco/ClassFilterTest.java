@@ -0,0 +1,89 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ClassFilter 的模式匹配、目录剪枝和注解排除测试
+ */
+class ClassFilterTest {
+    @Test
+    void emptyPatternsCompileToAll() {
+        assertSame(ClassFilter.ALL, ClassFilter.compile(null, " ", ""));
+        assertTrue(ClassFilter.ALL.accepts("com/foo/Bar"));
+    }
+
+    @Test
+    void matchesPrefixLiteralAndWildcardPatterns() {
+        ClassFilter filter = ClassFilter.compile("com.foo.*, com.bar.Exact", "com.foo.dto.*;*Test;com.foo.?Impl", null);
+
+        assertTrue(filter.accepts("com/foo/Service"));
+        assertTrue(filter.accepts("com/foo/Service$Inner"));
+        assertTrue(filter.accepts("com/bar/Exact"));
+        assertFalse(filter.accepts("com/bar/ExactOther"));
+        assertFalse(filter.accepts("com/baz/Service"));
+        assertFalse(filter.accepts("com/foo/dto/User"));
+        assertFalse(filter.accepts("com/foo/ServiceTest"));
+        assertFalse(filter.accepts("com/foo/AImpl"));
+        assertTrue(filter.accepts("com/foo/ABImpl"));
+    }
+
+    @Test
+    void prunesPackagesThatCannotContainAcceptedClasses() {
+        ClassFilter filter = ClassFilter.compile("com.foo.*", "com.foo.dto.*", "");
+
+        assertTrue(filter.mayContain(""));
+        assertTrue(filter.mayContain("com/"));
+        assertTrue(filter.mayContain("com/foo/"));
+        assertFalse(filter.mayContain("com/foo/dto/"));
+        assertFalse(filter.mayContain("org/"));
+        // 有正则模式时无法判断，不剪枝
+        assertTrue(ClassFilter.compile("*Service", "", "").mayContain("org/"));
+    }
+
+    @Test
+    void excludesAnnotatedClassesAfterTheNameFiltersPass() throws IOException {
+        byte[] marked = classBytes(Marked.class);
+        byte[] plain = classBytes(Plain.class);
+
+        ClassFilter bySimpleName = ClassFilter.compile("", "", "@Generated");
+        assertTrue(bySimpleName.hasAnnotationRules());
+        assertFalse(bySimpleName.acceptsClassFile(marked));
+        assertTrue(bySimpleName.acceptsClassFile(plain));
+
+        ClassFilter byFullName = ClassFilter.compile("", "", Generated.class.getName());
+        assertFalse(byFullName.acceptsClassFile(marked));
+        assertTrue(ClassFilter.compile("", "", "lombok.Generated").acceptsClassFile(marked));
+
+        ClassFilter excludedByName = ClassFilter.compile("", "*Plain", "Generated");
+        assertFalse(excludedByName.acceptsClassFile(plain));
+        // 无法解析的类文件交给 Analyzer 报告错误
+        assertTrue(excludedByName.acceptsClassFile(new byte[]{1, 2, 3}));
+    }
+
+    private static byte[] classBytes(Class<?> type) throws IOException {
+        String resource = type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = type.getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Retention(RetentionPolicy.CLASS)
+    @interface Generated {
+    }
+
+    @Generated
+    static final class Marked {
+    }
+
+    static final class Plain {
+    }
+}
@@ -0,0 +1,152 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.honghu.ut.test.ai.assistant.jacoco.CoverageSnapshotTest.lines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CoverageDiff 的测试
+ * 行级和方法级的变化用 JaCoCo 分析本测试中的 Fixture 类得到
+ */
+class CoverageDiffTest {
+    private static final String FIXTURE = Fixture.class.getName().replace('.', '/');
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reportsAddedRemovedAndChangedClassesInPackageOrder() {
+        CoverageSnapshot before = new CoverageSnapshot.Builder()
+            .add("com/foo/Same", 1, "Same.java", lines(2, 0), lines(3, 0))
+            .add("com/foo/Changed", 2, "Changed.java", lines(4, 2), lines(1, 0))
+            .add("com/foo/Removed", 3, "Removed.java", lines(1, 0), lines(1, 0))
+            .build();
+        CoverageSnapshot after = new CoverageSnapshot.Builder()
+            .add("com/foo/Same", 1, "Same.java", lines(2, 0), lines(3, 0))
+            .add("com/foo/Changed", 2, "Changed.java", lines(1, 1), lines(4, 1))
+            .add("com/bar/Added", 4, "Added.java", lines(0, 0), lines(2, 0))
+            .build();
+
+        CoverageDiff diff = CoverageDiff.compute(before, after);
+
+        assertEquals(3, diff.getChangedCount());
+        assertEquals(2, diff.getPackageCount());
+        assertEquals("com.bar", diff.getPackageName(0));
+        assertEquals("com.bar.Added", diff.getQualifiedName(0));
+        assertEquals(CoverageDiff.Status.ADDED, diff.getStatus(0));
+        assertEquals("com.foo.Changed", diff.getQualifiedName(1));
+        assertEquals(CoverageDiff.Status.CHANGED, diff.getStatus(1));
+        assertEquals(3, diff.getCoveredDelta(CounterEntity.LINE, 1));
+        assertEquals(-3, diff.getMissedDelta(CounterEntity.LINE, 1));
+        assertEquals("com.foo.Removed", diff.getQualifiedName(2));
+        assertEquals(CoverageDiff.Status.REMOVED, diff.getStatus(2));
+        assertEquals(2, diff.getPackageCoveredDelta(CounterEntity.LINE, 1));
+        assertNull(diff.getGainedLines(1));
+        assertNull(diff.getGainedMethods(1));
+    }
+
+    @Test
+    void identicalSnapshotsHaveNoChanges() {
+        CoverageSnapshot snapshot = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 1, "A.java", lines(2, 1), lines(3, 1))
+            .build();
+        assertTrue(CoverageDiff.compute(snapshot, snapshot).isEmpty());
+    }
+
+    @Test
+    void reportsGainedLinesAndMethodsFromDetails() throws IOException {
+        CoverageDiff diff = CoverageDiff.compute(result(analyzeFixture(false)), result(analyzeFixture(true)));
+
+        assertEquals(1, diff.getChangedCount());
+        assertTrue(diff.getGainedLines(0).length > 0);
+        assertEquals(0, diff.getLostLines(0).length);
+        List<String> gained = Arrays.asList(diff.getGainedMethods(0));
+        assertTrue(gained.contains("twice(I)I"), gained.toString());
+        assertTrue(gained.contains("greet()Ljava/lang/String;"), gained.toString());
+        assertEquals(0, diff.getLostMethods(0).length);
+    }
+
+    @Test
+    void reportsLostLinesAndMethodsFromDetails() throws IOException {
+        CoverageDiff diff = CoverageDiff.compute(result(analyzeFixture(true)), result(analyzeFixture(false)));
+
+        assertEquals(1, diff.getChangedCount());
+        assertEquals(0, diff.getGainedLines(0).length);
+        assertTrue(diff.getLostLines(0).length > 0);
+        assertEquals(0, diff.getGainedMethods(0).length);
+        assertTrue(Arrays.asList(diff.getLostMethods(0)).contains("twice(I)I"));
+    }
+
+    @Test
+    void ignoresDetailsRestoredFromTheCache() throws IOException {
+        IClassCoverage executed = analyzeFixture(true);
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        ClassAnalysisCache cache = new ClassAnalysisCache(tempDir.resolve("class-analysis.cache"));
+        cache.put(executed, executionData);
+        // 缓存还原的类没有行和方法，不能当作全部失去覆盖
+        IClassCoverage cached = cache.lookup(executed.getId(), executionData);
+
+        CoverageDiff diff = CoverageDiff.compute(result(analyzeFixture(false)), result(cached));
+
+        assertEquals(1, diff.getChangedCount());
+        assertNull(diff.getGainedLines(0));
+        assertNull(diff.getLostMethods(0));
+    }
+
+    private static CoverageResult result(IClassCoverage classCoverage) {
+        CoverageSnapshot snapshot = CoverageSnapshot.of(List.of(classCoverage));
+        return new CoverageResult(1, 0, null, snapshot, CoverageRollup.build(snapshot, Map.of()),
+            Map.of(classCoverage.getName(), classCoverage), null);
+    }
+
+    /**
+     * 分析 Fixture 类，executed 为 true 时所有探针都已执行
+     */
+    private static IClassCoverage analyzeFixture(boolean executed) throws IOException {
+        String resource = FIXTURE.substring(FIXTURE.lastIndexOf('/') + 1) + ".class";
+        byte[] bytes;
+        try (InputStream in = Fixture.class.getResourceAsStream(resource)) {
+            bytes = in.readAllBytes();
+        }
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        if (executed) {
+            // 探针数组比类实际的探针多也可以，分析器只读取用到的下标
+            boolean[] probes = new boolean[64];
+            Arrays.fill(probes, true);
+            executionData.put(new ExecutionData(ClassIds.classId(bytes), FIXTURE, probes));
+        }
+        CoverageBuilder builder = new CoverageBuilder();
+        new Analyzer(executionData, builder).analyzeClass(bytes, FIXTURE);
+        return builder.getClasses().iterator().next();
+    }
+
+    static final class Fixture {
+        int twice(int value) {
+            if (value > 10) {
+                return value;
+            }
+            return value * 2;
+        }
+
+        String greet() {
+            return "hello";
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.honghu.ut.test.ai.assistant.jacoco.CoverageSnapshotTest.lines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CoverageHistoryStore 的读写、损坏恢复和降采样测试
+ */
+class CoverageHistoryStoreTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsBackProjectAndPackageTrends() throws IOException {
+        Path file = tempDir.resolve("history.bin");
+        CoverageHistoryStore store = new CoverageHistoryStore(file);
+        store.append(1000, "abc123", rollup(Map.of("com/foo/A", new int[]{1, 3})));
+        store.append(2000, null, rollup(Map.of("com/foo/A", new int[]{0, 4}, "com/bar/B", new int[]{2, 2})));
+
+        // 新实例从文件中读回包名
+        CoverageHistoryStore reopened = new CoverageHistoryStore(file);
+        CoverageHistoryStore.Trend project = reopened.readProjectTrend(CounterEntity.LINE, 0);
+        assertEquals(2, project.size());
+        assertEquals(1000, project.getTimestamp(0));
+        assertEquals(75.0f, project.getPercent(0));
+        assertEquals(75.0f, project.getPercent(1));
+        assertEquals("abc123", project.getRevision(0));
+        assertNull(project.getRevision(1));
+
+        Map<String, CoverageHistoryStore.Trend> packages = reopened.readPackageTrends(CounterEntity.LINE, 0);
+        assertEquals(100.0f, packages.get("com.foo").getLatestPercent());
+        // com.bar 在第一个点上还不存在
+        assertTrue(Float.isNaN(packages.get("com.bar").getPercent(0)));
+        assertEquals(50.0f, packages.get("com.bar").getPercent(1));
+        assertEquals(2, reopened.getRecordCount());
+    }
+
+    @Test
+    void samplesAtMostMaxPointsAndKeepsTheLatest() throws IOException {
+        CoverageHistoryStore store = new CoverageHistoryStore(tempDir.resolve("history.bin"));
+        for (int i = 0; i < 10; i++) {
+            store.append(i, null, rollup(Map.of("com/foo/A", new int[]{10 - i, i})));
+        }
+        CoverageHistoryStore.Trend trend = store.readProjectTrend(CounterEntity.LINE, 3);
+        assertEquals(3, trend.size());
+        assertEquals(9, trend.getTimestamp(2));
+        assertEquals(90.0f, trend.getLatestPercent());
+    }
+
+    @Test
+    void dropsATruncatedTrailingRecordBeforeAppending() throws IOException {
+        Path file = tempDir.resolve("history.bin");
+        CoverageHistoryStore store = new CoverageHistoryStore(file);
+        store.append(1000, null, rollup(Map.of("com/foo/A", new int[]{1, 1})));
+        long validSize = Files.size(file);
+        store.append(2000, null, rollup(Map.of("com/foo/A", new int[]{0, 2})));
+        // 模拟写到一半时进程退出
+        Files.write(file, Arrays.copyOf(Files.readAllBytes(file), (int) validSize + 20));
+
+        CoverageHistoryStore reopened = new CoverageHistoryStore(file);
+        assertEquals(1, reopened.getRecordCount());
+        reopened.append(3000, null, rollup(Map.of("com/foo/A", new int[]{0, 2})));
+        CoverageHistoryStore.Trend trend = reopened.readProjectTrend(CounterEntity.LINE, 0);
+        assertEquals(2, trend.size());
+        assertEquals(3000, trend.getTimestamp(1));
+        assertEquals(100.0f, trend.getLatestPercent());
+    }
+
+    @Test
+    void startsOverWhenTheHeaderDoesNotMatch() throws IOException {
+        Path file = Files.write(tempDir.resolve("history.bin"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        CoverageHistoryStore store = new CoverageHistoryStore(file);
+        assertEquals(0, store.getRecordCount());
+        store.append(1000, null, rollup(Map.of("com/foo/A", new int[]{1, 1})));
+        assertEquals(1, store.getRecordCount());
+        assertEquals(50.0f, store.readPackageTrends(CounterEntity.LINE, 0).get("com.foo").getLatestPercent());
+    }
+
+    @Test
+    void compactsOldRecordsOnceTheLimitIsExceeded() throws IOException {
+        Path file = tempDir.resolve("history.bin");
+        CoverageHistoryStore store = new CoverageHistoryStore(file);
+        CoverageRollup rollup = rollup(Map.of("com/foo/A", new int[]{1, 1}));
+        // 200 天前开始，每小时一条，共 2049 条，最后一条是最新的
+        long now = 400 * DAY;
+        long start = now - 200 * DAY;
+        for (int i = 0; i < 2048; i++) {
+            store.append(start + i * TimeUnit.HOURS.toMillis(1), null, rollup);
+        }
+        assertEquals(2048, store.getRecordCount());
+        store.append(now, "latest", rollup);
+
+        int count = store.getRecordCount();
+        assertTrue(count <= 1024, "降采样后的记录数: " + count);
+        CoverageHistoryStore.Trend trend = store.readProjectTrend(CounterEntity.LINE, 0);
+        assertEquals(now, trend.getTimestamp(trend.size() - 1));
+        assertEquals("latest", trend.getRevision(trend.size() - 1));
+        for (int i = 1; i < trend.size(); i++) {
+            assertTrue(trend.getTimestamp(i - 1) < trend.getTimestamp(i));
+        }
+        // 包名记录在降采样后仍然可用
+        assertEquals(50.0f, new CoverageHistoryStore(file).readPackageTrends(CounterEntity.LINE, 0)
+            .get("com.foo").getLatestPercent());
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+    }
+
+    /**
+     * 由类的 {未覆盖行数, 已覆盖行数} 构建汇总
+     */
+    private static CoverageRollup rollup(Map<String, int[]> classLines) {
+        CoverageSnapshot.Builder builder = new CoverageSnapshot.Builder();
+        long id = 1;
+        for (Map.Entry<String, int[]> entry : classLines.entrySet()) {
+            int[] counts = entry.getValue();
+            builder.add(entry.getKey(), id++, null, lines(counts[0], 0), lines(counts[1], 0));
+        }
+        return CoverageRollup.build(builder.build(), Map.of());
+    }
+}
@@ -0,0 +1,77 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static com.honghu.ut.test.ai.assistant.jacoco.CoverageSnapshotTest.lines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CoverageRollup 的汇总和差量更新测试
+ */
+class CoverageRollupTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void weightsCoverageByCountersAndCountsLowCoverageClasses() {
+        CoverageSnapshot snapshot = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 1, "A.java", lines(9, 0), lines(1, 0))
+            .add("com/foo/B", 2, "B.java", lines(0, 0), lines(90, 0))
+            .add("com/bar/C", 3, "C.java", lines(0, 0), lines(0, 0))
+            .build();
+
+        CoverageRollup rollup = CoverageRollup.build(snapshot, Map.of("com/foo/A", "core", "com/foo/B", "web"));
+
+        CoverageRollup.Node project = rollup.getProject();
+        // 91 / 100，而不是两个类百分比的平均值 55
+        assertEquals(91.0, project.getCoveredPercent(CounterEntity.LINE), DELTA);
+        assertEquals(3, project.getClassCount());
+        // 没有可统计行的类不计为低覆盖率
+        assertEquals(1, project.getLowCoverageCount());
+        assertEquals(3, rollup.getModules().size());
+        assertEquals(10.0, rollup.getModule("core").getChild("com.foo").getCoveredPercent(CounterEntity.LINE), DELTA);
+        assertEquals(CoverageRollup.UNASSIGNED_MODULE, rollup.getModuleName("com/bar/C"));
+        assertTrue(Double.isNaN(rollup.getModule(CoverageRollup.UNASSIGNED_MODULE).getCoveredPercent(CounterEntity.LINE)));
+    }
+
+    @Test
+    void withReplacedUpdatesCountersAndMovesClassesBetweenModules() {
+        CoverageSnapshot before = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 1, "A.java", lines(10, 0), lines(0, 0))
+            .add("com/foo/B", 2, "B.java", lines(5, 0), lines(5, 0))
+            .build();
+        CoverageRollup rollup = CoverageRollup.build(before, Map.of("com/foo/A", "core", "com/foo/B", "web"));
+        CoverageSnapshot updates = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 3, "A.java", lines(0, 0), lines(10, 0))
+            .build();
+
+        CoverageRollup after = rollup.withReplaced(before, updates, Map.of("com/foo/A", "web"));
+
+        assertEquals(75.0, after.getProject().getCoveredPercent(CounterEntity.LINE), DELTA);
+        // A 不再是低覆盖率，B 仍然是
+        assertEquals(1, after.getProject().getLowCoverageCount());
+        assertEquals("web", after.getModuleName("com/foo/A"));
+        // 原模块已经没有类，被移除
+        assertNull(after.getModule("core"));
+        assertEquals(2, after.getModule("web").getClassCount());
+        // 原汇总保持不变
+        assertEquals(25.0, rollup.getProject().getCoveredPercent(CounterEntity.LINE), DELTA);
+        assertEquals(2, rollup.getProject().getLowCoverageCount());
+        assertEquals("core", rollup.getModuleName("com/foo/A"));
+        assertEquals(1, rollup.getModule("core").getClassCount());
+    }
+
+    @Test
+    void emptyRollupReportsNaN() {
+        CoverageRollup.Node project = CoverageRollup.EMPTY.getProject();
+        assertEquals(0, project.getClassCount());
+        assertTrue(CoverageRollup.EMPTY.getModules().isEmpty());
+        for (CounterEntity entity : CounterEntity.values()) {
+            assertTrue(Double.isNaN(project.getCoveredPercent(entity)));
+        }
+    }
+}
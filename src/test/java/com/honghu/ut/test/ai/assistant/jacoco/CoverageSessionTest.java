@@ -0,0 +1,125 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CoverageSession 的合并、换出和读回测试
+ */
+class CoverageSessionTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mergesWithoutTouchingPublishedStores() throws IOException {
+        CoverageSession session = newSession();
+        session.merge(store(new ExecutionData(1, "com/foo/A", new boolean[]{true, false, false})), infos("s1"));
+        ExecutionDataStore first = session.getExecutionDataStore();
+
+        session.merge(store(new ExecutionData(1, "com/foo/A", new boolean[]{false, false, true})), infos("s2"));
+        ExecutionDataStore second = session.getExecutionDataStore();
+
+        assertNotSame(first, second);
+        assertArrayEquals(new boolean[]{true, false, false}, first.get(1).getProbes());
+        assertArrayEquals(new boolean[]{true, false, true}, second.get(1).getProbes());
+        assertEquals(2, session.getSessionInfoStore().getInfos().size());
+    }
+
+    @Test
+    void mergeWithoutNewHitsKeepsThePublishedStore() throws IOException {
+        CoverageSession session = newSession();
+        session.merge(store(new ExecutionData(1, "com/foo/A", new boolean[]{true, true})), infos("s1"));
+        ExecutionDataStore before = session.getExecutionDataStore();
+
+        session.merge(store(new ExecutionData(1, "com/foo/A", new boolean[]{false, true})), new SessionInfoStore());
+
+        assertSame(before, session.getExecutionDataStore());
+    }
+
+    @Test
+    void rejectsIncompatibleProbeCounts() throws IOException {
+        CoverageSession session = newSession();
+        session.merge(store(new ExecutionData(1, "com/foo/A", new boolean[]{true})), infos("s1"));
+        assertThrows(IllegalStateException.class, () -> session.merge(
+            store(new ExecutionData(1, "com/foo/A", new boolean[]{true, true})), new SessionInfoStore()));
+    }
+
+    @Test
+    void spillsToDiskAndRestoresOnAccess() throws IOException {
+        CoverageSession session = newSession();
+        session.merge(store(new ExecutionData(1, "com/foo/A", new boolean[]{true, false}),
+            new ExecutionData(2, "com/foo/B", new boolean[]{false, true, true})), infos("s1"));
+        long bytes = session.getEstimatedBytes();
+        assertTrue(bytes > 0);
+
+        session.spill();
+        assertTrue(session.isSpilled());
+        assertEquals(0, session.getEstimatedBytes());
+        assertEquals(-1, session.getClassCount());
+        assertTrue(Files.exists(spillFile()));
+
+        ExecutionDataStore restored = session.getExecutionDataStore();
+        assertFalse(session.isSpilled());
+        assertEquals(bytes, session.getEstimatedBytes());
+        assertArrayEquals(new boolean[]{true, false}, restored.get(1).getProbes());
+        assertArrayEquals(new boolean[]{false, true, true}, restored.get(2).getProbes());
+        assertEquals("s1", session.getSessionInfoStore().getInfos().get(0).getId());
+        assertFalse(Files.exists(spillFile()));
+    }
+
+    @Test
+    void replaceAndResetDiscardSpilledData() throws IOException {
+        CoverageSession session = newSession();
+        session.merge(store(new ExecutionData(1, "com/foo/A", new boolean[]{true})), infos("s1"));
+        session.spill();
+
+        session.replace(store(new ExecutionData(2, "com/foo/B", new boolean[]{true})), infos("s2"));
+        assertEquals(1, session.getClassCount());
+        assertNull(session.getExecutionDataStore().get(1));
+        assertFalse(Files.exists(spillFile()));
+
+        session.reset();
+        assertEquals(0, session.getClassCount());
+        assertEquals(0, session.getEstimatedBytes());
+        assertTrue(session.getSessionInfoStore().getInfos().isEmpty());
+    }
+
+    private CoverageSession newSession() {
+        return new CoverageSession("unit", spillFile());
+    }
+
+    private Path spillFile() {
+        return tempDir.resolve("sessions/unit.exec");
+    }
+
+    private static ExecutionDataStore store(ExecutionData... data) {
+        ExecutionDataStore store = new ExecutionDataStore();
+        for (ExecutionData executionData : data) {
+            store.put(executionData);
+        }
+        return store;
+    }
+
+    private static SessionInfoStore infos(String id) {
+        SessionInfoStore infos = new SessionInfoStore();
+        infos.visitSessionInfo(new SessionInfo(id, 1, 2));
+        return infos;
+    }
+}
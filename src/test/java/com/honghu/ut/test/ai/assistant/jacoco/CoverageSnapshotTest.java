@@ -0,0 +1,106 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CoverageSnapshot 及其构建器的测试
+ */
+class CoverageSnapshotTest {
+    private static final int ENTITY_COUNT = CounterEntity.values().length;
+
+    @Test
+    void sortsClassesByPackageAndIndexesPackageRanges() {
+        CoverageSnapshot snapshot = new CoverageSnapshot.Builder()
+            .add("com/foo/Zeta", 1, "Zeta.java", lines(1, 0), lines(0, 1))
+            .add("Root", 2, "Root.java", lines(0, 0), lines(0, 0))
+            .add("com/bar/Alpha", 3, "Alpha.java", lines(2, 0), lines(3, 0))
+            .add("com/foo/Beta", 4, "Beta.java", lines(4, 0), lines(5, 0))
+            .build();
+
+        assertEquals(4, snapshot.getClassCount());
+        assertEquals(3, snapshot.getPackageCount());
+        assertEquals("com.bar", snapshot.getPackageName(0));
+        assertEquals("com.foo", snapshot.getPackageName(1));
+        assertEquals("default", snapshot.getPackageName(2));
+        assertEquals("com/foo/Beta", snapshot.getClassName(snapshot.getPackageStart(1)));
+        assertEquals("com/foo/Zeta", snapshot.getClassName(snapshot.getPackageEnd(1) - 1));
+        assertEquals(5, snapshot.sumMissed(CounterEntity.LINE, snapshot.getPackageStart(1), snapshot.getPackageEnd(1)));
+        assertEquals(2, snapshot.indexOf("com/foo/Zeta"));
+        assertArrayEquals(new int[]{0}, snapshot.findBySimpleName("Alpha"));
+    }
+
+    @Test
+    void keepsOneRowForTheSameClassAddedTwice() {
+        CoverageSnapshot snapshot = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 42, "A.java", lines(10, 0), lines(0, 0))
+            .add("com/foo/B", 43, "B.java", lines(1, 0), lines(1, 0))
+            .add("com/foo/A", 42, "A.java", lines(4, 0), lines(6, 0))
+            .build();
+
+        assertEquals(2, snapshot.getClassCount());
+        int a = snapshot.indexOf("com/foo/A");
+        assertEquals(4, snapshot.getMissed(CounterEntity.LINE, a));
+        assertEquals(6, snapshot.getCovered(CounterEntity.LINE, a));
+        assertEquals(7, snapshot.sumCovered(CounterEntity.LINE, 0, snapshot.getClassCount()));
+    }
+
+    @Test
+    void rejectsADifferentClassWithTheSameName() {
+        CoverageSnapshot.Builder builder = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 1, "A.java", lines(1, 0), lines(0, 0));
+        assertThrows(IllegalStateException.class,
+            () -> builder.add("com/foo/A", 2, "A.java", lines(1, 0), lines(0, 0)));
+    }
+
+    @Test
+    void addAllDeduplicatesAcrossShards() {
+        CoverageSnapshot.Builder first = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 1, "A.java", lines(3, 0), lines(0, 0))
+            .add("com/foo/B", 2, "B.java", lines(3, 0), lines(0, 0));
+        CoverageSnapshot.Builder second = new CoverageSnapshot.Builder()
+            .add("com/foo/B", 2, "B.java", lines(1, 0), lines(2, 0))
+            .add("com/foo/C", 3, "C.java", lines(1, 0), lines(0, 0));
+
+        CoverageSnapshot snapshot = first.addAll(second).build();
+
+        assertEquals(3, snapshot.getClassCount());
+        assertEquals(1, snapshot.getMissed(CounterEntity.LINE, snapshot.indexOf("com/foo/B")));
+        assertThrows(IllegalStateException.class, () -> first.addAll(new CoverageSnapshot.Builder()
+            .add("com/foo/C", 99, "C.java", lines(0, 0), lines(0, 0))));
+    }
+
+    @Test
+    void withReplacedSwapsOnlyTheUpdatedClasses() {
+        CoverageSnapshot before = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 1, "A.java", lines(5, 0), lines(0, 0))
+            .add("com/foo/B", 2, "B.java", lines(5, 0), lines(0, 0))
+            .build();
+        CoverageSnapshot updates = new CoverageSnapshot.Builder()
+            .add("com/foo/B", 3, "B.java", lines(0, 0), lines(5, 0))
+            .add("com/bar/C", 4, "C.java", lines(1, 0), lines(0, 0))
+            .build();
+
+        CoverageSnapshot after = before.withReplaced(updates);
+
+        assertEquals(3, after.getClassCount());
+        assertEquals(5, after.getMissed(CounterEntity.LINE, after.indexOf("com/foo/A")));
+        assertEquals(3, after.getClassId(after.indexOf("com/foo/B")));
+        assertEquals(5, after.getCovered(CounterEntity.LINE, after.indexOf("com/foo/B")));
+        assertEquals(0, after.indexOf("com/bar/C"));
+    }
+
+    /**
+     * 按 CounterEntity 顺序的计数器，只设置行和分支两项
+     */
+    static int[] lines(int line, int branch) {
+        int[] counters = new int[ENTITY_COUNT];
+        counters[CounterEntity.LINE.ordinal()] = line;
+        counters[CounterEntity.BRANCH.ordinal()] = branch;
+        return counters;
+    }
+}
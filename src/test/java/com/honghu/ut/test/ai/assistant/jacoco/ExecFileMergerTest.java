@@ -0,0 +1,76 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ExecFileMerger 的合并测试
+ */
+class ExecFileMergerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mergesProbesOfTheSameClassWithOr() throws IOException {
+        String first = write("a.exec", "s1", new ExecutionData(1, "com/foo/A", new boolean[]{true, false, false}));
+        String second = write("b.exec", "s2", new ExecutionData(1, "com/foo/A", new boolean[]{false, false, true}),
+            new ExecutionData(2, "com/foo/B", new boolean[]{true}));
+
+        ExecFileMerger.MergeResult result = new ExecFileMerger(2).merge(List.of(first, second), null, null);
+
+        assertArrayEquals(new boolean[]{true, false, true}, result.getExecutionDataStore().get(1).getProbes());
+        assertArrayEquals(new boolean[]{true}, result.getExecutionDataStore().get(2).getProbes());
+        assertEquals(2, result.getSessionCount());
+        assertTrue(result.getConflicts().isEmpty());
+    }
+
+    @Test
+    void keepsTheFirstDataAndReportsIncompatibleProbes() throws IOException {
+        String first = write("a.exec", "s1", new ExecutionData(7, "com/foo/A", new boolean[]{true, false}));
+        String second = write("b.exec", "s2", new ExecutionData(7, "com/foo/A", new boolean[]{false, true, true}));
+
+        // 单线程时先读到的文件确定
+        ExecFileMerger.MergeResult result = new ExecFileMerger(1).merge(List.of(first, second), null, null);
+
+        assertArrayEquals(new boolean[]{true, false}, result.getExecutionDataStore().get(7).getProbes());
+        assertEquals("com/foo/A <-> com/foo/A", result.getConflicts().get(7L));
+    }
+
+    @Test
+    void appliesTheClassFilter() throws IOException {
+        String file = write("a.exec", "s1", new ExecutionData(1, "com/foo/A", new boolean[]{true}),
+            new ExecutionData(2, "com/bar/B", new boolean[]{true}));
+
+        ExecFileMerger.MergeResult result = new ExecFileMerger(1)
+            .merge(List.of(file), name -> name.startsWith("com/foo/"), null);
+
+        assertEquals(1, result.getExecutionDataStore().getContents().size());
+        assertNull(result.getExecutionDataStore().get(2));
+    }
+
+    private String write(String fileName, String sessionId, ExecutionData... data) throws IOException {
+        Path file = tempDir.resolve(fileName);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo(sessionId, 0, 0));
+            for (ExecutionData executionData : data) {
+                writer.visitClassExecution(executionData);
+            }
+        }
+        return file.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import com.honghu.ut.test.ai.assistant.config.UtAssistantSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * JacocoUtils 查找 exec 文件的测试
+ */
+class JacocoUtilsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsExecFilesOnlyInBuildOutputDirectories() throws IOException {
+        Path rootExec = touch("build/jacoco/test.exec");
+        Path moduleExec = touch("service/target/jacoco.exec");
+        Path projectExec = touch("jacoco.exec");
+        // 不在构建输出目录中的文件不会被找到，即使匹配模式
+        touch("service/src/test/resources/jacoco.exec");
+        touch("service/target/classes/jacoco.exec");
+
+        List<String> execFiles = JacocoUtils.findExecFiles(tempDir.toString(),
+            UtAssistantSettings.DEFAULT_EXEC_FILE_GLOB, List.of(tempDir.resolve("service").toString()));
+
+        assertEquals(List.of(rootExec.toString(), projectExec.toString(), moduleExec.toString()), execFiles);
+    }
+
+    @Test
+    void ignoresBuildRootsWithoutOutputDirectories() throws IOException {
+        Files.createDirectories(tempDir.resolve("web"));
+        assertEquals(List.of(), JacocoUtils.findExecFiles(tempDir.toString(),
+            UtAssistantSettings.DEFAULT_EXEC_FILE_GLOB, List.of(tempDir.resolve("web").toString())));
+    }
+
+    private Path touch(String relativePath) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[0]);
+    }
+}
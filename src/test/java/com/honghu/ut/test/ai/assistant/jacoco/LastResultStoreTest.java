@@ -0,0 +1,96 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.honghu.ut.test.ai.assistant.jacoco.CoverageSnapshotTest.lines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LastResultStore 的保存、读回和损坏文件测试
+ */
+class LastResultStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void restoresTheSnapshotAndModules() throws IOException {
+        CoverageResult saved = sampleResult();
+        LastResultStore store = newStore();
+        store.save(saved);
+
+        CoverageResult restored = newStore().load(7);
+
+        assertNotNull(restored);
+        assertTrue(restored.isRestored());
+        assertEquals(7, restored.getVersion());
+        assertEquals(saved.getCreatedAt(), restored.getCreatedAt());
+        assertEquals("unit", restored.getSessionName());
+        CoverageSnapshot expected = saved.getSnapshot();
+        CoverageSnapshot actual = restored.getSnapshot();
+        assertEquals(expected.getClassCount(), actual.getClassCount());
+        for (int i = 0; i < expected.getClassCount(); i++) {
+            assertEquals(expected.getClassName(i), actual.getClassName(i));
+            assertEquals(expected.getClassId(i), actual.getClassId(i));
+            assertEquals(expected.getSourceFileName(i), actual.getSourceFileName(i));
+            for (CounterEntity entity : CounterEntity.values()) {
+                assertEquals(expected.getMissed(entity, i), actual.getMissed(entity, i));
+                assertEquals(expected.getCovered(entity, i), actual.getCovered(entity, i));
+            }
+        }
+        assertEquals("core", restored.getRollup().getModuleName("com/foo/A"));
+        assertEquals(CoverageRollup.UNASSIGNED_MODULE, restored.getRollup().getModuleName("com/bar/C"));
+        assertTrue(restored.getClassDetails().isEmpty());
+    }
+
+    @Test
+    void doesNotSaveEmptyResults() throws IOException {
+        newStore().save(CoverageResult.EMPTY);
+        assertFalse(Files.exists(tempDir.resolve("last-result.bin")));
+        assertNull(newStore().load(1));
+    }
+
+    @Test
+    void treatsTruncatedOrForeignFilesAsMissing() throws IOException {
+        LastResultStore store = newStore();
+        store.save(sampleResult());
+        Path file = tempDir.resolve("last-result.bin");
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertNull(store.load(1));
+
+        byte[] foreign = bytes.clone();
+        foreign[0] = 0;
+        Files.write(file, foreign);
+        assertNull(store.load(1));
+
+        store.clear();
+        assertNull(store.load(1));
+    }
+
+    private LastResultStore newStore() {
+        return new LastResultStore(tempDir.resolve("last-result.bin"));
+    }
+
+    private static CoverageResult sampleResult() {
+        CoverageSnapshot snapshot = new CoverageSnapshot.Builder()
+            .add("com/foo/A", 11, "A.java", lines(3, 1), lines(7, 1))
+            .add("com/foo/A$Inner", 12, "A.java", lines(1, 0), lines(0, 0))
+            .add("com/bar/C", 13, null, lines(0, 0), lines(5, 2))
+            .build();
+        CoverageRollup rollup = CoverageRollup.build(snapshot, Map.of("com/foo/A", "core", "com/foo/A$Inner", "core"));
+        return CoverageResult.EMPTY.successor(3, "unit", snapshot, rollup, Map.of());
+    }
+}
@@ -0,0 +1,174 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MappedExecFileReader 的读取测试
+ * 用很小的映射窗口让每个字段都有机会跨越窗口边界
+ */
+class MappedExecFileReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsWhatExecutionDataWriterWrote() throws IOException {
+        List<ExecutionData> written = sampleData(new Random(1), 20);
+        Path file = write(tempDir.resolve("jacoco.exec"), written, "session-1");
+
+        List<ExecutionData> read = new ArrayList<>();
+        List<SessionInfo> sessions = new ArrayList<>();
+        MappedExecFileReader reader = new MappedExecFileReader(file);
+        reader.setSessionInfoVisitor(sessions::add);
+        reader.setExecutionDataVisitor(read::add);
+        reader.read();
+
+        assertSameData(written, read);
+        assertEquals(1, sessions.size());
+        assertEquals("session-1", sessions.get(0).getId());
+        assertEquals(written.size(), reader.getAcceptedClasses());
+    }
+
+    @Test
+    void decodesRecordsAcrossEveryWindowBoundary() throws IOException {
+        List<ExecutionData> written = sampleData(new Random(2), 12);
+        Path file = write(tempDir.resolve("jacoco.exec"), written, "会话");
+
+        // 窗口从 1 字节到超过单条记录长度，文件头、会话、类名和探针都会被窗口截断
+        for (long windowSize = 1; windowSize <= 96; windowSize++) {
+            List<ExecutionData> read = new ArrayList<>();
+            MappedExecFileReader reader = new MappedExecFileReader(file, windowSize);
+            reader.setExecutionDataVisitor(read::add);
+            reader.read();
+            assertSameData(written, read);
+        }
+    }
+
+    @Test
+    void skipsFilteredProbesAcrossWindowBoundaries() throws IOException {
+        List<ExecutionData> written = sampleData(new Random(3), 30);
+        Path file = write(tempDir.resolve("jacoco.exec"), written, "session");
+
+        List<ExecutionData> expected = new ArrayList<>();
+        for (ExecutionData data : written) {
+            if (data.getName().endsWith("0")) {
+                expected.add(data);
+            }
+        }
+        for (long windowSize = 1; windowSize <= 40; windowSize += 3) {
+            List<ExecutionData> read = new ArrayList<>();
+            MappedExecFileReader reader = new MappedExecFileReader(file, windowSize);
+            reader.setClassFilter(name -> name.endsWith("0"));
+            reader.setExecutionDataVisitor(read::add);
+            reader.read();
+            assertSameData(expected, read);
+            assertEquals(written.size() - expected.size(), reader.getSkippedClasses());
+        }
+    }
+
+    @Test
+    void readsConcatenatedExecFiles() throws IOException {
+        List<ExecutionData> first = sampleData(new Random(4), 3);
+        List<ExecutionData> second = sampleData(new Random(5), 4);
+        byte[] bytes = concat(toBytes(first, "a"), toBytes(second, "b"));
+        Path file = Files.write(tempDir.resolve("merged.exec"), bytes);
+
+        List<ExecutionData> read = new ArrayList<>();
+        List<SessionInfo> sessions = new ArrayList<>();
+        MappedExecFileReader reader = new MappedExecFileReader(file, 7);
+        reader.setSessionInfoVisitor(sessions::add);
+        reader.setExecutionDataVisitor(read::add);
+        reader.read();
+
+        List<ExecutionData> expected = new ArrayList<>(first);
+        expected.addAll(second);
+        assertSameData(expected, read);
+        assertEquals(2, sessions.size());
+    }
+
+    @Test
+    void truncatedFileFailsWithEofException() throws IOException {
+        byte[] bytes = toBytes(sampleData(new Random(6), 5), "session");
+        Path file = Files.write(tempDir.resolve("truncated.exec"), Arrays.copyOf(bytes, bytes.length - 3));
+
+        MappedExecFileReader reader = new MappedExecFileReader(file, 16);
+        reader.setExecutionDataVisitor(data -> { });
+        assertThrows(EOFException.class, reader::read);
+    }
+
+    @Test
+    void simpleNameFilterDisablesPrefilterForArchives() {
+        assertNull(MappedExecFileReader.simpleNameFilter(List.of("/out/com/foo/Bar.class", "/lib/app.jar")));
+        Predicate<String> filter = MappedExecFileReader.simpleNameFilter(List.of("/out/com/foo/Bar$1.class"));
+        assertTrue(filter.test("org/other/Bar$1"));
+        assertFalse(filter.test("com/foo/Bar"));
+    }
+
+    /**
+     * 不同长度的探针数组（包含 0 个和跨多个字节的），类名包含多字节字符
+     */
+    private static List<ExecutionData> sampleData(Random random, int count) {
+        List<ExecutionData> data = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            boolean[] probes = new boolean[1 + random.nextInt(40)];
+            for (int p = 0; p < probes.length; p++) {
+                probes[p] = random.nextBoolean();
+            }
+            // ExecutionDataWriter 不会写出没有命中的类
+            probes[random.nextInt(probes.length)] = true;
+            String name = (i % 3 == 0 ? "com/例子/类" : "com/example/Sample") + "$" + i;
+            data.add(new ExecutionData(random.nextLong(), name, probes));
+        }
+        return data;
+    }
+
+    private static Path write(Path file, List<ExecutionData> data, String sessionId) throws IOException {
+        return Files.write(file, toBytes(data, sessionId));
+    }
+
+    private static byte[] toBytes(List<ExecutionData> data, String sessionId) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecutionDataWriter writer = new ExecutionDataWriter(out);
+        writer.visitSessionInfo(new SessionInfo(sessionId, 1000, 2000));
+        for (ExecutionData executionData : data) {
+            writer.visitClassExecution(executionData);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static void assertSameData(List<ExecutionData> expected, List<ExecutionData> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertArrayEquals(expected.get(i).getProbes(), actual.get(i).getProbes());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ParallelClassAnalyzer 的测试
+ * 分析对象是本测试中的 Fixture 类，类文件从测试的类路径复制到临时目录
+ */
+class ParallelClassAnalyzerTest {
+    private static final String FIXTURE = Fixture.class.getName().replace('.', '/');
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fullAnalysisWithWarmCacheKeepsLineDetails() throws IOException {
+        byte[] bytes = fixtureBytes();
+        Path classFile = Files.write(tempDir.resolve("Fixture.class"), bytes);
+        ExecutionDataStore executionData = executed(bytes);
+        ClassAnalysisCache cache = new ClassAnalysisCache(tempDir.resolve("class-analysis.cache"));
+
+        IClassCoverage first = analyzeFixture(new ParallelClassAnalyzer(1, cache), classFile, executionData);
+        cache.save();
+        // 第二次分析时缓存已命中，完整模式仍然要拿到真实的方法和行信息
+        ClassAnalysisCache warm = new ClassAnalysisCache(tempDir.resolve("class-analysis.cache"));
+        IClassCoverage second = analyzeFixture(new ParallelClassAnalyzer(1, warm), classFile, executionData);
+
+        assertFalse(second instanceof ClassAnalysisCache.CachedClassCoverage);
+        assertEquals(first.getMethods().size(), second.getMethods().size());
+        assertTrue(second.getFirstLine() > 0);
+        for (int line = first.getFirstLine(); line <= first.getLastLine(); line++) {
+            assertEquals(first.getLine(line).getStatus(), second.getLine(line).getStatus());
+        }
+        assertEquals(ICounter.FULLY_COVERED, second.getLine(second.getLastLine()).getStatus());
+    }
+
+    @Test
+    void summaryAnalysisServesUnchangedClassesFromTheCache() throws IOException {
+        byte[] bytes = fixtureBytes();
+        Path classFile = Files.write(tempDir.resolve("Fixture.class"), bytes);
+        ExecutionDataStore executionData = executed(bytes);
+        ClassAnalysisCache cache = new ClassAnalysisCache(tempDir.resolve("class-analysis.cache"));
+        new ParallelClassAnalyzer(1, cache).analyze(List.of(classFile.toString()), executionData, null);
+
+        CoverageBuilder builder = new ParallelClassAnalyzer(1, cache)
+            .analyze(List.of(classFile.toString()), executionData, null);
+        assertTrue(builder.getClasses().iterator().next() instanceof ClassAnalysisCache.CachedClassCoverage);
+    }
+
+    @Test
+    void shardedAnalysisMatchesSingleThreadedAnalysis() throws IOException {
+        List<String> paths = new ArrayList<>();
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        Path classes = Files.createDirectories(tempDir.resolve("classes/com/gen"));
+        for (int i = 0; i < 300; i++) {
+            byte[] bytes = generatedClass("com/gen/C" + i);
+            paths.add(Files.write(classes.resolve("C" + i + ".class"), bytes).toString());
+            if (i % 2 == 0) {
+                executed(executionData, bytes, "com/gen/C" + i);
+            }
+        }
+        // 归档中的类展开为条目后和类文件一起分片
+        Path jar = tempDir.resolve("lib.jar");
+        try (OutputStream out = Files.newOutputStream(jar); JarOutputStream jarOut = new JarOutputStream(out)) {
+            for (int i = 0; i < 100; i++) {
+                jarOut.putNextEntry(new ZipEntry("com/lib/L" + i + ".class"));
+                jarOut.write(generatedClass("com/lib/L" + i));
+                jarOut.closeEntry();
+            }
+        }
+        paths.add(jar.toString());
+
+        TreeMap<String, String> serial = summarize(new ParallelClassAnalyzer(1).analyze(paths, executionData, null));
+        TreeMap<String, String> parallel = summarize(new ParallelClassAnalyzer(4).analyze(paths, executionData, null));
+        assertEquals(400, serial.size());
+        assertEquals(serial, parallel);
+
+        CoverageSnapshot serialSnapshot = new ParallelClassAnalyzer(1)
+            .analyzeSummary(paths, executionData, null, null).getSnapshot();
+        CoverageSnapshot parallelSnapshot = new ParallelClassAnalyzer(4)
+            .analyzeSummary(paths, executionData, null, null).getSnapshot();
+        assertEquals(serialSnapshot.getClassCount(), parallelSnapshot.getClassCount());
+        for (int i = 0; i < serialSnapshot.getClassCount(); i++) {
+            assertEquals(serialSnapshot.getClassName(i), parallelSnapshot.getClassName(i));
+            for (CounterEntity entity : CounterEntity.values()) {
+                assertEquals(serialSnapshot.getCovered(entity, i), parallelSnapshot.getCovered(entity, i));
+                assertEquals(serialSnapshot.getMissed(entity, i), parallelSnapshot.getMissed(entity, i));
+            }
+        }
+    }
+
+    /**
+     * 类名到各计数器的文本表示，便于整体比较
+     */
+    private static TreeMap<String, String> summarize(CoverageBuilder builder) {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (IClassCoverage coverage : builder.getClasses()) {
+            StringBuilder counters = new StringBuilder();
+            for (CounterEntity entity : CounterEntity.values()) {
+                counters.append(coverage.getCounter(entity).getMissedCount()).append('/')
+                    .append(coverage.getCounter(entity).getCoveredCount()).append(' ');
+            }
+            result.put(coverage.getName(), counters.toString());
+        }
+        return result;
+    }
+
+    /**
+     * 生成一个带分支的类：int pick(int value) { return value > 0 ? 1 : 2; }
+     */
+    private static byte[] generatedClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "pick", "(I)I", null, null);
+        method.visitCode();
+        Label negative = new Label();
+        method.visitVarInsn(Opcodes.ILOAD, 0);
+        method.visitJumpInsn(Opcodes.IFLE, negative);
+        method.visitInsn(Opcodes.ICONST_1);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitLabel(negative);
+        method.visitInsn(Opcodes.ICONST_2);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static IClassCoverage analyzeFixture(ParallelClassAnalyzer analyzer, Path classFile,
+                                                 ExecutionDataStore executionData) throws IOException {
+        CoverageBuilder builder = analyzer.analyze(List.of(classFile.toString()), executionData,
+            className -> true, null);
+        assertEquals(1, builder.getClasses().size());
+        return builder.getClasses().iterator().next();
+    }
+
+    static byte[] fixtureBytes() throws IOException {
+        String resource = FIXTURE.substring(FIXTURE.lastIndexOf('/') + 1) + ".class";
+        try (InputStream in = Fixture.class.getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * 所有探针都已执行的执行数据
+     */
+    static ExecutionDataStore executed(byte[] bytes) {
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        executed(executionData, bytes, FIXTURE);
+        return executionData;
+    }
+
+    private static void executed(ExecutionDataStore executionData, byte[] bytes, String className) {
+        boolean[] probes = new boolean[64];
+        Arrays.fill(probes, true);
+        executionData.put(new ExecutionData(ClassIds.classId(bytes), className, probes));
+    }
+
+    static final class Fixture {
+        int twice(int value) {
+            if (value > 10) {
+                return value;
+            }
+            return value * 2;
+        }
+    }
+}
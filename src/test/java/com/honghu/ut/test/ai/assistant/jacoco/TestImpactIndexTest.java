@@ -0,0 +1,107 @@
+package com.honghu.ut.test.ai.assistant.jacoco;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TestImpactIndex 的持久化和选择测试
+ */
+class TestImpactIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void selectsTestsCoveringChangedClassesAfterReload() throws IOException {
+        Path file = tempDir.resolve("cache/test-impact.bin");
+        TestImpactIndex index = new TestImpactIndex(file);
+        assertTrue(index.isEmpty());
+        index.update(sampleCoverage(), TestImpactIndexTest::isProductionClass, 1000);
+        index.save();
+
+        TestImpactIndex reloaded = new TestImpactIndex(file);
+        assertEquals(3, reloaded.getTestClassCount());
+        assertEquals(1000, reloaded.getEarliestRunAt());
+        assertEquals(List.of("p.ATest", "p.CTest"), reloaded.selectAffected(List.of("p/A")));
+        // 外层类变化时其内部类也算变化，嵌套测试类归到外层类
+        assertEquals(List.of("p.BTest"), reloaded.selectAffected(List.of("p/B")));
+        // 测试类自身变化
+        assertEquals(List.of("p.ATest"), reloaded.selectAffected(List.of("p/ATest")));
+        // 依赖库的类不进入索引
+        assertEquals(List.of(), reloaded.selectAffected(List.of("lib/X")));
+        assertTrue(reloaded.contains("p.CTest"));
+        assertFalse(reloaded.contains("p.DTest"));
+    }
+
+    @Test
+    void updateReplacesOnlyTheTestClassesThatRan() throws IOException {
+        Path file = tempDir.resolve("test-impact.bin");
+        TestImpactIndex index = new TestImpactIndex(file);
+        index.update(sampleCoverage(), TestImpactIndexTest::isProductionClass, 1000);
+        index.update(Map.of("p.CTest", Set.of("p/C")), TestImpactIndexTest::isProductionClass, 500);
+
+        assertEquals(List.of("p.ATest"), index.selectAffected(List.of("p/A")));
+        assertEquals(List.of("p.CTest"), index.selectAffected(List.of("p/C")));
+        assertEquals(500, index.getEarliestRunAt());
+    }
+
+    @Test
+    void comparesRecompiledClassesWithEachTestsOwnLastRun() {
+        TestImpactIndex index = new TestImpactIndex(tempDir.resolve("test-impact.bin"));
+        index.update(sampleCoverage(), TestImpactIndexTest::isProductionClass, 1000);
+        // 之后只重新运行了 CTest
+        index.update(Map.of("p.CTest", Set.of("p/A", "p/C")), TestImpactIndexTest::isProductionClass, 3000);
+
+        // p/A 在两次运行之间重新编译：CTest 已经用新类运行过，ATest 还没有
+        assertEquals(List.of("p.ATest"), index.selectAffected(List.of(), Map.of("p/A", 2000L)));
+        // 内部类按外层类的编译时间判断
+        assertEquals(List.of("p.BTest"), index.selectAffected(List.of(), Map.of("p/B", 2000L)));
+        assertEquals(List.of("p.ATest", "p.CTest"), index.selectAffected(List.of(), Map.of("p/A", 4000L)));
+        // 测试类本身重新编译
+        assertEquals(List.of("p.CTest"), index.selectAffected(List.of(), Map.of("p/CTest", 3500L)));
+        assertEquals(List.of(), index.selectAffected(List.of(), Map.of("p/CTest", 2500L)));
+    }
+
+    @Test
+    void corruptedFileIsTreatedAsEmpty() throws IOException {
+        Path file = tempDir.resolve("test-impact.bin");
+        TestImpactIndex index = new TestImpactIndex(file);
+        index.update(sampleCoverage(), TestImpactIndexTest::isProductionClass, 1000);
+        index.save();
+        byte[] bytes = Files.readAllBytes(file);
+
+        // 截断在最后一个测试类的位图中间
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertTrue(new TestImpactIndex(file).isEmpty());
+        // 生产类数量被破坏成很大的值，读到文件末尾也读不完
+        byte[] oversized = bytes.clone();
+        oversized[8] = 0x7F;
+        Arrays.fill(oversized, 9, 12, (byte) 0xFF);
+        Files.write(file, oversized);
+        assertTrue(new TestImpactIndex(file).isEmpty());
+    }
+
+    private static Map<String, Set<String>> sampleCoverage() {
+        Map<String, Set<String>> coverage = new LinkedHashMap<>();
+        coverage.put("p.ATest", Set.of("p/A", "p/ATest", "lib/X"));
+        coverage.put("p.BTest$Inner", Set.of("p/B$1"));
+        coverage.put("p.CTest", Set.of("p/A", "p/C"));
+        return coverage;
+    }
+
+    private static boolean isProductionClass(String className) {
+        return className.startsWith("p/") && !className.contains("Test");
+    }
+}
@@ -0,0 +1,63 @@
+package com.honghu.ut.test.ai.assistant.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * ModuleClassLoaders 的按模块重建测试
+ */
+class ModuleClassLoadersTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rebuildsOnlyTheChangedModuleAndTheModulesAfterIt() throws IOException {
+        List<List<String>> modules = List.of(module("core"), module("service"), module("web"));
+        try (ModuleClassLoaders loaders = new ModuleClassLoaders()) {
+            assertEquals(3, loaders.prepare(List.of(), modules));
+            ClassLoader core = loaders.getModuleLoader(0);
+            ClassLoader service = loaders.getModuleLoader(1);
+            assertSame(service, loaders.getModuleLoader(2).getParent());
+            // 链上最后一个类加载器能看到所有模块
+            assertNotNull(loaders.getTestLoader().getResource("core.txt"));
+
+            assertEquals(0, loaders.prepare(List.of(), modules));
+            assertSame(service, loaders.getModuleLoader(1));
+
+            Files.writeString(tempDir.resolve("service/service.txt"), "changed content");
+            assertEquals(2, loaders.prepare(List.of(), modules));
+            assertSame(core, loaders.getModuleLoader(0));
+            assertNotSame(service, loaders.getModuleLoader(1));
+            assertSame(loaders.getModuleLoader(1), loaders.getModuleLoader(2).getParent());
+        }
+    }
+
+    @Test
+    void rebuildsEverythingWhenTheLibrariesChange() throws IOException {
+        List<List<String>> modules = List.of(module("core"), module("web"));
+        Path jar = Files.write(tempDir.resolve("lib.jar"), new byte[0]);
+        try (ModuleClassLoaders loaders = new ModuleClassLoaders()) {
+            loaders.prepare(List.of(), modules);
+            assertEquals(2, loaders.prepare(List.of(jar.toString()), modules));
+            // 模块列表变短时多余的类加载器被关闭
+            assertEquals(0, loaders.prepare(List.of(jar.toString()), modules.subList(0, 1)));
+            assertSame(loaders.getModuleLoader(0), loaders.getTestLoader());
+        }
+    }
+
+    private List<String> module(String name) throws IOException {
+        Path directory = Files.createDirectories(tempDir.resolve(name));
+        Files.writeString(directory.resolve(name + ".txt"), name);
+        return List.of(directory.toString());
+    }
+}